@@ -10,7 +10,7 @@ echo ========================================
 echo.
 
 echo [1/5] Compilando aplicação com Maven...
-call mvn clean package -DskipTests
+call mvn clean package -Pappcds -DskipTests
 if %errorlevel% neq 0 (
     echo ERRO: Falha na compilação Maven
     exit /b 1
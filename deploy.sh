@@ -12,7 +12,7 @@ echo "========================================"
 echo ""
 
 echo "[1/5] Compilando aplicação com Maven..."
-mvn clean package -DskipTests
+mvn clean package -Pappcds -DskipTests
 echo "Compilação concluída com sucesso!"
 echo ""
 
@@ -0,0 +1,63 @@
+package lambda.fase4.benchmark;
+
+import lambda.fase4.model.Avaliacao;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * Geração de dados sintéticos e determinísticos para os benchmarks.
+ */
+public final class DadosSinteticos {
+
+    private static final String[] DESCRICOES = {
+            "O curso superou minhas expectativas, conteúdo muito bem explicado!",
+            "Aulas desorganizadas e professor não respondeu às dúvidas no fórum.",
+            "Bom conteúdo, mas os exercícios práticos poderiam ser mais frequentes.",
+            "Plataforma instável, não consegui assistir às aulas da semana passada.",
+            "Material excelente e atualizado, recomendo para iniciantes."
+    };
+
+    private DadosSinteticos() {
+    }
+
+    /**
+     * Gera {@code quantidade} avaliações distribuídas uniformemente nos últimos 7 dias.
+     */
+    public static List<Avaliacao> avaliacoes(int quantidade, LocalDateTime fim, long semente) {
+        return avaliacoes(quantidade, fim, semente, 7);
+    }
+
+    /**
+     * Gera {@code quantidade} avaliações distribuídas uniformemente nos últimos {@code dias} dias.
+     */
+    public static List<Avaliacao> avaliacoes(int quantidade, LocalDateTime fim, long semente, int dias) {
+        SplittableRandom random = new SplittableRandom(semente);
+        long janelaSegundos = dias * 24L * 60 * 60;
+        List<Avaliacao> avaliacoes = new ArrayList<>(quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            avaliacoes.add(avaliacao(
+                    random.nextInt(11),
+                    fim.minusSeconds(random.nextLong(janelaSegundos)),
+                    DESCRICOES[random.nextInt(DESCRICOES.length)]));
+        }
+        return avaliacoes;
+    }
+
+    public static Avaliacao avaliacao(int nota, LocalDateTime dataEnvio, String descricao) {
+        Avaliacao avaliacao = new Avaliacao();
+        avaliacao.setId(UUID.randomUUID());
+        avaliacao.setDescricao(descricao);
+        avaliacao.setNota(nota);
+        avaliacao.setDataEnvio(dataEnvio);
+        avaliacao.calcularUrgencia();
+        return avaliacao;
+    }
+
+    public static String descricao(int indice) {
+        return DESCRICOES[indice % DESCRICOES.length];
+    }
+}
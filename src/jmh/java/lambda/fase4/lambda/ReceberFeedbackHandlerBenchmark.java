@@ -0,0 +1,42 @@
+package lambda.fase4.lambda;
+
+import com.google.gson.Gson;
+import lambda.fase4.dto.AvaliacaoRequest;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parse e validação do corpo da requisição em {@link ReceberFeedbackHandler}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReceberFeedbackHandlerBenchmark {
+
+    private final Gson gson = new Gson();
+
+    private String corpoValido;
+    private String corpoInvalido;
+
+    @Setup
+    public void setup() {
+        corpoValido = "{\"descricao\":\"Aulas desorganizadas e professor não respondeu às dúvidas.\",\"nota\":2}";
+        corpoInvalido = "{\"descricao\":\"Nota fora do intervalo\",\"nota\":42}";
+    }
+
+    @Benchmark
+    public String parseEValidacaoValida() {
+        AvaliacaoRequest request = gson.fromJson(corpoValido, AvaliacaoRequest.class);
+        return ReceberFeedbackHandler.validar(request);
+    }
+
+    @Benchmark
+    public String parseEValidacaoInvalida() {
+        AvaliacaoRequest request = gson.fromJson(corpoInvalido, AvaliacaoRequest.class);
+        return ReceberFeedbackHandler.validar(request);
+    }
+}
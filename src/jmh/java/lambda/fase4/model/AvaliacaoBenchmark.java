@@ -0,0 +1,28 @@
+package lambda.fase4.model;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cálculo de urgência da {@link Avaliacao} para todas as notas possíveis.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class AvaliacaoBenchmark {
+
+    private final Avaliacao avaliacao = new Avaliacao();
+    private int nota;
+
+    @Benchmark
+    public Avaliacao.Urgencia calcularUrgencia() {
+        nota = (nota + 1) % 11;
+        avaliacao.setNota(nota);
+        avaliacao.calcularUrgencia();
+        return avaliacao.getUrgencia();
+    }
+}
@@ -0,0 +1,158 @@
+package lambda.fase4.repository;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Busca textual indexada (tsvector + GIN, mesma consulta de {@link AvaliacaoRepository#buscarPorTexto})
+ * contra LIKE '%...%' em milhões de avaliações sintéticas, no PostgreSQL embarcado.
+ *
+ * "professor" aparece em cerca de 1/4 das descrições; "reembolso", em 0,1%.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class BuscaTextualBenchmark {
+
+    private static final String SQL_BUSCA = "SELECT a.id, d.descricao, a.nota, a.data_envio, a.urgencia, " +
+            "ts_rank(d.busca, q.consulta) AS relevancia " +
+            "FROM avaliacoes_descricoes d JOIN avaliacoes a ON a.id = d.avaliacao_id, " +
+            "websearch_to_tsquery('portuguese', f_unaccent(?)) AS q(consulta) " +
+            "WHERE d.busca @@ q.consulta " +
+            "AND a.data_envio >= ? AND a.data_envio <= ? " +
+            "AND a.urgencia IN ('CRITICA', 'MEDIA', 'BAIXA') " +
+            "AND (ts_rank(d.busca, q.consulta), a.data_envio, a.id) < (CAST(? AS real), ?, ?) " +
+            "ORDER BY relevancia DESC, a.data_envio DESC, a.id DESC LIMIT 21";
+
+    private static final String SQL_LIKE = "SELECT a.id, d.descricao, a.nota, a.data_envio, a.urgencia " +
+            "FROM avaliacoes_descricoes d JOIN avaliacoes a ON a.id = d.avaliacao_id " +
+            "WHERE d.descricao ILIKE '%' || ? || '%' " +
+            "ORDER BY a.data_envio DESC, a.id DESC LIMIT 21";
+
+    private static final String[] CURSOS = {
+            "Java", "Spring Boot", "AWS", "Kubernetes", "Python", "Banco de Dados", "React", "Arquitetura de Software",
+            "Microsserviços", "Segurança", "DevOps", "Machine Learning", "Algoritmos", "Redes", "Go", "Testes"
+    };
+
+    private static final String[] FRASES = {
+            "O professor não respondeu às dúvidas no fórum.",
+            "Plataforma instável, vídeos travando durante as aulas.",
+            "Conteúdo excelente e muito bem explicado.",
+            "Exercícios práticos insuficientes para fixar o conteúdo.",
+            "Professora atenciosa, explicações claras.",
+            "Material desatualizado em relação à versão atual.",
+            "Certificado demorou semanas para ser emitido.",
+            "Ótima didática do professor, recomendo."
+    };
+
+    @Param({"1000000", "3000000"})
+    private int quantidade;
+
+    @Param({"professor", "reembolso"})
+    private String termo;
+
+    private EmbeddedPostgres postgres;
+    private Connection conexao;
+    private PreparedStatement busca;
+    private PreparedStatement buscaLike;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        postgres = EmbeddedPostgres.builder()
+                .setServerConfig("shared_buffers", "512MB")
+                .setServerConfig("maintenance_work_mem", "512MB")
+                .start();
+        conexao = postgres.getPostgresDatabase().getConnection();
+
+        try (Statement statement = conexao.createStatement()) {
+            statement.execute("CREATE TABLE avaliacoes (id uuid PRIMARY KEY, " +
+                    "nota integer NOT NULL, data_envio timestamp(6) NOT NULL, urgencia varchar(255) NOT NULL, " +
+                    "notificacao_enviada boolean, notificacao_reservada_em timestamp(6))");
+            statement.execute("CREATE TABLE avaliacoes_descricoes (avaliacao_id uuid PRIMARY KEY " +
+                    "REFERENCES avaliacoes (id), descricao varchar(2000) NOT NULL)");
+            statement.execute("SELECT setseed(0.42)");
+            statement.execute("INSERT INTO avaliacoes (id, nota, data_envio, urgencia, notificacao_enviada) " +
+                    "SELECT md5(g::text)::uuid, nota, now() - random() * interval '365 days', " +
+                    "CASE WHEN nota <= 3 THEN 'CRITICA' WHEN nota <= 6 THEN 'MEDIA' ELSE 'BAIXA' END, false " +
+                    "FROM (SELECT g, floor(random() * 11)::int AS nota FROM generate_series(1, " + quantidade + ") g) s");
+            statement.execute("INSERT INTO avaliacoes_descricoes (avaliacao_id, descricao) " +
+                    "SELECT md5(g::text)::uuid, " +
+                    "'Curso de ' || (" + array(CURSOS) + ")[1 + floor(random() * " + CURSOS.length + ")::int] || '. ' " +
+                    "|| (" + array(FRASES) + ")[1 + floor(random() * " + FRASES.length + ")::int] " +
+                    "|| CASE WHEN random() < 0.001 THEN ' Quero reembolso.' ELSE '' END " +
+                    "FROM generate_series(1, " + quantidade + ") g");
+            statement.execute("CREATE INDEX idx_avaliacoes_data_envio_id ON avaliacoes (data_envio, id)");
+        }
+        // Mesmo script aplicado pela aplicação: coluna gerada, função f_unaccent e índice GIN
+        ScriptUtils.executeSqlScript(conexao, new ClassPathResource("db/busca-textual.sql"));
+        try (Statement statement = conexao.createStatement()) {
+            statement.execute("VACUUM ANALYZE avaliacoes, avaliacoes_descricoes");
+            // Equivalente a AvaliacaoRepository#usarPlanoPorExecucao (sem ele o plano genérico ignora o GIN)
+            statement.execute("SET plan_cache_mode = force_custom_plan");
+        }
+
+        busca = conexao.prepareStatement(SQL_BUSCA);
+        buscaLike = conexao.prepareStatement(SQL_LIKE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        conexao.close();
+        postgres.close();
+    }
+
+    /**
+     * Primeira página da busca indexada, ordenada por relevância.
+     */
+    @Benchmark
+    public int buscaIndexada() throws Exception {
+        busca.setString(1, termo);
+        busca.setTimestamp(2, Timestamp.valueOf(LocalDateTime.of(1970, 1, 1, 0, 0)));
+        busca.setTimestamp(3, Timestamp.valueOf(LocalDateTime.of(9999, 12, 31, 23, 59)));
+        busca.setFloat(4, Float.MAX_VALUE);
+        busca.setTimestamp(5, Timestamp.valueOf(LocalDateTime.of(9999, 12, 31, 23, 59)));
+        busca.setObject(6, new UUID(0, 0));
+        return contar(busca);
+    }
+
+    /**
+     * Primeira página com LIKE '%termo%' (varredura completa da tabela).
+     */
+    @Benchmark
+    public int buscaLike() throws Exception {
+        buscaLike.setString(1, termo);
+        return contar(buscaLike);
+    }
+
+    private static int contar(PreparedStatement statement) throws Exception {
+        int linhas = 0;
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                linhas++;
+            }
+        }
+        return linhas;
+    }
+
+    private static String array(String[] valores) {
+        StringBuilder sql = new StringBuilder("ARRAY[");
+        for (int i = 0; i < valores.length; i++) {
+            sql.append(i > 0 ? ", '" : "'").append(valores[i].replace("'", "''")).append('\'');
+        }
+        return sql.append(']').toString();
+    }
+}
@@ -0,0 +1,133 @@
+package lambda.fase4.repository;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.hibernate.id.uuid.UuidVersion7Strategy;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vazão de inserção de avaliações com chave UUIDv4 em varchar (esquema anterior) contra UUIDv7
+ * em uuid nativo ({@link lambda.fase4.model.Avaliacao#getId()}), no PostgreSQL embarcado.
+ *
+ * Cada execução insere {@code linhas} avaliações em lotes JDBC do tamanho usado pela aplicação
+ * (hibernate.jdbc.batch_size), com a chave primária e o índice (data_envio, id) da tabela. O
+ * shared_buffers fica bem abaixo do tamanho final dos índices: com chaves aleatórias, cada lote
+ * toca páginas espalhadas por todo o índice, que precisam voltar do disco; com chaves ordenadas
+ * pelo tempo, só as últimas páginas. Ao final, mostra a vazão a cada milhão de linhas e o
+ * tamanho dos índices.
+ *
+ * Execução (cerca de 10 minutos por chave com o padrão de 10 milhões de linhas):
+ * <pre>
+ * ./mvnw -Pbenchmark -DskipTests test-compile exec:exec -Djmh.args="ChavePrimariaBenchmark"
+ * ./mvnw -Pbenchmark -DskipTests test-compile exec:exec -Djmh.args="ChavePrimariaBenchmark -p linhas=1000000"
+ * </pre>
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class ChavePrimariaBenchmark {
+
+    private static final int TAMANHO_LOTE = 100;
+    private static final int LINHAS_POR_FAIXA = 1_000_000;
+
+    public enum Chave {
+        V4_VARCHAR("varchar(255)"),
+        V7_UUID("uuid");
+
+        private final String tipoColuna;
+
+        Chave(String tipoColuna) {
+            this.tipoColuna = tipoColuna;
+        }
+    }
+
+    @Param({"V4_VARCHAR", "V7_UUID"})
+    private Chave chave;
+
+    @Param({"10000000"})
+    private int linhas;
+
+    private EmbeddedPostgres postgres;
+    private Connection conexao;
+    private PreparedStatement insercao;
+    private final List<Double> linhasPorSegundo = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        postgres = EmbeddedPostgres.builder()
+                .setServerConfig("shared_buffers", "128MB")
+                .setServerConfig("max_wal_size", "4GB")
+                .start();
+        conexao = DriverManager.getConnection(postgres.getJdbcUrl("postgres", "postgres")
+                + "&reWriteBatchedInserts=true");
+        try (Statement statement = conexao.createStatement()) {
+            statement.execute("CREATE TABLE avaliacoes (id " + chave.tipoColuna + " PRIMARY KEY, " +
+                    "descricao varchar(2000) NOT NULL, nota integer NOT NULL, data_envio timestamp(6) NOT NULL, " +
+                    "urgencia varchar(255) NOT NULL, notificacao_enviada boolean, notificacao_reservada_em timestamp(6))");
+            statement.execute("CREATE INDEX idx_avaliacoes_data_envio_id ON avaliacoes (data_envio, id)");
+        }
+        insercao = conexao.prepareStatement("INSERT INTO avaliacoes " +
+                "(id, descricao, nota, data_envio, urgencia, notificacao_enviada) VALUES (?, ?, ?, ?, ?, false)");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        System.out.println();
+        System.out.printf("%s: linhas/s a cada milhão %s%n", chave, linhasPorSegundo.stream()
+                .map(valor -> String.format("%.0f", valor)).toList());
+        try (Statement statement = conexao.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT " +
+                     "pg_relation_size('avaliacoes_pkey'), pg_relation_size('idx_avaliacoes_data_envio_id'), " +
+                     "pg_relation_size('avaliacoes')")) {
+            resultSet.next();
+            System.out.printf("%s: chave primária %d MB, índice (data_envio, id) %d MB, tabela %d MB%n", chave,
+                    resultSet.getLong(1) >> 20, resultSet.getLong(2) >> 20, resultSet.getLong(3) >> 20);
+        }
+        conexao.close();
+        postgres.close();
+    }
+
+    /**
+     * Insere {@code linhas} avaliações, uma transação por lote (autocommit).
+     */
+    @Benchmark
+    public long inserir() throws Exception {
+        long inicioFaixa = System.nanoTime();
+        for (int i = 1; i <= linhas; i++) {
+            if (chave == Chave.V7_UUID) {
+                insercao.setObject(1, UuidVersion7Strategy.INSTANCE.generateUuid(null));
+            } else {
+                insercao.setString(1, UUID.randomUUID().toString());
+            }
+            int nota = i % 11;
+            insercao.setString(2, "Avaliação sintética " + i);
+            insercao.setInt(3, nota);
+            insercao.setTimestamp(4, Timestamp.valueOf(LocalDateTime.now()));
+            insercao.setString(5, nota <= 3 ? "CRITICA" : nota <= 6 ? "MEDIA" : "BAIXA");
+            insercao.addBatch();
+            if (i % TAMANHO_LOTE == 0 || i == linhas) {
+                insercao.executeBatch();
+            }
+            if (i % LINHAS_POR_FAIXA == 0) {
+                long agora = System.nanoTime();
+                linhasPorSegundo.add(LINHAS_POR_FAIXA * 1e9 / (agora - inicioFaixa));
+                inicioFaixa = agora;
+            }
+        }
+        return linhas;
+    }
+}
@@ -0,0 +1,37 @@
+package lambda.fase4.service;
+
+import lambda.fase4.benchmark.DadosSinteticos;
+import lambda.fase4.config.GsonConfig;
+import lambda.fase4.model.Avaliacao;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Montagem do DTO e serialização JSON da mensagem enviada à fila de notificações.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AvaliacaoServiceBenchmark {
+
+    private AvaliacaoService avaliacaoService;
+    private Avaliacao avaliacao;
+
+    @Setup
+    public void setup() {
+        // montarMensagemNotificacao só usa o Gson; as demais dependências ficam nulas
+        avaliacaoService = new AvaliacaoService(null, null, null, new GsonConfig().gson(),
+                null, null, null, null, null, null, null, null);
+        avaliacao = DadosSinteticos.avaliacao(2, LocalDateTime.now(), DadosSinteticos.descricao(1));
+    }
+
+    @Benchmark
+    public String montarMensagemNotificacao() {
+        return avaliacaoService.montarMensagemNotificacao(avaliacao);
+    }
+}
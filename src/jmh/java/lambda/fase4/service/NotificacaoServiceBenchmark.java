@@ -0,0 +1,50 @@
+package lambda.fase4.service;
+
+import lambda.fase4.dto.NotificacaoUrgenciaDTO;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Formatação das mensagens de notificação (SNS, e-mail HTML e texto).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NotificacaoServiceBenchmark {
+
+    private NotificacaoService notificacaoService;
+    private NotificacaoUrgenciaDTO notificacao;
+
+    @Setup
+    public void setup() {
+        // A formatação das mensagens não usa nenhuma dependência
+        notificacaoService = new NotificacaoService(null, null, null, null, null, null, null, null);
+        notificacao = NotificacaoUrgenciaDTO.builder()
+                .avaliacaoId("0b7f3c52-8c4e-4d0c-9a54-7f1e2d3c4b5a")
+                .descricao("Aulas desorganizadas e professor não respondeu às dúvidas no fórum.")
+                .urgencia("CRITICA")
+                .dataEnvio(LocalDateTime.now().toString())
+                .nota(2)
+                .build();
+    }
+
+    @Benchmark
+    public String formatarMensagemSns() {
+        return notificacaoService.formatarMensagemSns(notificacao);
+    }
+
+    @Benchmark
+    public String formatarEmailHtml() {
+        return notificacaoService.formatarEmailHtml(notificacao);
+    }
+
+    @Benchmark
+    public String formatarEmailTexto() {
+        return notificacaoService.formatarEmailTexto(notificacao);
+    }
+}
@@ -0,0 +1,77 @@
+package lambda.fase4.service;
+
+import lambda.fase4.benchmark.DadosSinteticos;
+import lambda.fase4.dto.RelatorioSemanalDTO;
+import lambda.fase4.model.Avaliacao;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Relatórios diário, semanal e mensal com comparação ao período anterior: motor de passada
+ * única (agregação por dia em fork/join) contra uma agregação e consolidação separada por granularidade.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class RelatorioMultiJanelaServiceBenchmark {
+
+    private static final EnumSet<RelatorioMultiJanelaService.Granularidade> GRANULARIDADES =
+            EnumSet.allOf(RelatorioMultiJanelaService.Granularidade.class);
+
+    @Param({"100000", "1000000"})
+    private int quantidade;
+
+    private RelatorioMultiJanelaService motor;
+    private AgregadoDiarioService.Colunas colunas;
+    private LocalDate inicioCobertura;
+    private LocalDate fim;
+
+    @Setup
+    public void setup() {
+        // consolidar não usa nenhuma dependência
+        motor = new RelatorioMultiJanelaService(null, null, null);
+        fim = LocalDate.of(2025, 1, 13);
+        inicioCobertura = RelatorioMultiJanelaService.inicioCobertura(fim, GRANULARIDADES);
+
+        List<Avaliacao> avaliacoes = new ArrayList<>(DadosSinteticos.avaliacoes(quantidade, fim.atStartOfDay(), 42L,
+                (int) (fim.toEpochDay() - inicioCobertura.toEpochDay())));
+        avaliacoes.sort(Comparator.comparing(Avaliacao::getDataEnvio));
+        colunas = new AgregadoDiarioService.Colunas(quantidade);
+        avaliacoes.forEach(a -> colunas.adicionar(a.getNota(), a.getDataEnvio(), a.getUrgencia()));
+    }
+
+    /**
+     * Seis janelas (três relatórios e seus períodos anteriores) em uma passada.
+     */
+    @Benchmark
+    public List<RelatorioSemanalDTO> passadaUnica() {
+        AgregadoDia[] dias = AgregadoDiarioService.agregarDias(colunas, inicioCobertura,
+                (int) (fim.toEpochDay() - inicioCobertura.toEpochDay()));
+        return motor.consolidar(dias, fim, GRANULARIDADES);
+    }
+
+    /**
+     * As mesmas seis janelas, com os dias agregados e consolidados uma vez por granularidade.
+     */
+    @Benchmark
+    public List<RelatorioSemanalDTO> janelasSeparadas() {
+        List<RelatorioSemanalDTO> relatorios = new ArrayList<>();
+        for (RelatorioMultiJanelaService.Granularidade granularidade : GRANULARIDADES) {
+            EnumSet<RelatorioMultiJanelaService.Granularidade> janela = EnumSet.of(granularidade);
+            LocalDate inicio = RelatorioMultiJanelaService.inicioCobertura(fim, janela);
+            AgregadoDia[] dias = AgregadoDiarioService.agregarDias(colunas, inicio,
+                    (int) (fim.toEpochDay() - inicio.toEpochDay()));
+            relatorios.addAll(motor.consolidar(dias, fim, janela));
+        }
+        return relatorios;
+    }
+}
@@ -0,0 +1,77 @@
+package lambda.fase4.service;
+
+import lambda.fase4.benchmark.DadosSinteticos;
+import lambda.fase4.dto.RelatorioSemanalDTO;
+import lambda.fase4.model.Avaliacao;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Agregação do relatório semanal e formatação do e-mail para volumes crescentes de avaliações.
+ *
+ * A consolidação segue o caminho de {@link RelatorioService#gerarRelatorioSemanal()}: agregados por
+ * dia (fork/join sobre as colunas, como no recálculo dos checkpoints) e consolidação dos agregados
+ * do primeiro dia parcial, dos dias completos e do dia corrente parcial.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class RelatorioServiceBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int quantidade;
+
+    private RelatorioService relatorioService;
+    private AgregadoDiarioService.Colunas colunas;
+    private RelatorioSemanalDTO relatorio;
+    private LocalDateTime inicio;
+    private LocalDateTime fim;
+    private LocalDate primeiroDiaCompleto;
+    private int quantidadeDias;
+
+    @Setup
+    public void setup() {
+        // Consolidação e formatação não usam nenhuma dependência
+        relatorioService = new RelatorioService(null, null, null, null, null, null);
+        fim = LocalDateTime.of(2025, 1, 13, 9, 0);
+        inicio = fim.minusDays(7);
+        primeiroDiaCompleto = inicio.toLocalDate().plusDays(1);
+        // Primeiro dia (parcial), seis dias completos e o dia corrente (parcial)
+        quantidadeDias = (int) (fim.toLocalDate().toEpochDay() - inicio.toLocalDate().toEpochDay()) + 1;
+
+        List<Avaliacao> avaliacoes = DadosSinteticos.avaliacoes(quantidade, fim, 42L).stream()
+                .sorted(Comparator.comparing(Avaliacao::getDataEnvio))
+                .toList();
+        colunas = new AgregadoDiarioService.Colunas(quantidade);
+        avaliacoes.forEach(a -> colunas.adicionar(a.getNota(), a.getDataEnvio(), a.getUrgencia()));
+        relatorio = consolidarRelatorio();
+    }
+
+    @Benchmark
+    public RelatorioSemanalDTO consolidarRelatorio() {
+        // As avaliações sintéticas estão em (inicio, fim]: o primeiro e o último dia já são as frações parciais
+        AgregadoDia[] dias = AgregadoDiarioService.agregarDias(colunas, inicio.toLocalDate(), quantidadeDias);
+        RelatorioService.AgregadosSemana agregados = new RelatorioService.AgregadosSemana(
+                dias[0], Arrays.copyOfRange(dias, 1, dias.length - 1), dias[dias.length - 1]);
+        return relatorioService.consolidarRelatorio(agregados, primeiroDiaCompleto, inicio, fim);
+    }
+
+    @Benchmark
+    public String formatarRelatorioHtml() {
+        return relatorioService.formatarRelatorioHtml(relatorio);
+    }
+
+    @Benchmark
+    public String formatarRelatorioTexto() {
+        return relatorioService.formatarRelatorioTexto(relatorio);
+    }
+}
@@ -0,0 +1,80 @@
+package lambda.fase4.config;
+
+import com.google.gson.Gson;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Exportador de spans para arquivo local: um objeto JSON por linha.
+ * Usado em testes offline, quando não há um OpenTelemetry Collector disponível.
+ */
+@Slf4j
+public class ArquivoSpanExporter implements SpanExporter {
+
+    private final Path arquivo;
+    private final Gson gson = new Gson();
+
+    public ArquivoSpanExporter(Path arquivo) {
+        this.arquivo = arquivo;
+    }
+
+    @Override
+    public synchronized CompletableResultCode export(Collection<SpanData> spans) {
+        try {
+            if (arquivo.getParent() != null) {
+                Files.createDirectories(arquivo.getParent());
+            }
+            try (BufferedWriter writer = Files.newBufferedWriter(arquivo, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (SpanData span : spans) {
+                    writer.write(gson.toJson(converter(span)));
+                    writer.newLine();
+                }
+            }
+            return CompletableResultCode.ofSuccess();
+        } catch (IOException e) {
+            log.error("Erro ao gravar spans em {}", arquivo, e);
+            return CompletableResultCode.ofFailure();
+        }
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        return CompletableResultCode.ofSuccess();
+    }
+
+    private static Map<String, Object> converter(SpanData span) {
+        Map<String, Object> atributos = new LinkedHashMap<>();
+        span.getAttributes().forEach((chave, valor) -> atributos.put(chave.getKey(), valor));
+
+        Map<String, Object> linha = new LinkedHashMap<>();
+        linha.put("traceId", span.getTraceId());
+        linha.put("spanId", span.getSpanId());
+        linha.put("parentSpanId", span.getParentSpanId());
+        linha.put("nome", span.getName());
+        linha.put("tipo", span.getKind().name());
+        linha.put("inicioEpochNanos", span.getStartEpochNanos());
+        linha.put("fimEpochNanos", span.getEndEpochNanos());
+        linha.put("duracaoMs", (span.getEndEpochNanos() - span.getStartEpochNanos()) / 1_000_000.0);
+        linha.put("status", span.getStatus().getStatusCode().name());
+        linha.put("atributos", atributos);
+        return linha;
+    }
+}
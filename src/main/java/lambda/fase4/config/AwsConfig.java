@@ -4,18 +4,38 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
 import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.awscore.client.builder.AwsClientBuilder;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.core.retry.RetryPolicy;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.cloudwatch.CloudWatchClient;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 import software.amazon.awssdk.services.ses.SesClient;
 import software.amazon.awssdk.services.sns.SnsClient;
+import software.amazon.awssdk.services.sns.model.PublishRequest;
 import software.amazon.awssdk.services.sqs.SqsClient;
 
+import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
 /**
  * Configuração dos clientes AWS SDK.
  *
  * IMPORTANTE: Serviços em us-east-2, EXCETO SES em us-east-1
  *
+ * SNS e SES podem ter mais de uma região ({@code aws.sns.regioes}, {@code aws.ses.regioes}, em ordem
+ * de preferência): as chamadas são roteadas para a região mais saudável, com failover automático
+ * ({@link RoteadorRegional}). Os clientes desses serviços têm timeout por tentativa e por chamada, para
+ * que uma região lenta não prenda a Lambda até o timeout da função. {@code aws.endpoint.<serviço>.<região>}
+ * substitui o endpoint de uma região (stubs locais em testes offline).
+ *
  * Utiliza DefaultCredentialsProvider que busca credenciais em:
  * 1. IAM Role (quando rodando em Lambda) - RECOMENDADO
  * 2. Variáveis de ambiente (AWS_ACCESS_KEY_ID, AWS_SECRET_ACCESS_KEY)
@@ -30,6 +50,30 @@ public class AwsConfig {
     @Value("${aws.ses.region:us-east-1}")
     private String sesRegion;
 
+    @Value("${aws.sns.regioes:${aws.region:us-east-2}}")
+    private String snsRegioes;
+
+    @Value("${aws.ses.regioes:${aws.ses.region:us-east-1}}")
+    private String sesRegioes;
+
+    @Value("${aws.regioes.timeout-tentativa-ms:5000}")
+    private long timeoutTentativaMs;
+
+    @Value("${aws.regioes.timeout-chamada-ms:12000}")
+    private long timeoutChamadaMs;
+
+    @Value("${aws.regioes.ejecao-segundos:30}")
+    private long ejecaoSegundos;
+
+    @Value("${aws.regioes.exploracao-segundos:60}")
+    private long exploracaoSegundos;
+
+    private final Environment environment;
+
+    public AwsConfig(Environment environment) {
+        this.environment = environment;
+    }
+
     @Bean
     @Primary
     public Region region() {
@@ -53,14 +97,17 @@ public class AwsConfig {
     }
 
     /**
-     * Cliente SNS em us-east-2
+     * Cliente SNS nas regiões de aws.sns.regioes (padrão: us-east-2). O tópico de urgência deve
+     * existir com o mesmo nome em cada região; o ARN é ajustado para a região escolhida.
      */
     @Bean
     public SnsClient snsClient() {
-        return SnsClient.builder()
-                .region(region())
-                .credentialsProvider(DefaultCredentialsProvider.create())
-                .build();
+        return RoteadorRegional.criar(SnsClient.class, "sns",
+                clientesRegionais("sns", snsRegioes, regiao -> configurar(SnsClient.builder(), "sns", regiao).build()),
+                (requisicao, regiao) -> requisicao instanceof PublishRequest publicacao && publicacao.topicArn() != null
+                        ? publicacao.toBuilder().topicArn(RoteadorRegional.arnNaRegiao(publicacao.topicArn(), regiao)).build()
+                        : requisicao,
+                Duration.ofSeconds(ejecaoSegundos), Duration.ofSeconds(exploracaoSegundos));
     }
 
     /**
@@ -75,16 +122,69 @@ public class AwsConfig {
     }
 
     /**
-     * Cliente SES FORÇADO para us-east-1
-     * SES tem funcionalidades limitadas fora de us-east-1, us-west-2 e eu-west-1
+     * Cliente S3 em us-east-2 (arquivos de exportação)
      */
     @Bean
-    public SesClient sesClient() {
-        return SesClient.builder()
-                .region(sesRegionBean())
+    public S3Client s3Client() {
+        return S3Client.builder()
+                .region(region())
                 .credentialsProvider(DefaultCredentialsProvider.create())
                 .build();
     }
-}
 
+    /**
+     * Gera os links temporários dos arquivos de exportação, assinados com as credenciais da função.
+     */
+    @Bean
+    public S3Presigner s3Presigner() {
+        return S3Presigner.builder()
+                .region(region())
+                .credentialsProvider(DefaultCredentialsProvider.create())
+                .build();
+    }
+
+    /**
+     * Cliente SES nas regiões de aws.ses.regioes (padrão: us-east-1).
+     * SES tem funcionalidades limitadas fora de us-east-1, us-west-2 e eu-west-1, e o remetente
+     * deve estar verificado em cada região configurada.
+     */
+    @Bean
+    public SesClient sesClient() {
+        return RoteadorRegional.criar(SesClient.class, "ses",
+                clientesRegionais("ses", sesRegioes, regiao -> configurar(SesClient.builder(), "ses", regiao).build()),
+                (requisicao, regiao) -> requisicao,
+                Duration.ofSeconds(ejecaoSegundos), Duration.ofSeconds(exploracaoSegundos));
+    }
 
+    private <T> Map<Region, T> clientesRegionais(String servico, String regioes, Function<Region, T> criarCliente) {
+        Map<Region, T> clientes = new LinkedHashMap<>();
+        Arrays.stream(regioes.split(","))
+                .map(String::trim)
+                .filter(regiao -> !regiao.isEmpty())
+                .map(Region::of)
+                .forEach(regiao -> clientes.put(regiao, criarCliente.apply(regiao)));
+        if (clientes.isEmpty()) {
+            throw new IllegalStateException("Nenhuma região configurada para " + servico);
+        }
+        return clientes;
+    }
+
+    /**
+     * Região, credenciais, timeouts e uma única nova tentativa na mesma região (o failover
+     * tenta as demais regiões).
+     */
+    private <B extends AwsClientBuilder<B, ?>> B configurar(B builder, String servico, Region regiao) {
+        builder.region(regiao)
+                .credentialsProvider(DefaultCredentialsProvider.create())
+                .overrideConfiguration(ClientOverrideConfiguration.builder()
+                        .apiCallAttemptTimeout(Duration.ofMillis(timeoutTentativaMs))
+                        .apiCallTimeout(Duration.ofMillis(timeoutChamadaMs))
+                        .retryPolicy(RetryPolicy.builder().numRetries(1).build())
+                        .build());
+        String endpoint = environment.getProperty("aws.endpoint." + servico + "." + regiao.id());
+        if (endpoint != null && !endpoint.isBlank()) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        return builder;
+    }
+}
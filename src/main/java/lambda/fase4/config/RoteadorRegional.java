@@ -0,0 +1,337 @@
+package lambda.fase4.config;
+
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.awscore.AwsRequest;
+import software.amazon.awssdk.awscore.AwsRequestOverrideConfiguration;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.SdkClient;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.regions.Region;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * Cliente AWS de um serviço (SNS, SES) com um cliente por região e roteamento pela saúde de cada região.
+ *
+ * Cada região mantém médias móveis exponenciais da latência e da taxa de erro das chamadas.
+ * Cada chamada vai para a região de menor pontuação (latência ponderada pelos erros), preferindo
+ * a ordem configurada (a primeira é a principal) quando as pontuações são próximas. Falhas da
+ * região (erro de rede, timeout ou erro 5xx) passam a chamada para a próxima região; após
+ * {@link #FALHAS_PARA_EJECAO} falhas seguidas, a região sai do roteamento por {@code ejecao}.
+ * Erros do pedido (4xx, inclusive throttling, tratado pelo limitador de envio do SES) são
+ * propagados sem failover.
+ *
+ * O {@code apiCallTimeout} da requisição (definido pela proteção de dependências a partir do prazo
+ * da invocação) é o orçamento da chamada inteira, não de cada região: cada tentativa recebe o tempo
+ * que resta dele, e o failover para quando restam menos de {@link #ORCAMENTO_MINIMO}.
+ *
+ * Uma região sem amostras há mais de {@code exploracao} recebe uma chamada de exploração (uma
+ * por região a cada intervalo), que recomeça as médias: a latência das regiões secundárias continua
+ * conhecida e uma região recuperada volta a receber tráfego.
+ *
+ * Com uma só região configurada, as chamadas vão direto ao cliente da região.
+ */
+@Slf4j
+public final class RoteadorRegional implements InvocationHandler {
+
+    static final int FALHAS_PARA_EJECAO = 3;
+    static final Duration ORCAMENTO_MINIMO = Duration.ofMillis(50);
+    private static final double PESO_AMOSTRA = 0.2;
+    private static final double PESO_ERROS = 10.0;
+    // Pontuações até 20% (mais 5 ms) acima da melhor contam como empate e seguem a ordem configurada
+    private static final double TOLERANCIA_RELATIVA = 1.2;
+    private static final double TOLERANCIA_ABSOLUTA_MS = 5.0;
+
+    private final String servico;
+    private final List<SaudeRegiao> regioes;
+    private final BiFunction<Object, Region, Object> adaptarRequisicao;
+    private final long ejecaoNanos;
+    private final long exploracaoNanos;
+
+    private RoteadorRegional(String servico, Map<Region, ? extends SdkClient> clientes,
+                             BiFunction<Object, Region, Object> adaptarRequisicao,
+                             Duration ejecao, Duration exploracao) {
+        this.servico = servico;
+        this.adaptarRequisicao = adaptarRequisicao;
+        this.ejecaoNanos = ejecao.toNanos();
+        this.exploracaoNanos = exploracao.toNanos();
+        this.regioes = new ArrayList<>(clientes.size());
+        clientes.forEach((regiao, cliente) -> regioes.add(new SaudeRegiao(regiao, cliente, regioes.size())));
+    }
+
+    /**
+     * Cria o cliente roteado.
+     *
+     * @param clientes          clientes por região, na ordem de preferência (a primeira é a principal)
+     * @param adaptarRequisicao ajusta a requisição para a região escolhida (ex.: ARN do tópico SNS)
+     * @throws IllegalArgumentException se nenhuma região for informada
+     */
+    public static <T extends SdkClient> T criar(Class<T> tipo, String servico, Map<Region, T> clientes,
+                                                BiFunction<Object, Region, Object> adaptarRequisicao,
+                                                Duration ejecao, Duration exploracao) {
+        if (clientes.isEmpty()) {
+            throw new IllegalArgumentException("Nenhuma região configurada para " + servico);
+        }
+        return tipo.cast(Proxy.newProxyInstance(tipo.getClassLoader(), new Class<?>[]{tipo},
+                new RoteadorRegional(servico, clientes, adaptarRequisicao, ejecao, exploracao)));
+    }
+
+    /**
+     * Troca a região de um ARN (arn:aws:sns:REGIAO:conta:nome).
+     */
+    public static String arnNaRegiao(String arn, Region regiao) {
+        String[] partes = arn.split(":", 6);
+        if (partes.length < 6 || partes[3].equals(regiao.id())) {
+            return arn;
+        }
+        partes[3] = regiao.id();
+        return String.join(":", partes);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            return switch (method.getName()) {
+                case "equals" -> proxy == args[0];
+                case "hashCode" -> System.identityHashCode(proxy);
+                default -> "RoteadorRegional[" + servico + "]" + regioes;
+            };
+        }
+        if (method.getName().equals("close") && method.getParameterCount() == 0) {
+            for (SaudeRegiao regiao : regioes) {
+                regiao.cliente.close();
+            }
+            return null;
+        }
+        if (method.getParameterCount() == 1 && method.getParameterTypes()[0] == Consumer.class) {
+            // Variantes com builder montam a requisição e chamam a variante roteada neste proxy
+            return InvocationHandler.invokeDefault(proxy, method, args);
+        }
+        if (method.getName().equals("serviceName") || method.getName().equals("serviceClientConfiguration")
+                || regioes.size() == 1) {
+            return chamar(regioes.get(0).cliente, method, args);
+        }
+        return rotear(method, args);
+    }
+
+    private Object rotear(Method method, Object[] args) throws Throwable {
+        long chamada = System.nanoTime();
+        Duration orcamento = orcamento(args);
+        Throwable ultimaFalha = null;
+        for (SaudeRegiao regiao : ordenar(chamada)) {
+            long inicio = System.nanoTime();
+            Object[] argsRegiao = adaptar(args, regiao.regiao);
+            if (orcamento != null) {
+                Duration restante = orcamento.minusNanos(inicio - chamada);
+                if (ultimaFalha != null && restante.compareTo(ORCAMENTO_MINIMO) < 0) {
+                    log.warn("Prazo de {} esgotado; sem failover para {}", servico, regiao.regiao);
+                    break;
+                }
+                argsRegiao = comTimeout(argsRegiao, restante);
+            }
+            try {
+                Object resposta = chamar(regiao.cliente, method, argsRegiao);
+                regiao.registrarSucesso(inicio, System.nanoTime());
+                return resposta;
+            } catch (Throwable falha) {
+                if (!falhaDaRegiao(falha)) {
+                    throw falha;
+                }
+                boolean ejetada = regiao.registrarFalha(inicio, System.nanoTime(), ejecaoNanos);
+                log.warn("Falha de {} em {} ({}){}; tentando a próxima região", servico, regiao.regiao,
+                        falha.getMessage(), ejetada ? ", região ejetada" : "");
+                ultimaFalha = falha;
+            }
+        }
+        throw ultimaFalha;
+    }
+
+    /**
+     * Regiões na ordem de tentativa: uma região a explorar (no máximo uma por chamada) ou a de
+     * melhor pontuação primeiro, as ejetadas por último (último recurso).
+     */
+    List<SaudeRegiao> ordenar(long agora) {
+        double[] pontuacoes = new double[regioes.size()];
+        double melhor = Double.POSITIVE_INFINITY;
+        SaudeRegiao explorar = null;
+        for (SaudeRegiao regiao : regioes) {
+            pontuacoes[regiao.ordem] = regiao.pontuacao(agora);
+            melhor = Math.min(melhor, pontuacoes[regiao.ordem]);
+            if (explorar == null && regiao.reservarExploracao(agora, exploracaoNanos)) {
+                explorar = regiao;
+            }
+        }
+        double limiteEmpate = melhor * TOLERANCIA_RELATIVA + TOLERANCIA_ABSOLUTA_MS;
+        SaudeRegiao exploracao = explorar;
+        List<SaudeRegiao> ordem = new ArrayList<>(regioes);
+        ordem.sort(Comparator
+                .comparing((SaudeRegiao regiao) -> regiao != exploracao)
+                .thenComparing(regiao -> regiao.ejetada(agora))
+                .thenComparing(regiao -> pontuacoes[regiao.ordem] > limiteEmpate)
+                .thenComparingDouble(regiao -> pontuacoes[regiao.ordem] > limiteEmpate ? pontuacoes[regiao.ordem] : 0)
+                .thenComparingInt(regiao -> regiao.ordem));
+        return ordem;
+    }
+
+    /**
+     * {@code apiCallTimeout} da requisição, se houver.
+     */
+    private static Duration orcamento(Object[] args) {
+        if (args == null || args.length != 1 || !(args[0] instanceof AwsRequest requisicao)) {
+            return null;
+        }
+        return requisicao.overrideConfiguration()
+                .flatMap(AwsRequestOverrideConfiguration::apiCallTimeout)
+                .orElse(null);
+    }
+
+    private static Object[] comTimeout(Object[] args, Duration timeout) {
+        AwsRequest requisicao = (AwsRequest) args[0];
+        AwsRequestOverrideConfiguration configuracao = requisicao.overrideConfiguration()
+                .orElseThrow()
+                .toBuilder()
+                .apiCallTimeout(timeout)
+                .build();
+        return new Object[]{requisicao.toBuilder().overrideConfiguration(configuracao).build()};
+    }
+
+    private Object[] adaptar(Object[] args, Region regiao) {
+        if (args == null || args.length != 1) {
+            return args;
+        }
+        return new Object[]{adaptarRequisicao.apply(args[0], regiao)};
+    }
+
+    private static Object chamar(SdkClient cliente, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(cliente, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Falhas que indicam problema da região (e não do pedido): rede, timeout e erros 5xx.
+     */
+    static boolean falhaDaRegiao(Throwable falha) {
+        if (falha instanceof AwsServiceException servico) {
+            return servico.statusCode() >= 500 && !servico.isThrottlingException();
+        }
+        return falha instanceof SdkClientException;
+    }
+
+    /**
+     * Saúde de uma região: médias móveis de latência e erros, falhas seguidas e ejeção.
+     */
+    static final class SaudeRegiao {
+
+        private final Region regiao;
+        private final SdkClient cliente;
+        private final int ordem;
+
+        private long aquecidaEm;
+        private double latenciaMs = Double.NaN;
+        private double taxaErro;
+        private int falhasSeguidas;
+        private long ejetadaAte;
+        private long ultimaAmostra;
+        private long exploradaEm;
+        private boolean explorando;
+
+        SaudeRegiao(Region regiao, SdkClient cliente, int ordem) {
+            this.regiao = regiao;
+            this.cliente = cliente;
+            this.ordem = ordem;
+        }
+
+        synchronized void registrarSucesso(long inicio, long agora) {
+            if (aquecidaEm == 0) {
+                // As chamadas iniciadas antes da primeira resposta incluem a abertura da conexão
+                // (TLS) e não representam a região
+                aquecidaEm = agora;
+            } else if (inicio - aquecidaEm > 0) {
+                amostrar(agora - inicio, 0.0, agora);
+            }
+            falhasSeguidas = 0;
+        }
+
+        /**
+         * @return true se a falha ejetou a região
+         */
+        synchronized boolean registrarFalha(long inicio, long agora, long ejecaoNanos) {
+            amostrar(agora - inicio, 1.0, agora);
+            if (++falhasSeguidas >= FALHAS_PARA_EJECAO) {
+                falhasSeguidas = 0;
+                ejetadaAte = agora + ejecaoNanos;
+                return true;
+            }
+            return false;
+        }
+
+        synchronized boolean ejetada(long agora) {
+            return ejetadaAte - agora > 0;
+        }
+
+        /**
+         * Reserva a região para uma chamada de exploração se ela estiver sem amostras há mais de
+         * {@code exploracaoNanos} (ou nunca tiver sido medida); uma reserva por intervalo, para que
+         * as chamadas concorrentes continuem na melhor região.
+         */
+        synchronized boolean reservarExploracao(long agora, long exploracaoNanos) {
+            if (ejetadaAte - agora > 0 || exploradaEm != 0 && agora - exploradaEm <= exploracaoNanos) {
+                return false;
+            }
+            if (!Double.isNaN(latenciaMs) && agora - ultimaAmostra <= exploracaoNanos) {
+                return false;
+            }
+            exploradaEm = agora;
+            explorando = true;
+            return true;
+        }
+
+        /**
+         * Latência média ponderada pela taxa de erro; infinita durante a ejeção. Sem amostras,
+         * a região fica atrás das medidas até ser explorada.
+         */
+        synchronized double pontuacao(long agora) {
+            if (ejetadaAte - agora > 0 || Double.isNaN(latenciaMs)) {
+                return Double.POSITIVE_INFINITY;
+            }
+            return latenciaMs * (1.0 + PESO_ERROS * taxaErro);
+        }
+
+        private void amostrar(long duracaoNanos, double erro, long agora) {
+            double ms = duracaoNanos / 1_000_000.0;
+            if (explorando || Double.isNaN(latenciaMs)) {
+                // Médias de antes do intervalo de exploração não representam mais a região
+                latenciaMs = ms;
+                taxaErro = erro;
+                explorando = false;
+            } else {
+                latenciaMs += PESO_AMOSTRA * (ms - latenciaMs);
+                taxaErro += PESO_AMOSTRA * (erro - taxaErro);
+            }
+            ultimaAmostra = agora;
+        }
+
+        Region regiao() {
+            return regiao;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return String.format("%s(latência %.1f ms, erros %.0f%%%s)", regiao, latenciaMs, taxaErro * 100,
+                    ejetadaAte - System.nanoTime() > 0 ? ", ejetada" : "");
+        }
+    }
+}
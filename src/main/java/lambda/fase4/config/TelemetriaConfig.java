@@ -0,0 +1,64 @@
+package lambda.fase4.config;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.propagation.ContextPropagators;
+import io.opentelemetry.exporter.otlp.http.trace.OtlpHttpSpanExporter;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.resources.Resource;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.SdkTracerProviderBuilder;
+import io.opentelemetry.sdk.trace.export.BatchSpanProcessor;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+
+/**
+ * Configuração do rastreamento distribuído com OpenTelemetry.
+ *
+ * Exportadores disponíveis (propriedade telemetria.exportador):
+ * - nenhum: spans criados e propagados pela fila, mas descartados (padrão)
+ * - otlp: envia para um OpenTelemetry Collector via OTLP/HTTP
+ * - arquivo: grava um span por linha (JSON) em arquivo local, para testes offline
+ */
+@Configuration
+public class TelemetriaConfig {
+
+    @Value("${telemetria.exportador:nenhum}")
+    private String exportador;
+
+    @Value("${telemetria.otlp.endpoint:http://localhost:4318/v1/traces}")
+    private String otlpEndpoint;
+
+    @Value("${telemetria.arquivo.caminho:/tmp/feedback-traces.jsonl}")
+    private String arquivoCaminho;
+
+    @Value("${spring.application.name:fase4}")
+    private String nomeServico;
+
+    @Bean(destroyMethod = "close")
+    public OpenTelemetrySdk openTelemetry() {
+        SdkTracerProviderBuilder tracerProvider = SdkTracerProvider.builder()
+                .setResource(Resource.getDefault().merge(Resource.create(
+                        Attributes.of(AttributeKey.stringKey("service.name"), nomeServico))));
+
+        switch (exportador) {
+            case "otlp" -> tracerProvider.addSpanProcessor(BatchSpanProcessor.builder(
+                    OtlpHttpSpanExporter.builder().setEndpoint(otlpEndpoint).build()).build());
+            case "arquivo" -> tracerProvider.addSpanProcessor(
+                    SimpleSpanProcessor.create(new ArquivoSpanExporter(Path.of(arquivoCaminho))));
+            default -> {
+                // Sem exportador: o contexto continua sendo propagado pela fila
+            }
+        }
+
+        return OpenTelemetrySdk.builder()
+                .setTracerProvider(tracerProvider.build())
+                .setPropagators(ContextPropagators.create(W3CTraceContextPropagator.getInstance()))
+                .build();
+    }
+}
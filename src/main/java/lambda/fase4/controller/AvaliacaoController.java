@@ -1,15 +1,34 @@
 package lambda.fase4.controller;
 
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import lambda.fase4.dto.AgregadoPeriodoDTO;
 import lambda.fase4.dto.AvaliacaoRequest;
 import lambda.fase4.dto.AvaliacaoResponse;
+import lambda.fase4.dto.EstatisticasTempoRealDTO;
+import lambda.fase4.dto.PaginaAvaliacoesDTO;
+import lambda.fase4.dto.PaginaBuscaDTO;
 import lambda.fase4.model.Avaliacao;
+import lambda.fase4.service.AgregadoPeriodoService;
 import lambda.fase4.service.AvaliacaoService;
+import lambda.fase4.service.BuscaAvaliacaoService;
+import lambda.fase4.service.ConsultaAvaliacaoService;
+import lambda.fase4.service.EstatisticasTempoRealService;
+import lambda.fase4.service.ExportacaoAvaliacaoService;
+import lambda.fase4.service.GravacaoAgrupadaService;
+import lambda.fase4.service.ParametroConsultaInvalidoException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+
 /**
  * Controller REST para gerenciamento de avaliações.
  * Usado para testes locais antes do deploy para Lambda.
@@ -21,17 +40,27 @@ import org.springframework.web.bind.annotation.*;
 public class AvaliacaoController {
 
     private final AvaliacaoService avaliacaoService;
+    private final EstatisticasTempoRealService estatisticasTempoRealService;
+    private final ConsultaAvaliacaoService consultaAvaliacaoService;
+    private final AgregadoPeriodoService agregadoPeriodoService;
+    private final BuscaAvaliacaoService buscaAvaliacaoService;
+    private final ExportacaoAvaliacaoService exportacaoAvaliacaoService;
+    private final GravacaoAgrupadaService gravacaoAgrupadaService;
 
     /**
      * Endpoint para receber novas avaliações.
+     * Com {@code avaliacao.gravacao-agrupada.habilitada}, a gravação é agrupada com a de outras
+     * requisições simultâneas (uma transação por lote).
      * POST /api/avaliacoes
      */
     @PostMapping
     public ResponseEntity<AvaliacaoResponse> criarAvaliacao(@Valid @RequestBody AvaliacaoRequest request) {
-        Avaliacao avaliacao = avaliacaoService.processarAvaliacao(request);
+        Avaliacao avaliacao = gravacaoAgrupadaService.isHabilitada()
+                ? avaliacaoService.processarAvaliacaoAgrupada(request)
+                : avaliacaoService.processarAvaliacao(request);
 
         AvaliacaoResponse response = new AvaliacaoResponse(
-                avaliacao.getId(),
+                avaliacao.getId().toString(),
                 avaliacao.getDescricao(),
                 avaliacao.getNota(),
                 avaliacao.getDataEnvio().toString(),
@@ -42,6 +71,83 @@ public class AvaliacaoController {
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
+    /**
+     * Lista avaliações da mais recente para a mais antiga, com paginação por cursor.
+     * GET /api/avaliacoes?urgencia=CRITICA&notificado=false&inicio=...&fim=...&cursor=...&tamanho=20
+     */
+    @GetMapping
+    public ResponseEntity<PaginaAvaliacoesDTO> listarAvaliacoes(
+            @RequestParam(required = false) Avaliacao.Urgencia urgencia,
+            @RequestParam(required = false) Boolean notificado,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime inicio,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fim,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer tamanho,
+            @RequestParam(defaultValue = "false") boolean incluirDescricao) {
+        return ResponseEntity.ok(consultaAvaliacaoService.listar(
+                urgencia, notificado, inicio, fim, cursor, tamanho, incluirDescricao));
+    }
+
+    /**
+     * Busca textual nas descrições, mais relevantes primeiro, com paginação por cursor.
+     * GET /api/avaliacoes/busca?q=professor+"sem resposta"&urgencia=CRITICA&inicio=...&fim=...&cursor=...
+     */
+    @GetMapping("/busca")
+    public ResponseEntity<PaginaBuscaDTO> buscarAvaliacoes(
+            @RequestParam("q") String termo,
+            @RequestParam(required = false) Avaliacao.Urgencia urgencia,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime inicio,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fim,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer tamanho) {
+        return ResponseEntity.ok(buscaAvaliacaoService.buscar(termo, urgencia, inicio, fim, cursor, tamanho));
+    }
+
+    /**
+     * Exporta as avaliações do período (fim exclusivo) em CSV ou JSON lines, compactadas com gzip.
+     * A resposta é escrita enquanto as linhas são lidas do banco, sem montar o arquivo em memória.
+     * Com {@code arquivadas=true}, inclui as avaliações já movidas para o arquivo.
+     * GET /api/avaliacoes/exportacao?inicio=...&fim=...&formato=CSV|JSONL&arquivadas=false
+     */
+    @GetMapping("/exportacao")
+    public void exportarAvaliacoes(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime inicio,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fim,
+            @RequestParam(defaultValue = "CSV") ExportacaoAvaliacaoService.Formato formato,
+            @RequestParam(defaultValue = "false") boolean arquivadas,
+            HttpServletResponse response) throws IOException {
+        // Valida antes de definir os cabeçalhos, para que erros ainda resultem em 400 com JSON
+        exportacaoAvaliacaoService.validarPeriodo(inicio, fim);
+
+        response.setContentType("application/gzip");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\""
+                + exportacaoAvaliacaoService.nomeArquivo(inicio, fim, formato) + "\"");
+        exportacaoAvaliacaoService.exportar(inicio, fim, formato, arquivadas, response.getOutputStream());
+    }
+
+    /**
+     * Estatísticas móveis (última hora, 24 horas e 7 dias), servidas da memória
+     * (aproximadas, por instância).
+     * GET /api/avaliacoes/stats
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<EstatisticasTempoRealDTO> estatisticas() {
+        return ResponseEntity.ok(estatisticasTempoRealService.consultar());
+    }
+
+    /**
+     * Média de notas e contagem por urgência de um período (cache de agregados).
+     * Sem parâmetros: dos últimos 7 dias (a partir da meia-noite) até agora.
+     * GET /api/avaliacoes/agregados?inicio=...&fim=...
+     */
+    @GetMapping("/agregados")
+    public ResponseEntity<AgregadoPeriodoDTO> agregados(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime inicio,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fim) {
+        LocalDateTime inicioPeriodo = inicio != null ? inicio : LocalDate.now().minusDays(7).atStartOfDay();
+        return ResponseEntity.ok(agregadoPeriodoService.consultar(inicioPeriodo, fim));
+    }
+
     /**
      * Endpoint para verificar saúde da aplicação.
      * GET /api/avaliacoes/health
@@ -50,5 +156,13 @@ public class AvaliacaoController {
     public ResponseEntity<String> health() {
         return ResponseEntity.ok("Sistema de Feedbacks operacional!");
     }
-}
 
+    /**
+     * Parâmetros inválidos (ex.: cursor de paginação corrompido, termo de busca vazio); demais
+     * exceções seguem o tratamento padrão (500, sem a mensagem interna).
+     */
+    @ExceptionHandler(ParametroConsultaInvalidoException.class)
+    public ResponseEntity<Map<String, String>> parametroInvalido(ParametroConsultaInvalidoException e) {
+        return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+    }
+}
@@ -0,0 +1,22 @@
+package lambda.fase4.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * DTO com os agregados de avaliações de um período (média e contagem por urgência).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AgregadoPeriodoDTO {
+    private String periodoInicio;
+    private String periodoFim; // null: até agora
+    private Double mediaNotas;
+    private Map<String, Long> quantidadePorUrgencia; // Urgencia -> Quantidade
+}
@@ -0,0 +1,22 @@
+package lambda.fase4.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO de avaliação para listagens (descrição opcional).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AvaliacaoResumoDTO {
+    private String id;
+    private String descricao;
+    private Integer nota;
+    private String dataEnvio;
+    private String urgencia;
+    private Boolean notificacaoEnviada;
+}
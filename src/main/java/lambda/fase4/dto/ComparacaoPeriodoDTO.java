@@ -0,0 +1,25 @@
+package lambda.fase4.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO com a comparação de um relatório com o período anterior de mesma duração
+ * (dia contra dia, semana contra semana, mês contra mês).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ComparacaoPeriodoDTO {
+    private String periodoInicio;
+    private String periodoFim;
+    private Integer totalAvaliacoes;
+    private Double mediaNotas;
+    private Double variacaoTotalPercentual; // null se o período anterior não teve avaliações
+    private Double variacaoMediaNotas; // Diferença absoluta (pontos)
+    private Double nps;
+    private Double variacaoNps; // Diferença absoluta (pontos de NPS)
+}
@@ -0,0 +1,20 @@
+package lambda.fase4.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO com as estatísticas de avaliações de uma janela de tempo.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EstatisticasJanelaDTO {
+    private Long totalAvaliacoes;
+    private Double mediaNotas;
+    private Long totalCriticas;
+    private Double taxaCriticas; // 0.0 a 1.0
+}
@@ -0,0 +1,27 @@
+package lambda.fase4.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO com a distribuição das notas de um período: mediana e percentis exatos,
+ * histograma por nota e NPS (promotores 9-10, neutros 7-8, detratores 0-6).
+ * Campos nulos quando o período não tem avaliações.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EstatisticasNotasDTO {
+    private Double mediana;
+    private Integer percentil25;
+    private Integer percentil75;
+    private Integer percentil90;
+    private long[] quantidadePorNota; // Índice = nota (0 a 10)
+    private Double percentualPromotores;
+    private Double percentualNeutros;
+    private Double percentualDetratores;
+    private Double nps; // -100 a 100
+}
@@ -0,0 +1,20 @@
+package lambda.fase4.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO com as estatísticas móveis de avaliações (última hora, 24 horas e 7 dias).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EstatisticasTempoRealDTO {
+    private EstatisticasJanelaDTO ultimaHora;
+    private EstatisticasJanelaDTO ultimas24Horas;
+    private EstatisticasJanelaDTO ultimos7Dias;
+    private String dataGeracao;
+}
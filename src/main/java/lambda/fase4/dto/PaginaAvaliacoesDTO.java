@@ -0,0 +1,21 @@
+package lambda.fase4.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO de uma página da listagem de avaliações (paginação por cursor).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PaginaAvaliacoesDTO {
+    private List<AvaliacaoResumoDTO> avaliacoes;
+    private Integer tamanho;
+    private String proximoCursor; // null na última página
+}
@@ -0,0 +1,21 @@
+package lambda.fase4.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO de uma página da busca textual (ordenada por relevância, paginação por cursor).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PaginaBuscaDTO {
+    private List<ResultadoBuscaDTO> resultados;
+    private Integer tamanho;
+    private String proximoCursor; // null na última página
+}
@@ -8,19 +8,23 @@ import lombok.NoArgsConstructor;
 import java.util.Map;
 
 /**
- * DTO para relatório semanal de avaliações.
+ * DTO para relatório de avaliações de um período (semanal por padrão; diário e mensal
+ * quando gerado em conjunto com outras janelas).
  */
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 public class RelatorioSemanalDTO {
+    private String granularidade; // DIARIO, SEMANAL, MENSAL; null: relatório semanal padrão (últimos 7 dias)
     private String periodoInicio;
     private String periodoFim;
     private Integer totalAvaliacoes;
     private Double mediaNotas;
     private Map<String, Long> quantidadePorDia; // Data -> Quantidade
     private Map<String, Long> quantidadePorUrgencia; // Urgencia -> Quantidade
+    private EstatisticasNotasDTO estatisticasNotas;
+    private ComparacaoPeriodoDTO comparacaoPeriodoAnterior; // null se não calculada
     private String dataGeracao;
 }
 
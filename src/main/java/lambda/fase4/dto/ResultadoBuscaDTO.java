@@ -0,0 +1,22 @@
+package lambda.fase4.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO de um resultado da busca textual de avaliações.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ResultadoBuscaDTO {
+    private String id;
+    private String descricao;
+    private Integer nota;
+    private String dataEnvio;
+    private String urgencia;
+    private Float relevancia;
+}
@@ -2,13 +2,25 @@ package lambda.fase4.lambda;
 
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.amazonaws.services.lambda.runtime.events.SQSBatchResponse;
 import com.amazonaws.services.lambda.runtime.events.SQSEvent;
 import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import io.opentelemetry.api.trace.SpanKind;
 import lambda.fase4.dto.NotificacaoUrgenciaDTO;
-import lambda.fase4.service.AvaliacaoService;
+import lambda.fase4.service.DeduplicacaoNotificacaoService;
+import lambda.fase4.service.EnvioEmailLimitadoException;
+import lambda.fase4.service.FilaNotificacaoService;
+import lambda.fase4.service.MensagemNotificacaoInvalidaException;
+import lambda.fase4.service.MedicaoLatenciaService;
 import lambda.fase4.service.NotificacaoService;
-import org.springframework.context.annotation.AnnotationConfigApplicationContext;
-import org.springframework.stereotype.Component;
+import lambda.fase4.service.ProtecaoDependenciasService;
+import lambda.fase4.service.RastreamentoService;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Função Lambda 2: Envio de Notificações
@@ -19,85 +31,211 @@ import org.springframework.stereotype.Component;
  *
  * Funcionalidades:
  * - Consome mensagens da fila SQS
+ * - Ignora entregas duplicadas (cache local + reserva condicional no banco)
+ * - Não repete o SNS na nova tentativa de uma mensagem cujo e-mail falhou
  * - Envia notificação via SNS (push)
  * - Envia e-mail detalhado via SES
  * - Marca avaliação como notificada
+ * - Adia mensagens bloqueadas pelo limite de envio do SES (visibilidade SQS)
+ * - Reagenda mensagens com falha com atraso exponencial com jitter (visibilidade SQS,
+ *   pelo ApproximateReceiveCount)
+ * - Envia direto para a DLQ mensagens com falha permanente (JSON inválido, avaliação inexistente
+ *   após alguns recebimentos; antes disso, a gravação pode ainda não estar visível)
  * - Registra métricas no CloudWatch
+ * - Mede a latência de cada fase (parse, SNS, SES, CloudWatch)
+ * - Continua o trace do recebimento (atributos SQS) e mede a latência ponta a ponta do alerta
+ * - Disjuntores e limite de concorrência por dependência; as chamadas SNS/SES respeitam o tempo
+ *   restante da invocação, e as mensagens recusadas voltam para a fila em vez de esperar o timeout
+ * - Emite a duração de cada fase da partida a frio na primeira invocação ({@link InicializacaoLambda});
+ *   com a inicialização falha, o lote inteiro falha e volta para a fila
  *
  * Segurança:
  * - IAM Role com permissões: SQS:ReceiveMessage, SQS:DeleteMessage,
- *   SNS:Publish, SES:SendEmail, DynamoDB:UpdateItem, CloudWatch:PutMetricData
+ *   SQS:ChangeMessageVisibility, SNS:Publish, SES:SendEmail, SES:GetSendQuota,
+ *   CloudWatch:PutMetricData
  * - DLQ (Dead Letter Queue) configurada para mensagens com falha
- * - Retry automático com backoff exponencial
+ * - Falhas reportadas por mensagem (ReportBatchItemFailures): apenas as mensagens
+ *   com falha voltam para a fila, não o lote inteiro
  *
  * Configurações:
  * - Batch size: 10 mensagens
  * - Timeout: 5 minutos
  * - Memory: 512 MB
  */
-@Component
-public class EnviarNotificacaoHandler implements RequestHandler<SQSEvent, Void> {
+public class EnviarNotificacaoHandler implements RequestHandler<SQSEvent, SQSBatchResponse> {
 
     private final Gson gson = new Gson();
     private NotificacaoService notificacaoService;
-    private AvaliacaoService avaliacaoService;
+    private DeduplicacaoNotificacaoService deduplicacaoService;
+    private FilaNotificacaoService filaNotificacaoService;
+    private MedicaoLatenciaService medicaoLatencia;
+    private RastreamentoService rastreamento;
+    private ProtecaoDependenciasService protecao;
+    private InicializacaoLambda inicializacao = InicializacaoLambda.SEM_CONTEXTO;
 
     public EnviarNotificacaoHandler() {
         initializeSpringContext();
     }
 
+    /**
+     * Construtor com dependências explícitas, sem contexto Spring (testes e benchmarks).
+     */
+    public EnviarNotificacaoHandler(NotificacaoService notificacaoService,
+                                    DeduplicacaoNotificacaoService deduplicacaoService,
+                                    FilaNotificacaoService filaNotificacaoService,
+                                    MedicaoLatenciaService medicaoLatencia,
+                                    RastreamentoService rastreamento,
+                                    ProtecaoDependenciasService protecao) {
+        this.notificacaoService = notificacaoService;
+        this.deduplicacaoService = deduplicacaoService;
+        this.filaNotificacaoService = filaNotificacaoService;
+        this.medicaoLatencia = medicaoLatencia;
+        this.rastreamento = rastreamento;
+        this.protecao = protecao;
+    }
+
     private void initializeSpringContext() {
-        try {
-            AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
-            context.scan("lambda.fase4");
-            context.refresh();
+        inicializacao = InicializacaoLambda.iniciar(getClass().getSimpleName(), context -> {
             this.notificacaoService = context.getBean(NotificacaoService.class);
-            this.avaliacaoService = context.getBean(AvaliacaoService.class);
-        } catch (Exception e) {
-            System.err.println("Erro ao inicializar contexto Spring: " + e.getMessage());
-        }
+            this.deduplicacaoService = context.getBean(DeduplicacaoNotificacaoService.class);
+            this.filaNotificacaoService = context.getBean(FilaNotificacaoService.class);
+            this.medicaoLatencia = context.getBean(MedicaoLatenciaService.class);
+            this.rastreamento = context.getBean(RastreamentoService.class);
+            this.protecao = context.getBean(ProtecaoDependenciasService.class);
+        });
     }
 
     @Override
-    public Void handleRequest(SQSEvent event, Context context) {
+    public SQSBatchResponse handleRequest(SQSEvent event, Context context) {
         context.getLogger().log("Processando " + event.getRecords().size() + " mensagens da fila");
 
+        inicializacao.verificar();
+        medicaoLatencia.iniciarInvocacao(context.getFunctionName());
+        inicializacao.registrarInvocacao(medicaoLatencia);
+        protecao.iniciarPrazo(context.getRemainingTimeInMillis());
+        try {
+            return processar(event, context);
+        } finally {
+            protecao.encerrarPrazo();
+            medicaoLatencia.finalizarInvocacao(context.getLogger());
+            inicializacao.finalizarInvocacao(context);
+            rastreamento.descarregar();
+        }
+    }
+
+    private SQSBatchResponse processar(SQSEvent event, Context context) {
+        List<SQSBatchResponse.BatchItemFailure> falhas = new ArrayList<>();
+        boolean limiteEnvioAtingido = false;
+
         for (SQSEvent.SQSMessage message : event.getRecords()) {
+            // Após atingir o limite do SES, as demais mensagens do lote são adiadas sem tentativa
+            if (limiteEnvioAtingido) {
+                filaNotificacaoService.adiarPorLimiteEnvio(message.getReceiptHandle());
+                falhas.add(new SQSBatchResponse.BatchItemFailure(message.getMessageId()));
+                continue;
+            }
+
             try {
                 context.getLogger().log("Processando mensagem: " + message.getMessageId());
 
-                // Parse da mensagem
-                NotificacaoUrgenciaDTO notificacao = gson.fromJson(
-                        message.getBody(),
-                        NotificacaoUrgenciaDTO.class
-                );
+                // Continua o trace iniciado no recebimento da avaliação
+                io.opentelemetry.context.Context contextoTrace = rastreamento.extrairContexto(message);
+                rastreamento.registrarEsperaFila(contextoTrace, message);
+                rastreamento.executarEmSpan("notificacao.processar", SpanKind.CONSUMER, contextoTrace,
+                        () -> processarMensagem(message, context));
 
+            } catch (EnvioEmailLimitadoException e) {
                 context.getLogger().log(
-                        "Enviando notificação para avaliação crítica: " +
-                        notificacao.getAvaliacaoId() +
-                        " (Nota: " + notificacao.getNota() + ")"
+                        "Limite de envio SES atingido, adiando mensagem " + message.getMessageId()
                 );
-
-                // Envia notificação
-                notificacaoService.enviarNotificacaoUrgencia(notificacao);
-
-                // Marca como notificada no banco
-                avaliacaoService.marcarComoNotificada(notificacao.getAvaliacaoId());
-
-                context.getLogger().log("Notificação enviada com sucesso: " + message.getMessageId());
-
+                limiteEnvioAtingido = true;
+                filaNotificacaoService.adiarPorLimiteEnvio(message.getReceiptHandle());
+                falhas.add(new SQSBatchResponse.BatchItemFailure(message.getMessageId()));
+            } catch (MensagemNotificacaoInvalidaException e) {
+                context.getLogger().log(
+                        "Mensagem inválida " + message.getMessageId() + ": " + e.getMessage()
+                );
+                // Enviada para a DLQ, a mensagem sai da fila como processada
+                if (!filaNotificacaoService.enviarParaDlq(message, e.getMessage())) {
+                    falhas.add(new SQSBatchResponse.BatchItemFailure(message.getMessageId()));
+                }
             } catch (Exception e) {
                 context.getLogger().log(
                         "ERRO ao processar mensagem " + message.getMessageId() +
                         ": " + e.getMessage()
                 );
-                // A mensagem será automaticamente enviada para DLQ após max retries
-                throw new RuntimeException("Falha no processamento da mensagem", e);
+                // Nova tentativa com atraso crescente; a mensagem vai para a DLQ após max retries
+                filaNotificacaoService.adiarNovaTentativa(message);
+                falhas.add(new SQSBatchResponse.BatchItemFailure(message.getMessageId()));
             }
         }
 
-        context.getLogger().log("Processamento de notificações concluído");
-        return null;
+        context.getLogger().log("Processamento de notificações concluído (" + falhas.size() + " falhas)");
+        return new SQSBatchResponse(falhas);
     }
-}
 
+    /**
+     * Processa uma mensagem da fila. Retorna false se a entrega for duplicada.
+     */
+    private boolean processarMensagem(SQSEvent.SQSMessage message, Context context) {
+        // Parse da mensagem
+        NotificacaoUrgenciaDTO notificacao = medicaoLatencia.medir("handler.parse", () -> lerNotificacao(message));
+        rastreamento.adicionarAtributo("avaliacao.id", notificacao.getAvaliacaoId());
+        // Lido antes dos envios: um atributo inválido só dispensa a amostra de latência
+        Instant recebidaEm = rastreamento.recebidaEm(message);
+
+        // Reserva a avaliação antes de qualquer chamada externa (SQS é at-least-once)
+        DeduplicacaoNotificacaoService.Reserva reserva = deduplicacaoService.reservar(
+                notificacao.getAvaliacaoId(), FilaNotificacaoService.recebimentos(message));
+        if (reserva == DeduplicacaoNotificacaoService.Reserva.DUPLICADA) {
+            context.getLogger().log("Mensagem duplicada ignorada: " + message.getMessageId());
+            return false;
+        }
+
+        context.getLogger().log(
+                "Enviando notificação para avaliação crítica: " +
+                notificacao.getAvaliacaoId() +
+                " (Nota: " + notificacao.getNota() + ")"
+        );
+
+        // Envia notificação
+        try {
+            notificacaoService.enviarNotificacaoUrgencia(notificacao,
+                    reserva == DeduplicacaoNotificacaoService.Reserva.OBTIDA_SNS_ENVIADO);
+        } catch (Exception e) {
+            deduplicacaoService.liberar(notificacao.getAvaliacaoId());
+            throw e;
+        }
+
+        // Latência ponta a ponta: recebimento da avaliação até SNS/SES concluídos
+        if (recebidaEm != null) {
+            Duration latencia = Duration.between(recebidaEm, Instant.now());
+            medicaoLatencia.registrarLatenciaAlerta(latencia);
+            rastreamento.adicionarAtributo("alerta.latencia_ms", String.valueOf(latencia.toMillis()));
+        }
+
+        // Marca como notificada no banco
+        deduplicacaoService.confirmar(notificacao.getAvaliacaoId());
+
+        context.getLogger().log("Notificação enviada com sucesso: " + message.getMessageId());
+        return true;
+    }
+
+    /**
+     * Lê a notificação do corpo da mensagem.
+     *
+     * @throws MensagemNotificacaoInvalidaException se o JSON for inválido ou não tiver o id da avaliação
+     */
+    private NotificacaoUrgenciaDTO lerNotificacao(SQSEvent.SQSMessage message) {
+        NotificacaoUrgenciaDTO notificacao;
+        try {
+            notificacao = gson.fromJson(message.getBody(), NotificacaoUrgenciaDTO.class);
+        } catch (JsonParseException e) {
+            throw new MensagemNotificacaoInvalidaException("JSON inválido: " + e.getMessage(), e);
+        }
+        if (notificacao == null || notificacao.getAvaliacaoId() == null || notificacao.getAvaliacaoId().isBlank()) {
+            throw new MensagemNotificacaoInvalidaException("Mensagem sem id da avaliação");
+        }
+        return notificacao;
+    }
+}
@@ -3,53 +3,112 @@ package lambda.fase4.lambda;
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
 import com.amazonaws.services.lambda.runtime.events.ScheduledEvent;
+import io.opentelemetry.api.trace.SpanKind;
 import lambda.fase4.dto.RelatorioSemanalDTO;
+import lambda.fase4.service.ArquivamentoService;
+import lambda.fase4.service.ExportacaoAvaliacaoService;
+import lambda.fase4.service.MedicaoLatenciaService;
+import lambda.fase4.service.ProtecaoDependenciasService;
+import lambda.fase4.service.RastreamentoService;
+import lambda.fase4.service.RelatorioMultiJanelaService;
 import lambda.fase4.service.RelatorioService;
-import org.springframework.context.annotation.AnnotationConfigApplicationContext;
-import org.springframework.stereotype.Component;
+import lambda.fase4.service.ResumoMediaService;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 /**
  * Função Lambda 3: Geração de Relatórios
  *
- * Responsabilidade Única: Gerar e enviar relatórios semanais de avaliações.
+ * Responsabilidade: tarefas agendadas sobre as avaliações gravadas. Um evento executa um modo,
+ * escolhido pelo {@code detail} do evento (na ordem abaixo, o primeiro que se aplica):
  *
- * Trigger: EventBridge (CloudWatch Events) - Cron semanal
- * Cron: cron(0 9 ? * MON *) - Toda segunda-feira às 9h UTC
+ * 1. Arquivamento ({@code detail.arquivamento}): move as avaliações antigas para blocos compactados
+ *    por dia. Trigger: regra diária do EventBridge, cron(0 4 * * ? *), com {"arquivamento": true}.
+ * 2. Resumo MEDIA ({@code detail.resumoMedia}): esvazia a fila das avaliações de urgência MEDIA e
+ *    envia o resumo diário por e-mail (padrão: dia anterior, ou {@code "dia": "2025-01-13"}).
+ *    Trigger: regra diária do EventBridge, cron(0 8 * * ? *), com {"resumoMedia": true}.
+ * 3. Exportação ({@code detail.exportacao}): exporta as avaliações de um período (CSV/JSON lines com
+ *    gzip) para o S3 e envia o link por e-mail (ex.: {"exportacao": "CSV", "inicio": "...", "fim": "..."});
+ *    com {@code "arquivadas": true}, inclui as avaliações arquivadas do período.
+ *    Trigger: evento sob demanda (invocação manual ou regra criada para a exportação).
+ * 4. Relatórios multi-janela ({@code detail.relatorios}): relatórios diário, semanal e/ou mensal (com
+ *    variação em relação ao período anterior) em uma única passada sobre os dados
+ *    (ex.: {"relatorios": ["DIARIO", "SEMANAL", "MENSAL"], "fim": "2025-01-13"}); um e-mail por relatório.
+ *    Trigger: evento sob demanda.
+ * 5. Relatório semanal (sem nenhuma das chaves acima): estatísticas dos últimos 7 dias (média,
+ *    quantidades por dia/urgência), formatadas em HTML e texto e enviadas via SES.
+ *    Trigger: regra semanal do EventBridge, cron(0 9 ? * MON *) - toda segunda-feira às 9h UTC.
  *
- * Funcionalidades:
- * - Busca avaliações dos últimos 7 dias
- * - Calcula estatísticas (média, quantidades por dia/urgência)
- * - Formata relatório em HTML e texto
- * - Envia por e-mail via SES
- * - Registra métricas no CloudWatch
+ * Em todos os modos:
+ * - Registra métricas no CloudWatch e mede a latência de cada fase
+ * - Emite a duração de cada fase da partida a frio na primeira invocação ({@link InicializacaoLambda})
+ * - Limita as chamadas AWS ao tempo restante da invocação ({@link ProtecaoDependenciasService})
  *
  * Segurança:
- * - IAM Role com permissões: DynamoDB:Query, SES:SendEmail, CloudWatch:PutMetricData
+ * - IAM Role com permissões: SES:SendEmail, CloudWatch:PutMetricData,
+ *   SQS:ReceiveMessage/DeleteMessage (fila do resumo MEDIA), S3:PutObject/GetObject (exportações)
  * - Logs estruturados para auditoria
  *
  * Configurações:
  * - Timeout: 5 minutos
  * - Memory: 512 MB
- * - EventBridge Rule: taxa semanal
+ * - EventBridge Rules: semanal (relatório), diária (arquivamento) e diária (resumo MEDIA)
  */
-@Component
 public class GerarRelatorioHandler implements RequestHandler<ScheduledEvent, String> {
 
     private RelatorioService relatorioService;
+    private RelatorioMultiJanelaService relatorioMultiJanelaService;
+    private ExportacaoAvaliacaoService exportacaoService;
+    private ArquivamentoService arquivamentoService;
+    private ResumoMediaService resumoMediaService;
+    private MedicaoLatenciaService medicaoLatencia;
+    private RastreamentoService rastreamento;
+    private ProtecaoDependenciasService protecao;
+    private InicializacaoLambda inicializacao = InicializacaoLambda.SEM_CONTEXTO;
 
     public GerarRelatorioHandler() {
         initializeSpringContext();
     }
 
+    /**
+     * Construtor com dependências explícitas, sem contexto Spring (testes e benchmarks).
+     */
+    public GerarRelatorioHandler(RelatorioService relatorioService,
+                                 RelatorioMultiJanelaService relatorioMultiJanelaService,
+                                 ExportacaoAvaliacaoService exportacaoService,
+                                 ArquivamentoService arquivamentoService,
+                                 ResumoMediaService resumoMediaService,
+                                 MedicaoLatenciaService medicaoLatencia, RastreamentoService rastreamento,
+                                 ProtecaoDependenciasService protecao) {
+        this.relatorioService = relatorioService;
+        this.relatorioMultiJanelaService = relatorioMultiJanelaService;
+        this.exportacaoService = exportacaoService;
+        this.arquivamentoService = arquivamentoService;
+        this.resumoMediaService = resumoMediaService;
+        this.medicaoLatencia = medicaoLatencia;
+        this.rastreamento = rastreamento;
+        this.protecao = protecao;
+    }
+
     private void initializeSpringContext() {
-        try {
-            AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
-            context.scan("lambda.fase4");
-            context.refresh();
+        inicializacao = InicializacaoLambda.iniciar(getClass().getSimpleName(), context -> {
             this.relatorioService = context.getBean(RelatorioService.class);
-        } catch (Exception e) {
-            System.err.println("Erro ao inicializar contexto Spring: " + e.getMessage());
-        }
+            this.relatorioMultiJanelaService = context.getBean(RelatorioMultiJanelaService.class);
+            this.exportacaoService = context.getBean(ExportacaoAvaliacaoService.class);
+            this.arquivamentoService = context.getBean(ArquivamentoService.class);
+            this.resumoMediaService = context.getBean(ResumoMediaService.class);
+            this.medicaoLatencia = context.getBean(MedicaoLatenciaService.class);
+            this.rastreamento = context.getBean(RastreamentoService.class);
+            this.protecao = context.getBean(ProtecaoDependenciasService.class);
+        });
     }
 
     @Override
@@ -58,10 +117,29 @@ public class GerarRelatorioHandler implements RequestHandler<ScheduledEvent, Str
         context.getLogger().log("Event ID: " + event.getId());
         context.getLogger().log("Event Time: " + event.getTime());
 
+        inicializacao.verificar();
+        medicaoLatencia.iniciarInvocacao(context.getFunctionName());
+        inicializacao.registrarInvocacao(medicaoLatencia);
+        protecao.iniciarPrazo(context.getRemainingTimeInMillis());
         try {
+            Map<String, Object> detalhe = event.getDetail();
+            if (detalhe != null && Boolean.parseBoolean(String.valueOf(detalhe.get("arquivamento")))) {
+                return arquivar(context);
+            }
+            if (detalhe != null && Boolean.parseBoolean(String.valueOf(detalhe.get("resumoMedia")))) {
+                return enviarResumoMedia(detalhe, context);
+            }
+            if (detalhe != null && detalhe.get("exportacao") != null) {
+                return exportar(detalhe, context);
+            }
+            if (detalhe != null && detalhe.get("relatorios") != null) {
+                return gerarRelatorios(detalhe, context);
+            }
+
             // Gera o relatório
             context.getLogger().log("Gerando relatório semanal...");
-            RelatorioSemanalDTO relatorio = relatorioService.gerarRelatorioSemanal();
+            RelatorioSemanalDTO relatorio = rastreamento.executarEmSpan("relatorio.gerar", SpanKind.INTERNAL,
+                    relatorioService::gerarRelatorioSemanal);
 
             context.getLogger().log(String.format(
                     "Relatório gerado: %d avaliações, média %.2f",
@@ -71,7 +149,8 @@ public class GerarRelatorioHandler implements RequestHandler<ScheduledEvent, Str
 
             // Envia por e-mail
             context.getLogger().log("Enviando relatório por e-mail...");
-            relatorioService.enviarRelatorioSemanal(relatorio);
+            rastreamento.executarEmSpan("relatorio.enviar", SpanKind.INTERNAL,
+                    () -> relatorioService.enviarRelatorioSemanal(relatorio));
 
             String resultado = String.format(
                     "Relatório semanal gerado e enviado com sucesso! " +
@@ -87,7 +166,99 @@ public class GerarRelatorioHandler implements RequestHandler<ScheduledEvent, Str
             context.getLogger().log("ERRO ao gerar relatório: " + e.getMessage());
             e.printStackTrace();
             throw new RuntimeException("Falha na geração do relatório semanal", e);
+        } finally {
+            protecao.encerrarPrazo();
+            medicaoLatencia.finalizarInvocacao(context.getLogger());
+            inicializacao.finalizarInvocacao(context);
+            rastreamento.descarregar();
         }
     }
-}
 
+    /**
+     * Gera os relatórios pedidos no evento de uma só vez (padrão: terminando hoje, exclusive)
+     * e envia um e-mail por relatório.
+     */
+    private String gerarRelatorios(Map<String, Object> detalhe, Context context) {
+        Object pedidos = detalhe.get("relatorios");
+        List<RelatorioMultiJanelaService.Granularidade> granularidades = new ArrayList<>();
+        for (Object pedido : pedidos instanceof Collection<?> lista ? lista : List.of(pedidos.toString().split(","))) {
+            granularidades.add(RelatorioMultiJanelaService.Granularidade.valueOf(
+                    pedido.toString().trim().toUpperCase(Locale.ROOT)));
+        }
+        LocalDate fim = detalhe.get("fim") != null
+                ? LocalDate.parse(detalhe.get("fim").toString())
+                : LocalDate.now();
+
+        context.getLogger().log(String.format("Gerando relatórios %s até %s...", granularidades, fim));
+        List<RelatorioSemanalDTO> relatorios = rastreamento.executarEmSpan("relatorio.gerar", SpanKind.INTERNAL,
+                () -> relatorioMultiJanelaService.gerarRelatorios(fim, granularidades));
+
+        StringBuilder resumo = new StringBuilder();
+        for (RelatorioSemanalDTO relatorio : relatorios) {
+            context.getLogger().log(String.format("Relatório %s: %d avaliações, média %.2f",
+                    relatorio.getGranularidade(), relatorio.getTotalAvaliacoes(), relatorio.getMediaNotas()));
+            rastreamento.executarEmSpan("relatorio.enviar", SpanKind.INTERNAL,
+                    () -> relatorioService.enviarRelatorioSemanal(relatorio));
+            resumo.append(String.format(" %s: %d avaliações, média %.2f/10;",
+                    relatorio.getGranularidade(), relatorio.getTotalAvaliacoes(), relatorio.getMediaNotas()));
+        }
+
+        context.getLogger().log("===== RELATÓRIOS CONCLUÍDOS COM SUCESSO =====");
+        return "Relatórios gerados e enviados com sucesso!" + resumo;
+    }
+
+    /**
+     * Exporta o período informado no evento (padrão: últimos 7 dias) para o S3 e envia o link por e-mail.
+     */
+    private String exportar(Map<String, Object> detalhe, Context context) {
+        ExportacaoAvaliacaoService.Formato formato = ExportacaoAvaliacaoService.Formato.valueOf(
+                detalhe.get("exportacao").toString().toUpperCase(Locale.ROOT));
+        LocalDateTime fim = detalhe.get("fim") != null
+                ? LocalDateTime.parse(detalhe.get("fim").toString())
+                : LocalDateTime.now();
+        LocalDateTime inicio = detalhe.get("inicio") != null
+                ? LocalDateTime.parse(detalhe.get("inicio").toString())
+                : fim.minusDays(7);
+        boolean arquivadas = Boolean.parseBoolean(String.valueOf(detalhe.get("arquivadas")));
+
+        context.getLogger().log(String.format("Exportando avaliações (%s) de %s até %s...", formato, inicio, fim));
+        long linhas = rastreamento.executarEmSpan("exportacao.enviar", SpanKind.INTERNAL, () -> {
+            try {
+                return exportacaoService.enviarPorEmail(inicio, fim, formato, arquivadas);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        context.getLogger().log("===== EXPORTAÇÃO CONCLUÍDA COM SUCESSO =====");
+        return String.format("Exportação enviada com sucesso! Total: %d avaliações", linhas);
+    }
+
+    /**
+     * Move para o arquivo as avaliações mais antigas que o limite de idade configurado.
+     */
+    private String arquivar(Context context) {
+        context.getLogger().log("Arquivando avaliações antigas...");
+        long arquivadas = rastreamento.executarEmSpan("arquivamento", SpanKind.INTERNAL,
+                arquivamentoService::arquivar);
+
+        context.getLogger().log("===== ARQUIVAMENTO CONCLUÍDO COM SUCESSO =====");
+        return String.format("Arquivamento concluído com sucesso! Total: %d avaliações", arquivadas);
+    }
+
+    /**
+     * Envia o resumo diário das avaliações MEDIA do dia informado (padrão: ontem).
+     */
+    private String enviarResumoMedia(Map<String, Object> detalhe, Context context) {
+        LocalDate dia = detalhe.get("dia") != null
+                ? LocalDate.parse(detalhe.get("dia").toString())
+                : LocalDate.now().minusDays(1);
+
+        context.getLogger().log("Gerando resumo das avaliações MEDIA de " + dia + "...");
+        long avaliacoes = rastreamento.executarEmSpan("resumo-media", SpanKind.INTERNAL,
+                () -> resumoMediaService.enviarResumoDiario(dia));
+
+        context.getLogger().log("===== RESUMO MEDIA CONCLUÍDO COM SUCESSO =====");
+        return String.format("Resumo MEDIA enviado com sucesso! Total: %d avaliações", avaliacoes);
+    }
+}
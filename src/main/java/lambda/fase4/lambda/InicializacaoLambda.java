@@ -0,0 +1,347 @@
+package lambda.fase4.lambda;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+import com.amazonaws.services.lambda.runtime.LambdaRuntime;
+import com.google.gson.Gson;
+import lambda.fase4.service.MedicaoLatenciaService;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.beans.factory.BeanFactoryUtils;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.io.support.ResourcePropertySource;
+import org.springframework.core.metrics.StartupStep;
+import software.amazon.awssdk.core.SdkClient;
+import software.amazon.awssdk.core.exception.SdkException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Inicialização do contexto Spring de uma Lambda, com a telemetria da partida a frio.
+ *
+ * O contexto é criado com um {@link BufferingApplicationStartup}: ao fim da inicialização, as etapas
+ * registradas pelo Spring dão a duração do scan de componentes, da análise das classes de configuração,
+ * do refresh, da criação de cada bean, do bootstrap do Hibernate ({@code entityManagerFactory}) e da
+ * construção dos clientes AWS. Na primeira invocação do contêiner, essas durações, o tempo desde a
+ * partida da JVM e o tempo até a primeira resposta (fim da primeira invocação) são emitidos em uma
+ * linha EMF; todas as invocações contam {@code invocacao.fria} quando são a primeira do contêiner.
+ *
+ * Uma falha na inicialização não deixa o handler com dependências nulas: ela é classificada
+ * ({@link Categoria}), emitida com a sua duração durante a fase de init e cada invocação falha com
+ * {@link InicializacaoLambdaException}, em vez de um NullPointerException.
+ */
+public final class InicializacaoLambda {
+
+    /**
+     * Origem de uma falha de inicialização.
+     */
+    public enum Categoria {
+        /** Banco de dados: driver, conexão, pool ou bootstrap do Hibernate. */
+        BANCO_DE_DADOS,
+        /** Construção de um cliente do SDK da AWS (região, credenciais, endpoint). */
+        CLIENTE_AWS,
+        /** Propriedade ausente ou inválida, bean mal definido, application.properties ilegível. */
+        CONFIGURACAO,
+        OUTRA
+    }
+
+    /**
+     * Handlers criados com dependências explícitas (testes e benchmarks): sem telemetria de inicialização.
+     */
+    static final InicializacaoLambda SEM_CONTEXTO = new InicializacaoLambda(null, 0, 0, Map.of(), Map.of(), null, null, null);
+
+    private static final String NAMESPACE = "FeedbackSystem";
+    private static final int CAPACIDADE_ETAPAS = 10_000;
+    private static final int BEANS_MAIS_LENTOS = 15;
+    private static final Set<String> BEANS_BANCO_DE_DADOS = Set.of("dataSource", "entityManagerFactory",
+            "transactionManager", "dataSourceScriptDatabaseInitializer", "jdbcTemplate");
+
+    private static final Gson GSON = new Gson();
+
+    private final String handler;
+    private final long partidaJvmMillis;
+    private final long inicioMillis;
+    private final Map<String, Double> fases;
+    private final Map<String, Double> beansMaisLentos;
+    private final Categoria categoria;
+    private final String beanComFalha;
+    private final RuntimeException falha;
+    private final AtomicBoolean primeiraInvocacao = new AtomicBoolean(true);
+    private long inicioPrimeiraInvocacao;
+
+    private InicializacaoLambda(String handler, long partidaJvmMillis, long inicioMillis, Map<String, Double> fases,
+                                Map<String, Double> beansMaisLentos, Categoria categoria, String beanComFalha,
+                                RuntimeException falha) {
+        this.handler = handler;
+        this.partidaJvmMillis = partidaJvmMillis;
+        this.inicioMillis = inicioMillis;
+        this.fases = fases;
+        this.beansMaisLentos = beansMaisLentos;
+        this.categoria = categoria;
+        this.beanComFalha = beanComFalha;
+        this.falha = falha;
+    }
+
+    /**
+     * Cria o contexto Spring (scan de {@code lambda.fase4}) e obtém os beans do handler.
+     * Nunca lança: uma falha fica registrada e é emitida imediatamente pelo logger da Lambda.
+     *
+     * @param handler    nome do handler (dimensão das métricas até a primeira invocação)
+     * @param obterBeans obtém do contexto as dependências do handler
+     */
+    static InicializacaoLambda iniciar(String handler, Consumer<ApplicationContext> obterBeans) {
+        long inicioMillis = System.currentTimeMillis();
+        long inicio = System.nanoTime();
+        BufferingApplicationStartup startup = new BufferingApplicationStartup(CAPACIDADE_ETAPAS);
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.setApplicationStartup(startup);
+        RuntimeException falha = null;
+        try {
+            // Sem o SpringApplication, o application.properties não é carregado automaticamente
+            context.getEnvironment().getPropertySources()
+                    .addLast(new ResourcePropertySource("classpath:application.properties"));
+            context.scan("lambda.fase4");
+            context.refresh();
+            obterBeans.accept(context);
+        } catch (RuntimeException e) {
+            falha = e;
+        } catch (IOException e) {
+            falha = new UncheckedIOException(e);
+        }
+        long totalNanos = System.nanoTime() - inicio;
+
+        Map<String, Double> fases = new LinkedHashMap<>();
+        fases.put("init.total", millis(totalNanos));
+        fases.put("init.jvm", (double) Math.max(0, inicioMillis - partidaJvm()));
+        Map<String, Double> beans = new HashMap<>();
+        resumirEtapas(startup.getBufferedTimeline(), fases, beans, nomesClientesAws(context));
+
+        InicializacaoLambda inicializacao;
+        if (falha == null) {
+            inicializacao = new InicializacaoLambda(handler, partidaJvm(), inicioMillis, fases,
+                    maisLentos(beans), null, null, null);
+        } else {
+            String bean = beanComFalha(falha);
+            inicializacao = new InicializacaoLambda(handler, partidaJvm(), inicioMillis, fases,
+                    maisLentos(beans), classificar(falha, bean, context), bean, falha);
+            inicializacao.emitirFalha(LambdaRuntime.getLogger());
+        }
+        return inicializacao;
+    }
+
+    /**
+     * Falha a invocação se a inicialização falhou (antes de qualquer uso das dependências do handler).
+     *
+     * @throws InicializacaoLambdaException se o contexto Spring não foi inicializado
+     */
+    void verificar() {
+        if (falha != null) {
+            throw new InicializacaoLambdaException(categoria, beanComFalha, fases.get("init.total").longValue(), falha);
+        }
+    }
+
+    /**
+     * Conta a invocação como fria se for a primeira do contêiner (após
+     * {@link MedicaoLatenciaService#iniciarInvocacao}).
+     */
+    void registrarInvocacao(MedicaoLatenciaService medicaoLatencia) {
+        if (this != SEM_CONTEXTO && primeiraInvocacao.get()) {
+            inicioPrimeiraInvocacao = System.nanoTime();
+            medicaoLatencia.contarEvento("invocacao.fria");
+        }
+    }
+
+    /**
+     * Fim de uma invocação: na primeira do contêiner, emite a telemetria da partida a frio.
+     */
+    void finalizarInvocacao(Context context) {
+        if (this == SEM_CONTEXTO || falha != null || !primeiraInvocacao.compareAndSet(true, false)) {
+            return;
+        }
+        Map<String, Double> metricas = new LinkedHashMap<>(fases);
+        metricas.put("invocacao.primeira", millis(System.nanoTime() - inicioPrimeiraInvocacao));
+        // Partida da JVM até a resposta da primeira invocação
+        metricas.put("invocacao.primeira_resposta", (double) (System.currentTimeMillis() - partidaJvmMillis));
+
+        Map<String, Object> documento = emf(context.getFunctionName(), metricas, Map.of());
+        documento.put("Handler", handler);
+        documento.put("ColdStart", true);
+        documento.put("InicioInicializacao", inicioMillis);
+        documento.put("BeansMaisLentos", beansMaisLentos);
+        try {
+            context.getLogger().log(GSON.toJson(documento));
+        } catch (RuntimeException e) {
+            // A telemetria não interrompe a invocação
+        }
+    }
+
+    private void emitirFalha(LambdaLogger logger) {
+        String funcao = System.getenv().getOrDefault("AWS_LAMBDA_FUNCTION_NAME", handler);
+        Map<String, Object> documento = emf(funcao, fases, Map.of("init.falha", 1));
+        documento.put("Handler", handler);
+        documento.put("Categoria", categoria.name());
+        documento.put("Bean", beanComFalha);
+        documento.put("Erro", falha.getClass().getName() + ": " + mensagemRaiz(falha));
+        logger.log(GSON.toJson(documento));
+    }
+
+    private static Map<String, Object> emf(String funcao, Map<String, Double> metricas, Map<String, Integer> contagens) {
+        List<Map<String, String>> definicoes = new ArrayList<>();
+        metricas.keySet().forEach(nome -> definicoes.add(Map.of("Name", nome, "Unit", "Milliseconds")));
+        contagens.keySet().forEach(nome -> definicoes.add(Map.of("Name", nome, "Unit", "Count")));
+
+        Map<String, Object> diretiva = new LinkedHashMap<>();
+        diretiva.put("Namespace", NAMESPACE);
+        diretiva.put("Dimensions", List.of(List.of("Funcao")));
+        diretiva.put("Metrics", definicoes);
+
+        Map<String, Object> documento = new LinkedHashMap<>();
+        documento.put("_aws", Map.of(
+                "Timestamp", System.currentTimeMillis(),
+                "CloudWatchMetrics", List.of(diretiva)));
+        documento.put("Funcao", funcao);
+        documento.putAll(metricas);
+        documento.putAll(contagens);
+        return documento;
+    }
+
+    /**
+     * Soma as etapas do Spring por fase. A duração de um bean inclui a das dependências criadas
+     * durante a sua criação (ex.: {@code entityManagerFactory} inclui o {@code dataSource}).
+     */
+    static void resumirEtapas(StartupTimeline timeline, Map<String, Double> fases, Map<String, Double> beans,
+                              Set<String> clientesAws) {
+        double scan = 0, configuracao = 0, refresh = 0, hibernate = 0, aws = 0;
+        for (StartupTimeline.TimelineEvent evento : timeline.getEvents()) {
+            double ms = millis(evento.getDuration().toNanos());
+            switch (evento.getStartupStep().getName()) {
+                case "spring.context.base-packages.scan" -> scan += ms;
+                case "spring.context.config-classes.parse", "spring.context.config-classes.enhance" -> configuracao += ms;
+                case "spring.context.refresh" -> refresh += ms;
+                case "spring.beans.instantiate" -> {
+                    String bean = tag(evento.getStartupStep(), "beanName");
+                    if (bean != null) {
+                        beans.merge(bean, ms, Double::sum);
+                        // O bootstrap ocorre na criação da fábrica (&entityManagerFactory), que pode estar
+                        // aninhada na criação do objeto produzido por ela
+                        String nome = BeanFactoryUtils.transformedBeanName(bean);
+                        if (nome.equals("entityManagerFactory")) {
+                            hibernate = Math.max(hibernate, ms);
+                        }
+                        if (clientesAws.contains(nome)) {
+                            aws += ms;
+                        }
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+        fases.put("init.scan", scan);
+        fases.put("init.classes_configuracao", configuracao);
+        fases.put("init.refresh", refresh);
+        fases.put("init.hibernate", hibernate);
+        fases.put("init.clientes_aws", aws);
+    }
+
+    private static Map<String, Double> maisLentos(Map<String, Double> beans) {
+        Map<String, Double> maisLentos = new LinkedHashMap<>();
+        beans.entrySet().stream()
+                .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
+                .limit(BEANS_MAIS_LENTOS)
+                .forEach(bean -> maisLentos.put(bean.getKey(), bean.getValue()));
+        return maisLentos;
+    }
+
+    private static String tag(StartupStep etapa, String chave) {
+        for (StartupStep.Tag tag : etapa.getTags()) {
+            if (tag.getKey().equals(chave)) {
+                return tag.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static Set<String> nomesClientesAws(AnnotationConfigApplicationContext context) {
+        try {
+            return Set.of(context.getBeanNamesForType(SdkClient.class, true, false));
+        } catch (RuntimeException e) {
+            return Set.of();
+        }
+    }
+
+    /**
+     * Classifica a falha pela causa mais específica: exceções do SDK da AWS ou de JDBC/Hibernate na
+     * cadeia de causas, o bean que falhou (infraestrutura de banco ou cliente AWS) e, por fim, erros
+     * de definição dos beans (configuração).
+     */
+    static Categoria classificar(Throwable falha, String bean, ApplicationContext context) {
+        for (Throwable causa = falha; causa != null; causa = causa.getCause()) {
+            if (causa instanceof SdkException) {
+                return Categoria.CLIENTE_AWS;
+            }
+            if (causa instanceof SQLException || causa.getClass().getName().startsWith("org.hibernate.")
+                    || causa.getClass().getName().startsWith("com.zaxxer.hikari.")) {
+                return Categoria.BANCO_DE_DADOS;
+            }
+        }
+        if (bean != null && BEANS_BANCO_DE_DADOS.contains(BeanFactoryUtils.transformedBeanName(bean))) {
+            return Categoria.BANCO_DE_DADOS;
+        }
+        if (bean != null && context != null) {
+            try {
+                Class<?> tipo = context.getType(bean, false);
+                if (tipo != null && SdkClient.class.isAssignableFrom(tipo)) {
+                    return Categoria.CLIENTE_AWS;
+                }
+            } catch (RuntimeException e) {
+                // Definição indisponível após o fechamento do contexto
+            }
+        }
+        return falha instanceof BeansException || falha instanceof UncheckedIOException
+                ? Categoria.CONFIGURACAO : Categoria.OUTRA;
+    }
+
+    /**
+     * Bean mais interno da cadeia de falhas de criação (o que originou a falha).
+     */
+    static String beanComFalha(Throwable falha) {
+        String bean = null;
+        for (Throwable causa = falha; causa != null; causa = causa.getCause()) {
+            if (causa instanceof BeanCreationException criacao && criacao.getBeanName() != null) {
+                bean = criacao.getBeanName();
+            }
+        }
+        return bean;
+    }
+
+    static String mensagemRaiz(Throwable falha) {
+        Throwable raiz = falha;
+        while (raiz.getCause() != null && raiz.getCause() != raiz) {
+            raiz = raiz.getCause();
+        }
+        return raiz.getMessage();
+    }
+
+    private static long partidaJvm() {
+        return ManagementFactory.getRuntimeMXBean().getStartTime();
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,36 @@
+package lambda.fase4.lambda;
+
+/**
+ * Indica que a invocação não pôde ser processada porque a inicialização do contexto Spring
+ * da Lambda falhou (na fase de init do contêiner).
+ *
+ * Traz a categoria da falha, o bean que a originou e a duração da inicialização; a causa
+ * original segue como {@link #getCause()}.
+ */
+public class InicializacaoLambdaException extends RuntimeException {
+
+    private final InicializacaoLambda.Categoria categoria;
+    private final String bean;
+    private final long duracaoMillis;
+
+    public InicializacaoLambdaException(InicializacaoLambda.Categoria categoria, String bean, long duracaoMillis,
+                                        Throwable cause) {
+        super(String.format("Inicialização da Lambda falhou (%s%s, após %d ms): %s", categoria,
+                bean != null ? ", bean " + bean : "", duracaoMillis, InicializacaoLambda.mensagemRaiz(cause)), cause);
+        this.categoria = categoria;
+        this.bean = bean;
+        this.duracaoMillis = duracaoMillis;
+    }
+
+    public InicializacaoLambda.Categoria getCategoria() {
+        return categoria;
+    }
+
+    public String getBean() {
+        return bean;
+    }
+
+    public long getDuracaoMillis() {
+        return duracaoMillis;
+    }
+}
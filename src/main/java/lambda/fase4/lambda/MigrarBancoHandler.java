@@ -0,0 +1,80 @@
+package lambda.fase4.lambda;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.io.support.ResourcePropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Função Lambda 4: Migração do Banco de Dados
+ *
+ * Responsabilidade Única: Aplicar as migrações do esquema uma única vez por deploy, fora da
+ * partida das demais funções (que usam {@code spring.sql.init.mode=never}).
+ *
+ * Trigger: invocação do Terraform ({@code aws_lambda_invocation}) a cada novo pacote, antes da
+ * atualização das demais funções; localmente, pelo {@link #main} (test-local.sh).
+ *
+ * Funcionalidades:
+ * - Executa os scripts de {@code spring.sql.init.schema-locations} (id uuid, descrição em tabela
+ *   própria, busca textual) antes do Hibernate: o ddl-auto=update encontra o esquema já convertido
+ *   e só cria o que faltar (tabelas novas em um banco vazio)
+ * - Scripts idempotentes: uma nova invocação sem mudanças não altera nada
+ * - O contexto é criado e fechado na invocação, e não na fase de init (limitada a 10 s): os ALTER
+ *   TABLE de uma tabela populada podem levar mais tempo
+ *
+ * Configurações:
+ * - Timeout: 15 minutos
+ * - Memory: 512 MB
+ */
+public class MigrarBancoHandler implements RequestHandler<Map<String, Object>, String> {
+
+    /**
+     * Sobrescreve a configuração do runtime: scripts executados, antes do Hibernate.
+     */
+    static final Map<String, Object> PROPRIEDADES_MIGRACAO = Map.of(
+            "spring.sql.init.mode", "always",
+            "spring.jpa.defer-datasource-initialization", "false");
+
+    @Override
+    public String handleRequest(Map<String, Object> evento, Context context) {
+        long inicio = System.currentTimeMillis();
+        context.getLogger().log("Aplicando migrações do banco de dados");
+        migrar(Map.of());
+        String resultado = "Migrações aplicadas em " + (System.currentTimeMillis() - inicio) + " ms";
+        context.getLogger().log(resultado);
+        return resultado;
+    }
+
+    /**
+     * Cria o contexto Spring com a configuração da migração, o que aplica os scripts e o ddl-auto,
+     * e o fecha em seguida.
+     *
+     * @param propriedadesAdicionais precedência sobre a migração e o application.properties
+     *                               (ex.: URL do banco do ambiente offline)
+     */
+    public static void migrar(Map<String, Object> propriedadesAdicionais) {
+        Map<String, Object> propriedades = new HashMap<>(PROPRIEDADES_MIGRACAO);
+        propriedades.putAll(propriedadesAdicionais);
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("migracao", propriedades));
+            context.getEnvironment().getPropertySources()
+                    .addLast(new ResourcePropertySource("classpath:application.properties"));
+            context.scan("lambda.fase4");
+            context.refresh();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static void main(String[] args) {
+        migrar(Map.of());
+        // Threads do pool de conexões e dos clientes AWS não são daemon
+        System.exit(0);
+    }
+}
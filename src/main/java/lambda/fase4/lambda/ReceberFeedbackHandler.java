@@ -5,12 +5,14 @@ import com.amazonaws.services.lambda.runtime.RequestHandler;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
 import com.google.gson.Gson;
+import io.opentelemetry.api.trace.SpanKind;
 import lambda.fase4.dto.AvaliacaoRequest;
 import lambda.fase4.dto.AvaliacaoResponse;
 import lambda.fase4.model.Avaliacao;
 import lambda.fase4.service.AvaliacaoService;
-import org.springframework.context.annotation.AnnotationConfigApplicationContext;
-import org.springframework.stereotype.Component;
+import lambda.fase4.service.MedicaoLatenciaService;
+import lambda.fase4.service.ProtecaoDependenciasService;
+import lambda.fase4.service.RastreamentoService;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -28,52 +30,87 @@ import java.util.Map;
  * - Calcula urgência automaticamente
  * - Envia avaliações críticas para fila SQS
  * - Registra métricas no CloudWatch
+ * - Mede a latência de cada fase (parse/validação, banco, CloudWatch, SQS)
+ * - Inicia o trace do alerta crítico, propagado pela fila SQS
+ * - Limita as chamadas ao SQS e ao CloudWatch ao tempo restante da invocação, com disjuntores
+ * - Emite a duração de cada fase da partida a frio na primeira invocação ({@link InicializacaoLambda});
+ *   com a inicialização falha, responde 503
  *
  * Segurança:
  * - Validação de entrada com Jakarta Validation
  * - IAM Role com permissões mínimas (DynamoDB:PutItem, SQS:SendMessage, CloudWatch:PutMetricData)
  * - Logs estruturados para auditoria
  */
-@Component
 public class ReceberFeedbackHandler implements RequestHandler<APIGatewayProxyRequestEvent, APIGatewayProxyResponseEvent> {
 
     private final Gson gson = new Gson();
     private AvaliacaoService avaliacaoService;
+    private MedicaoLatenciaService medicaoLatencia;
+    private RastreamentoService rastreamento;
+    private ProtecaoDependenciasService protecao;
+    private InicializacaoLambda inicializacao = InicializacaoLambda.SEM_CONTEXTO;
 
     public ReceberFeedbackHandler() {
         // Inicializa contexto Spring para injeção de dependências
         initializeSpringContext();
     }
 
+    /**
+     * Construtor com dependências explícitas, sem contexto Spring (testes e benchmarks).
+     */
+    public ReceberFeedbackHandler(AvaliacaoService avaliacaoService, MedicaoLatenciaService medicaoLatencia,
+                                  RastreamentoService rastreamento, ProtecaoDependenciasService protecao) {
+        this.avaliacaoService = avaliacaoService;
+        this.medicaoLatencia = medicaoLatencia;
+        this.rastreamento = rastreamento;
+        this.protecao = protecao;
+    }
+
     private void initializeSpringContext() {
-        try {
-            AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
-            context.scan("lambda.fase4");
-            context.refresh();
+        inicializacao = InicializacaoLambda.iniciar(getClass().getSimpleName(), context -> {
             this.avaliacaoService = context.getBean(AvaliacaoService.class);
-        } catch (Exception e) {
-            System.err.println("Erro ao inicializar contexto Spring: " + e.getMessage());
-        }
+            this.medicaoLatencia = context.getBean(MedicaoLatenciaService.class);
+            this.rastreamento = context.getBean(RastreamentoService.class);
+            this.protecao = context.getBean(ProtecaoDependenciasService.class);
+        });
     }
 
     @Override
     public APIGatewayProxyResponseEvent handleRequest(APIGatewayProxyRequestEvent input, Context context) {
         context.getLogger().log("Processando requisição de feedback");
 
+        try {
+            inicializacao.verificar();
+        } catch (InicializacaoLambdaException e) {
+            context.getLogger().log(e.getMessage());
+            return createErrorResponse(503, "Serviço temporariamente indisponível");
+        }
+        medicaoLatencia.iniciarInvocacao(context.getFunctionName());
+        inicializacao.registrarInvocacao(medicaoLatencia);
+        protecao.iniciarPrazo(context.getRemainingTimeInMillis());
+        try {
+            return rastreamento.executarEmSpan("POST /avaliacao", SpanKind.SERVER, () -> processar(input, context));
+        } finally {
+            protecao.encerrarPrazo();
+            medicaoLatencia.finalizarInvocacao(context.getLogger());
+            inicializacao.finalizarInvocacao(context);
+            rastreamento.descarregar();
+        }
+    }
+
+    private APIGatewayProxyResponseEvent processar(APIGatewayProxyRequestEvent input, Context context) {
         APIGatewayProxyResponseEvent response = new APIGatewayProxyResponseEvent();
         response.setHeaders(getCorsHeaders());
 
         try {
-            // Parse do body
-            String body = input.getBody();
-            AvaliacaoRequest request = gson.fromJson(body, AvaliacaoRequest.class);
-
-            // Validação básica
-            if (request.getDescricao() == null || request.getDescricao().isBlank()) {
-                return createErrorResponse(400, "Descrição é obrigatória");
-            }
-            if (request.getNota() == null || request.getNota() < 0 || request.getNota() > 10) {
-                return createErrorResponse(400, "Nota deve estar entre 0 e 10");
+            // Parse do body e validação básica
+            long inicioParse = System.nanoTime();
+            AvaliacaoRequest request = gson.fromJson(input.getBody(), AvaliacaoRequest.class);
+            String erroValidacao = validar(request);
+            medicaoLatencia.registrar("handler.parse_validacao", System.nanoTime() - inicioParse);
+
+            if (erroValidacao != null) {
+                return createErrorResponse(400, erroValidacao);
             }
 
             // Processa avaliação
@@ -81,7 +118,7 @@ public class ReceberFeedbackHandler implements RequestHandler<APIGatewayProxyReq
 
             // Cria resposta
             AvaliacaoResponse avaliacaoResponse = new AvaliacaoResponse(
-                    avaliacao.getId(),
+                    avaliacao.getId().toString(),
                     avaliacao.getDescricao(),
                     avaliacao.getNota(),
                     avaliacao.getDataEnvio().toString(),
@@ -101,6 +138,20 @@ public class ReceberFeedbackHandler implements RequestHandler<APIGatewayProxyReq
         return response;
     }
 
+    /**
+     * Valida os dados da avaliação recebida.
+     * Retorna a mensagem de erro ou null se a requisição for válida.
+     */
+    static String validar(AvaliacaoRequest request) {
+        if (request == null || request.getDescricao() == null || request.getDescricao().isBlank()) {
+            return "Descrição é obrigatória";
+        }
+        if (request.getNota() == null || request.getNota() < 0 || request.getNota() > 10) {
+            return "Nota deve estar entre 0 e 10";
+        }
+        return null;
+    }
+
     private APIGatewayProxyResponseEvent createErrorResponse(int statusCode, String message) {
         APIGatewayProxyResponseEvent response = new APIGatewayProxyResponseEvent();
         response.setStatusCode(statusCode);
@@ -0,0 +1,52 @@
+package lambda.fase4.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Checkpoint com os agregados de avaliações de um dia já encerrado.
+ * Evita que cada relatório reagregue dias cobertos por execuções anteriores.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "agregados_diarios")
+public class AgregadoDiario {
+
+    @Id
+    private LocalDate dia;
+
+    @Column(nullable = false)
+    private long total;
+
+    @Column(nullable = false)
+    private long somaNotas;
+
+    @Column(nullable = false)
+    private long criticas;
+
+    @Column(nullable = false)
+    private long medias;
+
+    @Column(nullable = false)
+    private long baixas;
+
+    /**
+     * Quantidade por nota (índice = nota, 0 a 10). Nulo em checkpoints anteriores ao histograma,
+     * que são recalculados na próxima leitura.
+     */
+    @Column(columnDefinition = "bigint[]")
+    private long[] quantidadePorNota;
+
+    /**
+     * Momento do cálculo (diagnóstico de checkpoints antigos).
+     */
+    @Column(nullable = false)
+    private LocalDateTime calculadoEm;
+}
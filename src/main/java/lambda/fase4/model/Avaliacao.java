@@ -4,25 +4,48 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.SecondaryRow;
+import org.hibernate.annotations.UuidGenerator;
 
 import java.time.LocalDateTime;
+import java.util.UUID;
 
 /**
  * Entidade que representa uma avaliação de feedback do sistema.
  * Armazenada em RDS PostgreSQL para garantir consistência transacional.
+ *
+ * A descrição fica em tabela própria (avaliacoes_descricoes, mesma chave): as linhas de
+ * avaliacoes, lidas por varreduras de período, contagens e pela atualização do estado da
+ * notificação, ficam estreitas. Consultas que não selecionam a descrição não acessam essa tabela.
  */
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "avaliacoes")
+@Table(name = "avaliacoes", indexes = {
+        // Keyset da listagem paginada (GET /api/avaliacoes)
+        @Index(name = "idx_avaliacoes_data_envio_id", columnList = "data_envio, id")
+})
+@SecondaryTable(name = Avaliacao.TABELA_DESCRICAO,
+        pkJoinColumns = @PrimaryKeyJoinColumn(name = "avaliacao_id"),
+        foreignKey = @ForeignKey(name = "fk_avaliacoes_descricoes_avaliacao"))
+@SecondaryRow(table = Avaliacao.TABELA_DESCRICAO, optional = false)
 public class Avaliacao {
 
+    public static final String TABELA_DESCRICAO = "avaliacoes_descricoes";
+
+    /**
+     * UUIDv7 (ordenado pelo instante de criação) em coluna uuid nativa: inserções concentradas no
+     * fim dos índices de id e 16 bytes por chave. Exposto como texto na API e nas mensagens.
+     * Tabelas criadas com id varchar são convertidas por db/migracao-id-uuid.sql.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
-    private String id;
+    @GeneratedValue
+    @UuidGenerator(style = UuidGenerator.Style.VERSION_7)
+    private UUID id;
 
-    @Column(nullable = false, length = 2000)
+    @Column(table = TABELA_DESCRICAO, nullable = false, length = 2000)
     private String descricao;
 
     @Column(nullable = false)
@@ -38,6 +61,20 @@ public class Avaliacao {
     @Column
     private boolean notificacaoEnviada;
 
+    /**
+     * Momento em que um consumidor reservou o envio da notificação.
+     * Evita reenvio de SNS/SES em entregas duplicadas da fila SQS.
+     */
+    @Column
+    private LocalDateTime notificacaoReservadaEm;
+
+    /**
+     * SNS já publicado para esta avaliação; uma nova tentativa após falha no e-mail envia só o SES.
+     */
+    @ColumnDefault("false")
+    @Column(nullable = false)
+    private boolean notificacaoSnsEnviada;
+
 
     /**
      * Calcula a urgência baseada na nota recebida.
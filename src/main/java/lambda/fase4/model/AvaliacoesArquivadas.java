@@ -0,0 +1,39 @@
+package lambda.fase4.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Avaliações arquivadas de um dia, em um único bloco colunar compactado com gzip
+ * (ver ArquivamentoService). Os agregados do dia permanecem em agregados_diarios.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "avaliacoes_arquivadas")
+public class AvaliacoesArquivadas {
+
+    @Id
+    private LocalDate dia;
+
+    @Column(nullable = false)
+    private int quantidade;
+
+    /**
+     * Versão do formato do bloco, para leitura de blocos gravados por versões anteriores.
+     */
+    @Column(nullable = false)
+    private int versaoFormato;
+
+    @Column(nullable = false, columnDefinition = "bytea")
+    private byte[] dados;
+
+    @Column(nullable = false)
+    private LocalDateTime arquivadoEm;
+}
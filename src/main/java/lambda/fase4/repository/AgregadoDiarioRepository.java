@@ -0,0 +1,45 @@
+package lambda.fase4.repository;
+
+import lambda.fase4.model.AgregadoDiario;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository para os checkpoints de agregados diários dos relatórios.
+ */
+@Repository
+public interface AgregadoDiarioRepository extends JpaRepository<AgregadoDiario, LocalDate> {
+
+    /**
+     * Checkpoints dos dias em [inicio, fim).
+     */
+    @Query("SELECT d FROM AgregadoDiario d WHERE d.dia >= :inicio AND d.dia < :fim")
+    List<AgregadoDiario> buscarPorPeriodo(LocalDate inicio, LocalDate fim);
+
+    /**
+     * Grava o checkpoint de um dia; se outra execução já o gravou, sobrescreve com o valor recalculado.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO agregados_diarios " +
+            "(dia, total, soma_notas, criticas, medias, baixas, quantidade_por_nota, calculado_em) " +
+            "VALUES (:dia, :total, :somaNotas, :criticas, :medias, :baixas, :quantidadePorNota, :calculadoEm) " +
+            "ON CONFLICT (dia) DO UPDATE SET total = EXCLUDED.total, soma_notas = EXCLUDED.soma_notas, " +
+            "criticas = EXCLUDED.criticas, medias = EXCLUDED.medias, baixas = EXCLUDED.baixas, " +
+            "quantidade_por_nota = EXCLUDED.quantidade_por_nota, calculado_em = EXCLUDED.calculado_em",
+            nativeQuery = true)
+    int gravar(LocalDate dia, long total, long somaNotas, long criticas, long medias, long baixas,
+               long[] quantidadePorNota, LocalDateTime calculadoEm);
+
+    /**
+     * Remove o checkpoint de um dia (avaliação recebida ou alterada após o cálculo).
+     */
+    @Modifying
+    @Query("DELETE FROM AgregadoDiario d WHERE d.dia = :dia")
+    int invalidar(LocalDate dia);
+}
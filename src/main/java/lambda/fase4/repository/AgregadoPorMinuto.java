@@ -0,0 +1,16 @@
+package lambda.fase4.repository;
+
+/**
+ * Projeção com o agregado de avaliações de um minuto.
+ * O minuto é a data de envio truncada, em segundos desde a época (data local tratada como UTC).
+ */
+public interface AgregadoPorMinuto {
+
+    Long getMinutoEpoch();
+
+    Long getTotal();
+
+    Long getSomaNotas();
+
+    Long getCriticas();
+}
@@ -1,18 +1,25 @@
 package lambda.fase4.repository;
 
+import jakarta.persistence.QueryHint;
 import lambda.fase4.model.Avaliacao;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
 
 /**
  * Repository para operações com Avaliação no banco de dados.
  */
 @Repository
-public interface AvaliacaoRepository extends JpaRepository<Avaliacao, String> {
+public interface AvaliacaoRepository extends JpaRepository<Avaliacao, UUID> {
 
     /**
      * Busca avaliações por urgência.
@@ -24,11 +31,6 @@ public interface AvaliacaoRepository extends JpaRepository<Avaliacao, String> {
      */
     List<Avaliacao> findByUrgenciaAndNotificacaoEnviadaFalse(Avaliacao.Urgencia urgencia);
 
-    /**
-     * Busca avaliações em um período específico.
-     */
-    List<Avaliacao> findByDataEnvioBetween(LocalDateTime inicio, LocalDateTime fim);
-
     /**
      * Calcula a média de notas em um período.
      */
@@ -40,5 +42,163 @@ public interface AvaliacaoRepository extends JpaRepository<Avaliacao, String> {
      */
     @Query("SELECT COUNT(a) FROM Avaliacao a WHERE a.urgencia = :urgencia AND a.dataEnvio BETWEEN :inicio AND :fim")
     Long contarPorUrgenciaEPeriodo(Avaliacao.Urgencia urgencia, LocalDateTime inicio, LocalDateTime fim);
-}
 
+    /**
+     * Conta avaliações por nota e urgência em um período (média e contagens em uma consulta).
+     */
+    @Query("SELECT new lambda.fase4.repository.ContagemNotaUrgencia(a.nota, a.urgencia, COUNT(a)) " +
+            "FROM Avaliacao a WHERE a.dataEnvio BETWEEN :inicio AND :fim GROUP BY a.nota, a.urgencia")
+    List<ContagemNotaUrgencia> contarPorNotaEUrgencia(LocalDateTime inicio, LocalDateTime fim);
+
+    /**
+     * Agrega avaliações por minuto a partir de {@code inicio} (carga inicial das estatísticas em memória).
+     */
+    @Query(value = "SELECT EXTRACT(EPOCH FROM date_trunc('minute', data_envio)) AS minutoEpoch, " +
+            "COUNT(*) AS total, SUM(nota) AS somaNotas, " +
+            "COUNT(*) FILTER (WHERE urgencia = 'CRITICA') AS criticas " +
+            "FROM avaliacoes WHERE data_envio >= :inicio AND data_envio < :fim " +
+            "GROUP BY 1", nativeQuery = true)
+    List<AgregadoPorMinuto> agregarPorMinuto(LocalDateTime inicio, LocalDateTime fim);
+
+    /**
+     * Lista avaliações por keyset (dataEnvio, id) decrescente, sem carregar entidades nem a descrição.
+     * Retorna as avaliações estritamente anteriores ao cursor; o custo não cresce com a profundidade.
+     */
+    @Query("SELECT a.id AS id, a.nota AS nota, a.dataEnvio AS dataEnvio, a.urgencia AS urgencia, " +
+            "a.notificacaoEnviada AS notificacaoEnviada FROM Avaliacao a " +
+            "WHERE (a.dataEnvio, a.id) < (:cursorData, :cursorId) " +
+            "AND a.dataEnvio >= :inicio AND a.dataEnvio <= :fim " +
+            "AND (:urgencia IS NULL OR a.urgencia = :urgencia) " +
+            "AND (:notificado IS NULL OR a.notificacaoEnviada = :notificado) " +
+            "ORDER BY a.dataEnvio DESC, a.id DESC")
+    List<AvaliacaoResumo> listarResumos(LocalDateTime cursorData, UUID cursorId,
+                                        LocalDateTime inicio, LocalDateTime fim,
+                                        Avaliacao.Urgencia urgencia, Boolean notificado, Limit limite);
+
+    /**
+     * Igual a {@link #listarResumos}, incluindo a descrição.
+     */
+    @Query("SELECT a.id AS id, a.descricao AS descricao, a.nota AS nota, a.dataEnvio AS dataEnvio, " +
+            "a.urgencia AS urgencia, a.notificacaoEnviada AS notificacaoEnviada FROM Avaliacao a " +
+            "WHERE (a.dataEnvio, a.id) < (:cursorData, :cursorId) " +
+            "AND a.dataEnvio >= :inicio AND a.dataEnvio <= :fim " +
+            "AND (:urgencia IS NULL OR a.urgencia = :urgencia) " +
+            "AND (:notificado IS NULL OR a.notificacaoEnviada = :notificado) " +
+            "ORDER BY a.dataEnvio DESC, a.id DESC")
+    List<AvaliacaoResumoComDescricao> listarResumosComDescricao(LocalDateTime cursorData, UUID cursorId,
+                                                                LocalDateTime inicio, LocalDateTime fim,
+                                                                Avaliacao.Urgencia urgencia, Boolean notificado,
+                                                                Limit limite);
+
+    /**
+     * Percorre as avaliações do período por cursor do banco, em lotes de {@code fetchSize} linhas,
+     * sem carregar entidades (exportação). Exige transação ativa e deve ser fechado após o uso.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new lambda.fase4.repository.LinhaExportacao(a.id, a.descricao, a.nota, a.dataEnvio, " +
+            "a.urgencia, a.notificacaoEnviada) FROM Avaliacao a " +
+            "WHERE a.dataEnvio >= :inicio AND a.dataEnvio < :fim " +
+            "ORDER BY a.dataEnvio, a.id")
+    Stream<LinhaExportacao> percorrerPorPeriodo(LocalDateTime inicio, LocalDateTime fim);
+
+    /**
+     * Percorre nota, data de envio e urgência das avaliações do período em ordem de data de envio
+     * (consolidação de relatórios). Exige transação ativa e deve ser fechado após o uso.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "5000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new lambda.fase4.repository.LinhaRelatorio(a.nota, a.dataEnvio, a.urgencia) " +
+            "FROM Avaliacao a WHERE a.dataEnvio >= :inicio AND a.dataEnvio < :fim " +
+            "ORDER BY a.dataEnvio")
+    Stream<LinhaRelatorio> percorrerParaRelatorio(LocalDateTime inicio, LocalDateTime fim);
+
+    /**
+     * Data de envio da avaliação mais antiga (null se não houver avaliações).
+     */
+    @Query("SELECT MIN(a.dataEnvio) FROM Avaliacao a")
+    LocalDateTime buscarDataEnvioMaisAntiga();
+
+    /**
+     * Remove as avaliações do período (arquivamento). Em transação REPEATABLE READ, remove apenas
+     * as linhas visíveis no snapshot em que foram lidas para o arquivo.
+     */
+    @Modifying
+    @Query("DELETE FROM Avaliacao a WHERE a.dataEnvio >= :inicio AND a.dataEnvio < :fim")
+    int removerPorPeriodo(LocalDateTime inicio, LocalDateTime fim);
+
+    /**
+     * Busca textual na descrição (coluna tsvector gerada em avaliacoes_descricoes, índice GIN;
+     * ver db/busca-textual.sql).
+     * Ordena por relevância e usa keyset (relevancia, dataEnvio, id) decrescente: retorna apenas
+     * os resultados estritamente posteriores ao cursor na ordenação.
+     */
+    @Query(value = "SELECT a.id AS id, d.descricao AS descricao, a.nota AS nota, a.data_envio AS dataEnvio, " +
+            "a.urgencia AS urgencia, ts_rank(d.busca, q.consulta) AS relevancia " +
+            "FROM avaliacoes_descricoes d JOIN avaliacoes a ON a.id = d.avaliacao_id, " +
+            "websearch_to_tsquery('portuguese', f_unaccent(:termo)) AS q(consulta) " +
+            "WHERE d.busca @@ q.consulta " +
+            "AND a.data_envio >= :inicio AND a.data_envio <= :fim " +
+            "AND a.urgencia IN (:urgencias) " +
+            "AND (ts_rank(d.busca, q.consulta), a.data_envio, a.id) " +
+            "< (CAST(:cursorRelevancia AS real), :cursorData, :cursorId) " +
+            "ORDER BY relevancia DESC, a.data_envio DESC, a.id DESC " +
+            "LIMIT :limite", nativeQuery = true)
+    List<ResultadoBusca> buscarPorTexto(String termo, float cursorRelevancia, LocalDateTime cursorData,
+                                        UUID cursorId, LocalDateTime inicio, LocalDateTime fim,
+                                        List<String> urgencias, int limite);
+
+    /**
+     * Força plano específico por execução até o fim da transação corrente. Sem isso, após algumas
+     * execuções do mesmo prepared statement o PostgreSQL passa a um plano genérico, que não conhece
+     * a seletividade do termo e troca o índice GIN por varredura completa.
+     */
+    @Query(value = "SELECT set_config('plan_cache_mode', 'force_custom_plan', true)", nativeQuery = true)
+    String usarPlanoPorExecucao();
+
+    /**
+     * Reserva atomicamente o envio da notificação de uma avaliação.
+     * Só tem efeito se a notificação ainda não foi enviada e não há reserva válida
+     * (reservas anteriores a {@code expiracao} são consideradas abandonadas).
+     *
+     * SQL nativo, como nas demais atualizações: com a tabela secundária da descrição, o UPDATE em
+     * JPQL vira uma CTE com junção a ela, e a condição deixaria de ser reavaliada pelo PostgreSQL
+     * quando dois consumidores atualizam a mesma linha ao mesmo tempo.
+     *
+     * Sem {@code @Modifying}: o RETURNING devolve, na mesma ida ao banco, se o SNS já foi publicado
+     * por uma tentativa anterior (executar dentro de uma transação).
+     *
+     * @return {@code notificacao_sns_enviada} se a reserva foi obtida; null caso contrário
+     */
+    @Query(value = "UPDATE avaliacoes SET notificacao_reservada_em = :agora " +
+            "WHERE id = :id AND notificacao_enviada = false " +
+            "AND (notificacao_reservada_em IS NULL OR notificacao_reservada_em < :expiracao) " +
+            "RETURNING notificacao_sns_enviada", nativeQuery = true)
+    Boolean reservarNotificacao(UUID id, LocalDateTime agora, LocalDateTime expiracao);
+
+    /**
+     * Registra a publicação no SNS, antes do envio do e-mail.
+     */
+    @Modifying
+    @Query(value = "UPDATE avaliacoes SET notificacao_sns_enviada = true WHERE id = :id", nativeQuery = true)
+    int marcarSnsEnviado(UUID id);
+
+    /**
+     * Libera a reserva de notificação após falha no envio, permitindo nova tentativa.
+     */
+    @Modifying
+    @Query(value = "UPDATE avaliacoes SET notificacao_reservada_em = NULL " +
+            "WHERE id = :id AND notificacao_enviada = false", nativeQuery = true)
+    int liberarReservaNotificacao(UUID id);
+
+    /**
+     * Marca a avaliação como notificada sem carregar a entidade.
+     */
+    @Modifying
+    @Query(value = "UPDATE avaliacoes SET notificacao_enviada = true WHERE id = :id", nativeQuery = true)
+    int marcarComoNotificada(UUID id);
+}
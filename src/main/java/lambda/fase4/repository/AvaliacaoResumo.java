@@ -0,0 +1,22 @@
+package lambda.fase4.repository;
+
+import lambda.fase4.model.Avaliacao;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Projeção de leitura de avaliação sem a descrição (listagens leves).
+ */
+public interface AvaliacaoResumo {
+
+    UUID getId();
+
+    Integer getNota();
+
+    LocalDateTime getDataEnvio();
+
+    Avaliacao.Urgencia getUrgencia();
+
+    Boolean getNotificacaoEnviada();
+}
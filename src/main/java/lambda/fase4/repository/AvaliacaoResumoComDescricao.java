@@ -0,0 +1,9 @@
+package lambda.fase4.repository;
+
+/**
+ * Projeção de leitura de avaliação incluindo a descrição.
+ */
+public interface AvaliacaoResumoComDescricao extends AvaliacaoResumo {
+
+    String getDescricao();
+}
@@ -0,0 +1,33 @@
+package lambda.fase4.repository;
+
+import lambda.fase4.model.AvaliacoesArquivadas;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository para os blocos diários de avaliações arquivadas.
+ */
+@Repository
+public interface AvaliacoesArquivadasRepository extends JpaRepository<AvaliacoesArquivadas, LocalDate> {
+
+    /**
+     * Dias arquivados em [inicio, fim], em ordem cronológica (sem carregar os blocos).
+     */
+    @Query("SELECT a.dia FROM AvaliacoesArquivadas a WHERE a.dia >= :inicio AND a.dia <= :fim ORDER BY a.dia")
+    List<LocalDate> listarDias(LocalDate inicio, LocalDate fim);
+
+    /**
+     * Dia arquivado mais recente; null se nada foi arquivado.
+     */
+    @Query("SELECT MAX(a.dia) FROM AvaliacoesArquivadas a")
+    LocalDate buscarUltimoDia();
+
+    @Query("SELECT new lambda.fase4.repository.BlocoArquivado(a.dados, a.versaoFormato) " +
+            "FROM AvaliacoesArquivadas a WHERE a.dia = :dia")
+    Optional<BlocoArquivado> buscarBloco(LocalDate dia);
+}
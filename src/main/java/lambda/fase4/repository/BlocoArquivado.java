@@ -0,0 +1,8 @@
+package lambda.fase4.repository;
+
+/**
+ * Bloco compactado de um dia arquivado. Projeção por construtor: os blocos lidos não ficam
+ * no contexto de persistência durante a leitura de períodos longos.
+ */
+public record BlocoArquivado(byte[] dados, int versaoFormato) {
+}
@@ -0,0 +1,9 @@
+package lambda.fase4.repository;
+
+import lambda.fase4.model.Avaliacao;
+
+/**
+ * Quantidade de avaliações de uma combinação de nota e urgência, por construtor.
+ */
+public record ContagemNotaUrgencia(Integer nota, Avaliacao.Urgencia urgencia, Long quantidade) {
+}
@@ -0,0 +1,22 @@
+package lambda.fase4.repository;
+
+import lambda.fase4.model.Avaliacao;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Linha da exportação de avaliações. Projeção por construtor (JPQL "SELECT new"): evita os
+ * proxies das projeções por interface, relevantes quando milhões de linhas são percorridas.
+ */
+public record LinhaExportacao(String id, String descricao, Integer nota, LocalDateTime dataEnvio,
+                              Avaliacao.Urgencia urgencia, boolean notificacaoEnviada) {
+
+    /**
+     * Usado pela consulta: o id (uuid no banco) segue como texto na exportação e no arquivo.
+     */
+    public LinhaExportacao(UUID id, String descricao, Integer nota, LocalDateTime dataEnvio,
+                           Avaliacao.Urgencia urgencia, boolean notificacaoEnviada) {
+        this(id.toString(), descricao, nota, dataEnvio, urgencia, notificacaoEnviada);
+    }
+}
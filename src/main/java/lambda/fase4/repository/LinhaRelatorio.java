@@ -0,0 +1,11 @@
+package lambda.fase4.repository;
+
+import lambda.fase4.model.Avaliacao;
+
+import java.time.LocalDateTime;
+
+/**
+ * Linha mínima para consolidação de relatórios (sem id nem descrição), por construtor.
+ */
+public record LinhaRelatorio(Integer nota, LocalDateTime dataEnvio, Avaliacao.Urgencia urgencia) {
+}
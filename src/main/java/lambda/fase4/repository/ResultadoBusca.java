@@ -0,0 +1,22 @@
+package lambda.fase4.repository;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Projeção de um resultado da busca textual, com a relevância calculada pelo PostgreSQL (ts_rank).
+ */
+public interface ResultadoBusca {
+
+    UUID getId();
+
+    String getDescricao();
+
+    Integer getNota();
+
+    LocalDateTime getDataEnvio();
+
+    String getUrgencia();
+
+    Float getRelevancia();
+}
@@ -0,0 +1,172 @@
+package lambda.fase4.service;
+
+import lambda.fase4.dto.EstatisticasNotasDTO;
+import lambda.fase4.model.Avaliacao;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Acumulador das estatísticas de um relatório em arrays primitivos indexados por dia
+ * (deslocamento a partir do primeiro dia), ordinal da urgência e nota (0 a 10).
+ *
+ * Como as notas são inteiras de 0 a 10, o histograma basta para mediana e percentis exatos
+ * e para o NPS, sem ordenar nem guardar as notas individuais. Os mapas do DTO só são montados
+ * no final, com uma entrada por dia/urgência.
+ */
+final class AcumuladorEstatisticas {
+
+    private static final Avaliacao.Urgencia[] URGENCIAS = Avaliacao.Urgencia.values();
+
+    private final LocalDate primeiroDia;
+    private final long[] porDia;
+    private final long[] porUrgencia = new long[URGENCIAS.length];
+    private final long[] porNota = new long[AgregadoDia.NOTA_MAXIMA + 1];
+
+    AcumuladorEstatisticas(LocalDate primeiroDia, int quantidadeDias) {
+        this.primeiroDia = primeiroDia;
+        this.porDia = new long[quantidadeDias];
+    }
+
+    void adicionar(int dia, AgregadoDia agregado) {
+        long total = 0;
+        for (int nota = 0; nota < porNota.length; nota++) {
+            porNota[nota] += agregado.porNota()[nota];
+            total += agregado.porNota()[nota];
+        }
+        for (int i = 0; i < porUrgencia.length; i++) {
+            porUrgencia[i] += agregado.porUrgencia()[i];
+        }
+        porDia[dia] += total;
+    }
+
+    long total() {
+        long total = 0;
+        for (long quantidade : porNota) {
+            total += quantidade;
+        }
+        return total;
+    }
+
+    double media() {
+        long total = 0;
+        long soma = 0;
+        for (int nota = 0; nota < porNota.length; nota++) {
+            total += porNota[nota];
+            soma += nota * porNota[nota];
+        }
+        return total > 0 ? (double) soma / total : 0.0;
+    }
+
+    /**
+     * Dias com avaliações, em ordem cronológica (data ISO -> quantidade).
+     */
+    Map<String, Long> quantidadePorDia() {
+        Map<String, Long> quantidadePorDia = new LinkedHashMap<>();
+        for (int dia = 0; dia < porDia.length; dia++) {
+            if (porDia[dia] > 0) {
+                quantidadePorDia.put(primeiroDia.plusDays(dia).toString(), porDia[dia]);
+            }
+        }
+        return quantidadePorDia;
+    }
+
+    /**
+     * Urgências com avaliações (nome -> quantidade).
+     */
+    Map<String, Long> quantidadePorUrgencia() {
+        Map<String, Long> quantidadePorUrgencia = new LinkedHashMap<>();
+        for (Avaliacao.Urgencia urgencia : URGENCIAS) {
+            if (porUrgencia[urgencia.ordinal()] > 0) {
+                quantidadePorUrgencia.put(urgencia.name(), porUrgencia[urgencia.ordinal()]);
+            }
+        }
+        return quantidadePorUrgencia;
+    }
+
+    /**
+     * Mediana exata (média das duas notas centrais quando a quantidade é par); null sem avaliações.
+     */
+    Double mediana() {
+        long total = total();
+        if (total == 0) {
+            return null;
+        }
+        return (notaNaPosicao((total + 1) / 2) + notaNaPosicao(total / 2 + 1)) / 2.0;
+    }
+
+    /**
+     * Percentil pelo método do posto mais próximo: menor nota com pelo menos
+     * {@code percentual}% das avaliações menores ou iguais a ela. Null sem avaliações.
+     */
+    Integer percentil(int percentual) {
+        long total = total();
+        if (total == 0) {
+            return null;
+        }
+        long posicao = Math.max(1, (total * percentual + 99) / 100);
+        return notaNaPosicao(posicao);
+    }
+
+    /**
+     * NPS: percentual de promotores (9-10) menos o de detratores (0-6). Null sem avaliações.
+     */
+    Double nps() {
+        long total = total();
+        if (total == 0) {
+            return null;
+        }
+        return percentual(promotores(), total) - percentual(detratores(), total);
+    }
+
+    EstatisticasNotasDTO estatisticas() {
+        long total = total();
+        if (total == 0) {
+            return EstatisticasNotasDTO.builder().quantidadePorNota(porNota.clone()).build();
+        }
+        long promotores = promotores();
+        long detratores = detratores();
+        return EstatisticasNotasDTO.builder()
+                .mediana(mediana())
+                .percentil25(percentil(25))
+                .percentil75(percentil(75))
+                .percentil90(percentil(90))
+                .quantidadePorNota(porNota.clone())
+                .percentualPromotores(percentual(promotores, total))
+                .percentualNeutros(percentual(total - promotores - detratores, total))
+                .percentualDetratores(percentual(detratores, total))
+                .nps(percentual(promotores, total) - percentual(detratores, total))
+                .build();
+    }
+
+    /**
+     * Nota da avaliação na posição (1 a total) da ordenação crescente.
+     */
+    private int notaNaPosicao(long posicao) {
+        long acumulado = 0;
+        for (int nota = 0; nota < porNota.length; nota++) {
+            acumulado += porNota[nota];
+            if (acumulado >= posicao) {
+                return nota;
+            }
+        }
+        return AgregadoDia.NOTA_MAXIMA;
+    }
+
+    private long promotores() {
+        return porNota[9] + porNota[10];
+    }
+
+    private long detratores() {
+        long detratores = 0;
+        for (int nota = 0; nota <= 6; nota++) {
+            detratores += porNota[nota];
+        }
+        return detratores;
+    }
+
+    private static double percentual(long parte, long total) {
+        return parte * 100.0 / total;
+    }
+}
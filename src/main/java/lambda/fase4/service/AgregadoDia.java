@@ -0,0 +1,73 @@
+package lambda.fase4.service;
+
+import lambda.fase4.model.AgregadoDiario;
+import lambda.fase4.model.Avaliacao;
+
+/**
+ * Agregado de avaliações de um dia (ou soma de vários dias): quantidade por nota (índice = nota)
+ * e quantidade por urgência (índice = ordinal de {@link Avaliacao.Urgencia}).
+ */
+record AgregadoDia(long[] porNota, long[] porUrgencia) {
+
+    static final int NOTA_MAXIMA = 10;
+    private static final Avaliacao.Urgencia[] URGENCIAS = Avaliacao.Urgencia.values();
+
+    static AgregadoDia vazio() {
+        return new AgregadoDia(new long[NOTA_MAXIMA + 1], new long[URGENCIAS.length]);
+    }
+
+    /**
+     * Agregado a partir do checkpoint; null se o checkpoint não tiver o histograma de notas
+     * (gravado por versão anterior), para que o dia seja recalculado.
+     */
+    static AgregadoDia de(AgregadoDiario checkpoint) {
+        if (checkpoint.getQuantidadePorNota() == null || checkpoint.getQuantidadePorNota().length != NOTA_MAXIMA + 1) {
+            return null;
+        }
+        long[] porUrgencia = new long[URGENCIAS.length];
+        porUrgencia[Avaliacao.Urgencia.CRITICA.ordinal()] = checkpoint.getCriticas();
+        porUrgencia[Avaliacao.Urgencia.MEDIA.ordinal()] = checkpoint.getMedias();
+        porUrgencia[Avaliacao.Urgencia.BAIXA.ordinal()] = checkpoint.getBaixas();
+        return new AgregadoDia(checkpoint.getQuantidadePorNota().clone(), porUrgencia);
+    }
+
+    /**
+     * Soma os dias em [de, ate).
+     */
+    static AgregadoDia somar(AgregadoDia[] dias, int de, int ate) {
+        AgregadoDia soma = vazio();
+        for (int dia = de; dia < ate; dia++) {
+            soma.somar(dias[dia]);
+        }
+        return soma;
+    }
+
+    void somar(AgregadoDia outro) {
+        for (int nota = 0; nota < porNota.length; nota++) {
+            porNota[nota] += outro.porNota[nota];
+        }
+        for (int i = 0; i < porUrgencia.length; i++) {
+            porUrgencia[i] += outro.porUrgencia[i];
+        }
+    }
+
+    long total() {
+        long total = 0;
+        for (long quantidade : porNota) {
+            total += quantidade;
+        }
+        return total;
+    }
+
+    long somaNotas() {
+        long soma = 0;
+        for (int nota = 1; nota < porNota.length; nota++) {
+            soma += nota * porNota[nota];
+        }
+        return soma;
+    }
+
+    long quantidade(Avaliacao.Urgencia urgencia) {
+        return porUrgencia[urgencia.ordinal()];
+    }
+}
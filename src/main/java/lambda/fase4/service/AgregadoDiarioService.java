@@ -0,0 +1,253 @@
+package lambda.fase4.service;
+
+import lambda.fase4.model.AgregadoDiario;
+import lambda.fase4.model.Avaliacao;
+import lambda.fase4.repository.AgregadoDiarioRepository;
+import lambda.fase4.repository.AvaliacaoRepository;
+import lambda.fase4.repository.LinhaRelatorio;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Stream;
+
+/**
+ * Serviço de agregados diários dos relatórios, com checkpoint por dia encerrado.
+ *
+ * O primeiro cálculo de um dia encerrado é gravado em agregados_diarios; relatórios seguintes
+ * leem o checkpoint em vez de reagregar as avaliações do dia. Só os dias ainda sem checkpoint
+ * (e o dia corrente, parcial) são agregados a partir das avaliações.
+ *
+ * Uma avaliação gravada com data de envio em dia anterior ao corrente invalida o checkpoint
+ * desse dia. Como a data de envio é o instante do recebimento, isso só ocorre perto da
+ * meia-noite; a margem de fechamento evita gravar um dia com transações ainda em andamento.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AgregadoDiarioService {
+
+    // Mesma margem de AgregadoPeriodoService: transações em andamento com data de envio no dia anterior
+    private static final Duration MARGEM_FECHAMENTO = Duration.ofMinutes(5);
+    private static final long SEGUNDOS_POR_DIA = 24L * 60 * 60;
+
+    private final AvaliacaoRepository avaliacaoRepository;
+    private final AgregadoDiarioRepository agregadoDiarioRepository;
+
+    /**
+     * Agregados de cada dia em [inicio, fim). Dias com checkpoint não são relidos; cada intervalo
+     * contíguo de dias sem checkpoint é lido em uma consulta e agregado por dia em paralelo.
+     * Os dias encerrados recalculados são gravados como checkpoint.
+     */
+    @Transactional
+    public AgregadoDia[] consultarDias(LocalDate inicio, LocalDate fim) {
+        AgregadoDia[] dias = new AgregadoDia[(int) Math.max(0, ChronoUnit.DAYS.between(inicio, fim))];
+        for (AgregadoDiario checkpoint : agregadoDiarioRepository.buscarPorPeriodo(inicio, fim)) {
+            // Checkpoint sem histograma de notas fica nulo e é recalculado
+            dias[(int) ChronoUnit.DAYS.between(inicio, checkpoint.getDia())] = AgregadoDia.de(checkpoint);
+        }
+
+        LocalDateTime agora = LocalDateTime.now();
+        LocalDate ultimoDiaEncerrado = agora.minus(MARGEM_FECHAMENTO).toLocalDate().minusDays(1);
+        int recalculados = 0;
+        int gravados = 0;
+        int dia = 0;
+        while (dia < dias.length) {
+            if (dias[dia] != null) {
+                dia++;
+                continue;
+            }
+            int fimFaixa = dia;
+            while (fimFaixa < dias.length && dias[fimFaixa] == null) {
+                fimFaixa++;
+            }
+            LocalDate inicioFaixa = inicio.plusDays(dia);
+            Colunas colunas = carregar(inicioFaixa.atStartOfDay(), inicio.plusDays(fimFaixa).atStartOfDay());
+            AgregadoDia[] faixa = agregarDias(colunas, inicioFaixa, fimFaixa - dia);
+            for (int i = 0; i < faixa.length; i++) {
+                LocalDate data = inicioFaixa.plusDays(i);
+                dias[dia + i] = faixa[i];
+                if (!data.isAfter(ultimoDiaEncerrado)) {
+                    gravar(data, faixa[i], agora);
+                    gravados++;
+                }
+            }
+            recalculados += faixa.length;
+            dia = fimFaixa;
+        }
+
+        log.info("Agregados diários de {} até {}: {} de checkpoint, {} recalculados, {} checkpoints gravados",
+                inicio, fim, dias.length - recalculados, recalculados, gravados);
+        return dias;
+    }
+
+    /**
+     * Agrega as avaliações de um intervalo qualquer [inicio, fim), sem checkpoint (dias parciais).
+     */
+    @Transactional(readOnly = true)
+    public AgregadoDia agregarIntervalo(LocalDateTime inicio, LocalDateTime fim) {
+        AgregadoDia agregado = AgregadoDia.vazio();
+        try (Stream<LinhaRelatorio> linhas = avaliacaoRepository.percorrerParaRelatorio(inicio, fim)) {
+            for (LinhaRelatorio linha : (Iterable<LinhaRelatorio>) linhas::iterator) {
+                agregado.porNota()[linha.nota()]++;
+                agregado.porUrgencia()[linha.urgencia().ordinal()]++;
+            }
+        }
+        return agregado;
+    }
+
+    /**
+     * Invalida o checkpoint do dia da avaliação, se o dia já pode ter sido encerrado.
+     * Deve ser chamado na transação que grava a avaliação.
+     */
+    @Transactional
+    public void registrar(Avaliacao avaliacao) {
+        LocalDate dia = avaliacao.getDataEnvio().toLocalDate();
+        if (dia.isBefore(LocalDate.now()) && agregadoDiarioRepository.invalidar(dia) > 0) {
+            log.info("Checkpoint do dia {} invalidado pela avaliação {}", dia, avaliacao.getId());
+        }
+    }
+
+    private void gravar(LocalDate dia, AgregadoDia agregado, LocalDateTime calculadoEm) {
+        agregadoDiarioRepository.gravar(dia, agregado.total(), agregado.somaNotas(),
+                agregado.quantidade(Avaliacao.Urgencia.CRITICA),
+                agregado.quantidade(Avaliacao.Urgencia.MEDIA),
+                agregado.quantidade(Avaliacao.Urgencia.BAIXA),
+                agregado.porNota(),
+                calculadoEm);
+    }
+
+    private Colunas carregar(LocalDateTime inicio, LocalDateTime fim) {
+        Colunas colunas = new Colunas(1024);
+        try (Stream<LinhaRelatorio> linhas = avaliacaoRepository.percorrerParaRelatorio(inicio, fim)) {
+            linhas.forEach(linha -> colunas.adicionar(linha.nota(), linha.dataEnvio(), linha.urgencia()));
+        }
+        return colunas;
+    }
+
+    /**
+     * Agrega as colunas (ordenadas por data de envio) em {@code quantidadeDias} dias a partir de
+     * {@code inicio}, um dia por tarefa fork/join.
+     */
+    static AgregadoDia[] agregarDias(Colunas colunas, LocalDate inicio, int quantidadeDias) {
+        AgregadoDia[] dias = new AgregadoDia[quantidadeDias];
+        ForkJoinPool.commonPool().invoke(new AgregacaoDias(colunas, epoch(inicio.atStartOfDay()), dias, 0, dias.length));
+        return dias;
+    }
+
+    private static long epoch(LocalDateTime dataHora) {
+        return dataHora.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    /**
+     * Divide o intervalo de dias ao meio até chegar a um dia; cada dia localiza suas linhas
+     * por busca binária nas colunas ordenadas e as agrega.
+     */
+    private static final class AgregacaoDias extends RecursiveAction {
+
+        private final Colunas colunas;
+        private final long inicioEpoch;
+        private final AgregadoDia[] dias;
+        private final int de;
+        private final int ate;
+
+        AgregacaoDias(Colunas colunas, long inicioEpoch, AgregadoDia[] dias, int de, int ate) {
+            this.colunas = colunas;
+            this.inicioEpoch = inicioEpoch;
+            this.dias = dias;
+            this.de = de;
+            this.ate = ate;
+        }
+
+        @Override
+        protected void compute() {
+            if (ate - de > 1) {
+                int meio = (de + ate) >>> 1;
+                invokeAll(new AgregacaoDias(colunas, inicioEpoch, dias, de, meio),
+                        new AgregacaoDias(colunas, inicioEpoch, dias, meio, ate));
+            } else if (ate > de) {
+                dias[de] = agregarDia(de);
+            }
+        }
+
+        private AgregadoDia agregarDia(int dia) {
+            int primeira = colunas.primeiraAPartirDe(inicioEpoch + dia * SEGUNDOS_POR_DIA);
+            int ultima = colunas.primeiraAPartirDe(inicioEpoch + (dia + 1) * SEGUNDOS_POR_DIA);
+            AgregadoDia agregado = AgregadoDia.vazio();
+            for (int i = primeira; i < ultima; i++) {
+                agregado.porNota()[colunas.notas[i]]++;
+                agregado.porUrgencia()[colunas.urgencias[i]]++;
+            }
+            return agregado;
+        }
+    }
+
+    /**
+     * Avaliações em colunas primitivas (cerca de 10 bytes por linha), ordenadas por data de envio.
+     */
+    static final class Colunas {
+
+        private long[] instantes; // Segundos desde a época (data local tratada como UTC)
+        private byte[] notas;
+        private byte[] urgencias;
+        private int tamanho;
+
+        Colunas(int capacidadeInicial) {
+            instantes = new long[Math.max(capacidadeInicial, 16)];
+            notas = new byte[instantes.length];
+            urgencias = new byte[instantes.length];
+        }
+
+        /**
+         * Acrescenta uma linha; as linhas devem chegar em ordem de data de envio.
+         *
+         * @throws IllegalStateException se a data de envio for anterior à da linha anterior
+         */
+        void adicionar(int nota, LocalDateTime dataEnvio, Avaliacao.Urgencia urgencia) {
+            long instante = epoch(dataEnvio);
+            if (tamanho > 0 && instante < instantes[tamanho - 1]) {
+                throw new IllegalStateException("Linhas do relatório fora de ordem de data de envio");
+            }
+            if (tamanho == instantes.length) {
+                int capacidade = instantes.length + (instantes.length >> 1);
+                instantes = Arrays.copyOf(instantes, capacidade);
+                notas = Arrays.copyOf(notas, capacidade);
+                urgencias = Arrays.copyOf(urgencias, capacidade);
+            }
+            instantes[tamanho] = instante;
+            notas[tamanho] = (byte) nota;
+            urgencias[tamanho] = (byte) urgencia.ordinal();
+            tamanho++;
+        }
+
+        int tamanho() {
+            return tamanho;
+        }
+
+        /**
+         * Índice da primeira linha com instante maior ou igual a {@code instante}.
+         */
+        int primeiraAPartirDe(long instante) {
+            int baixo = 0;
+            int alto = tamanho;
+            while (baixo < alto) {
+                int meio = (baixo + alto) >>> 1;
+                if (instantes[meio] < instante) {
+                    baixo = meio + 1;
+                } else {
+                    alto = meio;
+                }
+            }
+            return baixo;
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package lambda.fase4.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lambda.fase4.dto.AgregadoPeriodoDTO;
+import lambda.fase4.model.Avaliacao;
+import lambda.fase4.repository.AvaliacaoRepository;
+import lambda.fase4.repository.AvaliacoesArquivadasRepository;
+import lambda.fase4.repository.ContagemNotaUrgencia;
+import lambda.fase4.repository.LinhaExportacao;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Serviço de agregados por período (média de notas e contagem por urgência) com cache Caffeine.
+ *
+ * Períodos fechados (fim há mais de alguns minutos) não mudam mais, pois a data de envio é sempre
+ * o instante do recebimento: ficam em cache sem expiração, limitados por tamanho.
+ * Períodos abertos (sem fim ou com fim recente ou no futuro) usam um cache separado com TTL curto,
+ * invalidado a cada avaliação processada que cai dentro do período.
+ *
+ * Os dias já arquivados ({@link ArquivamentoService}) não estão mais na tabela avaliacoes: os dias
+ * inteiros vêm dos agregados diários, que o arquivamento garante antes de remover as avaliações,
+ * e as frações de dia nas pontas do período vêm dos blocos arquivados. O restante do período é
+ * consultado na tabela principal. A divisão é feita em uma transação REPEATABLE READ, para que um
+ * dia arquivado durante a consulta não seja contado duas vezes nem omitido. O arquivamento de um
+ * dia também remove do cache desta instância os períodos que o alcançam.
+ */
+@Service
+@Slf4j
+public class AgregadoPeriodoService {
+
+    private final AvaliacaoRepository avaliacaoRepository;
+    private final AvaliacoesArquivadasRepository arquivadasRepository;
+    private final AgregadoDiarioService agregadoDiarioService;
+    private final TransactionTemplate transacaoConsulta;
+
+    private final Cache<Periodo, AgregadoDia> fechados;
+    private final Cache<Periodo, AgregadoDia> abertos;
+
+    public AgregadoPeriodoService(AvaliacaoRepository avaliacaoRepository,
+                                  AvaliacoesArquivadasRepository arquivadasRepository,
+                                  AgregadoDiarioService agregadoDiarioService,
+                                  PlatformTransactionManager transactionManager,
+                                  ObjectProvider<MeterRegistry> registryProvider,
+                                  @Value("${agregados.cache.tamanho-maximo:10000}") long tamanhoMaximo,
+                                  @Value("${agregados.cache.ttl-aberto-segundos:30}") long ttlAbertoSegundos) {
+        this.avaliacaoRepository = avaliacaoRepository;
+        this.arquivadasRepository = arquivadasRepository;
+        this.agregadoDiarioService = agregadoDiarioService;
+        this.transacaoConsulta = new TransactionTemplate(transactionManager);
+        this.transacaoConsulta.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+
+        // Média e contagens de um período vêm do mesmo agregado: uma entrada (e uma consulta) por período
+        this.fechados = Caffeine.newBuilder().maximumSize(tamanhoMaximo).recordStats().build();
+        this.abertos = Caffeine.newBuilder().maximumSize(tamanhoMaximo / 10 + 1)
+                .expireAfterWrite(Duration.ofSeconds(ttlAbertoSegundos)).recordStats().build();
+
+        // Hit/miss/evictions em /actuator/metrics/cache.gets etc. (sem registro nas Lambdas)
+        registryProvider.ifAvailable(registry -> {
+            CaffeineCacheMetrics.monitor(registry, fechados, "agregados.fechados");
+            CaffeineCacheMetrics.monitor(registry, abertos, "agregados.abertos");
+        });
+    }
+
+    /**
+     * Média de notas do período; {@code fim} nulo significa "até agora". Retorna null sem avaliações.
+     */
+    public Double calcularMediaNotas(LocalDateTime inicio, LocalDateTime fim) {
+        AgregadoDia agregado = agregado(Periodo.de(inicio, fim));
+        long total = agregado.total();
+        return total > 0 ? (double) agregado.somaNotas() / total : null;
+    }
+
+    /**
+     * Quantidade de avaliações de uma urgência no período; {@code fim} nulo significa "até agora".
+     */
+    public long contarPorUrgencia(Avaliacao.Urgencia urgencia, LocalDateTime inicio, LocalDateTime fim) {
+        return agregado(Periodo.de(inicio, fim)).quantidade(urgencia);
+    }
+
+    /**
+     * Média e contagem por urgência do período.
+     */
+    public AgregadoPeriodoDTO consultar(LocalDateTime inicio, LocalDateTime fim) {
+        AgregadoDia agregado = agregado(Periodo.de(inicio, fim));
+        Map<String, Long> quantidadePorUrgencia = new LinkedHashMap<>();
+        for (Avaliacao.Urgencia urgencia : Avaliacao.Urgencia.values()) {
+            quantidadePorUrgencia.put(urgencia.name(), agregado.quantidade(urgencia));
+        }
+        long total = agregado.total();
+        return AgregadoPeriodoDTO.builder()
+                .periodoInicio(inicio.format(DateTimeFormatter.ISO_DATE_TIME))
+                .periodoFim(fim != null ? fim.format(DateTimeFormatter.ISO_DATE_TIME) : null)
+                .mediaNotas(total > 0 ? (double) agregado.somaNotas() / total : null)
+                .quantidadePorUrgencia(quantidadePorUrgencia)
+                .build();
+    }
+
+    /**
+     * Remove do cache os períodos que alcançam um dia recém-arquivado. Os valores calculados antes
+     * e depois do arquivamento coincidem; a invalidação evita depender disso para um cache sem expiração.
+     */
+    public void invalidarDia(LocalDate dia) {
+        LocalDateTime inicio = dia.atStartOfDay();
+        LocalDateTime fim = dia.plusDays(1).atStartOfDay();
+        fechados.asMap().keySet().removeIf(periodo -> periodo.alcanca(inicio, fim));
+        abertos.asMap().keySet().removeIf(periodo -> periodo.alcanca(inicio, fim));
+    }
+
+    private AgregadoDia agregado(Periodo periodo) {
+        return (periodo.aberto() ? abertos : fechados).get(periodo,
+                p -> transacaoConsulta.execute(status -> agregar(p.inicio(), p.fimConsulta())));
+    }
+
+    /**
+     * Agrega [inicio, fim] (fim inclusivo, como o BETWEEN das consultas da tabela principal).
+     */
+    private AgregadoDia agregar(LocalDateTime inicio, LocalDateTime fim) {
+        AgregadoDia agregado = AgregadoDia.vazio();
+        LocalDate ultimoArquivado = arquivadasRepository.buscarUltimoDia();
+        LocalDateTime inicioPrincipal = inicio;
+        if (ultimoArquivado != null && !inicio.toLocalDate().isAfter(ultimoArquivado)) {
+            somarArquivados(agregado, inicio, fim, ultimoArquivado);
+            inicioPrincipal = ultimoArquivado.plusDays(1).atStartOfDay();
+        }
+        if (!inicioPrincipal.isAfter(fim)) {
+            for (ContagemNotaUrgencia contagem : avaliacaoRepository.contarPorNotaEUrgencia(inicioPrincipal, fim)) {
+                agregado.porNota()[contagem.nota()] += contagem.quantidade();
+                agregado.porUrgencia()[contagem.urgencia().ordinal()] += contagem.quantidade();
+            }
+        }
+        return agregado;
+    }
+
+    /**
+     * Soma a parte do período até o fim de {@code ultimoArquivado}: dias inteiros pelos agregados
+     * diários, frações do primeiro e do último dia pelos blocos arquivados.
+     */
+    private void somarArquivados(AgregadoDia agregado, LocalDateTime inicio, LocalDateTime fim,
+                                 LocalDate ultimoArquivado) {
+        LocalDate primeiroDia = inicio.toLocalDate();
+        LocalDate primeiroInteiro = inicio.toLocalTime().equals(LocalTime.MIDNIGHT) ? primeiroDia : primeiroDia.plusDays(1);
+        // Dia inteiro: termina (meia-noite seguinte) até o fim do período
+        LocalDate fimInteiros = Collections.min(List.of(fim.toLocalDate(), ultimoArquivado.plusDays(1)));
+        if (primeiroInteiro.isBefore(fimInteiros)) {
+            for (AgregadoDia dia : agregadoDiarioService.consultarDias(primeiroInteiro, fimInteiros)) {
+                agregado.somar(dia);
+            }
+        }
+
+        Set<LocalDate> fracoes = new TreeSet<>();
+        if (primeiroInteiro.isAfter(primeiroDia)) {
+            fracoes.add(primeiroDia);
+        }
+        if (!fim.toLocalDate().isAfter(ultimoArquivado)) {
+            fracoes.add(fim.toLocalDate());
+        }
+        for (LocalDate dia : fracoes) {
+            arquivadasRepository.buscarBloco(dia).ifPresent(bloco -> {
+                for (LinhaExportacao linha : BlocoArquivo.decodificar(bloco.dados(), bloco.versaoFormato())) {
+                    if (!linha.dataEnvio().isBefore(inicio) && !linha.dataEnvio().isAfter(fim)) {
+                        agregado.porNota()[linha.nota()]++;
+                        agregado.porUrgencia()[linha.urgencia().ordinal()]++;
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Invalida os períodos abertos que contêm a avaliação, após o commit da transação
+     * (evita recarregar o valor antigo antes de a nova linha estar visível).
+     */
+    public void registrar(Avaliacao avaliacao) {
+        LocalDateTime dataEnvio = avaliacao.getDataEnvio();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidarAbertos(dataEnvio);
+                }
+            });
+        } else {
+            invalidarAbertos(dataEnvio);
+        }
+    }
+
+    private void invalidarAbertos(LocalDateTime dataEnvio) {
+        abertos.asMap().keySet().removeIf(periodo -> periodo.contem(dataEnvio));
+    }
+
+    /**
+     * Período consultado, sempre com o {@code fim} informado ({@code null} = "até agora").
+     * {@code aberto} só escolhe o cache (TTL curto e invalidação) e não altera o intervalo consultado.
+     */
+    record Periodo(LocalDateTime inicio, LocalDateTime fim, boolean aberto) {
+
+        private static final LocalDateTime SEM_FIM = LocalDateTime.of(9999, 12, 31, 23, 59);
+        // Margem para transações em andamento com data de envio anterior ao fim do período
+        private static final Duration MARGEM_FECHAMENTO = Duration.ofMinutes(5);
+
+        static Periodo de(LocalDateTime inicio, LocalDateTime fim) {
+            // Fim recente ou no futuro ainda pode receber avaliações: período aberto
+            boolean fechado = fim != null && fim.isBefore(LocalDateTime.now().minus(MARGEM_FECHAMENTO));
+            return new Periodo(inicio, fim, !fechado);
+        }
+
+        LocalDateTime fimConsulta() {
+            return fim != null ? fim : SEM_FIM;
+        }
+
+        boolean contem(LocalDateTime dataHora) {
+            return !dataHora.isBefore(inicio) && !dataHora.isAfter(fimConsulta());
+        }
+
+        /**
+         * Se o período tem algum instante em [de, ate).
+         */
+        boolean alcanca(LocalDateTime de, LocalDateTime ate) {
+            return inicio.isBefore(ate) && !fimConsulta().isBefore(de);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package lambda.fase4.service;
+
+import lambda.fase4.model.AvaliacoesArquivadas;
+import lambda.fase4.repository.AvaliacaoRepository;
+import lambda.fase4.repository.AvaliacoesArquivadasRepository;
+import lambda.fase4.repository.LinhaExportacao;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Arquivamento das avaliações antigas (camada fria).
+ *
+ * Os relatórios só olham para os últimos dias, mas a tabela avaliacoes cresce sem limite,
+ * aumentando índices, vacuum e toda varredura por período. O arquivamento move as avaliações
+ * com mais de {@code arquivamento.idade-dias} dias para avaliacoes_arquivadas, um bloco colunar
+ * compactado por dia ({@link BlocoArquivo}), e as remove da tabela principal.
+ *
+ * Antes de remover um dia, o checkpoint do seu agregado diário é garantido: os relatórios e os
+ * agregados por período ({@link AgregadoPeriodoService}) respondem os dias arquivados a partir dos
+ * checkpoints (e dos blocos, para frações de dia), sem reler as avaliações. Uma avaliação gravada
+ * depois com data de envio em dia já arquivado não é prevista (a data de envio é o instante
+ * do recebimento); se ocorrer, fica na tabela principal e é arquivada na execução seguinte.
+ *
+ * As avaliações arquivadas só são lidas quando a consulta pede explicitamente
+ * ({@link #percorrerArquivadas}, usado pela exportação) ou quando um agregado por período começa
+ * ou termina no meio de um dia arquivado.
+ */
+@Service
+@Slf4j
+public class ArquivamentoService {
+
+    private final AvaliacaoRepository avaliacaoRepository;
+    private final AvaliacoesArquivadasRepository arquivadasRepository;
+    private final AgregadoDiarioService agregadoDiarioService;
+    private final AgregadoPeriodoService agregadoPeriodoService;
+    private final CloudWatchMetricsService metricsService;
+    private final MedicaoLatenciaService medicaoLatencia;
+    private final TransactionTemplate transacaoDia;
+
+    @Value("${arquivamento.idade-dias:90}")
+    private int idadeDias;
+
+    /**
+     * Limite de dias arquivados por execução, para manter cada execução dentro do timeout da Lambda
+     * (o primeiro arquivamento de uma base antiga é concluído em várias execuções).
+     */
+    @Value("${arquivamento.dias-por-execucao:31}")
+    private int diasPorExecucao;
+
+    public ArquivamentoService(AvaliacaoRepository avaliacaoRepository,
+                               AvaliacoesArquivadasRepository arquivadasRepository,
+                               AgregadoDiarioService agregadoDiarioService,
+                               AgregadoPeriodoService agregadoPeriodoService,
+                               CloudWatchMetricsService metricsService,
+                               MedicaoLatenciaService medicaoLatencia,
+                               PlatformTransactionManager transactionManager) {
+        this.avaliacaoRepository = avaliacaoRepository;
+        this.arquivadasRepository = arquivadasRepository;
+        this.agregadoDiarioService = agregadoDiarioService;
+        this.agregadoPeriodoService = agregadoPeriodoService;
+        this.metricsService = metricsService;
+        this.medicaoLatencia = medicaoLatencia;
+        // Uma transação por dia: leitura e remoção veem o mesmo snapshot, e uma falha só desfaz o dia corrente
+        this.transacaoDia = new TransactionTemplate(transactionManager);
+        this.transacaoDia.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    /**
+     * Arquiva, do mais antigo em diante, os dias anteriores ao limite de idade
+     * (no máximo {@code arquivamento.dias-por-execucao} dias).
+     *
+     * @return quantidade de avaliações arquivadas
+     */
+    public long arquivar() {
+        LocalDate limite = LocalDate.now().minusDays(idadeDias);
+        LocalDateTime maisAntiga = avaliacaoRepository.buscarDataEnvioMaisAntiga();
+        if (maisAntiga == null || !maisAntiga.toLocalDate().isBefore(limite)) {
+            log.info("Nenhuma avaliação anterior a {} para arquivar", limite);
+            return 0;
+        }
+
+        LocalDate dia = maisAntiga.toLocalDate();
+        LocalDate ate = dia.plusDays(diasPorExecucao).isBefore(limite) ? dia.plusDays(diasPorExecucao) : limite;
+        long inicioArquivamento = System.nanoTime();
+        long arquivadas = 0;
+        for (; dia.isBefore(ate); dia = dia.plusDays(1)) {
+            LocalDate diaArquivado = dia;
+            Long linhas = transacaoDia.execute(status -> arquivarDia(diaArquivado));
+            arquivadas += linhas != null ? linhas : 0;
+            agregadoPeriodoService.invalidarDia(diaArquivado);
+        }
+
+        medicaoLatencia.registrar("arquivamento", System.nanoTime() - inicioArquivamento);
+        metricsService.registrarAvaliacoesArquivadas(arquivadas);
+        log.info("Arquivamento concluído: {} avaliações de {} até {} (limite {})",
+                arquivadas, maisAntiga.toLocalDate(), ate, limite);
+        return arquivadas;
+    }
+
+    /**
+     * Move as avaliações do dia para o bloco arquivado do dia (mesclando com um bloco já existente).
+     * Deve ser executado em transação REPEATABLE READ.
+     */
+    private long arquivarDia(LocalDate dia) {
+        LocalDateTime inicio = dia.atStartOfDay();
+        LocalDateTime fim = dia.plusDays(1).atStartOfDay();
+
+        // Garante o checkpoint do agregado do dia antes de remover as avaliações
+        agregadoDiarioService.consultarDias(dia, dia.plusDays(1));
+
+        List<LinhaExportacao> linhas;
+        try (Stream<LinhaExportacao> avaliacoes = avaliacaoRepository.percorrerPorPeriodo(inicio, fim)) {
+            linhas = new ArrayList<>(avaliacoes.toList());
+        }
+        if (linhas.isEmpty()) {
+            return 0;
+        }
+
+        AvaliacoesArquivadas bloco = arquivadasRepository.findById(dia).orElse(null);
+        if (bloco != null) {
+            linhas.addAll(BlocoArquivo.decodificar(bloco.getDados(), bloco.getVersaoFormato()));
+            linhas.sort(BlocoArquivo.ORDEM);
+        }
+        byte[] dados = BlocoArquivo.codificar(linhas);
+        arquivadasRepository.save(new AvaliacoesArquivadas(dia, linhas.size(), BlocoArquivo.VERSAO_FORMATO,
+                dados, LocalDateTime.now()));
+
+        int removidas = avaliacaoRepository.removerPorPeriodo(inicio, fim);
+        log.debug("Dia {} arquivado: {} avaliações removidas, bloco com {} avaliações em {} bytes",
+                dia, removidas, linhas.size(), dados.length);
+        return removidas;
+    }
+
+    /**
+     * Percorre as avaliações arquivadas do período [inicio, fim), em ordem de data de envio.
+     * Os blocos são lidos e descompactados um dia por vez, à medida que o stream é consumido.
+     */
+    public Stream<LinhaExportacao> percorrerArquivadas(LocalDateTime inicio, LocalDateTime fim) {
+        List<LocalDate> dias = arquivadasRepository.listarDias(inicio.toLocalDate(), fim.minusNanos(1).toLocalDate());
+        return dias.stream()
+                .flatMap(dia -> arquivadasRepository.buscarBloco(dia).stream())
+                .flatMap(bloco -> BlocoArquivo.decodificar(bloco.dados(), bloco.versaoFormato()).stream())
+                .filter(linha -> !linha.dataEnvio().isBefore(inicio) && linha.dataEnvio().isBefore(fim));
+    }
+}
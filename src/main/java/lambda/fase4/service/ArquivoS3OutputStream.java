@@ -0,0 +1,140 @@
+package lambda.fase4.service;
+
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Grava um objeto no S3 à medida que é escrito, em partes de um upload multipart: a memória usada
+ * é a de uma parte, qualquer que seja o tamanho do arquivo. Arquivos menores que uma parte são
+ * enviados com um único PutObject.
+ *
+ * O objeto só é criado em {@link #concluir()}; fechar sem concluir (ex.: exceção na escrita)
+ * cancela o upload e descarta as partes já enviadas.
+ */
+class ArquivoS3OutputStream extends OutputStream {
+
+    /** O S3 exige partes de no mínimo 5 MB (exceto a última) e aceita até 10.000 partes. */
+    static final int TAMANHO_PARTE = 8 * 1024 * 1024;
+
+    private final S3Client s3Client;
+    private final String bucket;
+    private final String chave;
+    private final String contentType;
+    private final byte[] parte = new byte[TAMANHO_PARTE];
+    private final List<CompletedPart> partes = new ArrayList<>();
+    private int tamanhoParte;
+    private long tamanho;
+    private String uploadId;
+    private boolean fechado;
+
+    ArquivoS3OutputStream(S3Client s3Client, String bucket, String chave, String contentType) {
+        this.s3Client = s3Client;
+        this.bucket = bucket;
+        this.chave = chave;
+        this.contentType = contentType;
+    }
+
+    @Override
+    public void write(int b) {
+        if (tamanhoParte == parte.length) {
+            enviarParte();
+        }
+        parte[tamanhoParte++] = (byte) b;
+        tamanho++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        while (len > 0) {
+            if (tamanhoParte == parte.length) {
+                enviarParte();
+            }
+            int copiar = Math.min(len, parte.length - tamanhoParte);
+            System.arraycopy(b, off, parte, tamanhoParte, copiar);
+            tamanhoParte += copiar;
+            tamanho += copiar;
+            off += copiar;
+            len -= copiar;
+        }
+    }
+
+    /**
+     * Envia o restante e cria o objeto.
+     *
+     * @return tamanho do objeto em bytes
+     */
+    long concluir() {
+        if (uploadId == null) {
+            s3Client.putObject(PutObjectRequest.builder()
+                            .bucket(bucket)
+                            .key(chave)
+                            .contentType(contentType)
+                            .contentLength((long) tamanhoParte)
+                            .build(),
+                    corpoParte());
+        } else {
+            enviarParte();
+            s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                    .bucket(bucket)
+                    .key(chave)
+                    .uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(partes).build())
+                    .build());
+        }
+        fechado = true;
+        return tamanho;
+    }
+
+    @Override
+    public void close() {
+        if (fechado) {
+            return;
+        }
+        fechado = true;
+        if (uploadId != null) {
+            // Sem o abort, as partes enviadas continuariam armazenadas (e cobradas) no bucket
+            s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(bucket)
+                    .key(chave)
+                    .uploadId(uploadId)
+                    .build());
+        }
+    }
+
+    private void enviarParte() {
+        if (uploadId == null) {
+            uploadId = s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                    .bucket(bucket)
+                    .key(chave)
+                    .contentType(contentType)
+                    .build()).uploadId();
+        }
+        int numero = partes.size() + 1;
+        String eTag = s3Client.uploadPart(UploadPartRequest.builder()
+                        .bucket(bucket)
+                        .key(chave)
+                        .uploadId(uploadId)
+                        .partNumber(numero)
+                        .contentLength((long) tamanhoParte)
+                        .build(),
+                corpoParte()).eTag();
+        partes.add(CompletedPart.builder().partNumber(numero).eTag(eTag).build());
+        tamanhoParte = 0;
+    }
+
+    private RequestBody corpoParte() {
+        return RequestBody.fromInputStream(new ByteArrayInputStream(parte, 0, tamanhoParte), tamanhoParte);
+    }
+}
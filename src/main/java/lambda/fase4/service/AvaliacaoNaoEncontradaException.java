@@ -0,0 +1,15 @@
+package lambda.fase4.service;
+
+/**
+ * Indica que a avaliação de uma mensagem da fila de notificações ainda não foi encontrada no banco.
+ *
+ * É uma falha transitória enquanto a mensagem tem poucos recebimentos: a gravação pode ainda não
+ * estar visível (réplica atrasada, transação em andamento). O consumidor trata como falha comum
+ * (nova tentativa com atraso); só após o limite de recebimentos a avaliação é considerada inexistente.
+ */
+public class AvaliacaoNaoEncontradaException extends RuntimeException {
+
+    public AvaliacaoNaoEncontradaException(String message) {
+        super(message);
+    }
+}
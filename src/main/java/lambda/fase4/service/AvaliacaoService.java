@@ -1,6 +1,8 @@
 package lambda.fase4.service;
 
 import com.google.gson.Gson;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.context.Context;
 import lambda.fase4.dto.AvaliacaoRequest;
 import lambda.fase4.dto.NotificacaoUrgenciaDTO;
 import lambda.fase4.model.Avaliacao;
@@ -10,11 +12,17 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import software.amazon.awssdk.services.sqs.SqsClient;
 import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
-import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Serviço responsável pelo gerenciamento de avaliações.
@@ -29,62 +37,142 @@ public class AvaliacaoService {
     private final SqsClient sqsClient;
     private final CloudWatchMetricsService metricsService;
     private final Gson gson;
+    private final MedicaoLatenciaService medicaoLatencia;
+    private final RastreamentoService rastreamento;
+    private final EstatisticasTempoRealService estatisticasTempoReal;
+    private final AgregadoPeriodoService agregadoPeriodoService;
+    private final AgregadoDiarioService agregadoDiarioService;
+    private final GravacaoAgrupadaService gravacaoAgrupada;
+    private final ProtecaoDependenciasService protecao;
+    private final ResumoMediaService resumoMedia;
 
     @Value("${aws.sqs.queue.notificacao.url}")
     private String notificacaoQueueUrl;
 
     /**
      * Processa uma nova avaliação recebida.
-     * Se a avaliação for crítica (nota <= 3), envia para fila de notificações.
+     * Se a avaliação for crítica (nota <= 3), envia para fila de notificações;
+     * se for média (nota <= 6), para a fila do resumo diário.
      */
     @Transactional
     public Avaliacao processarAvaliacao(AvaliacaoRequest request) {
-        log.info("Processando nova avaliação: nota={}", request.getNota());
+        Instant recebidaEm = Instant.now();
+        return rastreamento.executarEmSpan("avaliacao.processar", SpanKind.INTERNAL,
+                () -> registrarAvaliacao(request, recebidaEm));
+    }
+
+    /**
+     * Processa uma nova avaliação pela gravação agrupada (modo Spring Boot com
+     * {@code avaliacao.gravacao-agrupada.habilitada}): a gravação ocorre na transação de um lote
+     * do {@link GravacaoAgrupadaService}, e esta chamada espera o commit do lote.
+     * A fila de notificações e as métricas são acionadas após o commit.
+     */
+    public Avaliacao processarAvaliacaoAgrupada(AvaliacaoRequest request) {
+        Instant recebidaEm = Instant.now();
+        return rastreamento.executarEmSpan("avaliacao.processar", SpanKind.INTERNAL, () -> {
+            log.info("Processando nova avaliação (gravação agrupada): nota={}", request.getNota());
+            Avaliacao avaliacao = medicaoLatencia.medir("repositorio.save.agrupado",
+                    () -> aguardarGravacao(gravacaoAgrupada.gravar(novaAvaliacao(request), this::registrarGravada)));
+            concluirRecebimento(avaliacao, recebidaEm);
+            return avaliacao;
+        });
+    }
+
+    private static Avaliacao aguardarGravacao(CompletableFuture<Avaliacao> gravacao) {
+        try {
+            return gravacao.join();
+        } catch (CompletionException e) {
+            // Propaga a falha original da gravação (ex.: violação de restrição) para o tratamento de erros
+            throw e.getCause() instanceof RuntimeException causa ? causa : e;
+        }
+    }
 
-        // Cria a entidade
-        Avaliacao avaliacao = new Avaliacao();
-        avaliacao.setDescricao(request.getDescricao());
-        avaliacao.setNota(request.getNota());
-        avaliacao.setDataEnvio(LocalDateTime.now());
-        avaliacao.calcularUrgencia();
-        avaliacao.setNotificacaoEnviada(false);
+    private Avaliacao registrarAvaliacao(AvaliacaoRequest request, Instant recebidaEm) {
+        log.info("Processando nova avaliação: nota={}", request.getNota());
 
         // Salva no banco de dados
-        avaliacao = avaliacaoRepository.save(avaliacao);
-        log.info("Avaliação salva com ID: {} e urgência: {}", avaliacao.getId(), avaliacao.getUrgencia());
+        Avaliacao novaAvaliacao = novaAvaliacao(request);
+        Avaliacao avaliacao = medicaoLatencia.medir("repositorio.save", () -> avaliacaoRepository.save(novaAvaliacao));
+        registrarGravada(avaliacao);
+        concluirRecebimento(avaliacao, recebidaEm);
+        return avaliacao;
+    }
+
+    private static Avaliacao novaAvaliacao(AvaliacaoRequest request) {
+        Avaliacao novaAvaliacao = new Avaliacao();
+        novaAvaliacao.setDescricao(request.getDescricao());
+        novaAvaliacao.setNota(request.getNota());
+        novaAvaliacao.setDataEnvio(LocalDateTime.now());
+        novaAvaliacao.calcularUrgencia();
+        novaAvaliacao.setNotificacaoEnviada(false);
+        return novaAvaliacao;
+    }
+
+    /**
+     * Atualiza as estatísticas em memória, invalida agregados abertos e checkpoints de dias
+     * encerrados (avaliação atrasada). Executado na transação que grava a avaliação.
+     */
+    private void registrarGravada(Avaliacao avaliacao) {
+        estatisticasTempoReal.registrar(avaliacao);
+        agregadoPeriodoService.registrar(avaliacao);
+        agregadoDiarioService.registrar(avaliacao);
+    }
 
-        // Envia métrica para CloudWatch
+    private void concluirRecebimento(Avaliacao avaliacao, Instant recebidaEm) {
+        log.info("Avaliação salva com ID: {} e urgência: {}", avaliacao.getId(), avaliacao.getUrgencia());
+        rastreamento.adicionarAtributo("avaliacao.id", avaliacao.getId().toString());
+        rastreamento.adicionarAtributo("avaliacao.urgencia", avaliacao.getUrgencia().name());
         metricsService.registrarAvaliacaoRecebida(avaliacao.getUrgencia().name());
 
-        // Se for crítica, envia para fila de notificações
-        if (avaliacao.getUrgencia() == Avaliacao.Urgencia.CRITICA) {
-            enviarParaFilaNotificacao(avaliacao);
+        // Críticas seguem para a fila de notificações (uma por mensagem); médias, para a faixa
+        // de baixa prioridade do resumo diário, com limite de envios próprio
+        switch (avaliacao.getUrgencia()) {
+            case CRITICA -> aposCommit(() -> enviarParaFilaNotificacao(avaliacao, recebidaEm));
+            case MEDIA -> aposCommit(() -> resumoMedia.enfileirar(avaliacao));
+            default -> {
+            }
         }
+    }
 
-        return avaliacao;
+    /**
+     * Executa o envio para a fila após o commit da transação que grava a avaliação: um consumidor
+     * rápido não encontra a linha ainda invisível (a reserva não casaria nenhuma linha). Sem
+     * transação ativa (gravação agrupada, já confirmada), executa na hora. O contexto do trace
+     * atual segue para o envio.
+     */
+    private static void aposCommit(Runnable envio) {
+        Runnable envioNoContexto = Context.current().wrap(envio);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    envioNoContexto.run();
+                }
+            });
+        } else {
+            envioNoContexto.run();
+        }
     }
 
     /**
      * Envia avaliação para fila SQS de notificações críticas.
+     * O contexto do trace e o instante de recebimento seguem nos atributos da mensagem.
      */
-    private void enviarParaFilaNotificacao(Avaliacao avaliacao) {
+    private void enviarParaFilaNotificacao(Avaliacao avaliacao, Instant recebidaEm) {
         try {
-            NotificacaoUrgenciaDTO dto = NotificacaoUrgenciaDTO.builder()
-                    .avaliacaoId(avaliacao.getId())
-                    .descricao(avaliacao.getDescricao())
-                    .urgencia(avaliacao.getUrgencia().name())
-                    .dataEnvio(avaliacao.getDataEnvio().toString())
-                    .nota(avaliacao.getNota())
-                    .build();
-
-            String messageBody = gson.toJson(dto);
-
-            SendMessageRequest sendMessageRequest = SendMessageRequest.builder()
-                    .queueUrl(notificacaoQueueUrl)
-                    .messageBody(messageBody)
-                    .build();
-
-            sqsClient.sendMessage(sendMessageRequest);
+            String messageBody = montarMensagemNotificacao(avaliacao);
+
+            rastreamento.executarEmSpan("sqs.envio notificacao", SpanKind.PRODUCER, () -> {
+                SendMessageRequest sendMessageRequest = SendMessageRequest.builder()
+                        .queueUrl(notificacaoQueueUrl)
+                        .messageBody(messageBody)
+                        .messageAttributes(rastreamento.atributosMensagem(recebidaEm))
+                        .build();
+
+                medicaoLatencia.medir("sqs.envio", () -> protecao.executar(ProtecaoDependenciasService.Dependencia.SQS,
+                        configuracao -> sqsClient.sendMessage(
+                                sendMessageRequest.toBuilder().overrideConfiguration(configuracao).build())));
+            });
             log.info("Avaliação crítica enviada para fila de notificações: {}", avaliacao.getId());
 
             metricsService.registrarMensagemEnviadaFila("notificacao");
@@ -95,22 +183,65 @@ public class AvaliacaoService {
     }
 
     /**
-     * Busca avaliações por período (usado para geração de relatórios).
+     * Monta o corpo JSON da mensagem de notificação de urgência.
+     */
+    String montarMensagemNotificacao(Avaliacao avaliacao) {
+        NotificacaoUrgenciaDTO dto = NotificacaoUrgenciaDTO.builder()
+                .avaliacaoId(avaliacao.getId().toString())
+                .descricao(avaliacao.getDescricao())
+                .urgencia(avaliacao.getUrgencia().name())
+                .dataEnvio(avaliacao.getDataEnvio().toString())
+                .nota(avaliacao.getNota())
+                .build();
+
+        return gson.toJson(dto);
+    }
+
+    /**
+     * Reserva o envio da notificação de uma avaliação (UPDATE condicional).
+     * Retorna null se a avaliação já foi notificada ou está sendo notificada por outro consumidor;
+     * com a reserva, retorna se o SNS já foi publicado por uma tentativa anterior.
+     */
+    @Transactional
+    public Boolean reservarNotificacao(UUID avaliacaoId, Duration expiracaoReserva) {
+        LocalDateTime agora = LocalDateTime.now();
+        Boolean snsEnviado = avaliacaoRepository.reservarNotificacao(avaliacaoId, agora, agora.minus(expiracaoReserva));
+        log.debug("Reserva de notificação para avaliação {}: {}", avaliacaoId, snsEnviado != null);
+        return snsEnviado;
+    }
+
+    /**
+     * Registra que o SNS da avaliação foi publicado (a reserva continua até a confirmação).
      */
-    public List<Avaliacao> buscarPorPeriodo(LocalDateTime inicio, LocalDateTime fim) {
-        return avaliacaoRepository.findByDataEnvioBetween(inicio, fim);
+    @Transactional
+    public void marcarSnsEnviado(UUID avaliacaoId) {
+        avaliacaoRepository.marcarSnsEnviado(avaliacaoId);
+    }
+
+    /**
+     * Indica se a avaliação existe (na tabela principal).
+     */
+    public boolean existe(UUID avaliacaoId) {
+        return avaliacaoRepository.existsById(avaliacaoId);
+    }
+
+    /**
+     * Libera a reserva de notificação para que uma nova entrega possa tentar novamente.
+     */
+    @Transactional
+    public void liberarReservaNotificacao(UUID avaliacaoId) {
+        avaliacaoRepository.liberarReservaNotificacao(avaliacaoId);
+        log.info("Reserva de notificação liberada para avaliação {}", avaliacaoId);
     }
 
     /**
      * Marca avaliação como notificada.
      */
     @Transactional
-    public void marcarComoNotificada(String avaliacaoId) {
-        avaliacaoRepository.findById(avaliacaoId).ifPresent(avaliacao -> {
-            avaliacao.setNotificacaoEnviada(true);
-            avaliacaoRepository.save(avaliacao);
+    public void marcarComoNotificada(UUID avaliacaoId) {
+        if (avaliacaoRepository.marcarComoNotificada(avaliacaoId) > 0) {
             log.info("Avaliação {} marcada como notificada", avaliacaoId);
-        });
+        }
     }
 }
 
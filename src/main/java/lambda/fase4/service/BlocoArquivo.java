@@ -0,0 +1,212 @@
+package lambda.fase4.service;
+
+import lambda.fase4.model.Avaliacao;
+import lambda.fase4.repository.LinhaExportacao;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Codificação colunar das avaliações de um dia arquivado, compactada com gzip.
+ *
+ * Cada coluna é gravada inteira antes da seguinte (instantes, notas, urgências, notificação,
+ * ids, descrições): valores parecidos ficam adjacentes e o gzip os comprime melhor que linhas.
+ * Os instantes (microssegundos, precisão do timestamp do PostgreSQL) são gravados como
+ * diferenças em varint a partir do primeiro, com as linhas em ordem de data de envio e id.
+ * Ids no formato UUID ocupam 16 bytes; se algum id não for UUID, todos são gravados como texto.
+ *
+ * O momento de reserva da notificação não é arquivado: só serve à deduplicação de entregas
+ * recentes da fila.
+ */
+final class BlocoArquivo {
+
+    static final int VERSAO_FORMATO = 1;
+
+    static final Comparator<LinhaExportacao> ORDEM = Comparator
+            .comparing(LinhaExportacao::dataEnvio)
+            .thenComparing(LinhaExportacao::id);
+
+    private static final Avaliacao.Urgencia[] URGENCIAS = Avaliacao.Urgencia.values();
+    private static final int TAMANHO_BUFFER = 8 * 1024;
+
+    private BlocoArquivo() {
+    }
+
+    /**
+     * Codifica as linhas, que devem estar em {@link #ORDEM}.
+     *
+     * @throws IllegalArgumentException se as linhas estiverem fora de ordem
+     */
+    static byte[] codificar(List<LinhaExportacao> linhas) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(64, linhas.size() * 32));
+        try (DataOutputStream saida = new DataOutputStream(new GZIPOutputStream(bytes, TAMANHO_BUFFER))) {
+            int quantidade = linhas.size();
+            saida.writeInt(quantidade);
+            if (quantidade == 0) {
+                return finalizar(saida, bytes);
+            }
+
+            long anterior = micros(linhas.get(0).dataEnvio());
+            saida.writeLong(anterior);
+            for (int i = 1; i < quantidade; i++) {
+                long instante = micros(linhas.get(i).dataEnvio());
+                if (instante < anterior) {
+                    throw new IllegalArgumentException("Linhas do arquivo fora de ordem de data de envio");
+                }
+                escreverVarLong(saida, instante - anterior);
+                anterior = instante;
+            }
+
+            for (LinhaExportacao linha : linhas) {
+                saida.writeByte(linha.nota());
+            }
+            for (LinhaExportacao linha : linhas) {
+                saida.writeByte(linha.urgencia().ordinal());
+            }
+            BitSet notificadas = new BitSet(quantidade);
+            for (int i = 0; i < quantidade; i++) {
+                notificadas.set(i, linhas.get(i).notificacaoEnviada());
+            }
+            byte[] bits = notificadas.toByteArray();
+            saida.writeInt(bits.length);
+            saida.write(bits);
+
+            boolean uuids = linhas.stream().allMatch(linha -> isUuid(linha.id()));
+            saida.writeBoolean(uuids);
+            for (LinhaExportacao linha : linhas) {
+                if (uuids) {
+                    UUID uuid = UUID.fromString(linha.id());
+                    saida.writeLong(uuid.getMostSignificantBits());
+                    saida.writeLong(uuid.getLeastSignificantBits());
+                } else {
+                    escreverTexto(saida, linha.id());
+                }
+            }
+            for (LinhaExportacao linha : linhas) {
+                escreverTexto(saida, linha.descricao());
+            }
+            return finalizar(saida, bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Decodifica um bloco gravado por {@link #codificar}, com as linhas em {@link #ORDEM}.
+     *
+     * @throws IllegalStateException se a versão do formato não for suportada
+     */
+    static List<LinhaExportacao> decodificar(byte[] dados, int versaoFormato) {
+        if (versaoFormato != VERSAO_FORMATO) {
+            throw new IllegalStateException("Versão de formato de arquivo não suportada: " + versaoFormato);
+        }
+        try (DataInputStream entrada = new DataInputStream(
+                new GZIPInputStream(new ByteArrayInputStream(dados), TAMANHO_BUFFER))) {
+            int quantidade = entrada.readInt();
+            if (quantidade == 0) {
+                return List.of();
+            }
+
+            long[] instantes = new long[quantidade];
+            instantes[0] = entrada.readLong();
+            for (int i = 1; i < quantidade; i++) {
+                instantes[i] = instantes[i - 1] + lerVarLong(entrada);
+            }
+            byte[] notas = new byte[quantidade];
+            entrada.readFully(notas);
+            byte[] urgencias = new byte[quantidade];
+            entrada.readFully(urgencias);
+            byte[] bits = new byte[entrada.readInt()];
+            entrada.readFully(bits);
+            BitSet notificadas = BitSet.valueOf(bits);
+
+            boolean uuids = entrada.readBoolean();
+            String[] ids = new String[quantidade];
+            for (int i = 0; i < quantidade; i++) {
+                ids[i] = uuids
+                        ? new UUID(entrada.readLong(), entrada.readLong()).toString()
+                        : lerTexto(entrada);
+            }
+
+            List<LinhaExportacao> linhas = new ArrayList<>(quantidade);
+            for (int i = 0; i < quantidade; i++) {
+                linhas.add(new LinhaExportacao(ids[i], lerTexto(entrada), (int) notas[i],
+                        dataHora(instantes[i]), URGENCIAS[urgencias[i]], notificadas.get(i)));
+            }
+            return linhas;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] finalizar(DataOutputStream saida, ByteArrayOutputStream bytes) throws IOException {
+        saida.close();
+        return bytes.toByteArray();
+    }
+
+    private static long micros(LocalDateTime dataHora) {
+        return dataHora.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + dataHora.getNano() / 1000;
+    }
+
+    private static LocalDateTime dataHora(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1000, ZoneOffset.UTC);
+    }
+
+    private static boolean isUuid(String id) {
+        if (id == null || id.length() != 36) {
+            return false;
+        }
+        try {
+            // Só aceita a forma canônica, para que a decodificação devolva o mesmo texto
+            return UUID.fromString(id).toString().equals(id);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static void escreverVarLong(DataOutputStream saida, long valor) throws IOException {
+        while ((valor & ~0x7FL) != 0) {
+            saida.writeByte((int) (valor & 0x7F) | 0x80);
+            valor >>>= 7;
+        }
+        saida.writeByte((int) valor);
+    }
+
+    private static long lerVarLong(DataInputStream entrada) throws IOException {
+        long valor = 0;
+        for (int deslocamento = 0; ; deslocamento += 7) {
+            int b = entrada.readUnsignedByte();
+            valor |= (long) (b & 0x7F) << deslocamento;
+            if ((b & 0x80) == 0) {
+                return valor;
+            }
+        }
+    }
+
+    private static void escreverTexto(DataOutputStream saida, String texto) throws IOException {
+        byte[] utf8 = texto.getBytes(StandardCharsets.UTF_8);
+        escreverVarLong(saida, utf8.length);
+        saida.write(utf8);
+    }
+
+    private static String lerTexto(DataInputStream entrada) throws IOException {
+        byte[] utf8 = new byte[(int) lerVarLong(entrada)];
+        entrada.readFully(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+}
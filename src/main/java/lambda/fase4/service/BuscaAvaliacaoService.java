@@ -0,0 +1,135 @@
+package lambda.fase4.service;
+
+import lambda.fase4.dto.PaginaBuscaDTO;
+import lambda.fase4.dto.ResultadoBuscaDTO;
+import lambda.fase4.model.Avaliacao;
+import lambda.fase4.repository.AvaliacaoRepository;
+import lambda.fase4.repository.ResultadoBusca;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Serviço de busca textual nas descrições das avaliações.
+ *
+ * A consulta usa a coluna tsvector gerada (dicionário portuguese, sem acentos) e seu índice GIN,
+ * evitando LIKE '%...%' sobre a tabela inteira. O termo aceita a sintaxe de buscadores web
+ * (aspas para frases, "or", "-" para excluir). Resultados mais relevantes primeiro, com
+ * paginação por cursor (relevância, dataEnvio, id).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BuscaAvaliacaoService {
+
+    static final int TAMANHO_PADRAO = 20;
+    static final int TAMANHO_MAXIMO = 100;
+    static final int TAMANHO_MAXIMO_TERMO = 200;
+
+    private static final LocalDateTime INICIO_PADRAO = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime FIM_PADRAO = LocalDateTime.of(9999, 12, 31, 23, 59);
+    private static final List<String> TODAS_URGENCIAS = Arrays.stream(Avaliacao.Urgencia.values())
+            .map(Enum::name)
+            .toList();
+    private static final String SEPARADOR_CURSOR = "|";
+    private static final UUID ID_NULO = new UUID(0, 0);
+
+    private final AvaliacaoRepository avaliacaoRepository;
+
+    /**
+     * Busca uma página de avaliações cuja descrição corresponde ao termo.
+     *
+     * @throws ParametroConsultaInvalidoException se o termo estiver vazio ou muito longo, ou se o cursor for inválido
+     */
+    @Transactional(readOnly = true)
+    public PaginaBuscaDTO buscar(String termo, Avaliacao.Urgencia urgencia,
+                                 LocalDateTime inicio, LocalDateTime fim,
+                                 String cursor, Integer tamanho) {
+        if (termo == null || termo.isBlank()) {
+            throw new ParametroConsultaInvalidoException("Termo de busca é obrigatório");
+        }
+        if (termo.length() > TAMANHO_MAXIMO_TERMO) {
+            throw new ParametroConsultaInvalidoException("Termo de busca deve ter no máximo " + TAMANHO_MAXIMO_TERMO + " caracteres");
+        }
+        int tamanhoPagina = tamanho == null ? TAMANHO_PADRAO : Math.max(1, Math.min(tamanho, TAMANHO_MAXIMO));
+
+        // Primeira página: cursor antes de qualquer resultado possível
+        Cursor posicao = cursor != null && !cursor.isBlank()
+                ? decodificarCursor(cursor)
+                : new Cursor(Float.MAX_VALUE, FIM_PADRAO, ID_NULO);
+
+        avaliacaoRepository.usarPlanoPorExecucao();
+        // Busca um item a mais para saber se existe próxima página
+        List<ResultadoBusca> resultados = avaliacaoRepository.buscarPorTexto(
+                termo.trim(), posicao.relevancia(), posicao.dataEnvio(), posicao.id(),
+                inicio != null ? inicio : INICIO_PADRAO,
+                fim != null ? fim : FIM_PADRAO,
+                urgencia != null ? List.of(urgencia.name()) : TODAS_URGENCIAS,
+                tamanhoPagina + 1);
+
+        boolean haProximaPagina = resultados.size() > tamanhoPagina;
+        List<ResultadoBuscaDTO> pagina = new ArrayList<>(Math.min(resultados.size(), tamanhoPagina));
+        for (int i = 0; i < resultados.size() && i < tamanhoPagina; i++) {
+            pagina.add(converter(resultados.get(i)));
+        }
+
+        String proximoCursor = null;
+        if (haProximaPagina) {
+            ResultadoBusca ultimo = resultados.get(tamanhoPagina - 1);
+            proximoCursor = codificarCursor(new Cursor(ultimo.getRelevancia(), ultimo.getDataEnvio(), ultimo.getId()));
+        }
+
+        return PaginaBuscaDTO.builder()
+                .resultados(pagina)
+                .tamanho(pagina.size())
+                .proximoCursor(proximoCursor)
+                .build();
+    }
+
+    private static ResultadoBuscaDTO converter(ResultadoBusca resultado) {
+        return ResultadoBuscaDTO.builder()
+                .id(resultado.getId().toString())
+                .descricao(resultado.getDescricao())
+                .nota(resultado.getNota())
+                .dataEnvio(resultado.getDataEnvio().toString())
+                .urgencia(resultado.getUrgencia())
+                .relevancia(resultado.getRelevancia())
+                .build();
+    }
+
+    static String codificarCursor(Cursor cursor) {
+        // Float.toString preserva o valor exato do real retornado pelo ts_rank
+        String valor = cursor.relevancia() + SEPARADOR_CURSOR + cursor.dataEnvio() + SEPARADOR_CURSOR + cursor.id();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Cursor decodificarCursor(String cursor) {
+        try {
+            String[] partes = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8)
+                    .split("\\" + SEPARADOR_CURSOR, 3);
+            if (partes.length != 3 || partes[2].isEmpty()) {
+                throw new ParametroConsultaInvalidoException("Cursor inválido");
+            }
+            return new Cursor(Float.parseFloat(partes[0]), LocalDateTime.parse(partes[1]),
+                    UUID.fromString(partes[2]));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new ParametroConsultaInvalidoException("Cursor inválido", e);
+        }
+    }
+
+    /**
+     * Posição na busca: o último resultado (relevancia, dataEnvio, id) da página anterior.
+     */
+    record Cursor(float relevancia, LocalDateTime dataEnvio, UUID id) {
+    }
+}
@@ -18,6 +18,8 @@ import java.time.Instant;
 public class CloudWatchMetricsService {
 
     private final CloudWatchClient cloudWatchClient;
+    private final MedicaoLatenciaService medicaoLatencia;
+    private final ProtecaoDependenciasService protecao;
     private static final String NAMESPACE = "FeedbackSystem";
 
     /**
@@ -43,7 +45,7 @@ public class CloudWatchMetricsService {
                     .metricData(datum)
                     .build();
 
-            cloudWatchClient.putMetricData(request);
+            publicar(request);
             log.debug("Métrica de avaliação registrada: urgencia={}", urgencia);
         } catch (Exception e) {
             log.error("Erro ao registrar métrica no CloudWatch", e);
@@ -73,7 +75,7 @@ public class CloudWatchMetricsService {
                     .metricData(datum)
                     .build();
 
-            cloudWatchClient.putMetricData(request);
+            publicar(request);
         } catch (Exception e) {
             log.error("Erro ao registrar métrica de fila no CloudWatch", e);
         }
@@ -102,12 +104,99 @@ public class CloudWatchMetricsService {
                     .metricData(datum)
                     .build();
 
-            cloudWatchClient.putMetricData(request);
+            publicar(request);
         } catch (Exception e) {
             log.error("Erro ao registrar métrica de notificação no CloudWatch", e);
         }
     }
 
+    /**
+     * Registra métrica de notificação duplicada ignorada (reentrega da fila SQS).
+     */
+    public void registrarNotificacaoDuplicada(String origem) {
+        try {
+            Dimension dimension = Dimension.builder()
+                    .name("Origem")
+                    .value(origem)
+                    .build();
+
+            MetricDatum datum = MetricDatum.builder()
+                    .metricName("NotificacoesDuplicadasIgnoradas")
+                    .unit(StandardUnit.COUNT)
+                    .value(1.0)
+                    .timestamp(Instant.now())
+                    .dimensions(dimension)
+                    .build();
+
+            PutMetricDataRequest request = PutMetricDataRequest.builder()
+                    .namespace(NAMESPACE)
+                    .metricData(datum)
+                    .build();
+
+            publicar(request);
+        } catch (Exception e) {
+            log.error("Erro ao registrar métrica de duplicidade no CloudWatch", e);
+        }
+    }
+
+    /**
+     * Registra métrica de envio de e-mail bloqueado pelo limite de taxa do SES.
+     */
+    public void registrarThrottlingSes(String origem) {
+        try {
+            Dimension dimension = Dimension.builder()
+                    .name("Origem")
+                    .value(origem)
+                    .build();
+
+            MetricDatum datum = MetricDatum.builder()
+                    .metricName("ThrottlingSes")
+                    .unit(StandardUnit.COUNT)
+                    .value(1.0)
+                    .timestamp(Instant.now())
+                    .dimensions(dimension)
+                    .build();
+
+            PutMetricDataRequest request = PutMetricDataRequest.builder()
+                    .namespace(NAMESPACE)
+                    .metricData(datum)
+                    .build();
+
+            publicar(request);
+        } catch (Exception e) {
+            log.error("Erro ao registrar métrica de throttling no CloudWatch", e);
+        }
+    }
+
+    /**
+     * Registra o tempo de espera por token do limitador de envio SES.
+     */
+    public void registrarEsperaLimiteSes(String origem, long esperaMillis) {
+        try {
+            Dimension dimension = Dimension.builder()
+                    .name("Origem")
+                    .value(origem)
+                    .build();
+
+            MetricDatum datum = MetricDatum.builder()
+                    .metricName("EsperaLimiteSes")
+                    .unit(StandardUnit.MILLISECONDS)
+                    .value((double) esperaMillis)
+                    .timestamp(Instant.now())
+                    .dimensions(dimension)
+                    .build();
+
+            PutMetricDataRequest request = PutMetricDataRequest.builder()
+                    .namespace(NAMESPACE)
+                    .metricData(datum)
+                    .build();
+
+            publicar(request);
+        } catch (Exception e) {
+            log.error("Erro ao registrar métrica de espera SES no CloudWatch", e);
+        }
+    }
+
     /**
      * Registra métrica de erro.
      */
@@ -131,7 +220,7 @@ public class CloudWatchMetricsService {
                     .metricData(datum)
                     .build();
 
-            cloudWatchClient.putMetricData(request);
+            publicar(request);
         } catch (Exception e) {
             log.error("Erro ao registrar métrica de erro no CloudWatch", e);
         }
@@ -154,10 +243,47 @@ public class CloudWatchMetricsService {
                     .metricData(datum)
                     .build();
 
-            cloudWatchClient.putMetricData(request);
+            publicar(request);
         } catch (Exception e) {
             log.error("Erro ao registrar métrica de relatório no CloudWatch", e);
         }
     }
-}
 
+    /**
+     * Registra métrica de avaliações movidas para o arquivo.
+     */
+    public void registrarAvaliacoesArquivadas(long quantidade) {
+        try {
+            MetricDatum datum = MetricDatum.builder()
+                    .metricName("AvaliacoesArquivadas")
+                    .unit(StandardUnit.COUNT)
+                    .value((double) quantidade)
+                    .timestamp(Instant.now())
+                    .build();
+
+            PutMetricDataRequest request = PutMetricDataRequest.builder()
+                    .namespace(NAMESPACE)
+                    .metricData(datum)
+                    .build();
+
+            publicar(request);
+        } catch (Exception e) {
+            log.error("Erro ao registrar métrica de arquivamento no CloudWatch", e);
+        }
+    }
+
+    /**
+     * Publica a métrica no CloudWatch medindo a latência da chamada (fase "cloudwatch.<métrica>").
+     * Com o disjuntor do CloudWatch aberto, a métrica é descartada sem esperar a chamada.
+     */
+    private void publicar(PutMetricDataRequest request) {
+        try {
+            medicaoLatencia.medir("cloudwatch." + request.metricData().get(0).metricName(),
+                    () -> protecao.executar(ProtecaoDependenciasService.Dependencia.CLOUDWATCH,
+                            configuracao -> cloudWatchClient.putMetricData(
+                                    request.toBuilder().overrideConfiguration(configuracao).build())));
+        } catch (DependenciaIndisponivelException e) {
+            log.debug("Métrica {} descartada: {}", request.metricData().get(0).metricName(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package lambda.fase4.service;
+
+import lambda.fase4.dto.AvaliacaoResumoDTO;
+import lambda.fase4.dto.PaginaAvaliacoesDTO;
+import lambda.fase4.model.Avaliacao;
+import lambda.fase4.repository.AvaliacaoRepository;
+import lambda.fase4.repository.AvaliacaoResumo;
+import lambda.fase4.repository.AvaliacaoResumoComDescricao;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Serviço de listagem de avaliações com paginação por cursor (keyset em dataEnvio, id).
+ *
+ * Ao contrário de OFFSET, cada página busca apenas as linhas anteriores ao cursor pelo
+ * índice (data_envio, id), então o tempo de resposta não cresce com a profundidade.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ConsultaAvaliacaoService {
+
+    static final int TAMANHO_PADRAO = 20;
+    static final int TAMANHO_MAXIMO = 100;
+
+    // Limites usados quando o filtro não é informado (mantêm a consulta sempre no índice)
+    private static final LocalDateTime INICIO_PADRAO = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime FIM_PADRAO = LocalDateTime.of(9999, 12, 31, 23, 59);
+    private static final String SEPARADOR_CURSOR = "|";
+    private static final UUID ID_NULO = new UUID(0, 0);
+
+    private final AvaliacaoRepository avaliacaoRepository;
+
+    /**
+     * Lista uma página de avaliações, da mais recente para a mais antiga.
+     *
+     * @throws ParametroConsultaInvalidoException se o cursor for inválido
+     */
+    @Transactional(readOnly = true)
+    public PaginaAvaliacoesDTO listar(Avaliacao.Urgencia urgencia, Boolean notificado,
+                                      LocalDateTime inicio, LocalDateTime fim,
+                                      String cursor, Integer tamanho, boolean incluirDescricao) {
+        int tamanhoPagina = tamanho == null ? TAMANHO_PADRAO : Math.max(1, Math.min(tamanho, TAMANHO_MAXIMO));
+
+        // Primeira página: cursor após qualquer avaliação possível
+        Cursor posicao = cursor != null && !cursor.isBlank()
+                ? decodificarCursor(cursor)
+                : new Cursor(FIM_PADRAO, ID_NULO);
+
+        // Busca um item a mais para saber se existe próxima página
+        Limit limite = Limit.of(tamanhoPagina + 1);
+        LocalDateTime inicioFiltro = inicio != null ? inicio : INICIO_PADRAO;
+        LocalDateTime fimFiltro = fim != null ? fim : FIM_PADRAO;
+
+        List<? extends AvaliacaoResumo> resumos = incluirDescricao
+                ? avaliacaoRepository.listarResumosComDescricao(posicao.dataEnvio(), posicao.id(),
+                        inicioFiltro, fimFiltro, urgencia, notificado, limite)
+                : avaliacaoRepository.listarResumos(posicao.dataEnvio(), posicao.id(),
+                        inicioFiltro, fimFiltro, urgencia, notificado, limite);
+
+        boolean haProximaPagina = resumos.size() > tamanhoPagina;
+        List<AvaliacaoResumoDTO> avaliacoes = new ArrayList<>(Math.min(resumos.size(), tamanhoPagina));
+        for (int i = 0; i < resumos.size() && i < tamanhoPagina; i++) {
+            avaliacoes.add(converter(resumos.get(i)));
+        }
+
+        String proximoCursor = null;
+        if (haProximaPagina) {
+            AvaliacaoResumo ultimo = resumos.get(tamanhoPagina - 1);
+            proximoCursor = codificarCursor(new Cursor(ultimo.getDataEnvio(), ultimo.getId()));
+        }
+
+        return PaginaAvaliacoesDTO.builder()
+                .avaliacoes(avaliacoes)
+                .tamanho(avaliacoes.size())
+                .proximoCursor(proximoCursor)
+                .build();
+    }
+
+    private static AvaliacaoResumoDTO converter(AvaliacaoResumo resumo) {
+        return AvaliacaoResumoDTO.builder()
+                .id(resumo.getId().toString())
+                .descricao(resumo instanceof AvaliacaoResumoComDescricao comDescricao ? comDescricao.getDescricao() : null)
+                .nota(resumo.getNota())
+                .dataEnvio(resumo.getDataEnvio().toString())
+                .urgencia(resumo.getUrgencia().name())
+                .notificacaoEnviada(resumo.getNotificacaoEnviada())
+                .build();
+    }
+
+    static String codificarCursor(Cursor cursor) {
+        String valor = cursor.dataEnvio() + SEPARADOR_CURSOR + cursor.id();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Cursor decodificarCursor(String cursor) {
+        try {
+            String valor = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separador = valor.indexOf(SEPARADOR_CURSOR);
+            if (separador <= 0) {
+                throw new ParametroConsultaInvalidoException("Cursor inválido");
+            }
+            return new Cursor(LocalDateTime.parse(valor.substring(0, separador)),
+                    UUID.fromString(valor.substring(separador + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new ParametroConsultaInvalidoException("Cursor inválido", e);
+        }
+    }
+
+    /**
+     * Posição na listagem: a última avaliação (dataEnvio, id) da página anterior.
+     */
+    record Cursor(LocalDateTime dataEnvio, UUID id) {
+    }
+}
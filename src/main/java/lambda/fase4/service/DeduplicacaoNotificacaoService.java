@@ -0,0 +1,140 @@
+package lambda.fase4.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Serviço responsável por evitar notificações duplicadas.
+ *
+ * O SQS entrega mensagens "at-least-once": a mesma avaliação pode chegar mais de uma vez
+ * (reentrega após timeout de visibilidade ou entregas concorrentes). Antes de qualquer chamada
+ * externa (SNS/SES) o consumidor deve obter a reserva da avaliação:
+ * 1. Cache local do container com as avaliações notificadas recentemente (sem acesso ao banco)
+ * 2. UPDATE condicional no banco, que só reserva avaliações ainda não notificadas
+ *
+ * A publicação no SNS é registrada por avaliação: a tentativa seguinte a uma falha no e-mail
+ * obtém a reserva sabendo que só o SES está pendente.
+ */
+@Service
+@Slf4j
+public class DeduplicacaoNotificacaoService {
+
+    private final AvaliacaoService avaliacaoService;
+    private final CloudWatchMetricsService metricsService;
+    private final Duration expiracaoReserva;
+    private final int maximoRecebimentosInexistente;
+    private final Set<String> processadasRecentemente;
+
+    /**
+     * Resultado da tentativa de reserva.
+     */
+    public enum Reserva {
+        /** Entrega duplicada: avaliação já notificada ou em envio por outro consumidor. */
+        DUPLICADA,
+        /** Reserva obtida; SNS e e-mail pendentes. */
+        OBTIDA,
+        /** Reserva obtida; o SNS já foi publicado por uma tentativa anterior e só o e-mail está pendente. */
+        OBTIDA_SNS_ENVIADO
+    }
+
+    public DeduplicacaoNotificacaoService(
+            AvaliacaoService avaliacaoService,
+            CloudWatchMetricsService metricsService,
+            @Value("${notificacao.deduplicacao.reserva-segundos:360}") long reservaSegundos,
+            @Value("${notificacao.deduplicacao.cache-tamanho:1000}") int tamanhoCache,
+            @Value("${notificacao.deduplicacao.inexistente-maximo-recebimentos:3}") int maximoRecebimentosInexistente) {
+        this.avaliacaoService = avaliacaoService;
+        this.metricsService = metricsService;
+        this.expiracaoReserva = Duration.ofSeconds(reservaSegundos);
+        this.maximoRecebimentosInexistente = maximoRecebimentosInexistente;
+        this.processadasRecentemente = Collections.synchronizedSet(Collections.newSetFromMap(
+                new LinkedHashMap<>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                        return size() > tamanhoCache;
+                    }
+                }));
+    }
+
+    /**
+     * Tenta reservar o envio da notificação da avaliação.
+     * Retorna {@link Reserva#DUPLICADA} (e registra métrica) quando a mensagem é uma entrega duplicada.
+     *
+     * @param recebimentos número de recebimentos da mensagem ({@code ApproximateReceiveCount})
+     * @throws AvaliacaoNaoEncontradaException se a avaliação não existir e a mensagem ainda puder ser
+     *         reprocessada (a gravação pode não estar visível ainda)
+     * @throws MensagemNotificacaoInvalidaException se o id não for um UUID ou a avaliação continuar
+     *         inexistente após {@code inexistente-maximo-recebimentos} recebimentos
+     */
+    public Reserva reservar(String avaliacaoId, int recebimentos) {
+        if (processadasRecentemente.contains(avaliacaoId)) {
+            log.info("Notificação duplicada ignorada (cache local): {}", avaliacaoId);
+            metricsService.registrarNotificacaoDuplicada("cache");
+            return Reserva.DUPLICADA;
+        }
+
+        UUID id;
+        try {
+            id = UUID.fromString(avaliacaoId);
+        } catch (IllegalArgumentException e) {
+            throw new MensagemNotificacaoInvalidaException("Id de avaliação inválido: " + avaliacaoId, e);
+        }
+        Boolean snsEnviado = avaliacaoService.reservarNotificacao(id, expiracaoReserva);
+        if (snsEnviado == null) {
+            // Sem reserva: entrega duplicada ou avaliação inexistente (consulta só neste caso)
+            if (!avaliacaoService.existe(id)) {
+                if (recebimentos < maximoRecebimentosInexistente) {
+                    throw new AvaliacaoNaoEncontradaException("Avaliação ainda não encontrada: " + avaliacaoId
+                            + " (recebimento " + recebimentos + ")");
+                }
+                throw new MensagemNotificacaoInvalidaException("Avaliação inexistente: " + avaliacaoId);
+            }
+            // Fora do cache: a reserva pode ser de outro consumidor ainda em envio, que pode falhar e liberá-la
+            log.info("Notificação duplicada ignorada (já enviada ou em envio): {}", avaliacaoId);
+            metricsService.registrarNotificacaoDuplicada("banco");
+            return Reserva.DUPLICADA;
+        }
+
+        return snsEnviado ? Reserva.OBTIDA_SNS_ENVIADO : Reserva.OBTIDA;
+    }
+
+    /**
+     * Registra a publicação no SNS, para que uma nova tentativa após falha no e-mail não a repita.
+     * Uma falha aqui só é registrada em log (a nova tentativa publicaria o SNS outra vez).
+     */
+    public void registrarSnsEnviado(String avaliacaoId) {
+        try {
+            avaliacaoService.marcarSnsEnviado(UUID.fromString(avaliacaoId));
+        } catch (Exception e) {
+            log.error("Erro ao registrar o envio SNS da avaliação {}", avaliacaoId, e);
+        }
+    }
+
+    /**
+     * Confirma o envio: marca a avaliação como notificada e a guarda no cache local.
+     */
+    public void confirmar(String avaliacaoId) {
+        avaliacaoService.marcarComoNotificada(UUID.fromString(avaliacaoId));
+        processadasRecentemente.add(avaliacaoId);
+    }
+
+    /**
+     * Libera a reserva após falha no envio, permitindo que a reentrega tente novamente.
+     */
+    public void liberar(String avaliacaoId) {
+        try {
+            avaliacaoService.liberarReservaNotificacao(UUID.fromString(avaliacaoId));
+        } catch (Exception e) {
+            // A reserva expira sozinha após o tempo configurado
+            log.error("Erro ao liberar reserva de notificação da avaliação {}", avaliacaoId, e);
+        }
+    }
+}
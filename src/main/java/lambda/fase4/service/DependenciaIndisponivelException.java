@@ -0,0 +1,28 @@
+package lambda.fase4.service;
+
+/**
+ * Indica que uma chamada a um serviço AWS foi recusada sem ser feita: disjuntor aberto,
+ * limite de chamadas simultâneas atingido ou prazo da invocação insuficiente.
+ *
+ * É uma falha rápida: o chamador trata como falha da dependência (a mensagem SQS volta
+ * para a fila, a métrica é descartada), sem esperar o timeout do SDK.
+ */
+public class DependenciaIndisponivelException extends RuntimeException {
+
+    private final ProtecaoDependenciasService.Dependencia dependencia;
+    private final String motivo;
+
+    public DependenciaIndisponivelException(ProtecaoDependenciasService.Dependencia dependencia, String motivo) {
+        super("Chamada a " + dependencia + " recusada: " + motivo);
+        this.dependencia = dependencia;
+        this.motivo = motivo;
+    }
+
+    public ProtecaoDependenciasService.Dependencia getDependencia() {
+        return dependencia;
+    }
+
+    public String getMotivo() {
+        return motivo;
+    }
+}
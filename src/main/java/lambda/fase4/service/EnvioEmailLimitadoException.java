@@ -0,0 +1,18 @@
+package lambda.fase4.service;
+
+/**
+ * Indica que um e-mail não pôde ser enviado por limite de taxa do SES
+ * (sem token disponível no limitador local ou throttling retornado pelo SES).
+ *
+ * Não é uma falha da mensagem: o consumidor deve adiar o reprocessamento.
+ */
+public class EnvioEmailLimitadoException extends RuntimeException {
+
+    public EnvioEmailLimitadoException(String message) {
+        super(message);
+    }
+
+    public EnvioEmailLimitadoException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,133 @@
+package lambda.fase4.service;
+
+import lambda.fase4.dto.EstatisticasJanelaDTO;
+import lambda.fase4.dto.EstatisticasTempoRealDTO;
+import lambda.fase4.model.Avaliacao;
+import lambda.fase4.repository.AgregadoPorMinuto;
+import lambda.fase4.repository.AvaliacaoRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Serviço de estatísticas móveis (última hora, 24 horas e 7 dias) mantidas em memória.
+ *
+ * As consultas nunca acessam o banco: os contadores são carregados uma única vez na inicialização
+ * e, a partir daí, atualizados pelas avaliações gravadas nesta instância, após o commit.
+ * Granularidade: baldes de 1 minuto para a última hora e de 1 hora para 24h/7d
+ * (o balde corrente, parcial, é incluído na janela).
+ *
+ * Os números são aproximados e por instância: avaliações gravadas por outras réplicas ou pelas
+ * Lambdas depois da carga não são contadas, nem as de transações ainda abertas durante a carga.
+ * Para valores exatos, use os agregados por período ({@link AgregadoPeriodoService}).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EstatisticasTempoRealService {
+
+    private static final int MINUTOS_HORA = 60;
+    private static final int MINUTOS_DIA = 24 * 60;
+    private static final int MINUTOS_SEMANA = 7 * 24 * 60;
+
+    private final AvaliacaoRepository avaliacaoRepository;
+
+    private final JanelaDeslizante porMinuto = new JanelaDeslizante(MINUTOS_HORA + 1, 1);
+    private final JanelaDeslizante porHora = new JanelaDeslizante(MINUTOS_SEMANA / 60 + 1, 60);
+
+    /**
+     * Avaliações anteriores a este instante vêm da carga inicial, e as demais são contadas ao serem
+     * gravadas; null antes da carga.
+     */
+    private volatile LocalDateTime carregadoAte;
+
+    /**
+     * Carrega os últimos 7 dias com uma única consulta agregada por minuto, até exatamente o instante
+     * em que a contagem das novas avaliações começa (nenhuma fica de fora ou é contada duas vezes).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void carregar() {
+        LocalDateTime corte = LocalDateTime.now();
+        // A contagem começa antes da consulta: avaliações gravadas durante a carga já são contadas
+        carregadoAte = corte;
+        try {
+            List<AgregadoPorMinuto> agregados = avaliacaoRepository.agregarPorMinuto(
+                    corte.minusMinutes(MINUTOS_SEMANA), corte);
+            for (AgregadoPorMinuto agregado : agregados) {
+                long minuto = agregado.getMinutoEpoch() / 60;
+                porMinuto.registrar(minuto, agregado.getTotal(), agregado.getSomaNotas(), agregado.getCriticas());
+                porHora.registrar(minuto, agregado.getTotal(), agregado.getSomaNotas(), agregado.getCriticas());
+            }
+            log.info("Estatísticas em memória carregadas: {} minutos com avaliações", agregados.size());
+        } catch (Exception e) {
+            log.error("Erro ao carregar estatísticas em memória; apenas as novas avaliações serão contadas", e);
+        }
+    }
+
+    /**
+     * Contabiliza uma avaliação recém-processada, após o commit da transação (uma gravação desfeita
+     * não é contada).
+     */
+    public void registrar(Avaliacao avaliacao) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    contar(avaliacao);
+                }
+            });
+        } else {
+            contar(avaliacao);
+        }
+    }
+
+    private void contar(Avaliacao avaliacao) {
+        LocalDateTime corte = carregadoAte;
+        // Antes da carga (ou em Lambdas, onde não há consulta de estatísticas) nada é contabilizado;
+        // avaliações anteriores ao corte já vieram da carga
+        if (corte == null || avaliacao.getDataEnvio().isBefore(corte)) {
+            return;
+        }
+        long minuto = minutoEpoch(avaliacao.getDataEnvio());
+        long critica = avaliacao.getUrgencia() == Avaliacao.Urgencia.CRITICA ? 1 : 0;
+        porMinuto.registrar(minuto, 1, avaliacao.getNota(), critica);
+        porHora.registrar(minuto, 1, avaliacao.getNota(), critica);
+    }
+
+    /**
+     * Estatísticas móveis atuais, calculadas somente a partir dos contadores em memória.
+     */
+    public EstatisticasTempoRealDTO consultar() {
+        LocalDateTime agora = LocalDateTime.now();
+        long minutoAtual = minutoEpoch(agora);
+
+        return EstatisticasTempoRealDTO.builder()
+                .ultimaHora(converter(porMinuto.somar(minutoAtual, MINUTOS_HORA)))
+                .ultimas24Horas(converter(porHora.somar(minutoAtual, MINUTOS_DIA)))
+                .ultimos7Dias(converter(porHora.somar(minutoAtual, MINUTOS_SEMANA)))
+                .dataGeracao(agora.format(DateTimeFormatter.ISO_DATE_TIME))
+                .build();
+    }
+
+    private static EstatisticasJanelaDTO converter(JanelaDeslizante.Soma soma) {
+        return EstatisticasJanelaDTO.builder()
+                .totalAvaliacoes(soma.total())
+                .mediaNotas(soma.total() == 0 ? 0.0 : (double) soma.somaNotas() / soma.total())
+                .totalCriticas(soma.criticas())
+                .taxaCriticas(soma.total() == 0 ? 0.0 : (double) soma.criticas() / soma.total())
+                .build();
+    }
+
+    private static long minutoEpoch(LocalDateTime dataHora) {
+        return dataHora.toEpochSecond(ZoneOffset.UTC) / 60;
+    }
+}
@@ -0,0 +1,370 @@
+package lambda.fase4.service;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import lambda.fase4.dto.AvaliacaoResumoDTO;
+import lambda.fase4.repository.AvaliacaoRepository;
+import lambda.fase4.repository.LinhaExportacao;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
+import software.amazon.awssdk.services.ses.SesClient;
+import software.amazon.awssdk.services.ses.model.Body;
+import software.amazon.awssdk.services.ses.model.Content;
+import software.amazon.awssdk.services.ses.model.Destination;
+import software.amazon.awssdk.services.ses.model.Message;
+import software.amazon.awssdk.services.ses.model.SendEmailRequest;
+import software.amazon.awssdk.services.ses.model.SesException;
+
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serviço de exportação de avaliações de um período em CSV ou JSON lines, compactados com gzip.
+ *
+ * As linhas são lidas por cursor do banco (lotes de 1000, projeção por construtor) e escritas
+ * diretamente no destino: a memória usada não depende da quantidade de avaliações exportadas.
+ * Destinos: a resposta HTTP ({@link #exportar}) ou um objeto no S3, gravado em partes à medida que
+ * é gerado, cujo link temporário é enviado por e-mail via SES ({@link #enviarPorEmail}).
+ *
+ * Com {@code incluirArquivadas}, as avaliações já arquivadas do período ({@link ArquivamentoService})
+ * são exportadas antes das da tabela principal, descompactadas um dia por vez.
+ */
+@Service
+@Slf4j
+public class ExportacaoAvaliacaoService {
+
+    private static final String CABECALHO_CSV = "id,data_envio,nota,urgencia,notificacao_enviada,descricao";
+    private static final int TAMANHO_BUFFER = 64 * 1024;
+
+    private final AvaliacaoRepository avaliacaoRepository;
+    private final ArquivamentoService arquivamentoService;
+    private final SesClient sesClient;
+    private final S3Client s3Client;
+    private final S3Presigner s3Presigner;
+    private final CloudWatchMetricsService metricsService;
+    private final LimitadorEnvioEmailService limitadorEnvioEmail;
+    private final MedicaoLatenciaService medicaoLatencia;
+    private final ProtecaoDependenciasService protecao;
+    private final Gson gson = new GsonBuilder().disableHtmlEscaping().create();
+
+    @Value("${aws.ses.from.email}")
+    private String fromEmail;
+
+    @Value("${aws.ses.admin.emails}")
+    private String adminEmails;
+
+    @Value("${aws.ses.limite.espera-relatorio-ms:30000}")
+    private long esperaMaximaLimiteMs;
+
+    @Value("${exportacao.s3.bucket:}")
+    private String bucket;
+
+    /**
+     * Validade do link enviado por e-mail. O link assinado com as credenciais temporárias da função
+     * deixa de valer quando elas expiram, mesmo antes desse prazo.
+     */
+    @Value("${exportacao.s3.validade-link-horas:12}")
+    private long validadeLinkHoras;
+
+    public ExportacaoAvaliacaoService(AvaliacaoRepository avaliacaoRepository,
+                                      ArquivamentoService arquivamentoService,
+                                      SesClient sesClient,
+                                      S3Client s3Client,
+                                      S3Presigner s3Presigner,
+                                      CloudWatchMetricsService metricsService,
+                                      LimitadorEnvioEmailService limitadorEnvioEmail,
+                                      MedicaoLatenciaService medicaoLatencia,
+                                      ProtecaoDependenciasService protecao) {
+        this.avaliacaoRepository = avaliacaoRepository;
+        this.arquivamentoService = arquivamentoService;
+        this.sesClient = sesClient;
+        this.s3Client = s3Client;
+        this.s3Presigner = s3Presigner;
+        this.metricsService = metricsService;
+        this.limitadorEnvioEmail = limitadorEnvioEmail;
+        this.medicaoLatencia = medicaoLatencia;
+        this.protecao = protecao;
+    }
+
+    public enum Formato {
+        CSV("csv"),
+        JSONL("jsonl");
+
+        private final String extensao;
+
+        Formato(String extensao) {
+            this.extensao = extensao;
+        }
+
+        public String getExtensao() {
+            return extensao;
+        }
+    }
+
+    /**
+     * Valida o período da exportação ({@code inicio} inclusivo, {@code fim} exclusivo).
+     *
+     * @throws ParametroConsultaInvalidoException se o período for inválido
+     */
+    public void validarPeriodo(LocalDateTime inicio, LocalDateTime fim) {
+        if (inicio == null || fim == null) {
+            throw new ParametroConsultaInvalidoException("Início e fim do período são obrigatórios");
+        }
+        if (!inicio.isBefore(fim)) {
+            throw new ParametroConsultaInvalidoException("Início do período deve ser anterior ao fim");
+        }
+    }
+
+    /**
+     * Nome do arquivo exportado, ex.: avaliacoes-20250106-20250113.csv.gz
+     */
+    public String nomeArquivo(LocalDateTime inicio, LocalDateTime fim, Formato formato) {
+        DateTimeFormatter formatter = DateTimeFormatter.BASIC_ISO_DATE;
+        return "avaliacoes-" + inicio.format(formatter) + "-" + fim.format(formatter)
+                + "." + formato.getExtensao() + ".gz";
+    }
+
+    /**
+     * Escreve as avaliações do período em {@code saida}, compactadas com gzip, sem as arquivadas.
+     *
+     * @return quantidade de avaliações exportadas
+     */
+    @Transactional(readOnly = true)
+    public long exportar(LocalDateTime inicio, LocalDateTime fim, Formato formato, OutputStream saida) throws IOException {
+        return exportar(inicio, fim, formato, false, saida);
+    }
+
+    /**
+     * Escreve as avaliações do período em {@code saida}, compactadas com gzip.
+     * A saída não é fechada; o gzip é finalizado ao fim da escrita.
+     *
+     * @return quantidade de avaliações exportadas
+     */
+    @Transactional(readOnly = true)
+    public long exportar(LocalDateTime inicio, LocalDateTime fim, Formato formato, boolean incluirArquivadas,
+                         OutputStream saida) throws IOException {
+        validarPeriodo(inicio, fim);
+        long inicioExportacao = System.nanoTime();
+
+        long linhas;
+        try (SaidaGzip gzip = new SaidaGzip(naoFechavel(saida));
+             Stream<LinhaExportacao> avaliacoes = incluirArquivadas
+                     ? Stream.concat(arquivamentoService.percorrerArquivadas(inicio, fim),
+                             avaliacaoRepository.percorrerPorPeriodo(inicio, fim))
+                     : avaliacaoRepository.percorrerPorPeriodo(inicio, fim)) {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(gzip, StandardCharsets.UTF_8), TAMANHO_BUFFER);
+            linhas = formato == Formato.CSV
+                    ? escreverCsv(avaliacoes.iterator(), writer)
+                    : escreverJsonLines(avaliacoes.iterator(), writer);
+            writer.flush();
+            gzip.concluir();
+        }
+
+        medicaoLatencia.registrar("exportacao." + formato.getExtensao(), System.nanoTime() - inicioExportacao);
+        log.info("Exportação {} concluída: {} avaliações de {} até {}", formato, linhas, inicio, fim);
+        return linhas;
+    }
+
+    /**
+     * Exporta o período para o S3 e envia aos administradores um link temporário para o arquivo.
+     * A transação cobre a leitura por cursor feita na chamada interna a {@link #exportar}.
+     *
+     * @return quantidade de avaliações exportadas
+     * @throws IllegalStateException se {@code exportacao.s3.bucket} não estiver configurado
+     */
+    @Transactional(readOnly = true)
+    public long enviarPorEmail(LocalDateTime inicio, LocalDateTime fim, Formato formato) throws IOException {
+        return enviarPorEmail(inicio, fim, formato, false);
+    }
+
+    /**
+     * Como {@link #enviarPorEmail(LocalDateTime, LocalDateTime, Formato)}, incluindo opcionalmente
+     * as avaliações arquivadas do período.
+     */
+    @Transactional(readOnly = true)
+    public long enviarPorEmail(LocalDateTime inicio, LocalDateTime fim, Formato formato, boolean incluirArquivadas)
+            throws IOException {
+        validarPeriodo(inicio, fim);
+        if (bucket == null || bucket.isBlank()) {
+            throw new IllegalStateException("exportacao.s3.bucket não configurado");
+        }
+        String nomeArquivo = nomeArquivo(inicio, fim, formato);
+        String chave = "exportacoes/" + UUID.randomUUID() + "/" + nomeArquivo;
+
+        long linhas;
+        long tamanho;
+        try (ArquivoS3OutputStream arquivo = new ArquivoS3OutputStream(s3Client, bucket, chave, "application/gzip")) {
+            linhas = exportar(inicio, fim, formato, incluirArquivadas, arquivo);
+            tamanho = arquivo.concluir();
+        }
+        String link = s3Presigner.presignGetObject(GetObjectPresignRequest.builder()
+                .signatureDuration(Duration.ofHours(validadeLinkHoras))
+                .getObjectRequest(GetObjectRequest.builder().bucket(bucket).key(chave).build())
+                .build()).url().toString();
+        log.info("Exportação {} gravada em s3://{}/{} ({} bytes)", nomeArquivo, bucket, chave, tamanho);
+
+        try {
+            limitadorEnvioEmail.adquirir(adminEmails.split(",").length,
+                    Duration.ofMillis(esperaMaximaLimiteMs), "exportacao");
+            SendEmailRequest request = montarMensagem(link, formato, linhas, tamanho, inicio, fim);
+            medicaoLatencia.medir("ses.envio", () -> protecao.executar(ProtecaoDependenciasService.Dependencia.SES,
+                    configuracao -> sesClient.sendEmail(request.toBuilder().overrideConfiguration(configuracao).build())));
+            log.info("Link da exportação {} enviado para: {}", nomeArquivo, adminEmails);
+            metricsService.registrarNotificacaoEnviada("exportacao");
+            return linhas;
+        } catch (SesException e) {
+            log.error("Erro ao enviar exportação por e-mail", e);
+            metricsService.registrarErro("envio_exportacao");
+            limitadorEnvioEmail.verificarThrottling(e, "exportacao");
+            throw new RuntimeException("Falha no envio da exportação", e);
+        }
+    }
+
+    private long escreverCsv(Iterator<LinhaExportacao> avaliacoes, Writer writer) throws IOException {
+        writer.write(CABECALHO_CSV);
+        writer.write("\r\n");
+        long linhas = 0;
+        while (avaliacoes.hasNext()) {
+            LinhaExportacao avaliacao = avaliacoes.next();
+            writer.write(avaliacao.id());
+            writer.write(',');
+            writer.write(avaliacao.dataEnvio().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+            writer.write(',');
+            writer.write(Integer.toString(avaliacao.nota()));
+            writer.write(',');
+            writer.write(avaliacao.urgencia().name());
+            writer.write(',');
+            writer.write(Boolean.toString(avaliacao.notificacaoEnviada()));
+            writer.write(',');
+            escreverCampoCsv(avaliacao.descricao(), writer);
+            writer.write("\r\n");
+            linhas++;
+        }
+        return linhas;
+    }
+
+    /**
+     * Campo CSV (RFC 4180). Textos iniciados por =, +, - ou @ recebem um apóstrofo para não
+     * serem interpretados como fórmula ao abrir o arquivo em planilhas.
+     */
+    static void escreverCampoCsv(String valor, Writer writer) throws IOException {
+        boolean formula = !valor.isEmpty() && "=+-@".indexOf(valor.charAt(0)) >= 0;
+        boolean aspas = formula || valor.indexOf(',') >= 0 || valor.indexOf('"') >= 0
+                || valor.indexOf('\n') >= 0 || valor.indexOf('\r') >= 0;
+        if (!aspas) {
+            writer.write(valor);
+            return;
+        }
+        writer.write('"');
+        if (formula) {
+            writer.write('\'');
+        }
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+
+    private long escreverJsonLines(Iterator<LinhaExportacao> avaliacoes, Writer writer) throws IOException {
+        long linhas = 0;
+        while (avaliacoes.hasNext()) {
+            LinhaExportacao avaliacao = avaliacoes.next();
+            gson.toJson(AvaliacaoResumoDTO.builder()
+                    .id(avaliacao.id())
+                    .descricao(avaliacao.descricao())
+                    .nota(avaliacao.nota())
+                    .dataEnvio(avaliacao.dataEnvio().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
+                    .urgencia(avaliacao.urgencia().name())
+                    .notificacaoEnviada(avaliacao.notificacaoEnviada())
+                    .build(), writer);
+            writer.write('\n');
+            linhas++;
+        }
+        return linhas;
+    }
+
+    private SendEmailRequest montarMensagem(String link, Formato formato, long linhas, long tamanho,
+                                            LocalDateTime inicio, LocalDateTime fim) {
+        String texto = String.format("Exportação de %d avaliações (%s compactado com gzip, %d bytes).%n" +
+                "Período: %s até %s%n%n" +
+                "Download (link válido por até %d horas):%n%s%n", linhas, formato, tamanho, inicio, fim,
+                validadeLinkHoras, link);
+        return SendEmailRequest.builder()
+                .destination(Destination.builder()
+                        .toAddresses(adminEmails.split(","))
+                        .build())
+                .source(fromEmail)
+                .message(Message.builder()
+                        .subject(Content.builder()
+                                .data("Exportação de Avaliações - " + inicio.toLocalDate() + " a " + fim.toLocalDate())
+                                .build())
+                        .body(Body.builder()
+                                .text(Content.builder().data(texto).build())
+                                .build())
+                        .build())
+                .build();
+    }
+
+    private static OutputStream naoFechavel(OutputStream saida) {
+        return new FilterOutputStream(saida) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+    }
+
+    /**
+     * Gzip finalizado só por {@link #concluir()}, após a última linha: uma exportação interrompida não
+     * gera um arquivo válido truncado. Fechar sem concluir apenas libera a memória nativa do Deflater.
+     */
+    private static final class SaidaGzip extends GZIPOutputStream {
+
+        private boolean concluida;
+
+        private SaidaGzip(OutputStream out) throws IOException {
+            super(out, TAMANHO_BUFFER);
+        }
+
+        private void concluir() throws IOException {
+            finish();
+            concluida = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (concluida) {
+                super.close();
+            } else {
+                def.end();
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package lambda.fase4.service;
+
+import com.amazonaws.services.lambda.runtime.events.SQSEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityRequest;
+import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
+import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Serviço responsável pelo controle de reprocessamento das mensagens
+ * da fila de notificações (SQS).
+ *
+ * Mensagens com falha voltam para a fila após um atraso exponencial com jitter, calculado pelo
+ * número de recebimentos ({@code ApproximateReceiveCount}): metade de
+ * {@code base * 2^(recebimentos - 1)} (limitado a {@code maximo}) mais um valor aleatório até a
+ * outra metade, para que as mensagens de uma falha em massa não voltem todas juntas.
+ * Mensagens que nunca poderão ser processadas vão direto para a DLQ.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FilaNotificacaoService {
+
+    private final SqsClient sqsClient;
+    private final CloudWatchMetricsService metricsService;
+
+    @Value("${aws.sqs.queue.notificacao.url}")
+    private String notificacaoQueueUrl;
+
+    @Value("${aws.sqs.queue.notificacao.dlq.url:}")
+    private String dlqUrl;
+
+    @Value("${aws.ses.limite.adiamento-segundos:60}")
+    private int adiamentoLimiteSegundos;
+
+    @Value("${notificacao.reprocessamento.base-segundos:10}")
+    private int reprocessamentoBaseSegundos;
+
+    @Value("${notificacao.reprocessamento.maximo-segundos:900}")
+    private int reprocessamentoMaximoSegundos;
+
+    /**
+     * Adia o reprocessamento de uma mensagem bloqueada pelo limite de envio do SES,
+     * estendendo sua visibilidade em vez de tratá-la como falha.
+     */
+    public void adiarPorLimiteEnvio(String receiptHandle) {
+        alterarVisibilidade(receiptHandle, adiamentoLimiteSegundos);
+    }
+
+    /**
+     * Adia a próxima tentativa de uma mensagem com falha pelo atraso exponencial com jitter.
+     */
+    public void adiarNovaTentativa(SQSEvent.SQSMessage message) {
+        int segundos = atrasoNovaTentativa(recebimentos(message));
+        alterarVisibilidade(message.getReceiptHandle(), segundos);
+        log.info("Nova tentativa da mensagem {} em {}s", message.getMessageId(), segundos);
+    }
+
+    /**
+     * Atraso (segundos) antes da próxima tentativa após o recebimento de número {@code recebimentos}.
+     */
+    int atrasoNovaTentativa(int recebimentos) {
+        long atraso = Math.min(reprocessamentoMaximoSegundos,
+                (long) reprocessamentoBaseSegundos << Math.min(Math.max(recebimentos, 1) - 1, 20));
+        long metade = atraso / 2;
+        return (int) (atraso - metade + ThreadLocalRandom.current().nextLong(metade + 1));
+    }
+
+    /**
+     * Envia uma mensagem que nunca poderá ser processada (falha permanente) para a DLQ, com o motivo
+     * no atributo {@code motivoFalha}. Após o envio, a mensagem pode ser removida da fila.
+     *
+     * @return false se a DLQ não estiver configurada ou o envio falhar (a mensagem segue o
+     *         reprocessamento normal até a redrive policy da fila)
+     */
+    public boolean enviarParaDlq(SQSEvent.SQSMessage message, String motivo) {
+        if (dlqUrl == null || dlqUrl.isBlank()) {
+            return false;
+        }
+        try {
+            Map<String, MessageAttributeValue> atributos = new HashMap<>();
+            if (message.getMessageAttributes() != null) {
+                message.getMessageAttributes().forEach((nome, atributo) -> {
+                    if (atributo.getStringValue() != null) {
+                        atributos.put(nome, MessageAttributeValue.builder()
+                                .dataType(atributo.getDataType())
+                                .stringValue(atributo.getStringValue())
+                                .build());
+                    }
+                });
+            }
+            atributos.put("motivoFalha", MessageAttributeValue.builder()
+                    .dataType("String")
+                    .stringValue(motivo)
+                    .build());
+            atributos.put("mensagemOriginalId", MessageAttributeValue.builder()
+                    .dataType("String")
+                    .stringValue(message.getMessageId())
+                    .build());
+            sqsClient.sendMessage(SendMessageRequest.builder()
+                    .queueUrl(dlqUrl)
+                    .messageBody(message.getBody() == null || message.getBody().isEmpty() ? "(vazio)" : message.getBody())
+                    .messageAttributes(atributos)
+                    .build());
+            log.warn("Mensagem {} enviada para a DLQ: {}", message.getMessageId(), motivo);
+            metricsService.registrarMensagemEnviadaFila("dlq_notificacao");
+            return true;
+        } catch (Exception e) {
+            log.error("Erro ao enviar mensagem {} para a DLQ", message.getMessageId(), e);
+            metricsService.registrarErro("envio_dlq_notificacao");
+            return false;
+        }
+    }
+
+    /**
+     * Número de recebimentos da mensagem ({@code ApproximateReceiveCount}); 1 se ausente ou inválido.
+     */
+    public static int recebimentos(SQSEvent.SQSMessage message) {
+        String recebimentos = message.getAttributes() == null ? null
+                : message.getAttributes().get("ApproximateReceiveCount");
+        try {
+            return recebimentos == null ? 1 : Integer.parseInt(recebimentos);
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+    }
+
+    private void alterarVisibilidade(String receiptHandle, int segundos) {
+        try {
+            sqsClient.changeMessageVisibility(ChangeMessageVisibilityRequest.builder()
+                    .queueUrl(notificacaoQueueUrl)
+                    .receiptHandle(receiptHandle)
+                    .visibilityTimeout(segundos)
+                    .build());
+            log.debug("Visibilidade da mensagem alterada para {}s", segundos);
+        } catch (Exception e) {
+            // Sem a alteração, a mensagem volta após o timeout de visibilidade padrão da fila
+            log.error("Erro ao alterar visibilidade da mensagem na fila SQS", e);
+            metricsService.registrarErro("visibilidade_fila_notificacao");
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package lambda.fase4.service;
+
+import jakarta.annotation.PreDestroy;
+import lambda.fase4.model.Avaliacao;
+import lambda.fase4.repository.AvaliacaoRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Gravação agrupada (group commit) de avaliações para o modo Spring Boot.
+ *
+ * Com uma transação por requisição, cada avaliação paga um commit (e o fsync do WAL) no
+ * PostgreSQL. Neste modo, as requisições (em threads virtuais, que esperam sem ocupar uma thread
+ * da plataforma) entregam a avaliação a um único gravador, que grava até
+ * {@code avaliacao.gravacao-agrupada.tamanho-lote} avaliações por transação, esperando no máximo
+ * {@code avaliacao.gravacao-agrupada.espera-maxima-ms} para completar o lote, e conclui o futuro
+ * de cada requisição após o commit.
+ *
+ * Se o lote falhar, cada avaliação é regravada em transação própria, para que uma avaliação
+ * inválida não derrube as demais do lote.
+ */
+@Service
+@Slf4j
+public class GravacaoAgrupadaService {
+
+    private final AvaliacaoRepository avaliacaoRepository;
+    private final MedicaoLatenciaService medicaoLatencia;
+    private final TransactionTemplate transacao;
+    private final BlockingQueue<Pedido> pedidos = new LinkedBlockingQueue<>();
+
+    @Value("${avaliacao.gravacao-agrupada.habilitada:false}")
+    private boolean habilitada;
+
+    @Value("${avaliacao.gravacao-agrupada.tamanho-lote:100}")
+    private int tamanhoLote;
+
+    @Value("${avaliacao.gravacao-agrupada.espera-maxima-ms:5}")
+    private long esperaMaximaMs;
+
+    private Thread gravador;
+    private volatile boolean encerrado;
+
+    public GravacaoAgrupadaService(AvaliacaoRepository avaliacaoRepository,
+                                   MedicaoLatenciaService medicaoLatencia,
+                                   PlatformTransactionManager transactionManager) {
+        this.avaliacaoRepository = avaliacaoRepository;
+        this.medicaoLatencia = medicaoLatencia;
+        this.transacao = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Indica se o modo de gravação agrupada está habilitado.
+     */
+    public boolean isHabilitada() {
+        return habilitada;
+    }
+
+    /**
+     * Enfileira a avaliação para o próximo lote. {@code aposGravar} é executado no gravador,
+     * dentro da transação do lote, depois que as avaliações do lote são enviadas ao banco.
+     *
+     * @return futuro concluído com a avaliação gravada (com id) após o commit
+     * @throws IllegalStateException se o gravador estiver encerrado
+     */
+    public CompletableFuture<Avaliacao> gravar(Avaliacao avaliacao, Consumer<Avaliacao> aposGravar) {
+        if (encerrado) {
+            throw new IllegalStateException("Gravação agrupada encerrada");
+        }
+        iniciarGravador();
+        Pedido pedido = new Pedido(avaliacao, aposGravar, new CompletableFuture<>());
+        pedidos.add(pedido);
+        return pedido.resultado();
+    }
+
+    private synchronized void iniciarGravador() {
+        if (gravador == null) {
+            gravador = Thread.ofPlatform().name("gravacao-agrupada").daemon().start(this::executarGravador);
+            log.info("Gravação agrupada iniciada: até {} avaliações ou {} ms por transação", tamanhoLote, esperaMaximaMs);
+        }
+    }
+
+    private void executarGravador() {
+        List<Pedido> lote = new ArrayList<>(tamanhoLote);
+        while (!encerrado || !pedidos.isEmpty()) {
+            try {
+                Pedido primeiro = pedidos.poll(100, TimeUnit.MILLISECONDS);
+                if (primeiro == null) {
+                    continue;
+                }
+                lote.add(primeiro);
+                long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(esperaMaximaMs);
+                while (lote.size() < tamanhoLote) {
+                    // Pedidos já enfileirados entram sem espera; depois, espera até o limite do lote
+                    if (pedidos.drainTo(lote, tamanhoLote - lote.size()) > 0) {
+                        continue;
+                    }
+                    long restante = limite - System.nanoTime();
+                    Pedido proximo = restante > 0 ? pedidos.poll(restante, TimeUnit.NANOSECONDS) : null;
+                    if (proximo == null) {
+                        break;
+                    }
+                    lote.add(proximo);
+                }
+                gravarLote(lote);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                log.error("Erro inesperado no gravador agrupado", e);
+                lote.forEach(pedido -> pedido.resultado().completeExceptionally(e));
+            } finally {
+                lote.clear();
+            }
+        }
+    }
+
+    private void gravarLote(List<Pedido> lote) {
+        try {
+            List<Avaliacao> gravadas = medicaoLatencia.medir("repositorio.lote", () -> transacao.execute(status -> {
+                List<Avaliacao> salvas = new ArrayList<>(lote.size());
+                for (Pedido pedido : lote) {
+                    salvas.add(avaliacaoRepository.save(pedido.avaliacao()));
+                }
+                // INSERTs em lote JDBC antes dos callbacks: uma falha de gravação não deixa efeitos em memória
+                avaliacaoRepository.flush();
+                for (int i = 0; i < lote.size(); i++) {
+                    lote.get(i).aposGravar().accept(salvas.get(i));
+                }
+                return salvas;
+            }));
+            log.debug("Lote de {} avaliações gravado", lote.size());
+            for (int i = 0; i < lote.size(); i++) {
+                lote.get(i).resultado().complete(gravadas.get(i));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Falha ao gravar lote de {} avaliações; gravando individualmente", lote.size(), e);
+            lote.forEach(this::gravarIndividual);
+        }
+    }
+
+    private void gravarIndividual(Pedido pedido) {
+        try {
+            // O save do lote desfeito já atribuiu id: a regravação usa uma cópia sem id
+            Avaliacao avaliacao = pedido.avaliacao();
+            Avaliacao nova = new Avaliacao(null, avaliacao.getDescricao(), avaliacao.getNota(), avaliacao.getDataEnvio(),
+                    avaliacao.getUrgencia(), avaliacao.isNotificacaoEnviada(), avaliacao.getNotificacaoReservadaEm(),
+                    avaliacao.isNotificacaoSnsEnviada());
+            pedido.resultado().complete(transacao.execute(status -> {
+                Avaliacao salva = avaliacaoRepository.save(nova);
+                pedido.aposGravar().accept(salva);
+                return salva;
+            }));
+        } catch (RuntimeException e) {
+            pedido.resultado().completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Grava os pedidos já enfileirados e encerra o gravador.
+     */
+    @PreDestroy
+    public void encerrar() throws InterruptedException {
+        encerrado = true;
+        Thread atual;
+        synchronized (this) {
+            atual = gravador;
+        }
+        if (atual != null) {
+            atual.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    private record Pedido(Avaliacao avaliacao, Consumer<Avaliacao> aposGravar, CompletableFuture<Avaliacao> resultado) {
+    }
+}
@@ -0,0 +1,90 @@
+package lambda.fase4.service;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Buffer circular de baldes de tempo com contadores listrados (LongAdder), sem locks.
+ *
+ * Cada balde acumula as avaliações de um intervalo de {@code granularidadeMinutos}.
+ * Quando o tempo avança uma volta completa, o balde antigo é substituído por um novo (CAS).
+ */
+class JanelaDeslizante {
+
+    private final int granularidadeMinutos;
+    private final AtomicReferenceArray<Balde> baldes;
+
+    JanelaDeslizante(int quantidadeBaldes, int granularidadeMinutos) {
+        this.granularidadeMinutos = granularidadeMinutos;
+        this.baldes = new AtomicReferenceArray<>(quantidadeBaldes);
+    }
+
+    /**
+     * Soma valores ao balde do minuto informado.
+     */
+    void registrar(long minutoEpoch, long total, long somaNotas, long criticas) {
+        Balde balde = balde(minutoEpoch / granularidadeMinutos);
+        balde.total.add(total);
+        balde.somaNotas.add(somaNotas);
+        balde.criticas.add(criticas);
+    }
+
+    /**
+     * Soma os baldes da janela que termina no minuto atual (inclui o balde corrente, parcial).
+     */
+    Soma somar(long minutoAtual, int janelaMinutos) {
+        long indiceAtual = minutoAtual / granularidadeMinutos;
+        int quantidade = Math.min(janelaMinutos / granularidadeMinutos, baldes.length());
+
+        long total = 0;
+        long somaNotas = 0;
+        long criticas = 0;
+        for (int i = 0; i < quantidade; i++) {
+            long indice = indiceAtual - i;
+            Balde balde = baldes.get(posicao(indice));
+            if (balde != null && balde.indice == indice) {
+                total += balde.total.sum();
+                somaNotas += balde.somaNotas.sum();
+                criticas += balde.criticas.sum();
+            }
+        }
+        return new Soma(total, somaNotas, criticas);
+    }
+
+    private Balde balde(long indice) {
+        int posicao = posicao(indice);
+        while (true) {
+            Balde atual = baldes.get(posicao);
+            if (atual != null && atual.indice == indice) {
+                return atual;
+            }
+            if (atual != null && atual.indice > indice) {
+                // Registro atrasado de um intervalo que já saiu do buffer
+                return new Balde(indice);
+            }
+            Balde novo = new Balde(indice);
+            if (baldes.compareAndSet(posicao, atual, novo)) {
+                return novo;
+            }
+        }
+    }
+
+    private int posicao(long indice) {
+        return (int) Math.floorMod(indice, (long) baldes.length());
+    }
+
+    record Soma(long total, long somaNotas, long criticas) {
+    }
+
+    private static final class Balde {
+
+        private final long indice;
+        private final LongAdder total = new LongAdder();
+        private final LongAdder somaNotas = new LongAdder();
+        private final LongAdder criticas = new LongAdder();
+
+        private Balde(long indice) {
+            this.indice = indice;
+        }
+    }
+}
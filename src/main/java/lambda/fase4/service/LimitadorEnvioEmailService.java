@@ -0,0 +1,145 @@
+package lambda.fase4.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.services.ses.SesClient;
+import software.amazon.awssdk.services.ses.model.GetSendQuotaResponse;
+import software.amazon.awssdk.services.ses.model.SesException;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limitador de taxa (token bucket) compartilhado pelos envios de e-mail via SES.
+ *
+ * A conta SES possui um limite rígido de mensagens por segundo (cada destinatário conta
+ * como uma mensagem). A taxa é obtida da cota da conta (GetSendQuota) no primeiro uso;
+ * se a consulta falhar, usa o valor configurado em {@code aws.ses.limite.taxa-padrao}.
+ */
+@Service
+@Slf4j
+public class LimitadorEnvioEmailService {
+
+    private static final String ERRO_THROTTLING = "Throttling";
+
+    private final SesClient sesClient;
+    private final CloudWatchMetricsService metricsService;
+    private final double taxaPadrao;
+    private final double fracaoCota;
+
+    private double taxaPorSegundo;
+    private double capacidade;
+    private double tokens;
+    private long ultimaRecarga;
+    private volatile boolean configurado;
+
+    public LimitadorEnvioEmailService(
+            SesClient sesClient,
+            CloudWatchMetricsService metricsService,
+            @Value("${aws.ses.limite.taxa-padrao:1.0}") double taxaPadrao,
+            @Value("${aws.ses.limite.fracao-cota:1.0}") double fracaoCota) {
+        this.sesClient = sesClient;
+        this.metricsService = metricsService;
+        this.taxaPadrao = taxaPadrao;
+        this.fracaoCota = fracaoCota;
+    }
+
+    /**
+     * Obtém {@code permissoes} tokens, aguardando no máximo {@code esperaMaxima}.
+     *
+     * @throws EnvioEmailLimitadoException se não houver tokens dentro do tempo de espera
+     */
+    public void adquirir(int permissoes, Duration esperaMaxima, String origem) {
+        long inicio = System.nanoTime();
+        long prazo = inicio + esperaMaxima.toNanos();
+        configurarSeNecessario();
+
+        while (true) {
+            long esperaNanos;
+            synchronized (this) {
+                recarregar();
+                double necessarios = Math.min(permissoes, capacidade);
+                if (tokens >= necessarios) {
+                    tokens -= necessarios;
+                    break;
+                }
+                esperaNanos = (long) ((necessarios - tokens) / taxaPorSegundo * TimeUnit.SECONDS.toNanos(1));
+            }
+
+            if (System.nanoTime() + esperaNanos > prazo) {
+                log.warn("Limite de envio SES atingido ({}): sem tokens em {} ms", origem, esperaMaxima.toMillis());
+                metricsService.registrarThrottlingSes(origem);
+                throw new EnvioEmailLimitadoException("Limite de envio SES atingido");
+            }
+            try {
+                TimeUnit.NANOSECONDS.sleep(esperaNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new EnvioEmailLimitadoException("Espera por limite de envio SES interrompida", e);
+            }
+        }
+
+        long esperaMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+        if (esperaMillis > 0) {
+            metricsService.registrarEsperaLimiteSes(origem, esperaMillis);
+        }
+    }
+
+    /**
+     * Verifica se a exceção do SES é de throttling. Nesse caso esvazia o bucket (os demais
+     * envios deste container também aguardam) e lança {@link EnvioEmailLimitadoException}.
+     */
+    public void verificarThrottling(SesException e, String origem) {
+        if (e.awsErrorDetails() == null || !ERRO_THROTTLING.equals(e.awsErrorDetails().errorCode())) {
+            return;
+        }
+        synchronized (this) {
+            tokens = 0;
+            ultimaRecarga = System.nanoTime();
+        }
+        log.warn("Throttling retornado pelo SES ({}): {}", origem, e.getMessage());
+        metricsService.registrarThrottlingSes(origem);
+        throw new EnvioEmailLimitadoException("Throttling retornado pelo SES", e);
+    }
+
+    /**
+     * Consulta a cota fora do lock (as demais threads não esperam a chamada ao SES); envios
+     * simultâneos no primeiro uso podem consultá-la mais de uma vez, e só o primeiro a configura.
+     */
+    private void configurarSeNecessario() {
+        if (configurado) {
+            return;
+        }
+        double taxa = taxaPadrao;
+        try {
+            GetSendQuotaResponse cota = sesClient.getSendQuota();
+            if (cota.maxSendRate() != null && cota.maxSendRate() > 0) {
+                taxa = cota.maxSendRate();
+            }
+        } catch (Exception e) {
+            log.warn("Não foi possível obter a cota do SES, usando taxa padrão de {}/s", taxaPadrao, e);
+        }
+        synchronized (this) {
+            if (!configurado) {
+                configurar(taxa);
+            }
+        }
+    }
+
+    private void configurar(double taxa) {
+        taxaPorSegundo = Math.max(taxa * fracaoCota, 0.1);
+        capacidade = Math.max(taxaPorSegundo, 1.0);
+        tokens = capacidade;
+        ultimaRecarga = System.nanoTime();
+        configurado = true;
+        log.info("Limitador SES configurado: {} mensagens/s", taxaPorSegundo);
+    }
+
+    private void recarregar() {
+        long agora = System.nanoTime();
+        double decorrido = (agora - ultimaRecarga) / (double) TimeUnit.SECONDS.toNanos(1);
+        tokens = Math.min(capacidade, tokens + decorrido * taxaPorSegundo);
+        ultimaRecarga = agora;
+    }
+}
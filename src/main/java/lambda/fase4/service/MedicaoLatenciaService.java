@@ -0,0 +1,208 @@
+package lambda.fase4.service;
+
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+import com.google.gson.Gson;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Serviço responsável por medir a latência de cada fase do processamento.
+ *
+ * Cada fase é um Timer Micrometer ({@value #METRICA}, tag "fase") com percentis
+ * calculados por histograma HdrHistogram, expostos no endpoint /actuator/metrics.
+ * Nas Lambdas, as medições de cada invocação também são agregadas e emitidas em uma
+ * única linha de log no formato EMF (Embedded Metric Format) do CloudWatch.
+ */
+@Service
+@Slf4j
+public class MedicaoLatenciaService {
+
+    static final String METRICA = "feedback.fase.latencia";
+    static final String METRICA_ALERTA = "feedback.alerta.latencia";
+    private static final Duration SLO_ALERTA = Duration.ofSeconds(60);
+    private static final String NAMESPACE = "FeedbackSystem";
+    private static final int MAXIMO_VALORES_EMF = 100;
+
+    private final MeterRegistry registry;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Timer latenciaAlerta;
+    private final ThreadLocal<Invocacao> invocacaoAtual = new ThreadLocal<>();
+    private final Gson gson = new Gson();
+
+    /**
+     * Usa o MeterRegistry do actuator quando existir (servidor); nas Lambdas, um registro em memória.
+     */
+    @Autowired
+    public MedicaoLatenciaService(ObjectProvider<MeterRegistry> registryProvider) {
+        this(registryProvider.getIfAvailable(SimpleMeterRegistry::new));
+    }
+
+    public MedicaoLatenciaService(MeterRegistry registry) {
+        this.registry = registry;
+        this.latenciaAlerta = Timer.builder(METRICA_ALERTA)
+                .description("Latência ponta a ponta do alerta crítico: recebimento da avaliação até SNS/SES concluídos")
+                .publishPercentiles(0.5, 0.9, 0.99)
+                .percentilePrecision(2)
+                .serviceLevelObjectives(SLO_ALERTA)
+                .distributionStatisticExpiry(Duration.ofMinutes(2))
+                .register(registry);
+    }
+
+    /**
+     * Executa e mede uma fase que retorna valor.
+     */
+    public <T> T medir(String fase, Supplier<T> execucao) {
+        long inicio = System.nanoTime();
+        try {
+            return execucao.get();
+        } finally {
+            registrar(fase, System.nanoTime() - inicio);
+        }
+    }
+
+    /**
+     * Executa e mede uma fase sem retorno.
+     */
+    public void medir(String fase, Runnable execucao) {
+        long inicio = System.nanoTime();
+        try {
+            execucao.run();
+        } finally {
+            registrar(fase, System.nanoTime() - inicio);
+        }
+    }
+
+    /**
+     * Registra a duração de uma fase medida externamente.
+     */
+    public void registrar(String fase, long duracaoNanos) {
+        timers.computeIfAbsent(fase, this::criarTimer).record(duracaoNanos, TimeUnit.NANOSECONDS);
+
+        Invocacao invocacao = invocacaoAtual.get();
+        if (invocacao != null) {
+            invocacao.registrar(fase, duracaoNanos);
+        }
+    }
+
+    /**
+     * Registra a latência ponta a ponta de um alerta crítico (SLO: administradores alertados em até 60s).
+     */
+    public void registrarLatenciaAlerta(Duration latencia) {
+        latenciaAlerta.record(latencia);
+
+        Invocacao invocacao = invocacaoAtual.get();
+        if (invocacao != null) {
+            invocacao.registrar("alerta.ponta_a_ponta", latencia.toNanos());
+        }
+        if (latencia.compareTo(SLO_ALERTA) > 0) {
+            log.warn("Alerta crítico entregue fora do SLO: {} ms", latencia.toMillis());
+        }
+    }
+
+    /**
+     * Conta um evento na invocação Lambda corrente (ex.: transição de disjuntor), emitido no
+     * documento EMF da invocação com unidade Count.
+     */
+    public void contarEvento(String evento) {
+        Invocacao invocacao = invocacaoAtual.get();
+        if (invocacao != null) {
+            invocacao.eventos.merge(evento, 1, Integer::sum);
+        }
+    }
+
+    /**
+     * Registro Micrometer das medições, para contadores e gauges de outros serviços.
+     */
+    MeterRegistry registry() {
+        return registry;
+    }
+
+    /**
+     * Inicia a agregação das medições da invocação Lambda corrente (thread atual).
+     */
+    public void iniciarInvocacao(String funcao) {
+        invocacaoAtual.set(new Invocacao(funcao));
+    }
+
+    /**
+     * Encerra a invocação corrente e emite suas medições em formato EMF pelo logger da Lambda.
+     */
+    public void finalizarInvocacao(LambdaLogger logger) {
+        Invocacao invocacao = invocacaoAtual.get();
+        invocacaoAtual.remove();
+        if (invocacao == null || invocacao.fases.isEmpty() && invocacao.eventos.isEmpty()) {
+            return;
+        }
+        try {
+            logger.log(gson.toJson(invocacao.emf()));
+        } catch (Exception e) {
+            log.error("Erro ao emitir métricas de latência da invocação", e);
+        }
+    }
+
+    private Timer criarTimer(String fase) {
+        return Timer.builder(METRICA)
+                .description("Latência por fase do processamento de avaliações")
+                .tag("fase", fase)
+                .publishPercentiles(0.5, 0.9, 0.99)
+                .percentilePrecision(2)
+                .distributionStatisticExpiry(Duration.ofMinutes(2))
+                .register(registry);
+    }
+
+    /**
+     * Medições de uma invocação, agrupadas por fase, e contagens de eventos.
+     */
+    private static final class Invocacao {
+
+        private final String funcao;
+        private final Map<String, List<Double>> fases = new LinkedHashMap<>();
+        private final Map<String, Integer> eventos = new LinkedHashMap<>();
+
+        private Invocacao(String funcao) {
+            this.funcao = funcao;
+        }
+
+        private void registrar(String fase, long duracaoNanos) {
+            List<Double> valores = fases.computeIfAbsent(fase, f -> new ArrayList<>());
+            // O EMF aceita até 100 valores por métrica; acima disso o restante é descartado
+            if (valores.size() < MAXIMO_VALORES_EMF) {
+                valores.add(duracaoNanos / 1_000_000.0);
+            }
+        }
+
+        private Map<String, Object> emf() {
+            List<Map<String, String>> metricas = new ArrayList<>();
+            fases.keySet().forEach(fase -> metricas.add(Map.of("Name", fase, "Unit", "Milliseconds")));
+            eventos.keySet().forEach(evento -> metricas.add(Map.of("Name", evento, "Unit", "Count")));
+
+            Map<String, Object> diretiva = new LinkedHashMap<>();
+            diretiva.put("Namespace", NAMESPACE);
+            diretiva.put("Dimensions", List.of(List.of("Funcao")));
+            diretiva.put("Metrics", metricas);
+
+            Map<String, Object> documento = new LinkedHashMap<>();
+            documento.put("_aws", Map.of(
+                    "Timestamp", System.currentTimeMillis(),
+                    "CloudWatchMetrics", List.of(diretiva)));
+            documento.put("Funcao", funcao);
+            documento.putAll(fases);
+            documento.putAll(eventos);
+            return documento;
+        }
+    }
+}
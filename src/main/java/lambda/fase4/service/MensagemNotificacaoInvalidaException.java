@@ -0,0 +1,19 @@
+package lambda.fase4.service;
+
+/**
+ * Indica que uma mensagem da fila de notificações nunca poderá ser processada
+ * (JSON inválido, campos obrigatórios ausentes ou avaliação inexistente).
+ *
+ * É uma falha permanente: o consumidor deve enviar a mensagem direto para a DLQ,
+ * sem gastar as tentativas de reprocessamento.
+ */
+public class MensagemNotificacaoInvalidaException extends RuntimeException {
+
+    public MensagemNotificacaoInvalidaException(String message) {
+        super(message);
+    }
+
+    public MensagemNotificacaoInvalidaException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
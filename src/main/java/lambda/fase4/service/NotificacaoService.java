@@ -1,5 +1,6 @@
 package lambda.fase4.service;
 
+import io.opentelemetry.api.trace.SpanKind;
 import lambda.fase4.dto.NotificacaoUrgenciaDTO;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -10,6 +11,8 @@ import software.amazon.awssdk.services.ses.model.*;
 import software.amazon.awssdk.services.sns.SnsClient;
 import software.amazon.awssdk.services.sns.model.PublishRequest;
 
+import java.time.Duration;
+
 /**
  * Serviço responsável pelo envio de notificações.
  * Utiliza SNS para notificações simples e SES para e-mails formatados.
@@ -22,6 +25,11 @@ public class NotificacaoService {
     private final SnsClient snsClient;
     private final SesClient sesClient;
     private final CloudWatchMetricsService metricsService;
+    private final LimitadorEnvioEmailService limitadorEnvioEmail;
+    private final MedicaoLatenciaService medicaoLatencia;
+    private final RastreamentoService rastreamento;
+    private final ProtecaoDependenciasService protecao;
+    private final DeduplicacaoNotificacaoService deduplicacao;
 
     @Value("${aws.sns.topic.urgencia.arn}")
     private String snsTopicArn;
@@ -32,21 +40,45 @@ public class NotificacaoService {
     @Value("${aws.ses.admin.emails}")
     private String adminEmails;
 
+    @Value("${aws.ses.limite.espera-notificacao-ms:2000}")
+    private long esperaMaximaLimiteMs;
+
     /**
      * Envia notificação de urgência para administradores.
      * Utiliza SNS para notificação instantânea e SES para e-mail detalhado.
+     * A publicação no SNS é registrada antes do e-mail: se o SES falhar (inclusive por throttling),
+     * a nova tentativa envia só o e-mail.
+     *
+     * @param snsEnviado SNS já publicado por uma tentativa anterior (não é repetido)
+     * @throws EnvioEmailLimitadoException se o limite de envio do SES foi atingido
      */
-    public void enviarNotificacaoUrgencia(NotificacaoUrgenciaDTO notificacao) {
+    public void enviarNotificacaoUrgencia(NotificacaoUrgenciaDTO notificacao, boolean snsEnviado) {
         log.info("Enviando notificação de urgência para avaliação: {}", notificacao.getAvaliacaoId());
 
+        // Reserva a taxa do SES antes de qualquer envio: sem tokens, a mensagem é adiada sem publicar no SNS
+        limitadorEnvioEmail.adquirir(adminEmails.split(",").length,
+                Duration.ofMillis(esperaMaximaLimiteMs), "notificacao");
+
         try {
             // Envia via SNS (notificação push)
-            enviarViaSns(notificacao);
+            if (snsEnviado) {
+                log.info("SNS já publicado em tentativa anterior, enviando só o e-mail: {}", notificacao.getAvaliacaoId());
+            } else {
+                enviarViaSns(notificacao);
+                deduplicacao.registrarSnsEnviado(notificacao.getAvaliacaoId());
+            }
 
             // Envia via SES (e-mail)
             enviarViaEmail(notificacao);
 
             metricsService.registrarNotificacaoEnviada("urgencia");
+        } catch (EnvioEmailLimitadoException e) {
+            throw e;
+        } catch (DependenciaIndisponivelException e) {
+            // Falha rápida (disjuntor aberto, concorrência ou prazo): a mensagem volta para a fila
+            log.warn("Notificação de urgência não enviada: {}", e.getMessage());
+            metricsService.registrarErro("notificacao_urgencia");
+            throw e;
         } catch (Exception e) {
             log.error("Erro ao enviar notificação de urgência", e);
             metricsService.registrarErro("notificacao_urgencia");
@@ -67,8 +99,13 @@ public class NotificacaoService {
                     .message(message)
                     .build();
 
-            snsClient.publish(publishRequest);
+            rastreamento.executarEmSpan("sns.publicacao", SpanKind.CLIENT,
+                    () -> medicaoLatencia.medir("sns.publicacao", () -> protecao.executar(
+                            ProtecaoDependenciasService.Dependencia.SNS, configuracao -> snsClient.publish(
+                                    publishRequest.toBuilder().overrideConfiguration(configuracao).build()))));
             log.info("Notificação SNS enviada com sucesso");
+        } catch (DependenciaIndisponivelException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Erro ao enviar via SNS", e);
             throw e;
@@ -99,8 +136,17 @@ public class NotificacaoService {
                     .source(fromEmail)
                     .build();
 
-            sesClient.sendEmail(emailRequest);
+            rastreamento.executarEmSpan("ses.envio", SpanKind.CLIENT,
+                    () -> medicaoLatencia.medir("ses.envio", () -> protecao.executar(
+                            ProtecaoDependenciasService.Dependencia.SES, configuracao -> sesClient.sendEmail(
+                                    emailRequest.toBuilder().overrideConfiguration(configuracao).build()))));
             log.info("E-mail SES enviado com sucesso para: {}", adminEmails);
+        } catch (SesException e) {
+            log.error("Erro ao enviar via SES", e);
+            limitadorEnvioEmail.verificarThrottling(e, "notificacao");
+            throw e;
+        } catch (DependenciaIndisponivelException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Erro ao enviar via SES", e);
             throw e;
@@ -110,7 +156,7 @@ public class NotificacaoService {
     /**
      * Formata mensagem para SNS.
      */
-    private String formatarMensagemSns(NotificacaoUrgenciaDTO notificacao) {
+    String formatarMensagemSns(NotificacaoUrgenciaDTO notificacao) {
         return String.format("""
                 ⚠️ AVALIAÇÃO CRÍTICA RECEBIDA
                 
@@ -135,7 +181,7 @@ public class NotificacaoService {
     /**
      * Formata e-mail em HTML.
      */
-    private String formatarEmailHtml(NotificacaoUrgenciaDTO notificacao) {
+    String formatarEmailHtml(NotificacaoUrgenciaDTO notificacao) {
         return String.format("""
                 <!DOCTYPE html>
                 <html>
@@ -202,7 +248,7 @@ public class NotificacaoService {
     /**
      * Formata e-mail em texto simples.
      */
-    private String formatarEmailTexto(NotificacaoUrgenciaDTO notificacao) {
+    String formatarEmailTexto(NotificacaoUrgenciaDTO notificacao) {
         return String.format("""
                 ========================================
                 ALERTA DE AVALIAÇÃO CRÍTICA
@@ -0,0 +1,18 @@
+package lambda.fase4.service;
+
+/**
+ * Indica um parâmetro de consulta inválido informado pelo cliente: cursor de paginação corrompido
+ * ou adulterado, termo de busca vazio ou longo demais, período de exportação inválido.
+ *
+ * A mensagem é escrita para o cliente: o controller a devolve em uma resposta 400.
+ */
+public class ParametroConsultaInvalidoException extends RuntimeException {
+
+    public ParametroConsultaInvalidoException(String message) {
+        super(message);
+    }
+
+    public ParametroConsultaInvalidoException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,328 @@
+package lambda.fase4.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.awscore.AwsRequestOverrideConfiguration;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.exception.SdkClientException;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Disjuntores (circuit breakers), limites de concorrência (bulkheads) e prazo da invocação
+ * para as chamadas aos serviços AWS (SQS, SNS, SES, CloudWatch).
+ *
+ * Cada dependência tem:
+ * <ul>
+ *   <li>um disjuntor: com pelo menos {@code protecao.disjuntor.minimo-chamadas} entre as últimas
+ *       {@code protecao.disjuntor.janela} chamadas e taxa de falhas acima de
+ *       {@code protecao.disjuntor.taxa-falhas}, abre e recusa as chamadas por
+ *       {@code protecao.disjuntor.espera-aberto-segundos}; depois deixa passar
+ *       {@code protecao.disjuntor.chamadas-teste} chamadas, que fecham (todas com sucesso) ou
+ *       reabrem (alguma falha) o disjuntor;</li>
+ *   <li>um limite de chamadas simultâneas ({@code protecao.<dependência>.concorrencia-maxima}),
+ *       para que uma dependência lenta não ocupe todas as threads;</li>
+ *   <li>um timeout por chamada ({@code protecao.<dependência>.timeout-ms}), reduzido ao tempo
+ *       restante da invocação Lambda menos {@code protecao.prazo.margem-ms}.</li>
+ * </ul>
+ * Só falhas da dependência (rede, timeout, 5xx) contam para o disjuntor; erros do pedido (4xx,
+ * throttling) não. Chamadas recusadas lançam {@link DependenciaIndisponivelException} sem esperar.
+ *
+ * As transições de estado são registradas em log, no Micrometer ({@value #METRICA_ESTADO},
+ * {@value #METRICA_TRANSICOES}, {@value #METRICA_RECUSADAS}) e no EMF da invocação Lambda.
+ */
+@Service
+@Slf4j
+public class ProtecaoDependenciasService {
+
+    static final String METRICA_ESTADO = "feedback.dependencia.disjuntor.estado";
+    static final String METRICA_TRANSICOES = "feedback.dependencia.disjuntor.transicoes";
+    static final String METRICA_RECUSADAS = "feedback.dependencia.recusadas";
+    private static final long PRAZO_MINIMO_MS = 50;
+
+    public enum Dependencia {
+        SQS(3000, 50),
+        SNS(5000, 50),
+        SES(10000, 20),
+        CLOUDWATCH(1000, 20);
+
+        private final long timeoutPadraoMs;
+        private final int concorrenciaPadrao;
+
+        Dependencia(long timeoutPadraoMs, int concorrenciaPadrao) {
+            this.timeoutPadraoMs = timeoutPadraoMs;
+            this.concorrenciaPadrao = concorrenciaPadrao;
+        }
+
+        String nome() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    public enum Estado {
+        FECHADO, MEIO_ABERTO, ABERTO
+    }
+
+    private final MedicaoLatenciaService medicaoLatencia;
+    private final Map<Dependencia, Protecao> protecoes = new EnumMap<>(Dependencia.class);
+    private final ThreadLocal<Long> prazoAtual = new ThreadLocal<>();
+
+    @Value("${protecao.prazo.margem-ms:500}")
+    private long margemPrazoMs;
+
+    @Value("${protecao.concorrencia.espera-ms:100}")
+    private long esperaConcorrenciaMs;
+
+    public ProtecaoDependenciasService(MedicaoLatenciaService medicaoLatencia, Environment environment) {
+        this.medicaoLatencia = medicaoLatencia;
+        int janela = environment.getProperty("protecao.disjuntor.janela", Integer.class, 20);
+        int minimoChamadas = environment.getProperty("protecao.disjuntor.minimo-chamadas", Integer.class, 10);
+        double taxaFalhas = environment.getProperty("protecao.disjuntor.taxa-falhas", Double.class, 0.5);
+        long esperaAbertoNanos = TimeUnit.SECONDS.toNanos(
+                environment.getProperty("protecao.disjuntor.espera-aberto-segundos", Long.class, 30L));
+        int chamadasTeste = environment.getProperty("protecao.disjuntor.chamadas-teste", Integer.class, 3);
+
+        for (Dependencia dependencia : Dependencia.values()) {
+            String prefixo = "protecao." + dependencia.nome() + ".";
+            Disjuntor disjuntor = new Disjuntor(janela, minimoChamadas, taxaFalhas, esperaAbertoNanos, chamadasTeste,
+                    estado -> registrarTransicao(dependencia, estado, esperaAbertoNanos));
+            protecoes.put(dependencia, new Protecao(
+                    Duration.ofMillis(environment.getProperty(prefixo + "timeout-ms", Long.class,
+                            dependencia.timeoutPadraoMs)),
+                    new Semaphore(environment.getProperty(prefixo + "concorrencia-maxima", Integer.class,
+                            dependencia.concorrenciaPadrao)),
+                    disjuntor));
+
+            Gauge.builder(METRICA_ESTADO, disjuntor, d -> d.estado().ordinal())
+                    .description("Estado do disjuntor: 0 fechado, 1 meio aberto, 2 aberto")
+                    .tag("dependencia", dependencia.nome())
+                    .register(medicaoLatencia.registry());
+        }
+    }
+
+    /**
+     * Define o prazo das chamadas da invocação corrente (thread atual), a partir do tempo restante
+     * da Lambda ({@code Context.getRemainingTimeInMillis()}).
+     */
+    public void iniciarPrazo(long restanteMillis) {
+        prazoAtual.set(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(restanteMillis - margemPrazoMs));
+    }
+
+    public void encerrarPrazo() {
+        prazoAtual.remove();
+    }
+
+    /**
+     * Executa a chamada à dependência com disjuntor, limite de concorrência e timeout.
+     * A chamada recebe a configuração com o timeout a aplicar na requisição do SDK
+     * ({@code request.toBuilder().overrideConfiguration(configuracao)}). Nos clientes com várias
+     * regiões, o timeout vale para a chamada inteira, inclusive o failover ({@code RoteadorRegional}).
+     *
+     * @throws DependenciaIndisponivelException se a chamada for recusada sem ser feita
+     */
+    public <T> T executar(Dependencia dependencia, Function<AwsRequestOverrideConfiguration, T> chamada) {
+        Protecao protecao = protecoes.get(dependencia);
+        Duration timeout = timeout(protecao);
+        if (timeout.toMillis() < PRAZO_MINIMO_MS) {
+            throw recusar(dependencia, "prazo");
+        }
+        if (!protecao.disjuntor.permitir(System.nanoTime())) {
+            throw recusar(dependencia, "disjuntor");
+        }
+        boolean adquirida;
+        try {
+            adquirida = protecao.concorrencia.tryAcquire(Math.min(esperaConcorrenciaMs, timeout.toMillis()),
+                    TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            adquirida = false;
+        }
+        if (!adquirida) {
+            protecao.disjuntor.cancelar();
+            throw recusar(dependencia, "concorrencia");
+        }
+
+        AwsRequestOverrideConfiguration configuracao = AwsRequestOverrideConfiguration.builder()
+                .apiCallTimeout(timeout)
+                .build();
+        try {
+            T resultado = chamada.apply(configuracao);
+            protecao.disjuntor.registrar(true, System.nanoTime());
+            return resultado;
+        } catch (RuntimeException e) {
+            protecao.disjuntor.registrar(!falhaDaDependencia(e), System.nanoTime());
+            throw e;
+        } finally {
+            protecao.concorrencia.release();
+        }
+    }
+
+    /**
+     * Estado atual do disjuntor da dependência.
+     */
+    public Estado estado(Dependencia dependencia) {
+        return protecoes.get(dependencia).disjuntor.estado();
+    }
+
+    private Duration timeout(Protecao protecao) {
+        Long prazo = prazoAtual.get();
+        if (prazo == null) {
+            return protecao.timeout;
+        }
+        long restanteNanos = prazo - System.nanoTime();
+        return restanteNanos < protecao.timeout.toNanos() ? Duration.ofNanos(Math.max(0, restanteNanos)) : protecao.timeout;
+    }
+
+    private void registrarTransicao(Dependencia dependencia, Estado estado, long esperaAbertoNanos) {
+        String nomeEstado = estado.name().toLowerCase(Locale.ROOT);
+        if (estado == Estado.ABERTO) {
+            log.warn("Disjuntor de {} aberto: chamadas recusadas por {} s", dependencia,
+                    TimeUnit.NANOSECONDS.toSeconds(esperaAbertoNanos));
+        } else {
+            log.info("Disjuntor de {}: {}", dependencia, nomeEstado);
+        }
+        Counter.builder(METRICA_TRANSICOES)
+                .description("Transições de estado dos disjuntores das dependências AWS")
+                .tag("dependencia", dependencia.nome())
+                .tag("estado", nomeEstado)
+                .register(medicaoLatencia.registry())
+                .increment();
+        medicaoLatencia.contarEvento("disjuntor." + dependencia.nome() + "." + nomeEstado);
+    }
+
+    private DependenciaIndisponivelException recusar(Dependencia dependencia, String motivo) {
+        Counter.builder(METRICA_RECUSADAS)
+                .description("Chamadas às dependências AWS recusadas sem serem feitas")
+                .tag("dependencia", dependencia.nome())
+                .tag("motivo", motivo)
+                .register(medicaoLatencia.registry())
+                .increment();
+        medicaoLatencia.contarEvento("recusadas." + dependencia.nome() + "." + motivo);
+        return new DependenciaIndisponivelException(dependencia, motivo);
+    }
+
+    /**
+     * Falhas que indicam problema da dependência (e não do pedido): rede, timeout e erros 5xx.
+     */
+    static boolean falhaDaDependencia(Throwable falha) {
+        if (falha instanceof AwsServiceException servico) {
+            return servico.statusCode() >= 500 && !servico.isThrottlingException();
+        }
+        return falha instanceof SdkClientException;
+    }
+
+    private record Protecao(Duration timeout, Semaphore concorrencia, Disjuntor disjuntor) {
+    }
+
+    /**
+     * Disjuntor por contagem: janela circular com o resultado das últimas chamadas.
+     * As transições de estado são informadas a {@code transicao}.
+     */
+    static final class Disjuntor {
+
+        private final boolean[] falhas;
+        private final int minimoChamadas;
+        private final double taxaFalhas;
+        private final long esperaAbertoNanos;
+        private final int chamadasTeste;
+        private final Consumer<Estado> transicao;
+
+        private Estado estado = Estado.FECHADO;
+        private int posicao;
+        private int chamadas;
+        private int falhasNaJanela;
+        private long abertoAte;
+        private int testesEmAndamento;
+        private int testesComSucesso;
+
+        Disjuntor(int janela, int minimoChamadas, double taxaFalhas, long esperaAbertoNanos, int chamadasTeste,
+                  Consumer<Estado> transicao) {
+            this.falhas = new boolean[janela];
+            this.minimoChamadas = minimoChamadas;
+            this.taxaFalhas = taxaFalhas;
+            this.esperaAbertoNanos = esperaAbertoNanos;
+            this.chamadasTeste = chamadasTeste;
+            this.transicao = transicao;
+        }
+
+        synchronized Estado estado() {
+            return estado;
+        }
+
+        /**
+         * Indica se a chamada pode ser feita; com a espera do disjuntor aberto vencida, passa a
+         * meio aberto e reserva uma das chamadas de teste.
+         */
+        synchronized boolean permitir(long agora) {
+            if (estado == Estado.ABERTO && agora - abertoAte >= 0) {
+                testesEmAndamento = 0;
+                testesComSucesso = 0;
+                mudar(Estado.MEIO_ABERTO);
+            }
+            if (estado == Estado.MEIO_ABERTO && testesEmAndamento < chamadasTeste) {
+                testesEmAndamento++;
+                return true;
+            }
+            return estado == Estado.FECHADO;
+        }
+
+        /**
+         * Devolve a reserva de uma chamada permitida que não chegou a ser feita.
+         */
+        synchronized void cancelar() {
+            if (estado == Estado.MEIO_ABERTO && testesEmAndamento > 0) {
+                testesEmAndamento--;
+            }
+        }
+
+        /**
+         * Registra o resultado de uma chamada. Resultados de chamadas iniciadas antes da abertura
+         * do disjuntor são ignorados.
+         */
+        synchronized void registrar(boolean sucesso, long agora) {
+            if (estado == Estado.FECHADO) {
+                if (chamadas == falhas.length) {
+                    falhasNaJanela -= falhas[posicao] ? 1 : 0;
+                } else {
+                    chamadas++;
+                }
+                falhas[posicao] = !sucesso;
+                falhasNaJanela += sucesso ? 0 : 1;
+                posicao = (posicao + 1) % falhas.length;
+                if (chamadas >= minimoChamadas && falhasNaJanela >= taxaFalhas * chamadas) {
+                    abrir(agora);
+                }
+            } else if (estado == Estado.MEIO_ABERTO) {
+                if (!sucesso) {
+                    abrir(agora);
+                } else if (++testesComSucesso >= chamadasTeste) {
+                    posicao = 0;
+                    chamadas = 0;
+                    falhasNaJanela = 0;
+                    mudar(Estado.FECHADO);
+                }
+            }
+        }
+
+        private void abrir(long agora) {
+            abertoAte = agora + esperaAbertoNanos;
+            mudar(Estado.ABERTO);
+        }
+
+        private void mudar(Estado novo) {
+            estado = novo;
+            transicao.accept(novo);
+        }
+    }
+}
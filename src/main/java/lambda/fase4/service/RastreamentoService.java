@@ -0,0 +1,180 @@
+package lambda.fase4.service;
+
+import com.amazonaws.services.lambda.runtime.events.SQSEvent;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.context.propagation.TextMapGetter;
+import io.opentelemetry.context.propagation.TextMapPropagator;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Serviço responsável pelo rastreamento distribuído (OpenTelemetry).
+ *
+ * O contexto do trace (W3C traceparent) e o instante de recebimento da avaliação viajam
+ * nos atributos da mensagem SQS, permitindo que a Lambda de notificação continue o mesmo
+ * trace: recebimento → fila → consumo → SNS/SES.
+ */
+@Service
+@Slf4j
+public class RastreamentoService {
+
+    public static final String ATRIBUTO_RECEBIDA_EM = "recebidaEm";
+
+    private static final TextMapGetter<Map<String, SQSEvent.MessageAttribute>> LEITOR_ATRIBUTOS =
+            new TextMapGetter<>() {
+                @Override
+                public Iterable<String> keys(Map<String, SQSEvent.MessageAttribute> atributos) {
+                    return atributos.keySet();
+                }
+
+                @Override
+                public String get(Map<String, SQSEvent.MessageAttribute> atributos, String chave) {
+                    if (atributos == null) {
+                        return null;
+                    }
+                    SQSEvent.MessageAttribute atributo = atributos.get(chave);
+                    return atributo != null ? atributo.getStringValue() : null;
+                }
+            };
+
+    private final OpenTelemetrySdk openTelemetry;
+    private final Tracer tracer;
+    private final TextMapPropagator propagador;
+
+    public RastreamentoService(OpenTelemetrySdk openTelemetry) {
+        this.openTelemetry = openTelemetry;
+        this.tracer = openTelemetry.getTracer("lambda.fase4");
+        this.propagador = openTelemetry.getPropagators().getTextMapPropagator();
+    }
+
+    /**
+     * Executa a operação dentro de um novo span, filho do contexto atual.
+     */
+    public <T> T executarEmSpan(String nome, SpanKind tipo, Supplier<T> execucao) {
+        return executarEmSpan(nome, tipo, Context.current(), execucao);
+    }
+
+    /**
+     * Executa a operação sem retorno dentro de um novo span, filho do contexto atual.
+     */
+    public void executarEmSpan(String nome, SpanKind tipo, Runnable execucao) {
+        executarEmSpan(nome, tipo, Context.current(), () -> {
+            execucao.run();
+            return null;
+        });
+    }
+
+    /**
+     * Executa a operação dentro de um novo span, filho do contexto informado (ex.: extraído da fila).
+     */
+    public <T> T executarEmSpan(String nome, SpanKind tipo, Context pai, Supplier<T> execucao) {
+        Span span = tracer.spanBuilder(nome).setSpanKind(tipo).setParent(pai).startSpan();
+        try (Scope ignored = span.makeCurrent()) {
+            return execucao.get();
+        } catch (RuntimeException e) {
+            span.recordException(e);
+            span.setStatus(StatusCode.ERROR, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    /**
+     * Adiciona um atributo ao span atual.
+     */
+    public void adicionarAtributo(String chave, String valor) {
+        Span.current().setAttribute(chave, valor);
+    }
+
+    /**
+     * Monta os atributos da mensagem SQS com o contexto do trace atual e o instante de recebimento.
+     */
+    public Map<String, MessageAttributeValue> atributosMensagem(Instant recebidaEm) {
+        Map<String, String> portadores = new HashMap<>();
+        propagador.inject(Context.current(), portadores, Map::put);
+        portadores.put(ATRIBUTO_RECEBIDA_EM, String.valueOf(recebidaEm.toEpochMilli()));
+
+        Map<String, MessageAttributeValue> atributos = new HashMap<>();
+        portadores.forEach((chave, valor) -> atributos.put(chave, MessageAttributeValue.builder()
+                .dataType("String")
+                .stringValue(valor)
+                .build()));
+        return atributos;
+    }
+
+    /**
+     * Extrai o contexto do trace dos atributos da mensagem SQS.
+     * Sem traceparent, o consumo inicia um novo trace.
+     */
+    public Context extrairContexto(SQSEvent.SQSMessage mensagem) {
+        return propagador.extract(Context.root(), mensagem.getMessageAttributes(), LEITOR_ATRIBUTOS);
+    }
+
+    /**
+     * Instante de recebimento da avaliação, propagado pela mensagem (null em mensagens antigas
+     * ou com o atributo inválido: a mensagem é processada sem a amostra de latência).
+     */
+    public Instant recebidaEm(SQSEvent.SQSMessage mensagem) {
+        Long epochMillis = epochMillis(mensagem, ATRIBUTO_RECEBIDA_EM,
+                LEITOR_ATRIBUTOS.get(mensagem.getMessageAttributes(), ATRIBUTO_RECEBIDA_EM));
+        return epochMillis != null ? Instant.ofEpochMilli(epochMillis) : null;
+    }
+
+    /**
+     * Registra o tempo de espera da mensagem na fila como span (do envio até o consumo).
+     */
+    public void registrarEsperaFila(Context pai, SQSEvent.SQSMessage mensagem) {
+        Long enviadaEm = epochMillis(mensagem, "SentTimestamp",
+                mensagem.getAttributes() != null ? mensagem.getAttributes().get("SentTimestamp") : null);
+        if (enviadaEm == null) {
+            return;
+        }
+        tracer.spanBuilder("sqs.espera")
+                .setSpanKind(SpanKind.CONSUMER)
+                .setParent(pai)
+                .setStartTimestamp(enviadaEm, TimeUnit.MILLISECONDS)
+                .setAttribute("messaging.message.id", mensagem.getMessageId())
+                .startSpan()
+                .end();
+    }
+
+    /**
+     * Exporta os spans pendentes antes do congelamento do ambiente de execução da Lambda.
+     */
+    public void descarregar() {
+        try {
+            openTelemetry.getSdkTracerProvider().forceFlush().join(5, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            log.error("Erro ao exportar spans", e);
+        }
+    }
+
+    /**
+     * Instante (epoch em ms) de um atributo da mensagem; null se ausente ou inválido.
+     */
+    private static Long epochMillis(SQSEvent.SQSMessage mensagem, String atributo, String valor) {
+        if (valor == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(valor.trim());
+        } catch (NumberFormatException e) {
+            log.warn("Atributo {} inválido na mensagem {}: {}", atributo, mensagem.getMessageId(), valor);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package lambda.fase4.service;
+
+import lambda.fase4.dto.ComparacaoPeriodoDTO;
+import lambda.fase4.dto.RelatorioSemanalDTO;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Period;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * Motor de relatórios de múltiplas janelas (diário, semanal, mensal) com comparação
+ * de cada relatório com o período anterior de mesma duração.
+ *
+ * Tudo é calculado em uma única passada: os agregados de cada dia da união das janelas pedidas
+ * (incluindo os períodos anteriores) vêm de {@link AgregadoDiarioService} (checkpoints dos dias
+ * encerrados; os demais agregados por dia em paralelo) e as janelas são compostas somando os
+ * agregados diários, sem reler as linhas.
+ *
+ * As janelas são alinhadas a dias completos e terminam (exclusive) na data {@code fim}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RelatorioMultiJanelaService {
+
+    private final AgregadoDiarioService agregadoDiarioService;
+    private final CloudWatchMetricsService metricsService;
+    private final MedicaoLatenciaService medicaoLatencia;
+
+    /**
+     * Duração da janela de um relatório.
+     */
+    public enum Granularidade {
+        DIARIO(Period.ofDays(1)),
+        SEMANAL(Period.ofWeeks(1)),
+        MENSAL(Period.ofMonths(1));
+
+        private final Period duracao;
+
+        Granularidade(Period duracao) {
+            this.duracao = duracao;
+        }
+
+        LocalDate inicio(LocalDate fim) {
+            return fim.minus(duracao);
+        }
+    }
+
+    /**
+     * Gera um relatório por granularidade, terminando em {@code fim} (exclusive), na ordem
+     * diário, semanal, mensal.
+     *
+     * @throws IllegalArgumentException se nenhuma granularidade for informada
+     */
+    public List<RelatorioSemanalDTO> gerarRelatorios(LocalDate fim, Collection<Granularidade> granularidades) {
+        if (granularidades == null || granularidades.isEmpty()) {
+            throw new IllegalArgumentException("Informe ao menos uma granularidade de relatório");
+        }
+        EnumSet<Granularidade> pedidas = EnumSet.copyOf(granularidades);
+        LocalDate inicioCobertura = inicioCobertura(fim, pedidas);
+        log.info("Gerando relatórios {} de {} até {}", pedidas, inicioCobertura, fim);
+
+        AgregadoDia[] dias = medicaoLatencia.medir("relatorio.consulta",
+                () -> agregadoDiarioService.consultarDias(inicioCobertura, fim));
+        List<RelatorioSemanalDTO> relatorios = medicaoLatencia.medir("relatorio.consolidacao",
+                () -> consolidar(dias, fim, pedidas));
+
+        log.info("{} relatórios gerados a partir de {} dias agregados", relatorios.size(), dias.length);
+        relatorios.forEach(relatorio -> metricsService.registrarRelatorioGerado());
+        return relatorios;
+    }
+
+    /**
+     * Primeiro dia lido: início do período anterior da maior janela pedida.
+     */
+    static LocalDate inicioCobertura(LocalDate fim, Collection<Granularidade> granularidades) {
+        return granularidades.stream()
+                .map(granularidade -> granularidade.inicio(granularidade.inicio(fim)))
+                .min(LocalDate::compareTo)
+                .orElse(fim);
+    }
+
+    /**
+     * Consolida os relatórios a partir dos agregados de cada dia, de {@link #inicioCobertura} até {@code fim}.
+     */
+    List<RelatorioSemanalDTO> consolidar(AgregadoDia[] dias, LocalDate fim, Collection<Granularidade> granularidades) {
+        EnumSet<Granularidade> pedidas = EnumSet.copyOf(granularidades);
+        LocalDate inicioCobertura = inicioCobertura(fim, pedidas);
+
+        String dataGeracao = LocalDateTime.now().format(DateTimeFormatter.ISO_DATE_TIME);
+        List<RelatorioSemanalDTO> relatorios = new ArrayList<>(pedidas.size());
+        for (Granularidade granularidade : pedidas) {
+            LocalDate inicio = granularidade.inicio(fim);
+            LocalDate inicioAnterior = granularidade.inicio(inicio);
+            int diaInicio = (int) ChronoUnit.DAYS.between(inicioCobertura, inicio);
+            int diaInicioAnterior = (int) ChronoUnit.DAYS.between(inicioCobertura, inicioAnterior);
+
+            AcumuladorEstatisticas atual = acumular(dias, inicioCobertura, diaInicio, dias.length);
+            AcumuladorEstatisticas anterior = acumular(dias, inicioCobertura, diaInicioAnterior, diaInicio);
+
+            relatorios.add(RelatorioSemanalDTO.builder()
+                    .granularidade(granularidade.name())
+                    .periodoInicio(inicio.atStartOfDay().format(DateTimeFormatter.ISO_DATE_TIME))
+                    .periodoFim(fim.atStartOfDay().format(DateTimeFormatter.ISO_DATE_TIME))
+                    .totalAvaliacoes((int) atual.total())
+                    .mediaNotas(atual.media())
+                    .quantidadePorDia(atual.quantidadePorDia())
+                    .quantidadePorUrgencia(atual.quantidadePorUrgencia())
+                    .estatisticasNotas(atual.estatisticas())
+                    .comparacaoPeriodoAnterior(comparar(atual, anterior, inicioAnterior, inicio))
+                    .dataGeracao(dataGeracao)
+                    .build());
+        }
+        return relatorios;
+    }
+
+    private static AcumuladorEstatisticas acumular(AgregadoDia[] dias, LocalDate inicioCobertura, int de, int ate) {
+        AcumuladorEstatisticas acumulador = new AcumuladorEstatisticas(inicioCobertura.plusDays(de), ate - de);
+        for (int dia = de; dia < ate; dia++) {
+            acumulador.adicionar(dia - de, dias[dia]);
+        }
+        return acumulador;
+    }
+
+    private static ComparacaoPeriodoDTO comparar(AcumuladorEstatisticas atual, AcumuladorEstatisticas anterior,
+                                                 LocalDate inicioAnterior, LocalDate fimAnterior) {
+        Double npsAtual = atual.nps();
+        Double npsAnterior = anterior.nps();
+        return ComparacaoPeriodoDTO.builder()
+                .periodoInicio(inicioAnterior.atStartOfDay().format(DateTimeFormatter.ISO_DATE_TIME))
+                .periodoFim(fimAnterior.atStartOfDay().format(DateTimeFormatter.ISO_DATE_TIME))
+                .totalAvaliacoes((int) anterior.total())
+                .mediaNotas(anterior.media())
+                .variacaoTotalPercentual(anterior.total() > 0
+                        ? (atual.total() - anterior.total()) * 100.0 / anterior.total()
+                        : null)
+                .variacaoMediaNotas(atual.total() > 0 && anterior.total() > 0
+                        ? atual.media() - anterior.media()
+                        : null)
+                .nps(npsAnterior)
+                .variacaoNps(npsAtual != null && npsAnterior != null ? npsAtual - npsAnterior : null)
+                .build();
+    }
+}
@@ -1,8 +1,8 @@
 package lambda.fase4.service;
 
+import lambda.fase4.dto.ComparacaoPeriodoDTO;
+import lambda.fase4.dto.EstatisticasNotasDTO;
 import lambda.fase4.dto.RelatorioSemanalDTO;
-import lambda.fase4.model.Avaliacao;
-import lambda.fase4.repository.AvaliacaoRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -10,13 +10,12 @@ import org.springframework.stereotype.Service;
 import software.amazon.awssdk.services.ses.SesClient;
 import software.amazon.awssdk.services.ses.model.*;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
-import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.time.temporal.ChronoUnit;
 
 /**
  * Serviço responsável pela geração de relatórios periódicos.
@@ -27,9 +26,12 @@ import java.util.stream.Collectors;
 @Slf4j
 public class RelatorioService {
 
-    private final AvaliacaoRepository avaliacaoRepository;
     private final SesClient sesClient;
     private final CloudWatchMetricsService metricsService;
+    private final LimitadorEnvioEmailService limitadorEnvioEmail;
+    private final MedicaoLatenciaService medicaoLatencia;
+    private final AgregadoDiarioService agregadoDiarioService;
+    private final ProtecaoDependenciasService protecao;
 
     @Value("${aws.ses.from.email}")
     private String fromEmail;
@@ -37,61 +39,86 @@ public class RelatorioService {
     @Value("${aws.ses.admin.emails}")
     private String adminEmails;
 
+    @Value("${aws.ses.limite.espera-relatorio-ms:30000}")
+    private long esperaMaximaLimiteMs;
+
     /**
      * Gera relatório semanal de avaliações.
-     * Calcula estatísticas dos últimos 7 dias.
+     * Calcula estatísticas dos últimos 7 dias: os dias completos vêm dos checkpoints diários
+     * (só os ainda não calculados são agregados), e apenas as frações do primeiro dia e do dia
+     * corrente são lidas das avaliações.
      */
     public RelatorioSemanalDTO gerarRelatorioSemanal() {
         log.info("Gerando relatório semanal de avaliações");
 
         LocalDateTime fim = LocalDateTime.now();
         LocalDateTime inicio = fim.minusDays(7);
+        LocalDate primeiroDiaCompleto = inicio.toLocalTime().equals(LocalTime.MIDNIGHT)
+                ? inicio.toLocalDate()
+                : inicio.toLocalDate().plusDays(1);
+        LocalDate hoje = fim.toLocalDate();
 
-        List<Avaliacao> avaliacoes = avaliacaoRepository.findByDataEnvioBetween(inicio, fim);
+        AgregadosSemana agregados = medicaoLatencia.medir("relatorio.consulta", () -> new AgregadosSemana(
+                agregadoDiarioService.agregarIntervalo(inicio, primeiroDiaCompleto.atStartOfDay()),
+                agregadoDiarioService.consultarDias(primeiroDiaCompleto, hoje),
+                agregadoDiarioService.agregarIntervalo(hoje.atStartOfDay(), fim)));
+        RelatorioSemanalDTO relatorio = medicaoLatencia.medir("relatorio.consolidacao",
+                () -> consolidarRelatorio(agregados, primeiroDiaCompleto, inicio, fim));
 
-        // Calcula métricas
-        Double mediaNotas = avaliacoes.stream()
-                .mapToInt(Avaliacao::getNota)
-                .average()
-                .orElse(0.0);
+        log.info("Relatório gerado: {} avaliações, média {}", relatorio.getTotalAvaliacoes(), relatorio.getMediaNotas());
+        metricsService.registrarRelatorioGerado();
 
-        Map<String, Long> quantidadePorDia = avaliacoes.stream()
-                .collect(Collectors.groupingBy(
-                        a -> a.getDataEnvio().toLocalDate().toString(),
-                        Collectors.counting()
-                ));
+        return relatorio;
+    }
+
+    /**
+     * Consolida as estatísticas a partir dos agregados do primeiro dia (parcial), dos dias completos
+     * e do dia corrente (parcial).
+     */
+    RelatorioSemanalDTO consolidarRelatorio(AgregadosSemana agregados, LocalDate primeiroDiaCompleto,
+                                            LocalDateTime inicio, LocalDateTime fim) {
+        LocalDate primeiroDia = inicio.toLocalDate();
+        int deslocamento = (int) ChronoUnit.DAYS.between(primeiroDia, primeiroDiaCompleto);
+        AgregadoDia[] diasCompletos = agregados.diasCompletos();
+        AcumuladorEstatisticas acumulador = new AcumuladorEstatisticas(
+                primeiroDia, (int) ChronoUnit.DAYS.between(primeiroDia, fim.toLocalDate()) + 1);
 
-        Map<String, Long> quantidadePorUrgencia = avaliacoes.stream()
-                .collect(Collectors.groupingBy(
-                        a -> a.getUrgencia().name(),
-                        Collectors.counting()
-                ));
+        acumulador.adicionar(0, agregados.inicioParcial());
+        for (int dia = 0; dia < diasCompletos.length; dia++) {
+            acumulador.adicionar(deslocamento + dia, diasCompletos[dia]);
+        }
+        acumulador.adicionar(deslocamento + diasCompletos.length, agregados.hojeParcial());
+        return montarRelatorio(acumulador, inicio, fim);
+    }
 
-        RelatorioSemanalDTO relatorio = RelatorioSemanalDTO.builder()
+    private RelatorioSemanalDTO montarRelatorio(AcumuladorEstatisticas acumulador,
+                                                LocalDateTime inicio, LocalDateTime fim) {
+        return RelatorioSemanalDTO.builder()
                 .periodoInicio(inicio.format(DateTimeFormatter.ISO_DATE_TIME))
                 .periodoFim(fim.format(DateTimeFormatter.ISO_DATE_TIME))
-                .totalAvaliacoes(avaliacoes.size())
-                .mediaNotas(mediaNotas)
-                .quantidadePorDia(quantidadePorDia)
-                .quantidadePorUrgencia(quantidadePorUrgencia)
+                .totalAvaliacoes((int) acumulador.total())
+                .mediaNotas(acumulador.media())
+                .quantidadePorDia(acumulador.quantidadePorDia())
+                .quantidadePorUrgencia(acumulador.quantidadePorUrgencia())
+                .estatisticasNotas(acumulador.estatisticas())
                 .dataGeracao(LocalDateTime.now().format(DateTimeFormatter.ISO_DATE_TIME))
                 .build();
-
-        log.info("Relatório gerado: {} avaliações, média {}", relatorio.getTotalAvaliacoes(), relatorio.getMediaNotas());
-        metricsService.registrarRelatorioGerado();
-
-        return relatorio;
     }
 
     /**
-     * Envia relatório semanal por e-mail.
+     * Envia relatório por e-mail (semanal ou de outra granularidade, conforme o DTO).
      */
     public void enviarRelatorioSemanal(RelatorioSemanalDTO relatorio) {
-        log.info("Enviando relatório semanal por e-mail");
+        log.info("Enviando relatório {} por e-mail", getTitulo(relatorio).toLowerCase());
+
+        limitadorEnvioEmail.adquirir(adminEmails.split(",").length,
+                Duration.ofMillis(esperaMaximaLimiteMs), "relatorio");
 
         try {
+            long inicioFormatacao = System.nanoTime();
             String htmlBody = formatarRelatorioHtml(relatorio);
             String textBody = formatarRelatorioTexto(relatorio);
+            medicaoLatencia.registrar("relatorio.formatacao", System.nanoTime() - inicioFormatacao);
 
             SendEmailRequest emailRequest = SendEmailRequest.builder()
                     .destination(Destination.builder()
@@ -99,7 +126,7 @@ public class RelatorioService {
                             .build())
                     .message(Message.builder()
                             .subject(Content.builder()
-                                    .data("Relatório Semanal de Feedbacks - " + LocalDate.now())
+                                    .data("Relatório " + getTitulo(relatorio) + " de Feedbacks - " + LocalDate.now())
                                     .build())
                             .body(Body.builder()
                                     .html(Content.builder().data(htmlBody).build())
@@ -109,9 +136,15 @@ public class RelatorioService {
                     .source(fromEmail)
                     .build();
 
-            sesClient.sendEmail(emailRequest);
+            medicaoLatencia.medir("ses.envio", () -> protecao.executar(ProtecaoDependenciasService.Dependencia.SES,
+                    configuracao -> sesClient.sendEmail(emailRequest.toBuilder().overrideConfiguration(configuracao).build())));
             log.info("Relatório enviado com sucesso para: {}", adminEmails);
             metricsService.registrarNotificacaoEnviada("relatorio");
+        } catch (SesException e) {
+            log.error("Erro ao enviar relatório por e-mail", e);
+            metricsService.registrarErro("envio_relatorio");
+            limitadorEnvioEmail.verificarThrottling(e, "relatorio");
+            throw new RuntimeException("Falha no envio do relatório", e);
         } catch (Exception e) {
             log.error("Erro ao enviar relatório por e-mail", e);
             metricsService.registrarErro("envio_relatorio");
@@ -122,7 +155,7 @@ public class RelatorioService {
     /**
      * Formata relatório em HTML.
      */
-    private String formatarRelatorioHtml(RelatorioSemanalDTO relatorio) {
+    String formatarRelatorioHtml(RelatorioSemanalDTO relatorio) {
         StringBuilder porDiaHtml = new StringBuilder();
         relatorio.getQuantidadePorDia().forEach((dia, qtd) ->
                 porDiaHtml.append(String.format("<tr><td>%s</td><td>%d</td></tr>", dia, qtd))
@@ -154,7 +187,7 @@ public class RelatorioService {
                 <body>
                     <div class="container">
                         <div class="header">
-                            <h1>📊 Relatório Semanal de Feedbacks</h1>
+                            <h1>📊 Relatório %s de Feedbacks</h1>
                             <p>Período: %s até %s</p>
                         </div>
                         
@@ -194,13 +227,15 @@ public class RelatorioService {
                                 %s
                             </tbody>
                         </table>
-                        
+                        %s
                         <div style="margin-top: 40px; padding: 20px; background-color: #fff3cd; border-left: 4px solid #ff6f00;">
                             <strong>📈 Análise Rápida:</strong>
                             <ul>
                                 <li>Média geral: %.2f/10 (%s)</li>
                                 <li>Total de feedbacks críticos: %d</li>
                                 <li>Taxa de resposta diária: %.1f avaliações/dia</li>
+                                %s
+                                %s
                             </ul>
                         </div>
                         
@@ -211,16 +246,20 @@ public class RelatorioService {
                 </body>
                 </html>
                 """,
+                getTitulo(relatorio),
                 relatorio.getPeriodoInicio().substring(0, 10),
                 relatorio.getPeriodoFim().substring(0, 10),
                 relatorio.getTotalAvaliacoes(),
                 relatorio.getMediaNotas(),
                 porDiaHtml.toString(),
                 porUrgenciaHtml.toString(),
+                formatarDistribuicaoHtml(relatorio),
                 relatorio.getMediaNotas(),
                 getAvaliacaoQualitativa(relatorio.getMediaNotas()),
                 relatorio.getQuantidadePorUrgencia().getOrDefault("CRITICA", 0L),
-                relatorio.getTotalAvaliacoes() / 7.0,
+                relatorio.getTotalAvaliacoes() / (double) getDias(relatorio),
+                formatarEstatisticas(relatorio, "<li>", "</li>"),
+                formatarComparacao(relatorio, "<li>", "</li>"),
                 relatorio.getDataGeracao()
         );
     }
@@ -228,7 +267,7 @@ public class RelatorioService {
     /**
      * Formata relatório em texto simples.
      */
-    private String formatarRelatorioTexto(RelatorioSemanalDTO relatorio) {
+    String formatarRelatorioTexto(RelatorioSemanalDTO relatorio) {
         StringBuilder porDia = new StringBuilder();
         relatorio.getQuantidadePorDia().forEach((dia, qtd) ->
                 porDia.append(String.format("  - %s: %d avaliações\n", dia, qtd))
@@ -241,7 +280,7 @@ public class RelatorioService {
 
         return String.format("""
                 ==========================================
-                RELATÓRIO SEMANAL DE FEEDBACKS
+                RELATÓRIO %s DE FEEDBACKS
                 ==========================================
                 
                 Período: %s até %s
@@ -259,13 +298,14 @@ public class RelatorioService {
                 ==========================================
                 %s
                 
-                ANÁLISE
+                %sANÁLISE
                 ==========================================
                 - Feedbacks críticos: %d
                 - Taxa diária: %.1f avaliações/dia
-                
+                %s%s
                 Relatório gerado em: %s
                 """,
+                getTitulo(relatorio).toUpperCase(),
                 relatorio.getPeriodoInicio().substring(0, 10),
                 relatorio.getPeriodoFim().substring(0, 10),
                 relatorio.getTotalAvaliacoes(),
@@ -273,12 +313,109 @@ public class RelatorioService {
                 getAvaliacaoQualitativa(relatorio.getMediaNotas()),
                 porDia.toString(),
                 porUrgencia.toString(),
+                formatarDistribuicaoTexto(relatorio),
                 relatorio.getQuantidadePorUrgencia().getOrDefault("CRITICA", 0L),
-                relatorio.getTotalAvaliacoes() / 7.0,
+                relatorio.getTotalAvaliacoes() / (double) getDias(relatorio),
+                formatarEstatisticas(relatorio, "- ", "\n"),
+                formatarComparacao(relatorio, "- ", "\n"),
                 relatorio.getDataGeracao()
         );
     }
 
+    /**
+     * Título do relatório conforme a granularidade (sem granularidade: semanal).
+     */
+    private String getTitulo(RelatorioSemanalDTO relatorio) {
+        if (relatorio.getGranularidade() == null) return "Semanal";
+        return switch (relatorio.getGranularidade()) {
+            case "DIARIO" -> "Diário";
+            case "MENSAL" -> "Mensal";
+            default -> "Semanal";
+        };
+    }
+
+    /**
+     * Quantidade de dias do período do relatório (mínimo 1).
+     */
+    private long getDias(RelatorioSemanalDTO relatorio) {
+        return Math.max(1, Duration.between(
+                LocalDateTime.parse(relatorio.getPeriodoInicio(), DateTimeFormatter.ISO_DATE_TIME),
+                LocalDateTime.parse(relatorio.getPeriodoFim(), DateTimeFormatter.ISO_DATE_TIME)).toDays());
+    }
+
+    /**
+     * Linha com a variação em relação ao período anterior, ou vazio se não houver comparação.
+     */
+    private String formatarComparacao(RelatorioSemanalDTO relatorio, String prefixo, String sufixo) {
+        ComparacaoPeriodoDTO comparacao = relatorio.getComparacaoPeriodoAnterior();
+        if (comparacao == null) return "";
+        String variacaoTotal = comparacao.getVariacaoTotalPercentual() != null
+                ? String.format("%+.1f%%", comparacao.getVariacaoTotalPercentual())
+                : "sem avaliações no período anterior";
+        String variacaoMedia = comparacao.getVariacaoMediaNotas() != null
+                ? String.format(", média %+.2f", comparacao.getVariacaoMediaNotas())
+                : "";
+        String variacaoNps = comparacao.getVariacaoNps() != null
+                ? String.format(", NPS %+.1f", comparacao.getVariacaoNps())
+                : "";
+        return String.format("%sVariação vs. período anterior: %s (%d avaliações)%s%s%s",
+                prefixo, variacaoTotal, comparacao.getTotalAvaliacoes(), variacaoMedia, variacaoNps, sufixo);
+    }
+
+    /**
+     * Linhas com mediana, percentis e NPS, ou vazio se o período não tem avaliações.
+     */
+    private String formatarEstatisticas(RelatorioSemanalDTO relatorio, String prefixo, String sufixo) {
+        EstatisticasNotasDTO estatisticas = relatorio.getEstatisticasNotas();
+        if (estatisticas == null || estatisticas.getMediana() == null) return "";
+        return String.format("%sMediana: %.1f (P25 %d, P75 %d, P90 %d)%s%sNPS: %.1f (promotores %.1f%%, neutros %.1f%%, detratores %.1f%%)%s",
+                prefixo, estatisticas.getMediana(), estatisticas.getPercentil25(), estatisticas.getPercentil75(),
+                estatisticas.getPercentil90(), sufixo,
+                prefixo, estatisticas.getNps(), estatisticas.getPercentualPromotores(),
+                estatisticas.getPercentualNeutros(), estatisticas.getPercentualDetratores(), sufixo);
+    }
+
+    /**
+     * Tabela HTML com a quantidade por nota, ou vazio se não houver estatísticas.
+     */
+    private String formatarDistribuicaoHtml(RelatorioSemanalDTO relatorio) {
+        EstatisticasNotasDTO estatisticas = relatorio.getEstatisticasNotas();
+        if (estatisticas == null || estatisticas.getQuantidadePorNota() == null) return "";
+        StringBuilder linhas = new StringBuilder();
+        long[] quantidadePorNota = estatisticas.getQuantidadePorNota();
+        for (int nota = 0; nota < quantidadePorNota.length; nota++) {
+            linhas.append("<tr><td>").append(nota).append("</td><td>").append(quantidadePorNota[nota]).append("</td></tr>");
+        }
+        return """
+                <h2 class="section-title">🔢 Distribuição das Notas</h2>
+                <table>
+                    <thead>
+                        <tr>
+                            <th>Nota</th>
+                            <th>Quantidade</th>
+                        </tr>
+                    </thead>
+                    <tbody>
+                        %s
+                    </tbody>
+                </table>
+                """.formatted(linhas);
+    }
+
+    /**
+     * Bloco de texto com a quantidade por nota, ou vazio se não houver estatísticas.
+     */
+    private String formatarDistribuicaoTexto(RelatorioSemanalDTO relatorio) {
+        EstatisticasNotasDTO estatisticas = relatorio.getEstatisticasNotas();
+        if (estatisticas == null || estatisticas.getQuantidadePorNota() == null) return "";
+        StringBuilder texto = new StringBuilder("DISTRIBUIÇÃO DAS NOTAS\n==========================================\n");
+        long[] quantidadePorNota = estatisticas.getQuantidadePorNota();
+        for (int nota = 0; nota < quantidadePorNota.length; nota++) {
+            texto.append("  - Nota ").append(nota).append(": ").append(quantidadePorNota[nota]).append(" avaliações\n");
+        }
+        return texto.append("\n\n").toString();
+    }
+
     /**
      * Retorna avaliação qualitativa da média.
      */
@@ -288,5 +425,10 @@ public class RelatorioService {
         if (media >= 4.0) return "Regular";
         return "Crítico";
     }
-}
 
+    /**
+     * Agregados dos últimos 7 dias: fração do primeiro dia, dias completos e fração do dia corrente.
+     */
+    record AgregadosSemana(AgregadoDia inicioParcial, AgregadoDia[] diasCompletos, AgregadoDia hojeParcial) {
+    }
+}
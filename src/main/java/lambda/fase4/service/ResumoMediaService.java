@@ -0,0 +1,409 @@
+package lambda.fase4.service;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import lambda.fase4.dto.NotificacaoUrgenciaDTO;
+import lambda.fase4.model.Avaliacao;
+import lambda.fase4.repository.AvaliacaoRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.services.ses.SesClient;
+import software.amazon.awssdk.services.ses.model.*;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchResponse;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Faixa de baixa prioridade das avaliações de urgência MEDIA.
+ *
+ * No recebimento, cada avaliação MEDIA vai para uma fila SQS própria ({@code resumo-media}), sem
+ * consumidor por mensagem. A faixa tem um limite de envios simultâneos menor que o limite de chamadas
+ * SQS da {@link ProtecaoDependenciasService}: uma enxurrada de avaliações médias ocupa no máximo
+ * {@code resumo-media.concorrencia-maxima} chamadas, e as críticas (fila de notificações) continuam
+ * com o restante. Envios além do limite ou com falha são descartados (a avaliação já está no banco
+ * e entra no total do resumo).
+ *
+ * Uma vez por dia, a Lambda de relatórios esvazia a fila em lotes de 10 mensagens e envia um único
+ * e-mail de resumo aos administradores, com as avaliações até o dia do resumo e as de menor nota.
+ * As mensagens só são removidas após o envio do e-mail; as de dias posteriores ficam para o próximo resumo.
+ */
+@Service
+@Slf4j
+public class ResumoMediaService {
+
+    private static final int LOTE_SQS = 10;
+    private static final int ESPERA_RECEBIMENTO_SEGUNDOS = 2;
+    // Invisíveis durante a geração do resumo (timeout da Lambda: 5 minutos)
+    private static final int VISIBILIDADE_SEGUNDOS = 900;
+    private static final int TAMANHO_MAXIMO_DESCRICAO = 200;
+
+    private final SqsClient sqsClient;
+    private final SesClient sesClient;
+    private final AvaliacaoRepository avaliacaoRepository;
+    private final CloudWatchMetricsService metricsService;
+    private final LimitadorEnvioEmailService limitadorEnvioEmail;
+    private final MedicaoLatenciaService medicaoLatencia;
+    private final ProtecaoDependenciasService protecao;
+    private final Gson gson;
+    private final Semaphore envios;
+
+    @Value("${aws.sqs.queue.resumo-media.url:}")
+    private String resumoMediaQueueUrl;
+
+    @Value("${aws.ses.from.email}")
+    private String fromEmail;
+
+    @Value("${aws.ses.admin.emails}")
+    private String adminEmails;
+
+    @Value("${aws.ses.limite.espera-relatorio-ms:30000}")
+    private long esperaMaximaLimiteMs;
+
+    @Value("${resumo-media.espera-ms:20}")
+    private long esperaMs;
+
+    @Value("${resumo-media.maximo-mensagens:10000}")
+    private int maximoMensagens;
+
+    @Value("${resumo-media.maximo-itens:20}")
+    private int maximoItens;
+
+    public ResumoMediaService(SqsClient sqsClient, SesClient sesClient, AvaliacaoRepository avaliacaoRepository,
+                              CloudWatchMetricsService metricsService, LimitadorEnvioEmailService limitadorEnvioEmail,
+                              MedicaoLatenciaService medicaoLatencia, ProtecaoDependenciasService protecao, Gson gson,
+                              @Value("${resumo-media.concorrencia-maxima:10}") int concorrenciaMaxima) {
+        this.sqsClient = sqsClient;
+        this.sesClient = sesClient;
+        this.avaliacaoRepository = avaliacaoRepository;
+        this.metricsService = metricsService;
+        this.limitadorEnvioEmail = limitadorEnvioEmail;
+        this.medicaoLatencia = medicaoLatencia;
+        this.protecao = protecao;
+        this.gson = gson;
+        this.envios = new Semaphore(concorrenciaMaxima);
+    }
+
+    /**
+     * Envia a avaliação MEDIA para a fila do resumo diário. Espera por uma vaga da faixa no máximo
+     * {@code resumo-media.espera-ms} e não propaga falhas: o recebimento não depende da faixa de baixa prioridade.
+     */
+    public void enfileirar(Avaliacao avaliacao) {
+        if (resumoMediaQueueUrl == null || resumoMediaQueueUrl.isBlank()) {
+            return;
+        }
+        boolean vaga;
+        try {
+            vaga = envios.tryAcquire(esperaMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            vaga = false;
+        }
+        if (!vaga) {
+            log.debug("Faixa MEDIA saturada; avaliação {} fica fora da fila do resumo", avaliacao.getId());
+            metricsService.registrarErro("faixa_media_saturada");
+            return;
+        }
+        try {
+            SendMessageRequest request = SendMessageRequest.builder()
+                    .queueUrl(resumoMediaQueueUrl)
+                    .messageBody(montarMensagem(avaliacao))
+                    .build();
+            medicaoLatencia.medir("sqs.envio.resumo", () -> protecao.executar(ProtecaoDependenciasService.Dependencia.SQS,
+                    configuracao -> sqsClient.sendMessage(request.toBuilder().overrideConfiguration(configuracao).build())));
+            metricsService.registrarMensagemEnviadaFila("resumo_media");
+        } catch (Exception e) {
+            log.error("Erro ao enviar avaliação {} para a fila do resumo MEDIA", avaliacao.getId(), e);
+            metricsService.registrarErro("envio_fila_resumo_media");
+        } finally {
+            envios.release();
+        }
+    }
+
+    String montarMensagem(Avaliacao avaliacao) {
+        String descricao = avaliacao.getDescricao();
+        return gson.toJson(NotificacaoUrgenciaDTO.builder()
+                .avaliacaoId(avaliacao.getId().toString())
+                .descricao(descricao != null && descricao.length() > TAMANHO_MAXIMO_DESCRICAO
+                        ? descricao.substring(0, TAMANHO_MAXIMO_DESCRICAO) + "…"
+                        : descricao)
+                .urgencia(avaliacao.getUrgencia().name())
+                .dataEnvio(avaliacao.getDataEnvio().toString())
+                .nota(avaliacao.getNota())
+                .build());
+    }
+
+    /**
+     * Esvazia a fila até o dia informado (inclusive), envia o resumo por e-mail e remove as mensagens resumidas.
+     *
+     * @return quantidade de avaliações da fila incluídas no resumo
+     */
+    public long enviarResumoDiario(LocalDate dia) {
+        Resumo resumo = medicaoLatencia.medir("resumo-media.leitura", () -> lerFila(dia));
+        long totalBanco = medicaoLatencia.medir("resumo-media.consulta", () -> avaliacaoRepository
+                .contarPorUrgenciaEPeriodo(Avaliacao.Urgencia.MEDIA, dia.atStartOfDay(), dia.plusDays(1).atStartOfDay()));
+        log.info("Resumo MEDIA de {}: {} avaliações na fila, {} no banco, {} mensagens de dias posteriores",
+                dia, resumo.total, totalBanco, resumo.posteriores);
+
+        if (resumo.total > 0 || totalBanco > 0) {
+            enviarEmail(dia, resumo, totalBanco);
+        }
+        removerMensagens(resumo.receiptHandles);
+        return resumo.total;
+    }
+
+    private Resumo lerFila(LocalDate dia) {
+        Resumo resumo = new Resumo(maximoItens);
+        if (resumoMediaQueueUrl == null || resumoMediaQueueUrl.isBlank()) {
+            return resumo;
+        }
+        LocalDateTime limite = dia.plusDays(1).atStartOfDay();
+        int recebidas = 0;
+        while (recebidas < maximoMensagens) {
+            ReceiveMessageRequest request = ReceiveMessageRequest.builder()
+                    .queueUrl(resumoMediaQueueUrl)
+                    .maxNumberOfMessages(LOTE_SQS)
+                    .waitTimeSeconds(ESPERA_RECEBIMENTO_SEGUNDOS)
+                    .visibilityTimeout(VISIBILIDADE_SEGUNDOS)
+                    .build();
+            List<software.amazon.awssdk.services.sqs.model.Message> mensagens = protecao.executar(
+                    ProtecaoDependenciasService.Dependencia.SQS,
+                    configuracao -> sqsClient.receiveMessage(request.toBuilder().overrideConfiguration(configuracao).build()))
+                    .messages();
+            if (mensagens.isEmpty()) {
+                break;
+            }
+            recebidas += mensagens.size();
+            for (software.amazon.awssdk.services.sqs.model.Message mensagem : mensagens) {
+                NotificacaoUrgenciaDTO item;
+                try {
+                    item = gson.fromJson(mensagem.body(), NotificacaoUrgenciaDTO.class);
+                } catch (JsonParseException e) {
+                    item = null;
+                }
+                LocalDateTime dataEnvio = item != null && item.getAvaliacaoId() != null
+                        ? lerDataEnvio(item.getDataEnvio()) : null;
+                if (dataEnvio == null) {
+                    // Removida da fila: reprocessar não a tornaria válida e ela voltaria a cada resumo
+                    log.warn("Mensagem inválida na fila do resumo MEDIA descartada: {}", mensagem.messageId());
+                    resumo.receiptHandles.add(mensagem.receiptHandle());
+                    continue;
+                }
+                if (!dataEnvio.isBefore(limite)) {
+                    // Fica invisível até o fim da visibilidade e entra no próximo resumo
+                    resumo.posteriores++;
+                    continue;
+                }
+                resumo.adicionar(item);
+                resumo.receiptHandles.add(mensagem.receiptHandle());
+            }
+        }
+        return resumo;
+    }
+
+    /**
+     * Data de envio da mensagem; null se ausente ou em formato inválido.
+     */
+    private static LocalDateTime lerDataEnvio(String dataEnvio) {
+        if (dataEnvio == null) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(dataEnvio);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private void enviarEmail(LocalDate dia, Resumo resumo, long totalBanco) {
+        limitadorEnvioEmail.adquirir(adminEmails.split(",").length,
+                Duration.ofMillis(esperaMaximaLimiteMs), "resumo_media");
+        try {
+            List<NotificacaoUrgenciaDTO> itens = resumo.menoresNotas();
+            SendEmailRequest emailRequest = SendEmailRequest.builder()
+                    .destination(Destination.builder()
+                            .toAddresses(adminEmails.split(","))
+                            .build())
+                    .message(Message.builder()
+                            .subject(Content.builder()
+                                    .data("Resumo Diário de Avaliações de Urgência Média - " + dia)
+                                    .build())
+                            .body(Body.builder()
+                                    .html(Content.builder().data(formatarHtml(dia, resumo, totalBanco, itens)).build())
+                                    .text(Content.builder().data(formatarTexto(dia, resumo, totalBanco, itens)).build())
+                                    .build())
+                            .build())
+                    .source(fromEmail)
+                    .build();
+
+            medicaoLatencia.medir("ses.envio", () -> protecao.executar(ProtecaoDependenciasService.Dependencia.SES,
+                    configuracao -> sesClient.sendEmail(emailRequest.toBuilder().overrideConfiguration(configuracao).build())));
+            log.info("Resumo MEDIA de {} enviado para: {}", dia, adminEmails);
+            metricsService.registrarNotificacaoEnviada("resumo_media");
+        } catch (SesException e) {
+            log.error("Erro ao enviar resumo MEDIA por e-mail", e);
+            metricsService.registrarErro("envio_resumo_media");
+            limitadorEnvioEmail.verificarThrottling(e, "resumo_media");
+            throw new RuntimeException("Falha no envio do resumo MEDIA", e);
+        } catch (Exception e) {
+            log.error("Erro ao enviar resumo MEDIA por e-mail", e);
+            metricsService.registrarErro("envio_resumo_media");
+            throw new RuntimeException("Falha no envio do resumo MEDIA", e);
+        }
+    }
+
+    /**
+     * Remove as mensagens resumidas em lotes; as que falharem voltam à fila ao fim da visibilidade
+     * e o próximo resumo as repete.
+     */
+    private void removerMensagens(List<String> receiptHandles) {
+        for (int inicio = 0; inicio < receiptHandles.size(); inicio += LOTE_SQS) {
+            List<DeleteMessageBatchRequestEntry> entradas = new ArrayList<>(LOTE_SQS);
+            for (int i = inicio; i < Math.min(inicio + LOTE_SQS, receiptHandles.size()); i++) {
+                entradas.add(DeleteMessageBatchRequestEntry.builder()
+                        .id(String.valueOf(i))
+                        .receiptHandle(receiptHandles.get(i))
+                        .build());
+            }
+            DeleteMessageBatchRequest request = DeleteMessageBatchRequest.builder()
+                    .queueUrl(resumoMediaQueueUrl)
+                    .entries(entradas)
+                    .build();
+            try {
+                DeleteMessageBatchResponse resposta = protecao.executar(ProtecaoDependenciasService.Dependencia.SQS,
+                        configuracao -> sqsClient.deleteMessageBatch(request.toBuilder().overrideConfiguration(configuracao).build()));
+                if (resposta.hasFailed() && !resposta.failed().isEmpty()) {
+                    log.warn("{} mensagens do resumo MEDIA não removidas", resposta.failed().size());
+                }
+            } catch (Exception e) {
+                log.warn("Erro ao remover mensagens do resumo MEDIA: {}", e.getMessage());
+                metricsService.registrarErro("remocao_fila_resumo_media");
+            }
+        }
+    }
+
+    String formatarTexto(LocalDate dia, Resumo resumo, long totalBanco, List<NotificacaoUrgenciaDTO> itens) {
+        StringBuilder texto = new StringBuilder();
+        texto.append("RESUMO DIÁRIO DE AVALIAÇÕES DE URGÊNCIA MÉDIA\n\n");
+        texto.append("Dia: ").append(dia).append('\n');
+        texto.append("Avaliações no resumo: ").append(resumo.total).append('\n');
+        texto.append("Avaliações MEDIA do dia no banco: ").append(totalBanco).append('\n');
+        texto.append(String.format("Média das notas: %.2f/10%n", resumo.media()));
+        for (int nota = 4; nota <= 6; nota++) {
+            texto.append(String.format("Nota %d: %d%n", nota, resumo.porNota[nota]));
+        }
+        texto.append("\nMenores notas:\n");
+        for (NotificacaoUrgenciaDTO item : itens) {
+            texto.append(String.format("- [%d] %s (%s, ID %s)%n", item.getNota(), item.getDescricao(),
+                    item.getDataEnvio(), item.getAvaliacaoId()));
+        }
+        return texto.toString();
+    }
+
+    String formatarHtml(LocalDate dia, Resumo resumo, long totalBanco, List<NotificacaoUrgenciaDTO> itens) {
+        StringBuilder linhas = new StringBuilder();
+        for (NotificacaoUrgenciaDTO item : itens) {
+            linhas.append(String.format("<tr><td>%d</td><td>%s</td><td>%s</td></tr>", item.getNota(),
+                    escaparHtml(item.getDescricao()), item.getDataEnvio()));
+        }
+        return String.format("""
+                <!DOCTYPE html>
+                <html>
+                <body style="font-family: Arial, sans-serif;">
+                    <h1 style="color: #f57c00;">Resumo Diário - Urgência Média</h1>
+                    <p>Dia: %s</p>
+                    <ul>
+                        <li>Avaliações no resumo: <strong>%d</strong></li>
+                        <li>Avaliações MEDIA do dia no banco: <strong>%d</strong></li>
+                        <li>Média das notas: <strong>%.2f/10</strong></li>
+                        <li>Notas 4 / 5 / 6: %d / %d / %d</li>
+                    </ul>
+                    <h2>Menores notas</h2>
+                    <table style="border-collapse: collapse;">
+                        <tr><th>Nota</th><th>Descrição</th><th>Data</th></tr>
+                        %s
+                    </table>
+                </body>
+                </html>
+                """, dia, resumo.total, totalBanco, resumo.media(),
+                resumo.porNota[4], resumo.porNota[5], resumo.porNota[6], linhas);
+    }
+
+    private static String escaparHtml(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        return texto.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+
+    /**
+     * Acumulado das mensagens lidas: contagens, soma das notas e as {@code maximoItens} de menor nota.
+     * Mensagens repetidas (entrega "pelo menos uma vez" do SQS) contam uma vez.
+     */
+    static final class Resumo {
+
+        // Menor nota primeiro e, na mesma nota, a mais antiga
+        private static final Comparator<NotificacaoUrgenciaDTO> ORDEM = Comparator
+                .comparingInt((NotificacaoUrgenciaDTO item) -> item.getNota() != null ? item.getNota() : 0)
+                .thenComparing(NotificacaoUrgenciaDTO::getDataEnvio);
+
+        private final int maximoItens;
+        private final PriorityQueue<NotificacaoUrgenciaDTO> menores;
+        private final Set<String> ids = new HashSet<>();
+        private final List<String> receiptHandles = new ArrayList<>();
+        private final long[] porNota = new long[11];
+        private long total;
+        private long somaNotas;
+        private long posteriores;
+
+        Resumo(int maximoItens) {
+            this.maximoItens = maximoItens;
+            this.menores = new PriorityQueue<>(Math.max(1, maximoItens), ORDEM.reversed());
+        }
+
+        void adicionar(NotificacaoUrgenciaDTO item) {
+            if (!ids.add(item.getAvaliacaoId())) {
+                return;
+            }
+            total++;
+            int nota = item.getNota() != null ? item.getNota() : 0;
+            somaNotas += nota;
+            if (nota >= 0 && nota < porNota.length) {
+                porNota[nota]++;
+            }
+            if (maximoItens > 0) {
+                // O topo é o item de maior nota, o primeiro a sair quando passa do limite
+                menores.add(item);
+                if (menores.size() > maximoItens) {
+                    menores.poll();
+                }
+            }
+        }
+
+        double media() {
+            return total == 0 ? 0.0 : (double) somaNotas / total;
+        }
+
+        List<NotificacaoUrgenciaDTO> menoresNotas() {
+            List<NotificacaoUrgenciaDTO> itens = new ArrayList<>(menores);
+            itens.sort(ORDEM);
+            return itens;
+        }
+    }
+}
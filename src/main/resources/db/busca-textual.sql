@@ -0,0 +1,16 @@
+-- Busca textual nas descrições das avaliações (GET /api/avaliacoes/busca).
+-- Aplicado pela Lambda de migração (MigrarBancoHandler), após db/migracao-descricao.sql (que cria
+-- avaliacoes_descricoes em um banco vazio); todos os comandos são idempotentes.
+-- Em uma tabela já populada, o ADD COLUMN reescreve a tabela: aplicar em janela de manutenção.
+
+CREATE EXTENSION IF NOT EXISTS unaccent;
+
+-- unaccent() é STABLE (depende do search_path); colunas geradas e índices exigem IMMUTABLE
+CREATE OR REPLACE FUNCTION f_unaccent(texto text) RETURNS text
+    LANGUAGE sql IMMUTABLE PARALLEL SAFE STRICT
+    AS 'SELECT public.unaccent(''public.unaccent''::regdictionary, texto)';
+
+ALTER TABLE avaliacoes_descricoes ADD COLUMN IF NOT EXISTS busca tsvector
+    GENERATED ALWAYS AS (to_tsvector('portuguese'::regconfig, f_unaccent(descricao))) STORED;
+
+CREATE INDEX IF NOT EXISTS idx_avaliacoes_descricoes_busca ON avaliacoes_descricoes USING GIN (busca);
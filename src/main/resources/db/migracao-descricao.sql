@@ -0,0 +1,39 @@
+-- Move a descrição de avaliacoes para avaliacoes_descricoes (tabela secundária de Avaliacao).
+-- Aplicado pela Lambda de migração (MigrarBancoHandler), após db/migracao-id-uuid.sql e antes do
+-- ddl-auto=update; não faz nada se a coluna já tiver sido movida (idempotente).
+-- Execuções simultâneas esperam a primeira (advisory lock da transação).
+--
+-- Em uma tabela já populada, copia todas as descrições e remove as colunas descricao e busca
+-- (com o índice GIN antigo, recriado por db/busca-textual.sql na nova tabela): aplicar em janela
+-- de manutenção. O DROP COLUMN não devolve o espaço das linhas existentes; para estreitá-las,
+-- executar em seguida VACUUM FULL avaliacoes (ou pg_repack), fora de transação.
+
+-- Em um banco vazio, criada aqui (antes do Hibernate) para receber a coluna de busca textual
+CREATE TABLE IF NOT EXISTS avaliacoes_descricoes (
+    avaliacao_id uuid PRIMARY KEY,
+    descricao varchar(2000) NOT NULL
+);
+
+DO $$
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('migracao-descricao'));
+
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_schema = current_schema() AND table_name = 'avaliacoes'
+                 AND column_name = 'descricao') THEN
+        INSERT INTO avaliacoes_descricoes (avaliacao_id, descricao)
+            SELECT id, descricao FROM avaliacoes
+            ON CONFLICT (avaliacao_id) DO NOTHING;
+        ALTER TABLE avaliacoes DROP COLUMN IF EXISTS busca;
+        ALTER TABLE avaliacoes DROP COLUMN descricao;
+    END IF;
+
+    -- O Hibernate não cria a chave estrangeira enquanto avaliacoes.id ainda é varchar; em um banco
+    -- vazio, avaliacoes só existe após o ddl-auto, que cria a chave
+    IF to_regclass('avaliacoes') IS NOT NULL
+       AND NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'fk_avaliacoes_descricoes_avaliacao') THEN
+        ALTER TABLE avaliacoes_descricoes ADD CONSTRAINT fk_avaliacoes_descricoes_avaliacao
+            FOREIGN KEY (avaliacao_id) REFERENCES avaliacoes (id);
+    END IF;
+END
+$$;
@@ -0,0 +1,19 @@
+-- Converte avaliacoes.id de varchar (UUIDv4 em texto) para uuid nativo.
+-- Aplicado pela Lambda de migração (MigrarBancoHandler), antes do ddl-auto=update e de
+-- db/migracao-descricao.sql; não faz nada se a coluna já for uuid ou a tabela ainda não existir
+-- (idempotente). Execuções simultâneas aguardam a conversão feita pela primeira (advisory lock).
+-- Os ids existentes continuam válidos (v4); os novos são UUIDv7, gerados pela aplicação.
+-- Reescreve a tabela e recria a chave primária e o índice (data_envio, id) sob ACCESS EXCLUSIVE:
+-- aplicar em janela de manutenção.
+
+DO $$
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('migracao-id-uuid'));
+
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_schema = current_schema() AND table_name = 'avaliacoes'
+                 AND column_name = 'id' AND data_type <> 'uuid') THEN
+        ALTER TABLE avaliacoes ALTER COLUMN id TYPE uuid USING id::uuid;
+    END IF;
+END
+$$;
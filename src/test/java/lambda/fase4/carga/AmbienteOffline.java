@@ -0,0 +1,138 @@
+package lambda.fase4.carga;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import lambda.fase4.Fase4Application;
+import lambda.fase4.fakes.FakeCloudWatchClient;
+import lambda.fase4.fakes.FakeS3Client;
+import lambda.fase4.fakes.FakeSesClient;
+import lambda.fase4.fakes.FakeSnsClient;
+import lambda.fase4.fakes.FakeSqsClient;
+import lambda.fase4.lambda.MigrarBancoHandler;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.cloudwatch.CloudWatchClient;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.ses.SesClient;
+import software.amazon.awssdk.services.sns.SnsClient;
+import software.amazon.awssdk.services.sqs.SqsClient;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Aplicação completa rodando sem AWS: clientes SQS/SNS/SES/S3/CloudWatch em memória
+ * e PostgreSQL embarcado (ou um PostgreSQL local informado por {@code carga.jdbc-url}).
+ * Com {@code carga.commit-sincrono=true}, o PostgreSQL embarcado confirma cada commit no disco.
+ */
+public class AmbienteOffline implements AutoCloseable {
+
+    public static final String FILA_NOTIFICACAO = "http://localhost/000000000000/notificacao-urgencia-queue";
+    public static final String FILA_NOTIFICACAO_DLQ = "http://localhost/000000000000/notificacao-urgencia-dlq";
+    public static final String FILA_RESUMO_MEDIA = "http://localhost/000000000000/resumo-media-queue";
+    public static final String BUCKET_EXPORTACOES = "exportacoes-offline";
+
+    private final FakeSqsClient sqs = new FakeSqsClient();
+    private final FakeSnsClient sns = new FakeSnsClient();
+    private final FakeSesClient ses = new FakeSesClient();
+    private final FakeS3Client s3 = new FakeS3Client();
+    private final FakeCloudWatchClient cloudWatch = new FakeCloudWatchClient();
+
+    private EmbeddedPostgres postgres;
+    private ConfigurableApplicationContext context;
+
+    public AmbienteOffline iniciar(Map<String, Object> propriedadesAdicionais) throws IOException {
+        Map<String, Object> propriedades = new HashMap<>();
+        String jdbcUrl = System.getProperty("carga.jdbc-url");
+        if (jdbcUrl == null) {
+            EmbeddedPostgres.Builder builder = EmbeddedPostgres.builder();
+            if (Boolean.getBoolean("carga.commit-sincrono")) {
+                // O PostgreSQL embarcado desliga synchronous_commit; ligado, cada commit espera o fsync do WAL
+                builder.setServerConfig("synchronous_commit", "on");
+            }
+            postgres = builder.start();
+            jdbcUrl = postgres.getJdbcUrl("postgres", "postgres");
+            propriedades.put("spring.datasource.username", "postgres");
+            propriedades.put("spring.datasource.password", "");
+        }
+        propriedades.put("spring.datasource.url", jdbcUrl);
+        propriedades.put("spring.jpa.show-sql", "false");
+        propriedades.put("logging.level.lambda.fase4", "WARN");
+        propriedades.put("logging.level.org.hibernate", "WARN");
+        propriedades.put("aws.sqs.queue.notificacao.url", FILA_NOTIFICACAO);
+        propriedades.put("aws.sqs.queue.notificacao.dlq.url", FILA_NOTIFICACAO_DLQ);
+        propriedades.put("aws.sqs.queue.resumo-media.url", FILA_RESUMO_MEDIA);
+        propriedades.put("exportacao.s3.bucket", BUCKET_EXPORTACOES);
+        propriedades.putAll(propriedadesAdicionais);
+
+        // Como no deploy: migrações aplicadas uma vez, antes da partida da aplicação
+        MigrarBancoHandler.migrar(propriedades);
+
+        // Precedência sobre application.properties (inclusive níveis de log)
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new MapPropertySource("offline", propriedades));
+
+        context = new SpringApplicationBuilder(Fase4Application.class)
+                .web(WebApplicationType.NONE)
+                .environment(environment)
+                .initializers(ctx -> {
+                    GenericApplicationContext generic = (GenericApplicationContext) ctx;
+                    generic.registerBean("fakeSqsClient", SqsClient.class, () -> sqs, bd -> bd.setPrimary(true));
+                    generic.registerBean("fakeSnsClient", SnsClient.class, () -> sns, bd -> bd.setPrimary(true));
+                    generic.registerBean("fakeSesClient", SesClient.class, () -> ses, bd -> bd.setPrimary(true));
+                    generic.registerBean("fakeS3Client", S3Client.class, () -> s3, bd -> bd.setPrimary(true));
+                    // Assinatura local, sem chamadas à AWS: credenciais fixas no lugar das da cadeia padrão
+                    generic.registerBean("fakeS3Presigner", S3Presigner.class, () -> S3Presigner.builder()
+                            .region(Region.US_EAST_2)
+                            .credentialsProvider(StaticCredentialsProvider.create(
+                                    AwsBasicCredentials.create("offline", "offline")))
+                            .build(), bd -> bd.setPrimary(true));
+                    generic.registerBean("fakeCloudWatchClient", CloudWatchClient.class, () -> cloudWatch,
+                            bd -> bd.setPrimary(true));
+                })
+                .run();
+        return this;
+    }
+
+    public <T> T bean(Class<T> tipo) {
+        return context.getBean(tipo);
+    }
+
+    public FakeSqsClient sqs() {
+        return sqs;
+    }
+
+    public FakeSnsClient sns() {
+        return sns;
+    }
+
+    public FakeSesClient ses() {
+        return ses;
+    }
+
+    public FakeS3Client s3() {
+        return s3;
+    }
+
+    public FakeCloudWatchClient cloudWatch() {
+        return cloudWatch;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (context != null) {
+            context.close();
+        }
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package lambda.fase4.carga;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Amostras de latência de uma etapa do pipeline, com cálculo exato de percentis.
+ */
+class AmostrasLatencia {
+
+    private final String etapa;
+    private long[] amostras = new long[1024];
+    private int tamanho;
+
+    AmostrasLatencia(String etapa) {
+        this.etapa = etapa;
+    }
+
+    synchronized void registrar(long nanos) {
+        if (tamanho == amostras.length) {
+            amostras = Arrays.copyOf(amostras, tamanho * 2);
+        }
+        amostras[tamanho++] = nanos;
+    }
+
+    synchronized Resumo resumir() {
+        long[] ordenadas = Arrays.copyOf(amostras, tamanho);
+        Arrays.sort(ordenadas);
+        return new Resumo(etapa, tamanho,
+                millis(percentil(ordenadas, 0.50)),
+                millis(percentil(ordenadas, 0.90)),
+                millis(percentil(ordenadas, 0.99)),
+                millis(tamanho == 0 ? 0 : ordenadas[tamanho - 1]));
+    }
+
+    private static long percentil(long[] ordenadas, double percentil) {
+        if (ordenadas.length == 0) {
+            return 0;
+        }
+        int indice = (int) Math.ceil(percentil * ordenadas.length) - 1;
+        return ordenadas[Math.max(0, Math.min(indice, ordenadas.length - 1))];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    record Resumo(String etapa, int amostras, double p50Ms, double p90Ms, double p99Ms, double maxMs) {
+    }
+}
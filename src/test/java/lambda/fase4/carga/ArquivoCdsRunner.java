@@ -0,0 +1,139 @@
+package lambda.fase4.carga;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Arquivo AppCDS do pacote da Lambda ({@code target/lambda}: jars em {@code lib/}), gerado no
+ * {@code package} do perfil appcds e empacotado com os jars em {@code target/fase4-lambda.zip}.
+ *
+ * Treino: uma JVM com as flags do runtime java21 carrega o pacote como a Lambda
+ * ({@link RuntimeLambdaSimulado}, executado como arquivo-fonte) e invoca os três handlers contra os
+ * clientes AWS em memória e o PostgreSQL embarcado; ao sair, grava as classes carregadas (Spring,
+ * Hibernate, AWS SDK e a aplicação) com {@code -XX:ArchiveClassesAtExit}. Em seguida, uma JVM com o
+ * classpath da aplicação diferente do treino, como na Lambda, confirma que o arquivo é aceito e
+ * conta as classes servidas por ele.
+ *
+ * O arquivo só vale para a mesma build da JVM que o gerou: para a Lambda, gere-o com o Amazon
+ * Corretto 21 do runtime ({@code -Dappcds.java=<JAVA_HOME do Corretto>}). Com outra JVM, a Lambda
+ * registra um aviso [cds] e inicia sem ele.
+ *
+ * Execução:
+ * <pre>
+ * ./mvnw -Pappcds -DskipTests package
+ * </pre>
+ *
+ * Propriedades: appcds.pacote, appcds.arquivo (nome do .jsa), appcds.fonte (RuntimeLambdaSimulado.java),
+ * appcds.java (JAVA_HOME do treino), appcds.invocacoes, appcds.memoria-mb, appcds.trabalho
+ */
+public class ArquivoCdsRunner {
+
+    private static final List<String> HANDLERS = List.of("receber", "notificacao", "relatorio");
+    private static final long TIMEOUT_PROCESSO_SEGUNDOS = 600;
+
+    private final Path pacote = Path.of(System.getProperty("appcds.pacote", "target/lambda")).toAbsolutePath();
+    private final Path arquivo = pacote.resolve(System.getProperty("appcds.arquivo", "fase4.jsa"));
+    private final Path fonte = Path.of(System.getProperty("appcds.fonte",
+            "src/test/java/lambda/fase4/carga/RuntimeLambdaSimulado.java")).toAbsolutePath();
+    private final Path java = Path.of(System.getProperty("appcds.java", System.getProperty("java.home")), "bin", "java");
+    private final int invocacoes = Integer.getInteger("appcds.invocacoes", 20);
+    private final int memoriaMb = Integer.getInteger("appcds.memoria-mb", 512);
+    private final Path trabalho = Path.of(System.getProperty("appcds.trabalho", "target/appcds")).toAbsolutePath();
+
+    public static void main(String[] args) throws Exception {
+        new ArquivoCdsRunner().executar();
+        // Threads do contexto offline não são daemon
+        System.exit(0);
+    }
+
+    void executar() throws Exception {
+        try (Stream<Path> jars = Files.list(pacote.resolve("lib"))) {
+            if (jars.noneMatch(jar -> jar.toString().endsWith(".jar"))) {
+                throw new IllegalStateException("Nenhum jar em " + pacote.resolve("lib"));
+            }
+        }
+        Files.createDirectories(trabalho);
+        Files.deleteIfExists(arquivo);
+        Path classesTeste = Path.of(PartidaFriaProcesso.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        Path fakes = trabalho.resolve("fakes.jar");
+        Path simulador = trabalho.resolve("runtime-simulado.jar");
+        PartidaFriaRunner.empacotar(classesTeste, fakes, null);
+        PartidaFriaRunner.empacotar(classesTeste, simulador, RuntimeLambdaSimulado.class);
+
+        try (AmbienteOffline ambiente = new AmbienteOffline().iniciar(Map.of())) {
+            String jdbcUrl = ambiente.bean(HikariDataSource.class).getJdbcUrl();
+            Path mensagens = PartidaFriaRunner.prepararMensagens(ambiente, invocacoes + 1,
+                    trabalho.resolve("mensagens-notificacao.jsonl"));
+
+            // Classpath da aplicação vazio: o arquivo gerado vale com o classpath do cliente do runtime
+            List<String> treino = new ArrayList<>(jvm(jdbcUrl));
+            treino.add("-XX:ArchiveClassesAtExit=" + arquivo);
+            treino.addAll(List.of(fonte.toString(), pacote.toString(), fakes.toString(),
+                    trabalho.resolve("treino").toString(), String.valueOf(invocacoes), mensagens.toString()));
+            treino.addAll(HANDLERS);
+            long inicio = System.nanoTime();
+            executarProcesso(treino, trabalho.resolve("treino.log"));
+            if (!Files.exists(arquivo)) {
+                throw new IllegalStateException("Arquivo AppCDS não gerado; veja " + trabalho.resolve("treino.log"));
+            }
+            System.out.printf("Treino: %d s, arquivo %s (%d MB)%n",
+                    TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - inicio), arquivo, Files.size(arquivo) >> 20);
+
+            verificar(jdbcUrl, simulador, fakes);
+        }
+    }
+
+    /**
+     * Partida do handler de recebimento com o arquivo, pelo classpath do simulador (diferente do
+     * treino); falha se nenhuma classe vier do arquivo dinâmico.
+     */
+    private void verificar(String jdbcUrl, Path simulador, Path fakes) throws Exception {
+        Path classes = trabalho.resolve("verificacao-classes.log");
+        List<String> comando = new ArrayList<>(jvm(jdbcUrl));
+        comando.add("-XX:SharedArchiveFile=" + arquivo);
+        comando.add("-Xlog:class+load=info:file=" + classes);
+        comando.addAll(List.of("-cp", simulador.toString(), RuntimeLambdaSimulado.class.getName(),
+                pacote.toString(), fakes.toString(), trabalho.resolve("verificacao").toString(), "1", "-", "receber"));
+        Files.deleteIfExists(classes);
+        executarProcesso(comando, trabalho.resolve("verificacao.log"));
+
+        List<String> linhas = Files.readAllLines(classes);
+        long doArquivo = linhas.stream().filter(linha -> linha.contains("source: shared objects file (top)")).count();
+        if (doArquivo == 0) {
+            throw new IllegalStateException("O arquivo AppCDS não foi aceito; veja " + trabalho.resolve("verificacao.log"));
+        }
+        // As demais são, em sua maioria, lambdas e proxies gerados em tempo de execução
+        System.out.printf("Verificação: %d de %d classes carregadas vieram do arquivo AppCDS%n", doArquivo, linhas.size());
+    }
+
+    private List<String> jvm(String jdbcUrl) {
+        List<String> comando = new ArrayList<>();
+        comando.add(java.toString());
+        comando.add("-XX:MaxHeapSize=" + memoriaMb * 85 / 100 + "m");
+        comando.addAll(PartidaFriaRunner.FLAGS_LAMBDA);
+        comando.addAll(PartidaFriaRunner.propriedadesProcesso(jdbcUrl, memoriaMb));
+        return comando;
+    }
+
+    private void executarProcesso(List<String> comando, Path log) throws Exception {
+        ProcessBuilder builder = new ProcessBuilder(comando)
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile());
+        PartidaFriaRunner.configurarAmbiente(builder, "appcds-treino", memoriaMb);
+        Process processo = builder.start();
+        if (!processo.waitFor(TIMEOUT_PROCESSO_SEGUNDOS, TimeUnit.SECONDS)) {
+            processo.destroyForcibly();
+            throw new IllegalStateException("Processo excedeu " + TIMEOUT_PROCESSO_SEGUNDOS + " s; veja " + log);
+        }
+        if (processo.exitValue() != 0) {
+            throw new IllegalStateException("Processo terminou com código " + processo.exitValue() + "; veja " + log);
+        }
+    }
+}
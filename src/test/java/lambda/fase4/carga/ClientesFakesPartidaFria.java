@@ -0,0 +1,57 @@
+package lambda.fase4.carga;
+
+import lambda.fase4.fakes.FakeCloudWatchClient;
+import lambda.fase4.fakes.FakeS3Client;
+import lambda.fase4.fakes.FakeSesClient;
+import lambda.fase4.fakes.FakeSnsClient;
+import lambda.fase4.fakes.FakeSqsClient;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import software.amazon.awssdk.services.cloudwatch.CloudWatchClient;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.ses.SesClient;
+import software.amazon.awssdk.services.sns.SnsClient;
+import software.amazon.awssdk.services.sqs.SqsClient;
+
+/**
+ * Clientes AWS em memória para os handlers criados pelo construtor padrão, como na Lambda
+ * ({@link PartidaFriaProcesso}): o scan de {@code lambda.fase4} do contexto do handler encontra esta
+ * classe no classpath de teste e, com o perfil {@code partida-fria} ativo, os fakes têm precedência.
+ * Os clientes reais continuam sendo construídos (o custo faz parte da partida a frio), mas não são usados.
+ */
+@Configuration
+@Profile(PartidaFriaProcesso.PERFIL)
+class ClientesFakesPartidaFria {
+
+    @Bean
+    @Primary
+    SqsClient fakeSqsClient() {
+        return new FakeSqsClient();
+    }
+
+    @Bean
+    @Primary
+    SnsClient fakeSnsClient() {
+        return new FakeSnsClient();
+    }
+
+    @Bean
+    @Primary
+    SesClient fakeSesClient() {
+        return new FakeSesClient();
+    }
+
+    @Bean
+    @Primary
+    S3Client fakeS3Client() {
+        return new FakeS3Client();
+    }
+
+    @Bean
+    @Primary
+    CloudWatchClient fakeCloudWatchClient() {
+        return new FakeCloudWatchClient();
+    }
+}
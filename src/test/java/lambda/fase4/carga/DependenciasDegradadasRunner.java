@@ -0,0 +1,173 @@
+package lambda.fase4.carga;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.amazonaws.services.lambda.runtime.events.SQSBatchResponse;
+import com.amazonaws.services.lambda.runtime.events.SQSEvent;
+import lambda.fase4.fakes.ContextoLambdaFake;
+import lambda.fase4.lambda.EnviarNotificacaoHandler;
+import lambda.fase4.lambda.ReceberFeedbackHandler;
+import lambda.fase4.service.AvaliacaoService;
+import lambda.fase4.service.DeduplicacaoNotificacaoService;
+import lambda.fase4.service.FilaNotificacaoService;
+import lambda.fase4.service.MedicaoLatenciaService;
+import lambda.fase4.service.NotificacaoService;
+import lambda.fase4.service.ProtecaoDependenciasService;
+import lambda.fase4.service.ProtecaoDependenciasService.Dependencia;
+import lambda.fase4.service.RastreamentoService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Recebimento e notificação com dependências AWS degradadas, com disjuntores, limites de
+ * concorrência e prazo da invocação ({@link ProtecaoDependenciasService}).
+ *
+ * Fases do recebimento: normal, CloudWatch lento (além do timeout), CloudWatch fora do ar (503)
+ * e CloudWatch recuperado (após a espera do disjuntor aberto). Na notificação, lotes SQS com o
+ * SNS fora do ar e com prazo da invocação curto. Para cada fase, mostra percentis de latência,
+ * respostas com erro e o estado dos disjuntores.
+ *
+ * Execução:
+ * <pre>
+ * ./mvnw -DskipTests test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=lambda.fase4.carga.DependenciasDegradadasRunner -Dcarga.requisicoes=200 -Dcarga.concorrencia=8
+ * </pre>
+ */
+public class DependenciasDegradadasRunner {
+
+    private final int requisicoes = Integer.getInteger("carga.requisicoes", 200);
+    private final int concorrencia = Integer.getInteger("carga.concorrencia", 8);
+
+    public static void main(String[] args) throws Exception {
+        new DependenciasDegradadasRunner().executar();
+    }
+
+    void executar() throws Exception {
+        try (AmbienteOffline ambiente = new AmbienteOffline().iniciar(Map.of(
+                "protecao.cloudwatch.timeout-ms", 200,
+                "protecao.sns.timeout-ms", 500,
+                "protecao.disjuntor.espera-aberto-segundos", 2))) {
+            ProtecaoDependenciasService protecao = ambiente.bean(ProtecaoDependenciasService.class);
+            MedicaoLatenciaService medicaoLatencia = ambiente.bean(MedicaoLatenciaService.class);
+            RastreamentoService rastreamento = ambiente.bean(RastreamentoService.class);
+            ReceberFeedbackHandler receber = new ReceberFeedbackHandler(ambiente.bean(AvaliacaoService.class),
+                    medicaoLatencia, rastreamento, protecao);
+            EnviarNotificacaoHandler enviar = new EnviarNotificacaoHandler(ambiente.bean(NotificacaoService.class),
+                    ambiente.bean(DeduplicacaoNotificacaoService.class), ambiente.bean(FilaNotificacaoService.class),
+                    medicaoLatencia, rastreamento, protecao);
+
+            System.out.println();
+            System.out.println("========== DEPENDÊNCIAS DEGRADADAS ==========");
+            System.out.printf("%d requisições por fase, concorrência %d%n", requisicoes, concorrencia);
+            System.out.printf("%-32s %8s %8s %10s %10s %10s  %s%n", "Fase", "Chamadas", "Erros",
+                    "p50 (ms)", "p99 (ms)", "max (ms)", "Disjuntores (SQS/SNS/SES/CloudWatch)");
+
+            receber("normal", receber, protecao);
+
+            ambiente.cloudWatch().simulacao().latencia(5000, 0);
+            receber("cloudwatch-lento", receber, protecao);
+
+            ambiente.cloudWatch().simulacao().latencia(5, 1).erros(1.0, 503, "ServiceUnavailable");
+            receber("cloudwatch-fora", receber, protecao);
+
+            ambiente.cloudWatch().simulacao().erros(0.0);
+            TimeUnit.MILLISECONDS.sleep(2500);
+            receber("cloudwatch-recuperado", receber, protecao);
+
+            // As avaliações críticas das fases acima estão na fila de notificações
+            ambiente.sns().simulacao().latencia(5, 1).erros(1.0, 503, "ServiceUnavailable");
+            notificar("notificacao sns-fora", ambiente, enviar, protecao, 300);
+
+            ambiente.sns().simulacao().erros(0.0);
+            TimeUnit.MILLISECONDS.sleep(2500);
+            ambiente.ses().simulacao().latencia(300, 0);
+            // Prazo de 1,5 s (margem de 0,5 s) para um lote de mensagens de ~300 ms cada
+            notificar("notificacao prazo-curto", ambiente, enviar, protecao, 2);
+        }
+    }
+
+    private void receber(String fase, ReceberFeedbackHandler handler, ProtecaoDependenciasService protecao)
+            throws Exception {
+        AmostrasLatencia amostras = new AmostrasLatencia(fase);
+        AtomicInteger erros = new AtomicInteger();
+        executarEmParalelo(requisicoes, i -> {
+            APIGatewayProxyRequestEvent evento = new APIGatewayProxyRequestEvent()
+                    .withHttpMethod("POST")
+                    .withPath("/avaliacao")
+                    .withBody("{\"descricao\":\"Avaliação da fase " + fase + "\",\"nota\":" + (i % 11) + "}");
+            long inicio = System.nanoTime();
+            APIGatewayProxyResponseEvent resposta = handler.handleRequest(evento,
+                    new ContextoLambdaFake("receber-feedback", 30, 512, false));
+            amostras.registrar(System.nanoTime() - inicio);
+            if (resposta.getStatusCode() != 201) {
+                erros.incrementAndGet();
+            }
+        });
+        imprimir(amostras.resumir(), erros.get(), protecao);
+    }
+
+    private void notificar(String fase, AmbienteOffline ambiente, EnviarNotificacaoHandler handler,
+                           ProtecaoDependenciasService protecao, int timeoutSegundos) throws Exception {
+        AmostrasLatencia amostras = new AmostrasLatencia(fase + " (lote)");
+        AtomicInteger falhas = new AtomicInteger();
+        int lotes = Math.max(1, ambiente.sqs().tamanho(AmbienteOffline.FILA_NOTIFICACAO) / 10);
+        executarEmParalelo(Math.min(lotes, concorrencia), i -> {
+            List<SQSEvent.SQSMessage> lote = ambiente.sqs().receber(AmbienteOffline.FILA_NOTIFICACAO, 10);
+            if (lote.isEmpty()) {
+                return;
+            }
+            SQSEvent evento = new SQSEvent();
+            evento.setRecords(lote);
+            long inicio = System.nanoTime();
+            SQSBatchResponse resposta = handler.handleRequest(evento,
+                    new ContextoLambdaFake("enviar-notificacao", timeoutSegundos, 512, false));
+            amostras.registrar(System.nanoTime() - inicio);
+            falhas.addAndGet(resposta.getBatchItemFailures().size());
+            // Mensagens com falha voltam para a fila
+            for (SQSBatchResponse.BatchItemFailure falha : resposta.getBatchItemFailures()) {
+                lote.stream()
+                        .filter(m -> m.getMessageId().equals(falha.getItemIdentifier()))
+                        .findFirst()
+                        .ifPresent(m -> ambiente.sqs().devolver(AmbienteOffline.FILA_NOTIFICACAO, m));
+            }
+        });
+        imprimir(amostras.resumir(), falhas.get(), protecao);
+    }
+
+    private void imprimir(AmostrasLatencia.Resumo resumo, int erros, ProtecaoDependenciasService protecao) {
+        List<String> estados = new ArrayList<>();
+        for (Dependencia dependencia : Dependencia.values()) {
+            estados.add(protecao.estado(dependencia).name());
+        }
+        System.out.printf("%-32s %8d %8d %10.2f %10.2f %10.2f  %s%n", resumo.etapa(), resumo.amostras(), erros,
+                resumo.p50Ms(), resumo.p99Ms(), resumo.maxMs(), String.join("/", estados));
+    }
+
+    private void executarEmParalelo(int total, Tarefa tarefa) throws Exception {
+        try (ExecutorService executor = Executors.newFixedThreadPool(concorrencia)) {
+            List<Future<?>> futuros = new ArrayList<>(total);
+            for (int i = 0; i < total; i++) {
+                int indice = i;
+                futuros.add(executor.submit(() -> {
+                    tarefa.executar(indice);
+                    return null;
+                }));
+            }
+            for (Future<?> futuro : futuros) {
+                futuro.get();
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface Tarefa {
+        void executar(int indice) throws Exception;
+    }
+}
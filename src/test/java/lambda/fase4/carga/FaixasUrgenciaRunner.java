@@ -0,0 +1,127 @@
+package lambda.fase4.carga;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.amazonaws.services.lambda.runtime.events.ScheduledEvent;
+import lambda.fase4.fakes.ContextoLambdaFake;
+import lambda.fase4.lambda.GerarRelatorioHandler;
+import lambda.fase4.lambda.ReceberFeedbackHandler;
+import lambda.fase4.service.ArquivamentoService;
+import lambda.fase4.service.AvaliacaoService;
+import lambda.fase4.service.ExportacaoAvaliacaoService;
+import lambda.fase4.service.MedicaoLatenciaService;
+import lambda.fase4.service.ProtecaoDependenciasService;
+import lambda.fase4.service.RastreamentoService;
+import lambda.fase4.service.RelatorioMultiJanelaService;
+import lambda.fase4.service.RelatorioService;
+import lambda.fase4.service.ResumoMediaService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Faixas por urgência sob uma enxurrada de avaliações MEDIA: as críticas vão para a fila de
+ * notificações e as médias para a fila do resumo diário, com limite de envios próprio
+ * ({@link ResumoMediaService}).
+ *
+ * Com o SQS lento, envia {@code carga.requisicoes} avaliações (1 crítica a cada 10) com alta
+ * concorrência e mostra, por urgência, as enfileiradas e os percentis de latência; depois gera o
+ * resumo diário das médias (um e-mail, fila esvaziada em lotes).
+ *
+ * Execução:
+ * <pre>
+ * ./mvnw -DskipTests test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=lambda.fase4.carga.FaixasUrgenciaRunner -Dcarga.requisicoes=1000 -Dcarga.concorrencia=64
+ * </pre>
+ */
+public class FaixasUrgenciaRunner {
+
+    private final int requisicoes = Integer.getInteger("carga.requisicoes", 1000);
+    private final int concorrencia = Integer.getInteger("carga.concorrencia", 64);
+    private final long latenciaSqsMs = Long.getLong("carga.latencia-sqs-ms", 50);
+
+    public static void main(String[] args) throws Exception {
+        new FaixasUrgenciaRunner().executar();
+    }
+
+    void executar() throws Exception {
+        try (AmbienteOffline ambiente = new AmbienteOffline().iniciar(Map.of(
+                "spring.datasource.hikari.maximum-pool-size", concorrencia))) {
+            ProtecaoDependenciasService protecao = ambiente.bean(ProtecaoDependenciasService.class);
+            MedicaoLatenciaService medicaoLatencia = ambiente.bean(MedicaoLatenciaService.class);
+            RastreamentoService rastreamento = ambiente.bean(RastreamentoService.class);
+            ReceberFeedbackHandler receber = new ReceberFeedbackHandler(ambiente.bean(AvaliacaoService.class),
+                    medicaoLatencia, rastreamento, protecao);
+            GerarRelatorioHandler relatorio = new GerarRelatorioHandler(
+                    ambiente.bean(RelatorioService.class), ambiente.bean(RelatorioMultiJanelaService.class),
+                    ambiente.bean(ExportacaoAvaliacaoService.class), ambiente.bean(ArquivamentoService.class),
+                    ambiente.bean(ResumoMediaService.class), medicaoLatencia, rastreamento, protecao);
+
+            ambiente.sqs().simulacao().latencia(latenciaSqsMs, latenciaSqsMs / 5);
+            AmostrasLatencia criticas = new AmostrasLatencia("CRITICA");
+            AmostrasLatencia medias = new AmostrasLatencia("MEDIA");
+            AtomicInteger enviadasCriticas = new AtomicInteger();
+            AtomicInteger erros = new AtomicInteger();
+
+            try (ExecutorService executor = Executors.newFixedThreadPool(concorrencia)) {
+                List<Future<?>> futuros = new ArrayList<>(requisicoes);
+                for (int i = 0; i < requisicoes; i++) {
+                    boolean critica = i % 10 == 0;
+                    futuros.add(executor.submit(() -> {
+                        APIGatewayProxyRequestEvent evento = new APIGatewayProxyRequestEvent()
+                                .withHttpMethod("POST")
+                                .withPath("/avaliacao")
+                                .withBody("{\"descricao\":\"Avaliação " + (critica ? "crítica" : "média")
+                                        + "\",\"nota\":" + (critica ? 2 : 5) + "}");
+                        long inicio = System.nanoTime();
+                        APIGatewayProxyResponseEvent resposta = receber.handleRequest(evento,
+                                new ContextoLambdaFake("receber-feedback", 30, 512, false));
+                        (critica ? criticas : medias).registrar(System.nanoTime() - inicio);
+                        if (critica) {
+                            enviadasCriticas.incrementAndGet();
+                        }
+                        if (resposta.getStatusCode() != 201) {
+                            erros.incrementAndGet();
+                        }
+                    }));
+                }
+                for (Future<?> futuro : futuros) {
+                    futuro.get();
+                }
+            }
+
+            System.out.println();
+            System.out.println("========== FAIXAS POR URGÊNCIA ==========");
+            System.out.printf("%d avaliações (1 crítica a cada 10), concorrência %d, SQS ~%d ms, %d erros%n",
+                    requisicoes, concorrencia, latenciaSqsMs, erros.get());
+            System.out.printf("%-10s %10s %12s %10s %10s %10s%n", "Faixa", "Recebidas", "Enfileiradas",
+                    "p50 (ms)", "p99 (ms)", "max (ms)");
+            imprimir(criticas.resumir(), ambiente.sqs().tamanho(AmbienteOffline.FILA_NOTIFICACAO));
+            imprimir(medias.resumir(), ambiente.sqs().tamanho(AmbienteOffline.FILA_RESUMO_MEDIA));
+            System.out.printf("Críticas fora da fila de notificações: %d%n",
+                    enviadasCriticas.get() - ambiente.sqs().tamanho(AmbienteOffline.FILA_NOTIFICACAO));
+
+            ambiente.sqs().simulacao().latencia(0, 0);
+            long emailsAntes = ambiente.ses().getEmails();
+            ScheduledEvent evento = new ScheduledEvent();
+            evento.setId("carga-local");
+            evento.setDetail(Map.of("resumoMedia", true, "dia", LocalDate.now().toString()));
+            long inicio = System.nanoTime();
+            String resultado = relatorio.handleRequest(evento, new ContextoLambdaFake("gerar-relatorio", 300, 512, false));
+            System.out.printf("Resumo diário: %s (%d e-mail, %.0f ms, %d mensagens restantes na fila)%n", resultado,
+                    ambiente.ses().getEmails() - emailsAntes, (System.nanoTime() - inicio) / 1e6,
+                    ambiente.sqs().tamanho(AmbienteOffline.FILA_RESUMO_MEDIA));
+        }
+    }
+
+    private static void imprimir(AmostrasLatencia.Resumo resumo, int enfileiradas) {
+        System.out.printf("%-10s %10d %12d %10.2f %10.2f %10.2f%n", resumo.etapa(), resumo.amostras(), enfileiradas,
+                resumo.p50Ms(), resumo.p99Ms(), resumo.maxMs());
+    }
+}
@@ -0,0 +1,126 @@
+package lambda.fase4.carga;
+
+import com.google.gson.GsonBuilder;
+import lambda.fase4.dto.AvaliacaoRequest;
+import lambda.fase4.model.Avaliacao;
+import lambda.fase4.service.AvaliacaoService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Carga do recebimento de avaliações no modo Spring Boot: transação por requisição
+ * ({@link AvaliacaoService#processarAvaliacao}) contra gravação agrupada
+ * ({@link AvaliacaoService#processarAvaliacaoAgrupada}), com clientes em threads virtuais.
+ *
+ * Cada cliente envia suas requisições em sequência (carga fechada); a comparação mostra
+ * requisições/s e percentis de latência de cada modo. O PostgreSQL embarcado roda com
+ * synchronous_commit ligado, para que cada commit espere o fsync como em produção.
+ *
+ * Execução:
+ * <pre>
+ * ./mvnw -DskipTests test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=lambda.fase4.carga.GravacaoAgrupadaCargaRunner \
+ *     -Dcarga.requisicoes=20000 -Dcarga.clientes=200 -Dcarga.tamanho-lote=100 -Dcarga.espera-ms=5
+ * </pre>
+ *
+ * Propriedades (todas opcionais): carga.requisicoes, carga.clientes, carga.tamanho-lote, carga.espera-ms,
+ * carga.aquecimento, carga.commit-sincrono, carga.jdbc-url, carga.saida
+ */
+public class GravacaoAgrupadaCargaRunner {
+
+    private final int requisicoes = Integer.getInteger("carga.requisicoes", 10000);
+    private final int clientes = Integer.getInteger("carga.clientes", 100);
+    private final int aquecimento = Integer.getInteger("carga.aquecimento", 2000);
+    private final Path saida = Path.of(System.getProperty("carga.saida", "target/carga/gravacao-agrupada.json"));
+
+    private final Map<String, Object> resultado = new LinkedHashMap<>();
+    private final List<AmostrasLatencia.Resumo> modos = new ArrayList<>();
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("carga.commit-sincrono", System.getProperty("carga.commit-sincrono", "true"));
+        new GravacaoAgrupadaCargaRunner().executar();
+    }
+
+    void executar() throws Exception {
+        try (AmbienteOffline ambiente = new AmbienteOffline().iniciar(Map.of(
+                "avaliacao.gravacao-agrupada.tamanho-lote", Integer.getInteger("carga.tamanho-lote", 100),
+                "avaliacao.gravacao-agrupada.espera-maxima-ms", Integer.getInteger("carga.espera-ms", 5)))) {
+            AvaliacaoService avaliacaoService = ambiente.bean(AvaliacaoService.class);
+
+            executarModo("transacao-por-requisicao", avaliacaoService::processarAvaliacao, aquecimento, false);
+            executarModo("gravacao-agrupada", avaliacaoService::processarAvaliacaoAgrupada, aquecimento, false);
+            executarModo("transacao-por-requisicao", avaliacaoService::processarAvaliacao, requisicoes, true);
+            executarModo("gravacao-agrupada", avaliacaoService::processarAvaliacaoAgrupada, requisicoes, true);
+        }
+        publicarResultado();
+    }
+
+    private void executarModo(String modo, Function<AvaliacaoRequest, Avaliacao> receber, int total,
+                              boolean registrar) throws Exception {
+        AmostrasLatencia amostras = new AmostrasLatencia(modo);
+        int porCliente = Math.max(1, total / clientes);
+        long inicio = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futuros = new ArrayList<>(clientes);
+            for (int cliente = 0; cliente < clientes; cliente++) {
+                SplittableRandom random = new SplittableRandom(cliente);
+                futuros.add(executor.submit(() -> {
+                    for (int i = 0; i < porCliente; i++) {
+                        AvaliacaoRequest request = new AvaliacaoRequest(
+                                "Avaliação de carga da gravação agrupada", random.nextInt(11));
+                        long inicioRequisicao = System.nanoTime();
+                        receber.apply(request);
+                        amostras.registrar(System.nanoTime() - inicioRequisicao);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> futuro : futuros) {
+                futuro.get();
+            }
+        }
+        long duracaoNanos = System.nanoTime() - inicio;
+        if (!registrar) {
+            return;
+        }
+
+        AmostrasLatencia.Resumo resumo = amostras.resumir();
+        modos.add(resumo);
+        resultado.put(modo, Map.of(
+                "requisicoes", resumo.amostras(),
+                "requisicoesPorSegundo", resumo.amostras() / (duracaoNanos / 1e9),
+                "p50Ms", resumo.p50Ms(),
+                "p99Ms", resumo.p99Ms(),
+                "maxMs", resumo.maxMs()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void publicarResultado() throws IOException {
+        resultado.put("clientes", clientes);
+        String json = new GsonBuilder().setPrettyPrinting().create().toJson(resultado);
+        Files.createDirectories(saida.toAbsolutePath().getParent());
+        Files.writeString(saida, json);
+
+        System.out.println();
+        System.out.println("========== GRAVAÇÃO AGRUPADA x TRANSAÇÃO POR REQUISIÇÃO ==========");
+        System.out.printf("Clientes (threads virtuais): %d%n", clientes);
+        System.out.printf("%-28s %8s %12s %10s %10s %10s%n", "Modo", "Reqs", "reqs/s", "p50 (ms)", "p99 (ms)", "max (ms)");
+        for (AmostrasLatencia.Resumo resumo : modos) {
+            Map<String, Object> modo = (Map<String, Object>) resultado.get(resumo.etapa());
+            System.out.printf("%-28s %8d %12.1f %10.2f %10.2f %10.2f%n", resumo.etapa(), resumo.amostras(),
+                    (Double) modo.get("requisicoesPorSegundo"), resumo.p50Ms(), resumo.p99Ms(), resumo.maxMs());
+        }
+        System.out.println("Resultado completo: " + saida.toAbsolutePath());
+    }
+}
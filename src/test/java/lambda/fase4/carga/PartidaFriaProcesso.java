@@ -0,0 +1,214 @@
+package lambda.fase4.carga;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.amazonaws.services.lambda.runtime.events.SQSBatchResponse;
+import com.amazonaws.services.lambda.runtime.events.SQSEvent;
+import com.amazonaws.services.lambda.runtime.events.ScheduledEvent;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import lambda.fase4.fakes.ContextoLambdaFake;
+import lambda.fase4.lambda.EnviarNotificacaoHandler;
+import lambda.fase4.lambda.GerarRelatorioHandler;
+import lambda.fase4.lambda.ReceberFeedbackHandler;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+/**
+ * Processo de uma medição de partida a frio ({@link PartidaFriaRunner}): JVM nova, um handler criado
+ * pelo construtor padrão (o mesmo caminho da Lambda), uma invocação fria e {@code invocacoes} quentes.
+ *
+ * Argumentos: handler (receber, notificacao ou relatorio), invocações quentes, arquivo JSON do
+ * resultado e, para a notificação, o arquivo com os corpos das mensagens SQS (um JSON por linha,
+ * uma mensagem por invocação). Os tempos de inicialização por fase vêm da linha EMF de partida a
+ * frio emitida pelo próprio handler na primeira invocação.
+ */
+public class PartidaFriaProcesso {
+
+    static final String PERFIL = "partida-fria";
+
+    private static final Gson GSON = new Gson();
+
+    private final String handler;
+    private final int invocacoes;
+    private final List<String> mensagens;
+    private final List<String> logs = new ArrayList<>();
+
+    private PartidaFriaProcesso(String handler, int invocacoes, List<String> mensagens) {
+        this.handler = handler;
+        this.invocacoes = invocacoes;
+        this.mensagens = mensagens;
+    }
+
+    public static void main(String[] args) throws Exception {
+        long entradaMain = System.currentTimeMillis();
+        executar(args[0], Integer.parseInt(args[1]), Path.of(args[2]), args.length > 3 ? Path.of(args[3]) : null,
+                entradaMain);
+        // Threads do pool de conexões não são daemon; a saída também grava a gravação JFR (dumponexit)
+        System.exit(0);
+    }
+
+    /**
+     * Mede um handler e grava o resultado; também chamado por reflexão pelo {@link RuntimeLambdaSimulado},
+     * de dentro do class loader do pacote da Lambda.
+     */
+    public static void executar(String handler, int invocacoes, Path resultado, Path mensagens, long entradaMain)
+            throws IOException {
+        List<String> corpos = mensagens != null ? Files.readAllLines(mensagens) : List.of();
+        Map<String, Object> dados = new PartidaFriaProcesso(handler, invocacoes, corpos).executar(entradaMain);
+        Files.writeString(resultado, new GsonBuilder().setPrettyPrinting().create().toJson(dados));
+    }
+
+    private Map<String, Object> executar(long entradaMain) {
+        long partidaJvm = ManagementFactory.getRuntimeMXBean().getStartTime();
+
+        long inicio = System.nanoTime();
+        IntPredicate invocar = criarHandler();
+        double initMs = millis(System.nanoTime() - inicio);
+        Map<String, Double> rssInit = memoriaProcesso();
+        long classesInit = ManagementFactory.getClassLoadingMXBean().getTotalLoadedClassCount();
+
+        inicio = System.nanoTime();
+        boolean primeiraOk = invocar.test(0);
+        double primeiraMs = millis(System.nanoTime() - inicio);
+        long primeiraResposta = System.currentTimeMillis() - partidaJvm;
+        Map<String, Double> rssPrimeira = memoriaProcesso();
+
+        AmostrasLatencia quentes = new AmostrasLatencia(handler);
+        int erros = primeiraOk ? 0 : 1;
+        for (int i = 1; i <= invocacoes; i++) {
+            inicio = System.nanoTime();
+            boolean ok = invocar.test(i);
+            quentes.registrar(System.nanoTime() - inicio);
+            if (!ok) {
+                erros++;
+            }
+        }
+        AmostrasLatencia.Resumo resumo = quentes.resumir();
+
+        Map<String, Object> resultado = new LinkedHashMap<>();
+        resultado.put("handler", handler);
+        resultado.put("jvmAteMainMs", (double) (entradaMain - partidaJvm));
+        resultado.put("initMs", initMs);
+        resultado.put("primeiraInvocacaoMs", primeiraMs);
+        resultado.put("partidaAtePrimeiraRespostaMs", (double) primeiraResposta);
+        resultado.put("invocacoesQuentes", resumo.amostras());
+        resultado.put("quenteP50Ms", resumo.p50Ms());
+        resultado.put("quenteP99Ms", resumo.p99Ms());
+        resultado.put("quenteMaxMs", resumo.maxMs());
+        resultado.put("erros", erros);
+        resultado.put("classesCarregadasInit", classesInit);
+        resultado.put("rssInitMb", rssInit.get("VmRSS"));
+        resultado.put("rssPrimeiraInvocacaoMb", rssPrimeira.get("VmRSS"));
+        resultado.put("rssFinalMb", memoriaProcesso().get("VmRSS"));
+        resultado.put("rssPicoMb", memoriaProcesso().get("VmHWM"));
+        resultado.put("fasesInit", fasesInit());
+        return resultado;
+    }
+
+    /**
+     * Cria o handler pelo construtor padrão e devolve a invocação do i-ésimo evento (true se bem-sucedida).
+     */
+    private IntPredicate criarHandler() {
+        return switch (handler) {
+            case "receber" -> {
+                ReceberFeedbackHandler receber = new ReceberFeedbackHandler();
+                yield i -> {
+                    APIGatewayProxyRequestEvent evento = new APIGatewayProxyRequestEvent()
+                            .withHttpMethod("POST")
+                            .withPath("/avaliacao")
+                            .withBody("{\"descricao\":\"Avaliação da partida a frio " + i + "\",\"nota\":" + (i % 11) + "}");
+                    APIGatewayProxyResponseEvent resposta = receber.handleRequest(evento, contexto("receber-feedback", 30));
+                    return resposta.getStatusCode() == 201;
+                };
+            }
+            case "notificacao" -> {
+                EnviarNotificacaoHandler enviar = new EnviarNotificacaoHandler();
+                yield i -> {
+                    if (i >= mensagens.size()) {
+                        throw new IllegalStateException("Mensagens insuficientes para a invocação " + i);
+                    }
+                    SQSEvent.SQSMessage mensagem = new SQSEvent.SQSMessage();
+                    mensagem.setMessageId("partida-fria-" + i);
+                    mensagem.setReceiptHandle("partida-fria-" + i);
+                    mensagem.setBody(mensagens.get(i));
+                    mensagem.setAttributes(Map.of("ApproximateReceiveCount", "1",
+                            "SentTimestamp", String.valueOf(System.currentTimeMillis())));
+                    SQSEvent evento = new SQSEvent();
+                    evento.setRecords(List.of(mensagem));
+                    int inicioLogs = logs.size();
+                    SQSBatchResponse resposta = enviar.handleRequest(evento, contexto("enviar-notificacao", 60));
+                    // Mensagens inválidas vão para a DLQ sem falha no lote; o sucesso é o envio da notificação
+                    return resposta.getBatchItemFailures().isEmpty() && logs.subList(inicioLogs, logs.size()).stream()
+                            .anyMatch(linha -> linha.equals("Notificação enviada com sucesso: " + mensagem.getMessageId()));
+                };
+            }
+            case "relatorio" -> {
+                GerarRelatorioHandler relatorio = new GerarRelatorioHandler();
+                yield i -> {
+                    ScheduledEvent evento = new ScheduledEvent();
+                    evento.setId("partida-fria-" + i);
+                    evento.setDetail(Map.of());
+                    String resposta = relatorio.handleRequest(evento, contexto("gerar-relatorio", 300));
+                    return resposta != null && !resposta.startsWith("Erro");
+                };
+            }
+            default -> throw new IllegalArgumentException("Handler desconhecido: " + handler);
+        };
+    }
+
+    private ContextoLambdaFake contexto(String funcao, int timeoutSegundos) {
+        return new ContextoLambdaFake(funcao, timeoutSegundos, Integer.getInteger("partida-fria.memoria-mb", 512), logs::add);
+    }
+
+    /**
+     * Fases da inicialização da linha EMF de partida a frio (vazio se o handler não a emitiu).
+     */
+    private Map<String, Object> fasesInit() {
+        for (String linha : logs) {
+            if (linha.startsWith("{") && linha.contains("\"ColdStart\":true")) {
+                Map<String, Object> documento = GSON.fromJson(linha, new TypeToken<Map<String, Object>>() {
+                }.getType());
+                Map<String, Object> fases = new LinkedHashMap<>();
+                documento.forEach((chave, valor) -> {
+                    if (chave.startsWith("init.") || chave.startsWith("invocacao.") || chave.equals("BeansMaisLentos")) {
+                        fases.put(chave, valor);
+                    }
+                });
+                return fases;
+            }
+        }
+        return Map.of();
+    }
+
+    /**
+     * VmRSS (residente) e VmHWM (pico residente) do processo, em MB (/proc, apenas Linux).
+     */
+    private static Map<String, Double> memoriaProcesso() {
+        Map<String, Double> memoria = new LinkedHashMap<>();
+        try {
+            for (String linha : Files.readAllLines(Path.of("/proc/self/status"))) {
+                if (linha.startsWith("VmRSS:") || linha.startsWith("VmHWM:")) {
+                    String[] partes = linha.split("\\s+");
+                    memoria.put(partes[0].substring(0, partes[0].length() - 1), Long.parseLong(partes[1]) / 1024.0);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Fora do Linux a memória do processo não é medida
+        }
+        return memoria;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
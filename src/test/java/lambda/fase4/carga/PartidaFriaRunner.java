@@ -0,0 +1,346 @@
+package lambda.fase4.carga;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.SQSEvent;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParser;
+import com.google.gson.ToNumberPolicy;
+import com.google.gson.reflect.TypeToken;
+import com.zaxxer.hikari.HikariDataSource;
+import lambda.fase4.fakes.ContextoLambdaFake;
+import lambda.fase4.lambda.ReceberFeedbackHandler;
+import lambda.fase4.service.AvaliacaoService;
+import lambda.fase4.service.MedicaoLatenciaService;
+import lambda.fase4.service.ProtecaoDependenciasService;
+import lambda.fase4.service.RastreamentoService;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+/**
+ * Partida a frio dos três handlers, cada execução numa JVM nova ({@link PartidaFriaProcesso}) com
+ * flags próximas às do runtime java21 da Lambda e o heap limitado pela memória da função.
+ *
+ * O PostgreSQL (embarcado ou {@code carga.jdbc-url}) é preparado uma vez pela aplicação offline,
+ * que também gera as mensagens de notificação consumidas pelo handler de notificações. Os
+ * processos filhos criam o handler pelo construtor padrão, com os clientes AWS em memória
+ * ({@link ClientesFakesPartidaFria}), fazem uma invocação fria e {@code partida-fria.invocacoes}
+ * quentes, e gravam um JSON com init, primeira invocação, percentis quentes, RSS e as fases da
+ * inicialização; cada execução tem a sua gravação JFR. O resumo mostra a mediana das repetições.
+ *
+ * Execução:
+ * <pre>
+ * ./mvnw -DskipTests test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=lambda.fase4.carga.PartidaFriaRunner -Dpartida-fria.repeticoes=3
+ * </pre>
+ *
+ * Com {@code partida-fria.pacote} (ex. {@code target/lambda}, gerado pelo perfil appcds), os handlers
+ * são carregados dos jars do pacote da Lambda pelo {@link RuntimeLambdaSimulado}, como no runtime
+ * gerenciado; com o arquivo AppCDS do pacote:
+ * <pre>
+ * ./mvnw -Pappcds -DskipTests package
+ * ./mvnw -DskipTests exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=lambda.fase4.carga.PartidaFriaRunner -Dpartida-fria.pacote=target/lambda \
+ *     -Dpartida-fria.jvm-args=-XX:SharedArchiveFile=target/lambda/fase4.jsa
+ * </pre>
+ *
+ * Propriedades:
+ * - partida-fria.handlers (receber,notificacao,relatorio), partida-fria.repeticoes, partida-fria.invocacoes
+ * - partida-fria.memoria-mb (heap máximo em ~85% dela), partida-fria.jvm-args (flags adicionais, ex. AppCDS)
+ * - partida-fria.jfr (grava JFR, padrão true), partida-fria.saida (diretório dos resultados)
+ * - partida-fria.pacote (diretório do pacote da Lambda; sem ela, o classpath de teste)
+ */
+public class PartidaFriaRunner {
+
+    private static final Map<String, String> FUNCOES = Map.of(
+            "receber", "receber-feedback",
+            "notificacao", "enviar-notificacao",
+            "relatorio", "gerar-relatorio");
+
+    /**
+     * Flags do runtime java21 gerenciado (JAVA_TOOL_OPTIONS padrão da Lambda): compilação só em C1 e SerialGC.
+     */
+    static final List<String> FLAGS_LAMBDA = List.of(
+            "-XX:+TieredCompilation", "-XX:TieredStopAtLevel=1", "-XX:+UseSerialGC",
+            "-Xshare:auto", "-Djava.net.preferIPv4Stack=true");
+
+    private static final long TIMEOUT_PROCESSO_SEGUNDOS = 300;
+
+    private final List<String> handlers = Arrays.asList(
+            System.getProperty("partida-fria.handlers", "receber,notificacao,relatorio").split(","));
+    private final int repeticoes = Integer.getInteger("partida-fria.repeticoes", 3);
+    private final int invocacoes = Integer.getInteger("partida-fria.invocacoes", 20);
+    private final int memoriaMb = Integer.getInteger("partida-fria.memoria-mb", 512);
+    private final String jvmArgs = System.getProperty("partida-fria.jvm-args", "").trim();
+    private final boolean jfr = Boolean.parseBoolean(System.getProperty("partida-fria.jfr", "true"));
+    private final Path saida = Path.of(System.getProperty("partida-fria.saida", "target/partida-fria")).toAbsolutePath();
+    private final String pacote = System.getProperty("partida-fria.pacote");
+
+    public static void main(String[] args) throws Exception {
+        new PartidaFriaRunner().executar();
+        // Threads do contexto offline não são daemon
+        System.exit(0);
+    }
+
+    void executar() throws Exception {
+        Files.createDirectories(saida);
+        try (AmbienteOffline ambiente = new AmbienteOffline().iniciar(Map.of())) {
+            String jdbcUrl = ambiente.bean(HikariDataSource.class).getJdbcUrl();
+            int totalMensagens = handlers.contains("notificacao") ? (invocacoes + 1) * repeticoes : 0;
+            Path mensagens = prepararMensagens(ambiente, totalMensagens, saida.resolve("mensagens-notificacao.jsonl"));
+            List<String> inicializacao = pacote == null
+                    ? List.of("-cp", classpath(), PartidaFriaProcesso.class.getName())
+                    : inicializacaoPacote();
+
+            Map<String, List<Map<String, Object>>> execucoes = new LinkedHashMap<>();
+            for (int repeticao = 1; repeticao <= repeticoes; repeticao++) {
+                for (String handler : handlers) {
+                    Map<String, Object> resultado = executarProcesso(handler, repeticao, jdbcUrl, inicializacao, mensagens);
+                    execucoes.computeIfAbsent(handler, h -> new ArrayList<>()).add(resultado);
+                    System.out.printf("%s #%d: init %.0f ms, primeira invocação %.0f ms, processo %d ms%n", handler,
+                            repeticao, numero(resultado, "initMs"), numero(resultado, "primeiraInvocacaoMs"),
+                            (long) numero(resultado, "processoMs"));
+                }
+            }
+            imprimir(execucoes);
+        }
+    }
+
+    /**
+     * Avaliações críticas pelo handler de recebimento da aplicação offline e as mensagens que elas
+     * deixam na fila de notificações, uma por linha. Cada processo de notificação consome as suas,
+     * sem repetir as já notificadas.
+     */
+    static Path prepararMensagens(AmbienteOffline ambiente, int total, Path arquivo) throws Exception {
+        ReceberFeedbackHandler receber = new ReceberFeedbackHandler(ambiente.bean(AvaliacaoService.class),
+                ambiente.bean(MedicaoLatenciaService.class), ambiente.bean(RastreamentoService.class),
+                ambiente.bean(ProtecaoDependenciasService.class));
+        for (int i = 0; i < total; i++) {
+            receber.handleRequest(new APIGatewayProxyRequestEvent()
+                    .withHttpMethod("POST")
+                    .withPath("/avaliacao")
+                    .withBody("{\"descricao\":\"Avaliação crítica para a partida a frio " + i + "\",\"nota\":1}"),
+                    new ContextoLambdaFake("receber-feedback", 30, 512, false));
+        }
+        List<String> corpos = ambiente.sqs().receber(AmbienteOffline.FILA_NOTIFICACAO, total).stream()
+                .map(mensagem -> JsonParser.parseString(mensagem.getBody()).toString())
+                .toList();
+        Files.createDirectories(arquivo.toAbsolutePath().getParent());
+        Files.write(arquivo, corpos);
+        return arquivo;
+    }
+
+    /**
+     * Início do processo filho pelo pacote da Lambda: no classpath da aplicação, só o
+     * {@link RuntimeLambdaSimulado} (como o cliente do runtime na Lambda); os fakes entram no fim do
+     * class loader do pacote.
+     */
+    private List<String> inicializacaoPacote() throws Exception {
+        Path diretorioPacote = Path.of(pacote).toAbsolutePath();
+        Path simulador = saida.resolve("runtime-simulado.jar");
+        Path fakes = saida.resolve("fakes.jar");
+        Path classesTeste = Path.of(PartidaFriaProcesso.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        empacotar(classesTeste, simulador, RuntimeLambdaSimulado.class);
+        empacotar(classesTeste, fakes, null);
+        return List.of("-cp", simulador.toString(), RuntimeLambdaSimulado.class.getName(),
+                diretorioPacote.toString(), fakes.toString());
+    }
+
+    private Map<String, Object> executarProcesso(String handler, int repeticao, String jdbcUrl,
+                                                 List<String> inicializacao, Path mensagens) throws Exception {
+        String nome = handler + "-" + repeticao;
+        Path resultado = saida.resolve(nome + ".json");
+        Path log = saida.resolve(nome + ".log");
+        Files.deleteIfExists(resultado);
+
+        List<String> comando = new ArrayList<>();
+        comando.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        comando.add("-XX:MaxHeapSize=" + memoriaMb * 85 / 100 + "m");
+        comando.addAll(FLAGS_LAMBDA);
+        if (!jvmArgs.isEmpty()) {
+            comando.addAll(Arrays.asList(jvmArgs.split("\\s+")));
+        }
+        Path gravacao = saida.resolve(nome + ".jfr");
+        if (jfr) {
+            comando.add("-XX:StartFlightRecording=filename=" + gravacao + ",settings=profile,dumponexit=true");
+        }
+        comando.addAll(propriedadesProcesso(jdbcUrl, memoriaMb));
+        comando.addAll(inicializacao);
+        Path fatia = null;
+        if (handler.equals("notificacao")) {
+            // Fatia desta repetição: mensagens já notificadas seriam descartadas como duplicadas
+            fatia = saida.resolve(nome + "-mensagens.jsonl");
+            List<String> todas = Files.readAllLines(mensagens);
+            int inicio = (repeticao - 1) * (invocacoes + 1);
+            Files.write(fatia, todas.subList(inicio, Math.min(todas.size(), inicio + invocacoes + 1)));
+        }
+        if (pacote == null) {
+            comando.addAll(List.of(handler, String.valueOf(invocacoes), resultado.toString()));
+            if (fatia != null) {
+                comando.add(fatia.toString());
+            }
+        } else {
+            // O RuntimeLambdaSimulado grava <handler>.json no diretório informado
+            comando.addAll(List.of(saida.resolve(nome).toString(), String.valueOf(invocacoes),
+                    fatia != null ? fatia.toString() : "-", handler));
+        }
+
+        ProcessBuilder builder = new ProcessBuilder(comando)
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile());
+        configurarAmbiente(builder, handler, memoriaMb);
+
+        long inicio = System.nanoTime();
+        Process processo = builder.start();
+        if (!processo.waitFor(TIMEOUT_PROCESSO_SEGUNDOS, TimeUnit.SECONDS)) {
+            processo.destroyForcibly();
+            throw new IllegalStateException(nome + " excedeu " + TIMEOUT_PROCESSO_SEGUNDOS + " s; veja " + log);
+        }
+        long processoMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+        if (pacote != null && Files.exists(saida.resolve(nome).resolve(handler + ".json"))) {
+            Files.move(saida.resolve(nome).resolve(handler + ".json"), resultado);
+            Files.delete(saida.resolve(nome));
+        }
+        if (processo.exitValue() != 0 || !Files.exists(resultado)) {
+            throw new IllegalStateException(nome + " terminou com código " + processo.exitValue() + "; veja " + log);
+        }
+
+        Map<String, Object> dados = new GsonBuilder()
+                .setObjectToNumberStrategy(ToNumberPolicy.LONG_OR_DOUBLE)
+                .create()
+                .fromJson(Files.readString(resultado), new TypeToken<LinkedHashMap<String, Object>>() {
+                }.getType());
+        dados.put("repeticao", repeticao);
+        dados.put("processoMs", processoMs);
+        dados.put("log", log.toString());
+        if (jfr) {
+            dados.put("jfr", gravacao.toString());
+        }
+        Files.writeString(resultado, new GsonBuilder().setPrettyPrinting().create().toJson(dados));
+        return dados;
+    }
+
+    /**
+     * Propriedades do processo filho: banco preparado, clientes AWS em memória e filas da aplicação offline.
+     */
+    static List<String> propriedadesProcesso(String jdbcUrl, int memoriaMb) {
+        return List.of(
+                "-Dspring.datasource.url=" + jdbcUrl,
+                "-Dspring.datasource.username=postgres",
+                "-Dspring.datasource.password=",
+                "-Dspring.profiles.active=" + PartidaFriaProcesso.PERFIL,
+                "-Daws.sqs.queue.notificacao.url=" + AmbienteOffline.FILA_NOTIFICACAO,
+                "-Daws.sqs.queue.notificacao.dlq.url=" + AmbienteOffline.FILA_NOTIFICACAO_DLQ,
+                "-Daws.sqs.queue.resumo-media.url=" + AmbienteOffline.FILA_RESUMO_MEDIA,
+                "-Dpartida-fria.memoria-mb=" + memoriaMb);
+    }
+
+    /**
+     * Variáveis de ambiente que o runtime da Lambda define, com credenciais fictícias.
+     */
+    static void configurarAmbiente(ProcessBuilder builder, String handler, int memoriaMb) {
+        builder.environment().put("AWS_REGION", "us-east-2");
+        builder.environment().put("AWS_ACCESS_KEY_ID", "teste");
+        builder.environment().put("AWS_SECRET_ACCESS_KEY", "teste");
+        builder.environment().put("AWS_LAMBDA_FUNCTION_NAME", FUNCOES.getOrDefault(handler, handler));
+        builder.environment().put("AWS_LAMBDA_FUNCTION_MEMORY_SIZE", String.valueOf(memoriaMb));
+    }
+
+    /**
+     * Jar com as classes de teste: todas (com as entradas de diretório, que o scan de pacotes do
+     * Spring procura) ou, com {@code classe}, só ela.
+     */
+    static void empacotar(Path classesTeste, Path jar, Class<?> classe) throws IOException {
+        Files.createDirectories(jar.toAbsolutePath().getParent());
+        try (JarOutputStream saidaJar = new JarOutputStream(Files.newOutputStream(jar));
+             Stream<Path> arquivos = Files.walk(classesTeste)) {
+            for (Path arquivo : arquivos.filter(arquivo -> !arquivo.equals(classesTeste)).sorted().toList()) {
+                String entrada = classesTeste.relativize(arquivo).toString().replace(File.separatorChar, '/');
+                if (Files.isDirectory(arquivo)) {
+                    if (classe == null) {
+                        saidaJar.putNextEntry(new JarEntry(entrada + "/"));
+                        saidaJar.closeEntry();
+                    }
+                } else if (classe == null || entrada.equals(classe.getName().replace('.', '/') + ".class")) {
+                    saidaJar.putNextEntry(new JarEntry(entrada));
+                    Files.copy(arquivo, saidaJar);
+                    saidaJar.closeEntry();
+                }
+            }
+        }
+    }
+
+    /**
+     * Classpath do processo atual: o do exec:java fica no class loader de contexto, não em java.class.path.
+     */
+    private static String classpath() throws Exception {
+        if (Thread.currentThread().getContextClassLoader() instanceof URLClassLoader loader
+                && loader.getURLs().length > 0) {
+            List<String> entradas = new ArrayList<>();
+            for (URL url : loader.getURLs()) {
+                entradas.add(Path.of(url.toURI()).toString());
+            }
+            return String.join(File.pathSeparator, entradas);
+        }
+        return System.getProperty("java.class.path");
+    }
+
+    private void imprimir(Map<String, List<Map<String, Object>>> execucoes) throws Exception {
+        String[] metricas = {"initMs", "primeiraInvocacaoMs", "partidaAtePrimeiraRespostaMs", "quenteP50Ms",
+                "quenteP99Ms", "rssPrimeiraInvocacaoMb", "rssPicoMb"};
+        Map<String, Map<String, Double>> medianas = new LinkedHashMap<>();
+        execucoes.forEach((handler, lista) -> {
+            Map<String, Double> porMetrica = new LinkedHashMap<>();
+            for (String metrica : metricas) {
+                porMetrica.put(metrica, mediana(lista.stream().map(dados -> numero(dados, metrica)).toList()));
+            }
+            medianas.put(handler, porMetrica);
+        });
+
+        Map<String, Object> resultado = new LinkedHashMap<>();
+        resultado.put("java", System.getProperty("java.version"));
+        resultado.put("memoriaMb", memoriaMb);
+        resultado.put("flags", FLAGS_LAMBDA);
+        resultado.put("jvmArgs", jvmArgs);
+        resultado.put("pacote", pacote);
+        resultado.put("repeticoes", repeticoes);
+        resultado.put("invocacoesQuentes", invocacoes);
+        resultado.put("medianas", medianas);
+        resultado.put("execucoes", execucoes);
+        Path arquivo = saida.resolve("resultado.json");
+        Files.writeString(arquivo, new GsonBuilder().setPrettyPrinting().create().toJson(resultado));
+
+        System.out.println();
+        System.out.printf("Memória: %d MB | Repetições: %d | Invocações quentes: %d | Pacote: %s | Flags adicionais: %s%n",
+                memoriaMb, repeticoes, invocacoes, pacote == null ? "-" : pacote, jvmArgs.isEmpty() ? "-" : jvmArgs);
+        System.out.printf("%-12s %10s %12s %14s %10s %10s %10s %10s%n", "Handler", "init (ms)", "1ª inv. (ms)",
+                "1ª resp. (ms)", "p50 (ms)", "p99 (ms)", "RSS (MB)", "pico (MB)");
+        medianas.forEach((handler, valores) -> System.out.printf("%-12s %10.0f %12.0f %14.0f %10.2f %10.2f %10.1f %10.1f%n",
+                handler, valores.get("initMs"), valores.get("primeiraInvocacaoMs"), valores.get("partidaAtePrimeiraRespostaMs"),
+                valores.get("quenteP50Ms"), valores.get("quenteP99Ms"), valores.get("rssPrimeiraInvocacaoMb"), valores.get("rssPicoMb")));
+        System.out.println("Resultado completo: " + arquivo);
+    }
+
+    private static double numero(Map<String, Object> dados, String chave) {
+        return dados.get(chave) instanceof Number numero ? numero.doubleValue() : Double.NaN;
+    }
+
+    private static double mediana(List<Double> valores) {
+        List<Double> ordenados = valores.stream().sorted().toList();
+        int meio = ordenados.size() / 2;
+        return ordenados.size() % 2 == 1 ? ordenados.get(meio) : (ordenados.get(meio - 1) + ordenados.get(meio)) / 2;
+    }
+}
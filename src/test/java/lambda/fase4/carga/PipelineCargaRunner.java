@@ -0,0 +1,326 @@
+package lambda.fase4.carga;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.amazonaws.services.lambda.runtime.events.SQSBatchResponse;
+import com.amazonaws.services.lambda.runtime.events.SQSEvent;
+import com.amazonaws.services.lambda.runtime.events.ScheduledEvent;
+import com.google.gson.GsonBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import lambda.fase4.fakes.ContextoLambdaFake;
+import lambda.fase4.fakes.SimulacaoFalhas;
+import lambda.fase4.lambda.EnviarNotificacaoHandler;
+import lambda.fase4.lambda.GerarRelatorioHandler;
+import lambda.fase4.lambda.ReceberFeedbackHandler;
+import lambda.fase4.service.ArquivamentoService;
+import lambda.fase4.service.AvaliacaoService;
+import lambda.fase4.service.DeduplicacaoNotificacaoService;
+import lambda.fase4.service.ExportacaoAvaliacaoService;
+import lambda.fase4.service.FilaNotificacaoService;
+import lambda.fase4.service.MedicaoLatenciaService;
+import lambda.fase4.service.NotificacaoService;
+import lambda.fase4.service.ProtecaoDependenciasService;
+import lambda.fase4.service.RastreamentoService;
+import lambda.fase4.service.RelatorioMultiJanelaService;
+import lambda.fase4.service.RelatorioService;
+import lambda.fase4.service.ResumoMediaService;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Harness de carga offline do pipeline completo:
+ * ReceberFeedbackHandler -> fila SQS (em memória) -> EnviarNotificacaoHandler -> GerarRelatorioHandler.
+ *
+ * Execução:
+ * <pre>
+ * ./mvnw -DskipTests test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=lambda.fase4.carga.PipelineCargaRunner \
+ *     -Dcarga.avaliacoes=10000 -Dcarga.concorrencia=8 -Dcarga.latencia-ms.ses=40 -Dcarga.taxa-erro.ses=0.01
+ * </pre>
+ *
+ * Propriedades (todas opcionais):
+ * - carga.avaliacoes, carga.concorrencia, carga.lote-sqs, carga.max-recebimentos
+ * - carga.latencia-ms.{sqs,sns,ses,cloudwatch}, carga.variacao-ms.{...}, carga.taxa-erro.{...}
+ * - carga.jdbc-url (PostgreSQL local em vez do embarcado), carga.saida (JSON com o resultado)
+ * - carga.traces (spans OpenTelemetry gravados em arquivo, um JSON por linha)
+ */
+public class PipelineCargaRunner {
+
+    private static final String[] DESCRICOES = {
+            "O curso superou minhas expectativas, conteúdo muito bem explicado!",
+            "Aulas desorganizadas e professor não respondeu às dúvidas no fórum.",
+            "Bom conteúdo, mas os exercícios práticos poderiam ser mais frequentes.",
+            "Plataforma instável, não consegui assistir às aulas da semana passada."
+    };
+
+    private final int avaliacoes = Integer.getInteger("carga.avaliacoes", 1000);
+    private final int concorrencia = Integer.getInteger("carga.concorrencia", 4);
+    private final int loteSqs = Integer.getInteger("carga.lote-sqs", 10);
+    private final int maxRecebimentos = Integer.getInteger("carga.max-recebimentos", 3);
+    private final Path saida = Path.of(System.getProperty("carga.saida", "target/carga/resultado.json"));
+    private final Path traces = Path.of(System.getProperty("carga.traces", "target/carga/traces.jsonl"));
+
+    private final Map<String, Object> resultado = new LinkedHashMap<>();
+    private final List<AmostrasLatencia.Resumo> etapas = new ArrayList<>();
+
+    public static void main(String[] args) throws Exception {
+        new PipelineCargaRunner().executar();
+    }
+
+    void executar() throws Exception {
+        Files.deleteIfExists(traces);
+        try (AmbienteOffline ambiente = new AmbienteOffline().iniciar(Map.of(
+                "telemetria.exportador", "arquivo",
+                "telemetria.arquivo.caminho", traces.toString()))) {
+            configurarSimulacao("sqs", ambiente.sqs().simulacao());
+            configurarSimulacao("sns", ambiente.sns().simulacao());
+            configurarSimulacao("ses", ambiente.ses().simulacao());
+            configurarSimulacao("cloudwatch", ambiente.cloudWatch().simulacao());
+
+            ReceberFeedbackHandler receber = new ReceberFeedbackHandler(
+                    ambiente.bean(AvaliacaoService.class), ambiente.bean(MedicaoLatenciaService.class),
+                    ambiente.bean(RastreamentoService.class), ambiente.bean(ProtecaoDependenciasService.class));
+            EnviarNotificacaoHandler enviar = new EnviarNotificacaoHandler(
+                    ambiente.bean(NotificacaoService.class),
+                    ambiente.bean(DeduplicacaoNotificacaoService.class),
+                    ambiente.bean(FilaNotificacaoService.class),
+                    ambiente.bean(MedicaoLatenciaService.class),
+                    ambiente.bean(RastreamentoService.class),
+                    ambiente.bean(ProtecaoDependenciasService.class));
+            GerarRelatorioHandler relatorio = new GerarRelatorioHandler(
+                    ambiente.bean(RelatorioService.class), ambiente.bean(RelatorioMultiJanelaService.class),
+                    ambiente.bean(ExportacaoAvaliacaoService.class), ambiente.bean(ArquivamentoService.class),
+                    ambiente.bean(ResumoMediaService.class), ambiente.bean(MedicaoLatenciaService.class),
+                    ambiente.bean(RastreamentoService.class), ambiente.bean(ProtecaoDependenciasService.class));
+
+            long inicio = System.nanoTime();
+            executarRecebimento(receber);
+            executarNotificacoes(ambiente, enviar);
+            executarRelatorio(relatorio);
+            long totalNanos = System.nanoTime() - inicio;
+
+            resultado.put("avaliacoes", avaliacoes);
+            resultado.put("concorrencia", concorrencia);
+            resultado.put("duracaoTotalMs", totalNanos / 1_000_000);
+            resultado.put("throughputPorSegundo", avaliacoes / (totalNanos / 1e9));
+            resultado.put("etapas", etapas);
+            resultado.put("fases", resumirFases(ambiente.bean(MeterRegistry.class)));
+            resultado.put("alertaPontaAPonta", resumirTimer(ambiente.bean(MeterRegistry.class)
+                    .get("feedback.alerta.latencia").timer()));
+            resultado.put("traces", traces.toString());
+            resultado.put("chamadasAws", Map.of(
+                    "sqs", ambiente.sqs().simulacao().getChamadas(),
+                    "sns", ambiente.sns().getPublicacoes(),
+                    "ses", ambiente.ses().getEmails(),
+                    "cloudwatch", ambiente.cloudWatch().getMetricas()));
+        }
+        publicarResultado();
+    }
+
+    private void executarRecebimento(ReceberFeedbackHandler handler) throws Exception {
+        AmostrasLatencia amostras = new AmostrasLatencia("receber-feedback");
+        AtomicInteger erros = new AtomicInteger();
+        SplittableRandom random = new SplittableRandom(42);
+        int[] notas = random.ints(avaliacoes, 0, 11).toArray();
+
+        medirEtapa("receber-feedback", () -> executarEmParalelo(avaliacoes, i -> {
+            APIGatewayProxyRequestEvent evento = new APIGatewayProxyRequestEvent()
+                    .withHttpMethod("POST")
+                    .withPath("/avaliacao")
+                    .withBody("{\"descricao\":\"" + DESCRICOES[i % DESCRICOES.length] + "\",\"nota\":" + notas[i] + "}");
+            long inicio = System.nanoTime();
+            APIGatewayProxyResponseEvent resposta = handler.handleRequest(evento,
+                    new ContextoLambdaFake("receber-feedback", 30, 512, false));
+            amostras.registrar(System.nanoTime() - inicio);
+            if (resposta.getStatusCode() != 201) {
+                erros.incrementAndGet();
+            }
+        }));
+        etapas.add(amostras.resumir());
+        resultado.put("errosRecebimento", erros.get());
+    }
+
+    private void executarNotificacoes(AmbienteOffline ambiente, EnviarNotificacaoHandler handler) throws Exception {
+        AmostrasLatencia amostras = new AmostrasLatencia("enviar-notificacao (lote)");
+        AtomicLong mensagens = new AtomicLong();
+        AtomicLong descartadas = new AtomicLong();
+
+        medirEtapa("enviar-notificacao", () -> {
+            while (ambiente.sqs().tamanho(AmbienteOffline.FILA_NOTIFICACAO) > 0) {
+                executarEmParalelo(concorrencia, i -> {
+                    List<SQSEvent.SQSMessage> lote = ambiente.sqs().receber(AmbienteOffline.FILA_NOTIFICACAO, loteSqs);
+                    if (lote.isEmpty()) {
+                        return;
+                    }
+                    SQSEvent evento = new SQSEvent();
+                    evento.setRecords(lote);
+
+                    long inicio = System.nanoTime();
+                    SQSBatchResponse resposta = handler.handleRequest(evento,
+                            new ContextoLambdaFake("enviar-notificacao", 300, 512, false));
+                    amostras.registrar(System.nanoTime() - inicio);
+                    mensagens.addAndGet(lote.size());
+
+                    // Mensagens com falha voltam para a fila até o limite de recebimentos (redrive para DLQ)
+                    for (SQSBatchResponse.BatchItemFailure falha : resposta.getBatchItemFailures()) {
+                        lote.stream()
+                                .filter(m -> m.getMessageId().equals(falha.getItemIdentifier()))
+                                .findFirst()
+                                .ifPresent(m -> {
+                                    if (Integer.parseInt(m.getAttributes().get("ApproximateReceiveCount")) < maxRecebimentos) {
+                                        ambiente.sqs().devolver(AmbienteOffline.FILA_NOTIFICACAO, m);
+                                    } else {
+                                        descartadas.incrementAndGet();
+                                    }
+                                });
+                    }
+                });
+            }
+        });
+        etapas.add(amostras.resumir());
+        resultado.put("mensagensProcessadas", mensagens.get());
+        resultado.put("mensagensParaDlq", descartadas.get());
+    }
+
+    private void executarRelatorio(GerarRelatorioHandler handler) throws Exception {
+        AmostrasLatencia amostras = new AmostrasLatencia("gerar-relatorio");
+        medirEtapa("gerar-relatorio", () -> {
+            ScheduledEvent evento = new ScheduledEvent();
+            evento.setId("carga-local");
+            long inicio = System.nanoTime();
+            handler.handleRequest(evento, new ContextoLambdaFake("gerar-relatorio", 300, 512, false));
+            amostras.registrar(System.nanoTime() - inicio);
+        });
+        etapas.add(amostras.resumir());
+
+        AmostrasLatencia amostrasJanelas = new AmostrasLatencia("gerar-relatorios-janelas");
+        medirEtapa("gerar-relatorios-janelas", () -> {
+            ScheduledEvent evento = new ScheduledEvent();
+            evento.setId("carga-local-janelas");
+            evento.setDetail(Map.of("relatorios", List.of("DIARIO", "SEMANAL", "MENSAL"),
+                    "fim", LocalDate.now().plusDays(1).toString()));
+            long inicio = System.nanoTime();
+            handler.handleRequest(evento, new ContextoLambdaFake("gerar-relatorio", 300, 512, false));
+            amostrasJanelas.registrar(System.nanoTime() - inicio);
+        });
+        etapas.add(amostrasJanelas.resumir());
+    }
+
+    /**
+     * Executa a etapa registrando duração e uso de heap (pico e após GC).
+     */
+    private void medirEtapa(String etapa, Etapa execucao) throws Exception {
+        List<MemoryPoolMXBean> pools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .toList();
+        pools.forEach(MemoryPoolMXBean::resetPeakUsage);
+
+        long inicio = System.nanoTime();
+        execucao.executar();
+        long duracaoMs = (System.nanoTime() - inicio) / 1_000_000;
+
+        long picoHeap = pools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+        System.gc();
+        long heapAposGc = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+
+        resultado.put(etapa, Map.of(
+                "duracaoMs", duracaoMs,
+                "picoHeapMb", picoHeap / (1024 * 1024),
+                "heapAposGcMb", heapAposGc / (1024 * 1024)));
+    }
+
+    private void executarEmParalelo(int tarefas, Tarefa tarefa) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(concorrencia);
+        try {
+            List<Future<?>> futuros = new ArrayList<>(tarefas);
+            for (int i = 0; i < tarefas; i++) {
+                int indice = i;
+                futuros.add(executor.submit(() -> {
+                    tarefa.executar(indice);
+                    return null;
+                }));
+            }
+            for (Future<?> futuro : futuros) {
+                futuro.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void configurarSimulacao(String servico, SimulacaoFalhas simulacao) {
+        simulacao.latencia(Long.getLong("carga.latencia-ms." + servico, 0L),
+                Long.getLong("carga.variacao-ms." + servico, 0L));
+        simulacao.erros(Double.parseDouble(System.getProperty("carga.taxa-erro." + servico, "0")));
+    }
+
+    /**
+     * Percentis por fase registrados pelo MedicaoLatenciaService durante a carga.
+     */
+    private static Map<String, Object> resumirFases(MeterRegistry registry) {
+        Map<String, Object> fases = new LinkedHashMap<>();
+        for (Timer timer : registry.find("feedback.fase.latencia").timers()) {
+            fases.put(timer.getId().getTag("fase"), resumirTimer(timer));
+        }
+        return fases;
+    }
+
+    private static Map<String, Object> resumirTimer(Timer timer) {
+        HistogramSnapshot snapshot = timer.takeSnapshot();
+        Map<String, Object> resumo = new LinkedHashMap<>();
+        resumo.put("amostras", snapshot.count());
+        for (ValueAtPercentile percentil : snapshot.percentileValues()) {
+            resumo.put("p" + Math.round(percentil.percentile() * 100) + "Ms",
+                    percentil.value(TimeUnit.MILLISECONDS));
+        }
+        resumo.put("maxMs", snapshot.max(TimeUnit.MILLISECONDS));
+        return resumo;
+    }
+
+    private void publicarResultado() throws IOException {
+        String json = new GsonBuilder().setPrettyPrinting().create().toJson(resultado);
+        Files.createDirectories(saida.toAbsolutePath().getParent());
+        Files.writeString(saida, json);
+
+        System.out.println();
+        System.out.println("========== RESULTADO DA CARGA ==========");
+        System.out.printf("Avaliações: %d | Concorrência: %d | Throughput ponta a ponta: %.1f avaliações/s%n",
+                avaliacoes, concorrencia, (Double) resultado.get("throughputPorSegundo"));
+        System.out.printf("%-28s %8s %10s %10s %10s %10s%n", "Etapa", "Amostras", "p50 (ms)", "p90 (ms)", "p99 (ms)", "max (ms)");
+        for (AmostrasLatencia.Resumo resumo : etapas) {
+            System.out.printf("%-28s %8d %10.2f %10.2f %10.2f %10.2f%n", resumo.etapa(), resumo.amostras(),
+                    resumo.p50Ms(), resumo.p90Ms(), resumo.p99Ms(), resumo.maxMs());
+        }
+        System.out.println("Resultado completo: " + saida.toAbsolutePath());
+    }
+
+    @FunctionalInterface
+    private interface Etapa {
+        void executar() throws Exception;
+    }
+
+    @FunctionalInterface
+    private interface Tarefa {
+        void executar(int indice) throws Exception;
+    }
+}
@@ -0,0 +1,154 @@
+package lambda.fase4.carga;
+
+import lambda.fase4.config.AwsConfig;
+import lambda.fase4.fakes.StubRegiaoAws;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import software.amazon.awssdk.services.ses.SesClient;
+import software.amazon.awssdk.services.ses.model.Body;
+import software.amazon.awssdk.services.ses.model.Content;
+import software.amazon.awssdk.services.ses.model.Destination;
+import software.amazon.awssdk.services.ses.model.Message;
+import software.amazon.awssdk.services.ses.model.SendEmailRequest;
+import software.amazon.awssdk.services.sns.SnsClient;
+import software.amazon.awssdk.services.sns.model.PublishRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Roteamento SNS/SES entre regiões contra endpoints locais que simulam regiões degradadas,
+ * com os clientes reais do SDK configurados pelo {@link AwsConfig}.
+ *
+ * Fases: normal, principal lenta, principal fora do ar (503), principal travada (além do
+ * timeout por tentativa) e principal recuperada. Para cada fase, mostra quantas chamadas cada
+ * região recebeu, as falhas vistas pelo chamador e os percentis de latência.
+ *
+ * Execução:
+ * <pre>
+ * ./mvnw -DskipTests test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=lambda.fase4.carga.RoteamentoRegionalRunner -Dcarga.chamadas=200 -Dcarga.concorrencia=8
+ * </pre>
+ */
+public class RoteamentoRegionalRunner {
+
+    private static final String PRINCIPAL = "us-east-2";
+    private static final String SECUNDARIA = "us-east-1";
+    private static final String TOPICO = "arn:aws:sns:us-east-2:123456789012:urgencia-topic";
+
+    private final int chamadas = Integer.getInteger("carga.chamadas", 200);
+    private final int concorrencia = Integer.getInteger("carga.concorrencia", 8);
+
+    public static void main(String[] args) throws Exception {
+        // Credenciais fictícias: os stubs não validam a assinatura
+        System.setProperty("aws.accessKeyId", "teste");
+        System.setProperty("aws.secretAccessKey", "teste");
+        // Sem o atraso de Nagle do servidor HTTP do JDK, que somaria ~40 ms a cada resposta dos stubs
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        new RoteamentoRegionalRunner().executar();
+    }
+
+    void executar() throws Exception {
+        try (StubRegiaoAws principal = new StubRegiaoAws(PRINCIPAL);
+             StubRegiaoAws secundaria = new StubRegiaoAws(SECUNDARIA);
+             AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("regioes", Map.of(
+                    "aws.sns.regioes", PRINCIPAL + "," + SECUNDARIA,
+                    "aws.ses.regioes", PRINCIPAL + "," + SECUNDARIA,
+                    "aws.endpoint.sns." + PRINCIPAL, principal.endpoint().toString(),
+                    "aws.endpoint.sns." + SECUNDARIA, secundaria.endpoint().toString(),
+                    "aws.endpoint.ses." + PRINCIPAL, principal.endpoint().toString(),
+                    "aws.endpoint.ses." + SECUNDARIA, secundaria.endpoint().toString(),
+                    "aws.regioes.timeout-tentativa-ms", "500",
+                    "aws.regioes.timeout-chamada-ms", "2000",
+                    "aws.regioes.ejecao-segundos", "2",
+                    "aws.regioes.exploracao-segundos", "2")));
+            context.register(AwsConfig.class);
+            context.refresh();
+            SnsClient sns = context.getBean(SnsClient.class);
+            SesClient ses = context.getBean(SesClient.class);
+
+            principal.simulacao().latencia(10, 2);
+            secundaria.simulacao().latencia(40, 5);
+
+            System.out.println();
+            System.out.println("========== ROTEAMENTO SNS/SES ENTRE REGIÕES ==========");
+            System.out.printf("Principal %s, secundária %s | %d chamadas por fase, concorrência %d%n",
+                    PRINCIPAL, SECUNDARIA, chamadas, concorrencia);
+            System.out.printf("%-22s %10s %10s %8s %10s %10s %10s%n", "Fase", PRINCIPAL, SECUNDARIA,
+                    "Falhas", "p50 (ms)", "p99 (ms)", "max (ms)");
+
+            executarFase("normal", sns, ses, principal, secundaria);
+
+            principal.simulacao().latencia(300, 20);
+            executarFase("principal-lenta", sns, ses, principal, secundaria);
+
+            principal.simulacao().latencia(10, 2).erros(1.0, 503, "ServiceUnavailable");
+            executarFase("principal-fora", sns, ses, principal, secundaria);
+
+            principal.simulacao().latencia(5000, 0).erros(0.0);
+            executarFase("principal-travada", sns, ses, principal, secundaria);
+
+            principal.simulacao().latencia(10, 2);
+            // Após a ejeção e o intervalo de exploração, a principal volta a ser experimentada
+            TimeUnit.MILLISECONDS.sleep(2500);
+            executarFase("principal-recuperada", sns, ses, principal, secundaria);
+
+            System.out.printf("Publicações SNS com ARN de outra região: %d%n",
+                    principal.getTopicoOutraRegiao() + secundaria.getTopicoOutraRegiao());
+        }
+    }
+
+    private void executarFase(String fase, SnsClient sns, SesClient ses,
+                              StubRegiaoAws principal, StubRegiaoAws secundaria) throws Exception {
+        long respondidasPrincipal = principal.getRespondidas();
+        long respondidasSecundaria = secundaria.getRespondidas();
+        AmostrasLatencia amostras = new AmostrasLatencia(fase);
+        AtomicInteger falhas = new AtomicInteger();
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(concorrencia)) {
+            List<Future<?>> futuros = new ArrayList<>(chamadas);
+            for (int i = 0; i < chamadas; i++) {
+                int indice = i;
+                futuros.add(executor.submit(() -> {
+                    long inicio = System.nanoTime();
+                    try {
+                        if (indice % 2 == 0) {
+                            sns.publish(PublishRequest.builder().topicArn(TOPICO).message("teste " + indice).build());
+                        } else {
+                            ses.sendEmail(email(indice));
+                        }
+                    } catch (RuntimeException e) {
+                        falhas.incrementAndGet();
+                    }
+                    amostras.registrar(System.nanoTime() - inicio);
+                }));
+            }
+            for (Future<?> futuro : futuros) {
+                futuro.get();
+            }
+        }
+
+        AmostrasLatencia.Resumo resumo = amostras.resumir();
+        System.out.printf("%-22s %10d %10d %8d %10.2f %10.2f %10.2f%n", fase,
+                principal.getRespondidas() - respondidasPrincipal, secundaria.getRespondidas() - respondidasSecundaria,
+                falhas.get(), resumo.p50Ms(), resumo.p99Ms(), resumo.maxMs());
+    }
+
+    private static SendEmailRequest email(int indice) {
+        return SendEmailRequest.builder()
+                .source("noreply@feedback-system.com")
+                .destination(Destination.builder().toAddresses("admin@feedback-system.com").build())
+                .message(Message.builder()
+                        .subject(Content.builder().data("Teste " + indice).build())
+                        .body(Body.builder().text(Content.builder().data("Teste").build()).build())
+                        .build())
+                .build();
+    }
+}
@@ -0,0 +1,68 @@
+package lambda.fase4.carga;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Carrega o pacote da Lambda como o runtime java21 gerenciado: um {@link URLClassLoader} próprio sobre
+ * a raiz do pacote e os jars de {@code lib/}, filho do class loader da aplicação (onde, na Lambda, fica
+ * só o cliente do runtime). Dentro dele, mede os handlers com o {@link PartidaFriaProcesso}.
+ *
+ * Usado no treino do arquivo AppCDS ({@link ArquivoCdsRunner}) e nas medições do pacote
+ * ({@link PartidaFriaRunner} com {@code partida-fria.pacote}). Só usa classes do JDK: no treino, roda
+ * como arquivo-fonte ({@code java RuntimeLambdaSimulado.java}), com o classpath da aplicação vazio,
+ * a única forma de o arquivo gerado valer para qualquer classpath do runtime; as classes do pacote,
+ * carregadas pelo class loader próprio, são reconhecidas pelo conteúdo, não pelo caminho do jar.
+ *
+ * Argumentos: diretório do pacote, jar com os fakes (classes de teste), diretório dos resultados
+ * ({@code <handler>.json}), invocações quentes, mensagens de notificação ({@code -} se não houver)
+ * e os handlers.
+ */
+public class RuntimeLambdaSimulado {
+
+    public static void main(String[] args) throws Exception {
+        long entradaMain = System.currentTimeMillis();
+        Path pacote = Path.of(args[0]);
+        Path saida = Path.of(args[2]);
+        int invocacoes = Integer.parseInt(args[3]);
+        Path mensagens = args[4].equals("-") ? null : Path.of(args[4]);
+
+        URLClassLoader loader = new URLClassLoader("pacote-lambda", urls(pacote, Path.of(args[1])),
+                ClassLoader.getSystemClassLoader());
+        Thread.currentThread().setContextClassLoader(loader);
+        Class<?> processo = loader.loadClass("lambda.fase4.carga.PartidaFriaProcesso");
+        Files.createDirectories(saida);
+        for (int i = 5; i < args.length; i++) {
+            try {
+                processo.getMethod("executar", String.class, int.class, Path.class, Path.class, long.class)
+                        .invoke(null, args[i], invocacoes, saida.resolve(args[i] + ".json"), mensagens, entradaMain);
+            } catch (InvocationTargetException e) {
+                throw new IllegalStateException("Falha ao executar " + args[i], e.getCause());
+            }
+        }
+        // Threads do pool de conexões não são daemon; a saída também grava o arquivo AppCDS (ArchiveClassesAtExit)
+        System.exit(0);
+    }
+
+    /**
+     * Raiz do pacote, jars de {@code lib/} em ordem alfabética e, por último, o jar dos fakes.
+     */
+    private static URL[] urls(Path pacote, Path fakes) throws IOException {
+        List<URL> urls = new ArrayList<>();
+        urls.add(pacote.toUri().toURL());
+        try (Stream<Path> jars = Files.list(pacote.resolve("lib"))) {
+            for (Path jar : jars.filter(jar -> jar.toString().endsWith(".jar")).sorted().toList()) {
+                urls.add(jar.toUri().toURL());
+            }
+        }
+        urls.add(fakes.toUri().toURL());
+        return urls.toArray(URL[]::new);
+    }
+}
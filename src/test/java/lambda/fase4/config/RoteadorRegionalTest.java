@@ -0,0 +1,110 @@
+package lambda.fase4.config;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.awscore.AwsRequestOverrideConfiguration;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.sns.SnsClient;
+import software.amazon.awssdk.services.sns.model.PublishRequest;
+import software.amazon.awssdk.services.sns.model.PublishResponse;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RoteadorRegionalTest {
+
+    private static final long FALHA_PRINCIPAL_MS = 150;
+
+    private final RegiaoStub principal = new RegiaoStub(true);
+    private final RegiaoStub secundaria = new RegiaoStub(false);
+    private final SnsClient cliente = criarCliente();
+
+    @Test
+    void failoverRecebeSomenteOTempoRestanteDoOrcamento() {
+        PublishResponse resposta = cliente.publish(publicacao(Duration.ofSeconds(1)));
+
+        assertThat(resposta.messageId()).isEqualTo("secundaria");
+        assertThat(principal.timeouts).singleElement()
+                .satisfies(timeout -> assertThat(timeout).isLessThanOrEqualTo(Duration.ofSeconds(1)));
+        assertThat(secundaria.timeouts).singleElement()
+                .satisfies(timeout -> assertThat(timeout)
+                        .isLessThanOrEqualTo(Duration.ofMillis(1000 - FALHA_PRINCIPAL_MS)));
+    }
+
+    @Test
+    void orcamentoEsgotadoInterrompeOFailover() {
+        assertThatThrownBy(() -> cliente.publish(publicacao(Duration.ofMillis(FALHA_PRINCIPAL_MS + 20))))
+                .isInstanceOf(SdkClientException.class);
+
+        assertThat(principal.timeouts).hasSize(1);
+        assertThat(secundaria.timeouts).isEmpty();
+    }
+
+    @Test
+    void requisicaoSemTimeoutTentaTodasAsRegioes() {
+        PublishResponse resposta = cliente.publish(PublishRequest.builder().message("m").build());
+
+        assertThat(resposta.messageId()).isEqualTo("secundaria");
+        assertThat(principal.timeouts).containsExactly((Duration) null);
+        assertThat(secundaria.timeouts).containsExactly((Duration) null);
+    }
+
+    private SnsClient criarCliente() {
+        Map<Region, SnsClient> clientes = new LinkedHashMap<>();
+        clientes.put(Region.US_EAST_1, principal);
+        clientes.put(Region.US_WEST_2, secundaria);
+        return RoteadorRegional.criar(SnsClient.class, "sns", clientes, (requisicao, regiao) -> requisicao,
+                Duration.ofSeconds(30), Duration.ofSeconds(60));
+    }
+
+    private static PublishRequest publicacao(Duration timeout) {
+        return PublishRequest.builder()
+                .message("m")
+                .overrideConfiguration(AwsRequestOverrideConfiguration.builder().apiCallTimeout(timeout).build())
+                .build();
+    }
+
+    /**
+     * Região que registra o timeout recebido; a que falha demora {@value #FALHA_PRINCIPAL_MS} ms.
+     */
+    private static final class RegiaoStub implements SnsClient {
+
+        private final boolean falhar;
+        private final List<Duration> timeouts = new ArrayList<>();
+
+        RegiaoStub(boolean falhar) {
+            this.falhar = falhar;
+        }
+
+        @Override
+        public PublishResponse publish(PublishRequest request) {
+            timeouts.add(request.overrideConfiguration()
+                    .flatMap(AwsRequestOverrideConfiguration::apiCallTimeout)
+                    .orElse(null));
+            if (falhar) {
+                try {
+                    Thread.sleep(FALHA_PRINCIPAL_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw SdkClientException.create("região indisponível");
+            }
+            return PublishResponse.builder().messageId("secundaria").build();
+        }
+
+        @Override
+        public String serviceName() {
+            return "sns";
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package lambda.fase4.fakes;
+
+import com.amazonaws.services.lambda.runtime.ClientContext;
+import com.amazonaws.services.lambda.runtime.CognitoIdentity;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Context da Lambda para execuções locais, com timeout e memória configuráveis.
+ */
+public class ContextoLambdaFake implements Context {
+
+    private final String functionName;
+    private final int memoriaMb;
+    private final long prazoMillis;
+    private final String requestId = UUID.randomUUID().toString();
+    private final LambdaLogger logger;
+
+    public ContextoLambdaFake(String functionName, int timeoutSegundos, int memoriaMb, boolean verboso) {
+        this(functionName, timeoutSegundos, memoriaMb, message -> {
+            if (verboso) {
+                System.out.println("[" + functionName + "] " + message);
+            }
+        });
+    }
+
+    /**
+     * Entrega cada linha de log ao {@code destino} (ex.: captura da telemetria EMF emitida pelos handlers).
+     */
+    public ContextoLambdaFake(String functionName, int timeoutSegundos, int memoriaMb, Consumer<String> destino) {
+        this.functionName = functionName;
+        this.memoriaMb = memoriaMb;
+        this.prazoMillis = System.currentTimeMillis() + timeoutSegundos * 1000L;
+        this.logger = new LambdaLogger() {
+            @Override
+            public void log(String message) {
+                destino.accept(message);
+            }
+
+            @Override
+            public void log(byte[] message) {
+                log(new String(message, StandardCharsets.UTF_8));
+            }
+        };
+    }
+
+    @Override
+    public String getAwsRequestId() {
+        return requestId;
+    }
+
+    @Override
+    public String getLogGroupName() {
+        return "/aws/lambda/" + functionName;
+    }
+
+    @Override
+    public String getLogStreamName() {
+        return "local";
+    }
+
+    @Override
+    public String getFunctionName() {
+        return functionName;
+    }
+
+    @Override
+    public String getFunctionVersion() {
+        return "$LATEST";
+    }
+
+    @Override
+    public String getInvokedFunctionArn() {
+        return "arn:aws:lambda:us-east-2:000000000000:function:" + functionName;
+    }
+
+    @Override
+    public CognitoIdentity getIdentity() {
+        return null;
+    }
+
+    @Override
+    public ClientContext getClientContext() {
+        return null;
+    }
+
+    @Override
+    public int getRemainingTimeInMillis() {
+        return (int) Math.max(0, prazoMillis - System.currentTimeMillis());
+    }
+
+    @Override
+    public int getMemoryLimitInMB() {
+        return memoriaMb;
+    }
+
+    @Override
+    public LambdaLogger getLogger() {
+        return logger;
+    }
+}
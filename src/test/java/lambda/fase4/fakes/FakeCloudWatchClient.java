@@ -0,0 +1,41 @@
+package lambda.fase4.fakes;
+
+import software.amazon.awssdk.services.cloudwatch.CloudWatchClient;
+import software.amazon.awssdk.services.cloudwatch.model.CloudWatchException;
+import software.amazon.awssdk.services.cloudwatch.model.PutMetricDataRequest;
+import software.amazon.awssdk.services.cloudwatch.model.PutMetricDataResponse;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CloudWatchClient em memória: apenas contabiliza os pontos de métrica enviados.
+ */
+public class FakeCloudWatchClient implements CloudWatchClient {
+
+    private final SimulacaoFalhas simulacao = new SimulacaoFalhas();
+    private final AtomicLong metricas = new AtomicLong();
+
+    public SimulacaoFalhas simulacao() {
+        return simulacao;
+    }
+
+    @Override
+    public PutMetricDataResponse putMetricData(PutMetricDataRequest request) {
+        simulacao.aplicar(serviceName(), request, CloudWatchException::builder);
+        metricas.addAndGet(request.metricData().size());
+        return PutMetricDataResponse.builder().build();
+    }
+
+    public long getMetricas() {
+        return metricas.get();
+    }
+
+    @Override
+    public String serviceName() {
+        return "monitoring";
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,95 @@
+package lambda.fase4.fakes;
+
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * S3Client em memória: guarda os objetos gravados por PutObject ou por upload multipart.
+ */
+public class FakeS3Client implements S3Client {
+
+    private final SimulacaoFalhas simulacao = new SimulacaoFalhas();
+    private final Map<String, byte[]> objetos = new ConcurrentHashMap<>();
+    private final Map<String, Map<Integer, byte[]>> uploads = new ConcurrentHashMap<>();
+
+    public SimulacaoFalhas simulacao() {
+        return simulacao;
+    }
+
+    @Override
+    public PutObjectResponse putObject(PutObjectRequest request, RequestBody requestBody) {
+        simulacao.aplicar(serviceName(), request, S3Exception::builder);
+        objetos.put(request.bucket() + "/" + request.key(), ler(requestBody));
+        return PutObjectResponse.builder().build();
+    }
+
+    @Override
+    public CreateMultipartUploadResponse createMultipartUpload(CreateMultipartUploadRequest request) {
+        String uploadId = UUID.randomUUID().toString();
+        uploads.put(uploadId, new TreeMap<>());
+        return CreateMultipartUploadResponse.builder().uploadId(uploadId).build();
+    }
+
+    @Override
+    public UploadPartResponse uploadPart(UploadPartRequest request, RequestBody requestBody) {
+        simulacao.aplicar(serviceName(), request, S3Exception::builder);
+        uploads.get(request.uploadId()).put(request.partNumber(), ler(requestBody));
+        return UploadPartResponse.builder().eTag("parte-" + request.partNumber()).build();
+    }
+
+    @Override
+    public CompleteMultipartUploadResponse completeMultipartUpload(CompleteMultipartUploadRequest request) {
+        ByteArrayOutputStream objeto = new ByteArrayOutputStream();
+        uploads.remove(request.uploadId()).values().forEach(objeto::writeBytes);
+        objetos.put(request.bucket() + "/" + request.key(), objeto.toByteArray());
+        return CompleteMultipartUploadResponse.builder().build();
+    }
+
+    @Override
+    public AbortMultipartUploadResponse abortMultipartUpload(AbortMultipartUploadRequest request) {
+        uploads.remove(request.uploadId());
+        return AbortMultipartUploadResponse.builder().build();
+    }
+
+    public byte[] getObjeto(String bucket, String chave) {
+        return objetos.get(bucket + "/" + chave);
+    }
+
+    public int getObjetos() {
+        return objetos.size();
+    }
+
+    /**
+     * Uploads multipart iniciados e ainda não concluídos nem cancelados.
+     */
+    public int getUploadsPendentes() {
+        return uploads.size();
+    }
+
+    private static byte[] ler(RequestBody requestBody) {
+        try (InputStream conteudo = requestBody.contentStreamProvider().newStream()) {
+            return conteudo.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public String serviceName() {
+        return "s3";
+    }
+
+    @Override
+    public void close() {
+    }
+}
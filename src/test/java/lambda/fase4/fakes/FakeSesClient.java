@@ -0,0 +1,64 @@
+package lambda.fase4.fakes;
+
+import software.amazon.awssdk.services.ses.SesClient;
+import software.amazon.awssdk.services.ses.model.*;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SesClient em memória: contabiliza os e-mails e informa uma cota de envio configurável.
+ */
+public class FakeSesClient implements SesClient {
+
+    private final SimulacaoFalhas simulacao = new SimulacaoFalhas();
+    private final AtomicLong emails = new AtomicLong();
+    private volatile double taxaMaximaEnvio = 1000.0;
+
+    public SimulacaoFalhas simulacao() {
+        return simulacao;
+    }
+
+    public FakeSesClient taxaMaximaEnvio(double taxaMaximaEnvio) {
+        this.taxaMaximaEnvio = taxaMaximaEnvio;
+        return this;
+    }
+
+    @Override
+    public SendEmailResponse sendEmail(SendEmailRequest request) {
+        simulacao.aplicar(serviceName(), request, SesException::builder);
+        return SendEmailResponse.builder().messageId("ses-" + emails.incrementAndGet()).build();
+    }
+
+    @Override
+    public SendRawEmailResponse sendRawEmail(SendRawEmailRequest request) {
+        simulacao.aplicar(serviceName(), request, SesException::builder);
+        return SendRawEmailResponse.builder().messageId("ses-" + emails.incrementAndGet()).build();
+    }
+
+    @Override
+    public GetSendQuotaResponse getSendQuota(GetSendQuotaRequest request) {
+        return GetSendQuotaResponse.builder()
+                .maxSendRate(taxaMaximaEnvio)
+                .max24HourSend(1_000_000.0)
+                .sentLast24Hours((double) emails.get())
+                .build();
+    }
+
+    @Override
+    public GetSendQuotaResponse getSendQuota() {
+        return getSendQuota(GetSendQuotaRequest.builder().build());
+    }
+
+    public long getEmails() {
+        return emails.get();
+    }
+
+    @Override
+    public String serviceName() {
+        return "ses";
+    }
+
+    @Override
+    public void close() {
+    }
+}
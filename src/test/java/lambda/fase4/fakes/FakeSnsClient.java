@@ -0,0 +1,40 @@
+package lambda.fase4.fakes;
+
+import software.amazon.awssdk.services.sns.SnsClient;
+import software.amazon.awssdk.services.sns.model.PublishRequest;
+import software.amazon.awssdk.services.sns.model.PublishResponse;
+import software.amazon.awssdk.services.sns.model.SnsException;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SnsClient em memória: apenas contabiliza as publicações.
+ */
+public class FakeSnsClient implements SnsClient {
+
+    private final SimulacaoFalhas simulacao = new SimulacaoFalhas();
+    private final AtomicLong publicacoes = new AtomicLong();
+
+    public SimulacaoFalhas simulacao() {
+        return simulacao;
+    }
+
+    @Override
+    public PublishResponse publish(PublishRequest request) {
+        simulacao.aplicar(serviceName(), request, SnsException::builder);
+        return PublishResponse.builder().messageId("sns-" + publicacoes.incrementAndGet()).build();
+    }
+
+    public long getPublicacoes() {
+        return publicacoes.get();
+    }
+
+    @Override
+    public String serviceName() {
+        return "sns";
+    }
+
+    @Override
+    public void close() {
+    }
+}
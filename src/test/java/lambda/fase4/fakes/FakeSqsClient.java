@@ -0,0 +1,177 @@
+package lambda.fase4.fakes;
+
+import com.amazonaws.services.lambda.runtime.events.SQSEvent;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SqsClient em memória: cada URL de fila é uma fila FIFO local.
+ * As mensagens são entregues como registros {@link SQSEvent.SQSMessage}, no formato recebido pela Lambda.
+ */
+public class FakeSqsClient implements SqsClient {
+
+    private final SimulacaoFalhas simulacao = new SimulacaoFalhas();
+    private final Map<String, Queue<Mensagem>> filas = new ConcurrentHashMap<>();
+    private final AtomicLong sequencia = new AtomicLong();
+    private final AtomicLong alteracoesVisibilidade = new AtomicLong();
+    // Mensagens recebidas por receiveMessage e ainda não removidas, por receipt handle
+    private final Map<String, Mensagem> emVoo = new ConcurrentHashMap<>();
+
+    private record Mensagem(String id, String corpo, Map<String, MessageAttributeValue> atributos,
+                            long enviadaEmMillis, int recebimentos) {
+    }
+
+    public SimulacaoFalhas simulacao() {
+        return simulacao;
+    }
+
+    @Override
+    public SendMessageResponse sendMessage(SendMessageRequest request) {
+        simulacao.aplicar(serviceName(), request, SqsException::builder);
+        String id = "msg-" + sequencia.incrementAndGet();
+        filas.computeIfAbsent(request.queueUrl(), url -> new ConcurrentLinkedQueue<>())
+                .add(new Mensagem(id, request.messageBody(), request.messageAttributes(),
+                        System.currentTimeMillis(), 0));
+        return SendMessageResponse.builder().messageId(id).build();
+    }
+
+    @Override
+    public ChangeMessageVisibilityResponse changeMessageVisibility(ChangeMessageVisibilityRequest request) {
+        simulacao.aplicar(serviceName(), request, SqsException::builder);
+        alteracoesVisibilidade.incrementAndGet();
+        return ChangeMessageVisibilityResponse.builder().build();
+    }
+
+    @Override
+    public DeleteMessageResponse deleteMessage(DeleteMessageRequest request) {
+        simulacao.aplicar(serviceName(), request, SqsException::builder);
+        return DeleteMessageResponse.builder().build();
+    }
+
+    @Override
+    public ReceiveMessageResponse receiveMessage(ReceiveMessageRequest request) {
+        simulacao.aplicar(serviceName(), request, SqsException::builder);
+        Queue<Mensagem> fila = filas.getOrDefault(request.queueUrl(), new ConcurrentLinkedQueue<>());
+        int maximo = request.maxNumberOfMessages() != null ? request.maxNumberOfMessages() : 1;
+        List<Message> mensagens = new ArrayList<>(maximo);
+        Mensagem mensagem;
+        while (mensagens.size() < maximo && (mensagem = fila.poll()) != null) {
+            Mensagem recebida = new Mensagem(mensagem.id(), mensagem.corpo(), mensagem.atributos(),
+                    mensagem.enviadaEmMillis(), mensagem.recebimentos() + 1);
+            String receiptHandle = "rh-" + recebida.id() + "-" + recebida.recebimentos();
+            emVoo.put(request.queueUrl() + " " + receiptHandle, recebida);
+            mensagens.add(Message.builder()
+                    .messageId(recebida.id())
+                    .receiptHandle(receiptHandle)
+                    .body(recebida.corpo())
+                    .messageAttributes(recebida.atributos())
+                    .build());
+        }
+        return ReceiveMessageResponse.builder().messages(mensagens).build();
+    }
+
+    @Override
+    public DeleteMessageBatchResponse deleteMessageBatch(DeleteMessageBatchRequest request) {
+        simulacao.aplicar(serviceName(), request, SqsException::builder);
+        List<DeleteMessageBatchResultEntry> removidas = new ArrayList<>();
+        List<BatchResultErrorEntry> falhas = new ArrayList<>();
+        for (DeleteMessageBatchRequestEntry entrada : request.entries()) {
+            if (emVoo.remove(request.queueUrl() + " " + entrada.receiptHandle()) != null) {
+                removidas.add(DeleteMessageBatchResultEntry.builder().id(entrada.id()).build());
+            } else {
+                falhas.add(BatchResultErrorEntry.builder().id(entrada.id())
+                        .code("ReceiptHandleIsInvalid").senderFault(true).build());
+            }
+        }
+        return DeleteMessageBatchResponse.builder().successful(removidas).failed(falhas).build();
+    }
+
+    /**
+     * Devolve à fila as mensagens recebidas por {@code receiveMessage} e não removidas,
+     * como ao fim do timeout de visibilidade.
+     */
+    public int expirarVisibilidade(String queueUrl) {
+        int devolvidas = 0;
+        for (Map.Entry<String, Mensagem> entrada : emVoo.entrySet()) {
+            if (entrada.getKey().startsWith(queueUrl + " ") && emVoo.remove(entrada.getKey()) != null) {
+                filas.computeIfAbsent(queueUrl, url -> new ConcurrentLinkedQueue<>()).add(entrada.getValue());
+                devolvidas++;
+            }
+        }
+        return devolvidas;
+    }
+
+    /**
+     * Retira até {@code maximo} mensagens da fila, como um lote entregue pelo event source mapping.
+     */
+    public List<SQSEvent.SQSMessage> receber(String queueUrl, int maximo) {
+        Queue<Mensagem> fila = filas.getOrDefault(queueUrl, new ConcurrentLinkedQueue<>());
+        List<SQSEvent.SQSMessage> lote = new ArrayList<>(maximo);
+        Mensagem mensagem;
+        while (lote.size() < maximo && (mensagem = fila.poll()) != null) {
+            lote.add(paraEvento(mensagem));
+        }
+        return lote;
+    }
+
+    /**
+     * Devolve uma mensagem à fila (falha reportada pela Lambda), incrementando o contador de recebimentos.
+     */
+    public void devolver(String queueUrl, SQSEvent.SQSMessage registro) {
+        int recebimentos = Integer.parseInt(registro.getAttributes().get("ApproximateReceiveCount"));
+        Map<String, MessageAttributeValue> atributos = new HashMap<>();
+        registro.getMessageAttributes().forEach((nome, valor) -> atributos.put(nome,
+                MessageAttributeValue.builder().dataType(valor.getDataType()).stringValue(valor.getStringValue()).build()));
+        filas.computeIfAbsent(queueUrl, url -> new ConcurrentLinkedQueue<>())
+                .add(new Mensagem(registro.getMessageId(), registro.getBody(), atributos,
+                        Long.parseLong(registro.getAttributes().get("SentTimestamp")), recebimentos));
+    }
+
+    public int tamanho(String queueUrl) {
+        return filas.getOrDefault(queueUrl, new ConcurrentLinkedQueue<>()).size();
+    }
+
+    public long getAlteracoesVisibilidade() {
+        return alteracoesVisibilidade.get();
+    }
+
+    private SQSEvent.SQSMessage paraEvento(Mensagem mensagem) {
+        SQSEvent.SQSMessage registro = new SQSEvent.SQSMessage();
+        registro.setMessageId(mensagem.id());
+        registro.setReceiptHandle("rh-" + mensagem.id() + "-" + (mensagem.recebimentos() + 1));
+        registro.setBody(mensagem.corpo());
+
+        Map<String, String> atributos = new HashMap<>();
+        atributos.put("ApproximateReceiveCount", String.valueOf(mensagem.recebimentos() + 1));
+        atributos.put("SentTimestamp", String.valueOf(mensagem.enviadaEmMillis()));
+        registro.setAttributes(atributos);
+
+        Map<String, SQSEvent.MessageAttribute> atributosMensagem = new HashMap<>();
+        mensagem.atributos().forEach((nome, valor) -> {
+            SQSEvent.MessageAttribute atributo = new SQSEvent.MessageAttribute();
+            atributo.setDataType(valor.dataType());
+            atributo.setStringValue(valor.stringValue());
+            atributosMensagem.put(nome, atributo);
+        });
+        registro.setMessageAttributes(atributosMensagem);
+        return registro;
+    }
+
+    @Override
+    public String serviceName() {
+        return "sqs";
+    }
+
+    @Override
+    public void close() {
+    }
+}
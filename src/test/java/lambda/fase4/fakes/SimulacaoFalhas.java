@@ -0,0 +1,104 @@
+package lambda.fase4.fakes;
+
+import software.amazon.awssdk.awscore.AwsRequest;
+import software.amazon.awssdk.awscore.AwsRequestOverrideConfiguration;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.exception.ApiCallTimeoutException;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Latência e falhas injetadas nos clientes AWS falsos.
+ *
+ * Cada chamada aguarda {@code latenciaMs ± variacaoMs} e falha com probabilidade {@code taxaErro},
+ * lançando a exceção de serviço do próprio cliente (ex.: {@code SesException}) com o código configurado.
+ */
+public class SimulacaoFalhas {
+
+    private volatile long latenciaMs;
+    private volatile long variacaoMs;
+    private volatile double taxaErro;
+    private volatile int statusErro = 503;
+    private volatile String codigoErro = "ServiceUnavailable";
+
+    private final AtomicLong chamadas = new AtomicLong();
+    private final AtomicLong erros = new AtomicLong();
+
+    public SimulacaoFalhas latencia(long latenciaMs, long variacaoMs) {
+        this.latenciaMs = latenciaMs;
+        this.variacaoMs = variacaoMs;
+        return this;
+    }
+
+    public SimulacaoFalhas erros(double taxaErro, int statusErro, String codigoErro) {
+        this.taxaErro = taxaErro;
+        this.statusErro = statusErro;
+        this.codigoErro = codigoErro;
+        return this;
+    }
+
+    public SimulacaoFalhas erros(double taxaErro) {
+        this.taxaErro = taxaErro;
+        return this;
+    }
+
+    /**
+     * Aplica latência e, conforme a taxa configurada, lança a exceção do serviço.
+     */
+    public void aplicar(String servico, Supplier<? extends AwsServiceException.Builder> excecao) {
+        aplicar(servico, null, excecao);
+    }
+
+    /**
+     * Como {@link #aplicar(String, Supplier)}, respeitando o timeout da requisição
+     * ({@code overrideConfiguration().apiCallTimeout()}): se a latência sorteada passar do timeout,
+     * espera o timeout e lança {@link ApiCallTimeoutException}, como o SDK.
+     */
+    public void aplicar(String servico, AwsRequest requisicao, Supplier<? extends AwsServiceException.Builder> excecao) {
+        chamadas.incrementAndGet();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        long espera = latenciaMs + (variacaoMs > 0 ? random.nextLong(-variacaoMs, variacaoMs + 1) : 0);
+        long timeout = requisicao == null ? Long.MAX_VALUE : requisicao.overrideConfiguration()
+                .flatMap(AwsRequestOverrideConfiguration::apiCallTimeout)
+                .map(Duration::toMillis)
+                .orElse(Long.MAX_VALUE);
+        if (espera > 0) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(Math.min(espera, timeout));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (espera > timeout) {
+            erros.incrementAndGet();
+            throw ApiCallTimeoutException.create(timeout);
+        }
+
+        if (taxaErro > 0 && random.nextDouble() < taxaErro) {
+            erros.incrementAndGet();
+            throw excecao.get()
+                    .statusCode(statusErro)
+                    .message("Falha simulada em " + servico)
+                    .awsErrorDetails(AwsErrorDetails.builder()
+                            .serviceName(servico)
+                            .errorCode(codigoErro)
+                            .errorMessage("Falha simulada")
+                            .build())
+                    .build();
+        }
+    }
+
+    public long getChamadas() {
+        return chamadas.get();
+    }
+
+    public long getErros() {
+        return erros.get();
+    }
+}
@@ -0,0 +1,104 @@
+package lambda.fase4.fakes;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Endpoint HTTP local que responde como o SNS/SES (protocolo query, XML) de uma região, com latência
+ * e erros injetados por {@link SimulacaoFalhas}. Usado com {@code aws.endpoint.<serviço>.<região>}
+ * para testar o roteamento entre regiões com os clientes reais do SDK, sem AWS.
+ */
+public class StubRegiaoAws implements AutoCloseable {
+
+    private static final Pattern ACAO = Pattern.compile("(?:^|&)Action=([A-Za-z]+)");
+    private static final Pattern TOPICO = Pattern.compile("(?:^|&)TopicArn=([^&]+)");
+
+    private final String regiao;
+    private final HttpServer servidor;
+    private final SimulacaoFalhas simulacao = new SimulacaoFalhas();
+    private final AtomicLong respondidas = new AtomicLong();
+    private final AtomicLong topicoOutraRegiao = new AtomicLong();
+
+    public StubRegiaoAws(String regiao) throws IOException {
+        this.regiao = regiao;
+        this.servidor = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        servidor.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        servidor.createContext("/", this::responder);
+        servidor.start();
+    }
+
+    public URI endpoint() {
+        return URI.create("http://127.0.0.1:" + servidor.getAddress().getPort());
+    }
+
+    public SimulacaoFalhas simulacao() {
+        return simulacao;
+    }
+
+    /**
+     * Chamadas recebidas, inclusive as que falharam.
+     */
+    public long getChamadas() {
+        return simulacao.getChamadas();
+    }
+
+    public long getRespondidas() {
+        return respondidas.get();
+    }
+
+    /**
+     * Publicações SNS recebidas com o ARN do tópico de outra região.
+     */
+    public long getTopicoOutraRegiao() {
+        return topicoOutraRegiao.get();
+    }
+
+    private void responder(HttpExchange troca) throws IOException {
+        String corpo = new String(troca.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        Matcher acao = ACAO.matcher(corpo);
+        String nomeAcao = acao.find() ? acao.group(1) : "Desconhecida";
+        Matcher topico = TOPICO.matcher(corpo);
+        if (topico.find() && !URLDecoder.decode(topico.group(1), StandardCharsets.UTF_8).contains(":" + regiao + ":")) {
+            topicoOutraRegiao.incrementAndGet();
+        }
+
+        try {
+            simulacao.aplicar(regiao, AwsServiceException::builder);
+        } catch (AwsServiceException e) {
+            escrever(troca, e.statusCode(), "<ErrorResponse><Error><Type>Receiver</Type><Code>"
+                    + e.awsErrorDetails().errorCode() + "</Code><Message>" + e.getMessage()
+                    + "</Message></Error><RequestId>stub</RequestId></ErrorResponse>");
+            return;
+        }
+        String id = regiao + "-" + respondidas.incrementAndGet();
+        escrever(troca, 200, "<" + nomeAcao + "Response><" + nomeAcao + "Result><MessageId>" + id
+                + "</MessageId></" + nomeAcao + "Result><ResponseMetadata><RequestId>" + id
+                + "</RequestId></ResponseMetadata></" + nomeAcao + "Response>");
+    }
+
+    private static void escrever(HttpExchange troca, int status, String xml) throws IOException {
+        byte[] bytes = xml.getBytes(StandardCharsets.UTF_8);
+        troca.getResponseHeaders().set("Content-Type", "text/xml");
+        troca.sendResponseHeaders(status, bytes.length);
+        try (OutputStream saida = troca.getResponseBody()) {
+            saida.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        servidor.stop(0);
+    }
+}
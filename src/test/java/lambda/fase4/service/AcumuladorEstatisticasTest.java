@@ -0,0 +1,99 @@
+package lambda.fase4.service;
+
+import lambda.fase4.dto.EstatisticasNotasDTO;
+import lambda.fase4.model.Avaliacao;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class AcumuladorEstatisticasTest {
+
+    private static final LocalDate PRIMEIRO_DIA = LocalDate.of(2025, 1, 6);
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 10, 11, 100, 1001})
+    void medianaEPercentisIguaisAosDasNotasOrdenadas(int quantidade) {
+        int[] notas = new SplittableRandom(quantidade).ints(quantidade, 0, 11).toArray();
+        AcumuladorEstatisticas acumulador = new AcumuladorEstatisticas(PRIMEIRO_DIA, 1);
+        acumulador.adicionar(0, agregado(Avaliacao.Urgencia.BAIXA, notas));
+
+        int[] ordenadas = notas.clone();
+        Arrays.sort(ordenadas);
+        double mediana = quantidade % 2 == 1
+                ? ordenadas[quantidade / 2]
+                : (ordenadas[quantidade / 2 - 1] + ordenadas[quantidade / 2]) / 2.0;
+
+        assertThat(acumulador.mediana()).isEqualTo(mediana);
+        for (int percentual : new int[]{1, 25, 50, 75, 90, 100}) {
+            // Posto mais próximo: posição ceil(p/100 * n), a partir de 1
+            int posicao = (int) Math.ceil(percentual / 100.0 * quantidade);
+            assertThat(acumulador.percentil(percentual)).as("p%d", percentual).isEqualTo(ordenadas[posicao - 1]);
+        }
+        assertThat(acumulador.media()).isCloseTo(Arrays.stream(notas).average().orElseThrow(), within(1e-9));
+    }
+
+    @Test
+    void npsEFaixasDeNotas() {
+        AcumuladorEstatisticas acumulador = new AcumuladorEstatisticas(PRIMEIRO_DIA, 1);
+        acumulador.adicionar(0, agregado(Avaliacao.Urgencia.BAIXA, 10, 9, 9, 8, 7, 6, 3, 0));
+
+        EstatisticasNotasDTO estatisticas = acumulador.estatisticas();
+
+        assertThat(estatisticas.getPercentualPromotores()).isEqualTo(37.5);
+        assertThat(estatisticas.getPercentualNeutros()).isEqualTo(25.0);
+        assertThat(estatisticas.getPercentualDetratores()).isEqualTo(37.5);
+        assertThat(estatisticas.getNps()).isEqualTo(0.0);
+        assertThat(estatisticas.getQuantidadePorNota()).containsExactly(1, 0, 0, 1, 0, 0, 1, 1, 1, 2, 1);
+    }
+
+    @Test
+    void diasSemAvaliacoesFicamForaDaContagemPorDia() {
+        AcumuladorEstatisticas acumulador = new AcumuladorEstatisticas(PRIMEIRO_DIA, 4);
+        acumulador.adicionar(0, agregado(Avaliacao.Urgencia.CRITICA, 1, 2));
+        acumulador.adicionar(1, AgregadoDia.vazio());
+        acumulador.adicionar(3, agregado(Avaliacao.Urgencia.BAIXA, 9));
+
+        assertThat(acumulador.quantidadePorDia())
+                .containsExactly(Map.entry("2025-01-06", 2L), Map.entry("2025-01-09", 1L));
+        assertThat(acumulador.quantidadePorUrgencia())
+                .containsExactly(Map.entry("CRITICA", 2L), Map.entry("BAIXA", 1L));
+        assertThat(acumulador.total()).isEqualTo(3);
+    }
+
+    @Test
+    void periodoSemAvaliacoesNaoTemEstatisticas() {
+        AcumuladorEstatisticas acumulador = new AcumuladorEstatisticas(PRIMEIRO_DIA, 7);
+        for (int dia = 0; dia < 7; dia++) {
+            acumulador.adicionar(dia, AgregadoDia.vazio());
+        }
+
+        EstatisticasNotasDTO estatisticas = acumulador.estatisticas();
+
+        assertThat(acumulador.total()).isZero();
+        assertThat(acumulador.media()).isZero();
+        assertThat(acumulador.quantidadePorDia()).isEmpty();
+        assertThat(acumulador.quantidadePorUrgencia()).isEmpty();
+        assertThat(estatisticas.getMediana()).isNull();
+        assertThat(estatisticas.getPercentil25()).isNull();
+        assertThat(estatisticas.getPercentil90()).isNull();
+        assertThat(estatisticas.getNps()).isNull();
+        assertThat(estatisticas.getQuantidadePorNota()).containsOnly(0L).hasSize(AgregadoDia.NOTA_MAXIMA + 1);
+    }
+
+    private static AgregadoDia agregado(Avaliacao.Urgencia urgencia, int... notas) {
+        AgregadoDia agregado = AgregadoDia.vazio();
+        for (int nota : notas) {
+            agregado.porNota()[nota]++;
+            agregado.porUrgencia()[urgencia.ordinal()]++;
+        }
+        return agregado;
+    }
+}
@@ -0,0 +1,62 @@
+package lambda.fase4.service;
+
+import lambda.fase4.fakes.FakeS3Client;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ArquivoS3OutputStreamTest {
+
+    private final FakeS3Client s3 = new FakeS3Client();
+
+    @Test
+    void arquivoMenorQueUmaParteEEnviadoDeUmaVez() {
+        try (ArquivoS3OutputStream arquivo = new ArquivoS3OutputStream(s3, "bucket", "pequeno", "application/gzip")) {
+            arquivo.write(new byte[]{1, 2, 3}, 0, 3);
+            arquivo.write(4);
+            assertThat(arquivo.concluir()).isEqualTo(4);
+        }
+
+        assertThat(s3.getObjeto("bucket", "pequeno")).containsExactly(1, 2, 3, 4);
+        assertThat(s3.getUploadsPendentes()).isZero();
+    }
+
+    @Test
+    void arquivoGrandeEEnviadoEmPartesNaOrdem() {
+        byte[] dados = dados(2 * ArquivoS3OutputStream.TAMANHO_PARTE + 123);
+
+        try (ArquivoS3OutputStream arquivo = new ArquivoS3OutputStream(s3, "bucket", "grande", "application/gzip")) {
+            for (int i = 0; i < dados.length; i += 1000) {
+                arquivo.write(dados, i, Math.min(1000, dados.length - i));
+            }
+            assertThat(arquivo.concluir()).isEqualTo(dados.length);
+        }
+
+        assertThat(s3.getObjeto("bucket", "grande")).isEqualTo(dados);
+        assertThat(s3.getUploadsPendentes()).isZero();
+    }
+
+    @Test
+    void fecharSemConcluirCancelaOUpload() {
+        byte[] dados = dados(ArquivoS3OutputStream.TAMANHO_PARTE + 1);
+
+        assertThatThrownBy(() -> {
+            try (ArquivoS3OutputStream arquivo = new ArquivoS3OutputStream(s3, "bucket", "interrompido", "application/gzip")) {
+                arquivo.write(dados, 0, dados.length);
+                throw new IllegalStateException("falha na exportação");
+            }
+        }).hasMessage("falha na exportação");
+
+        assertThat(s3.getObjeto("bucket", "interrompido")).isNull();
+        assertThat(s3.getUploadsPendentes()).isZero();
+    }
+
+    private static byte[] dados(int tamanho) {
+        byte[] dados = new byte[tamanho];
+        new Random(42).nextBytes(dados);
+        return dados;
+    }
+}
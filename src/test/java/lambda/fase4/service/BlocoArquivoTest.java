@@ -0,0 +1,95 @@
+package lambda.fase4.service;
+
+import lambda.fase4.model.Avaliacao;
+import lambda.fase4.repository.LinhaExportacao;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BlocoArquivoTest {
+
+    private static final LocalDateTime INICIO_DIA = LocalDateTime.of(2025, 1, 13, 0, 0);
+
+    @Test
+    void linhasComIdsUuidVoltamIguais() {
+        List<LinhaExportacao> linhas = linhas(500, i -> UUID.randomUUID().toString());
+
+        assertThat(BlocoArquivo.decodificar(BlocoArquivo.codificar(linhas), BlocoArquivo.VERSAO_FORMATO))
+                .containsExactlyElementsOf(linhas);
+    }
+
+    @Test
+    void idsForaDoFormatoUuidSaoGravadosComoTexto() {
+        // Maiúsculas não são a forma canônica: gravar 16 bytes mudaria o texto na decodificação
+        List<LinhaExportacao> linhas = linhas(50, i -> i % 10 == 0
+                ? UUID.randomUUID().toString().toUpperCase()
+                : "legado-" + i);
+
+        assertThat(BlocoArquivo.decodificar(BlocoArquivo.codificar(linhas), BlocoArquivo.VERSAO_FORMATO))
+                .containsExactlyElementsOf(linhas);
+    }
+
+    @Test
+    void instantesIguaisEDescricoesEspeciaisSaoPreservados() {
+        LocalDateTime instante = INICIO_DIA.plusHours(9).plusNanos(123_456_000);
+        List<LinhaExportacao> linhas = new ArrayList<>(List.of(
+                linha("a", "", 0, instante, Avaliacao.Urgencia.CRITICA, true),
+                linha("b", "Ótimo! 👍 \"aspas\", vírgula\nnova linha", 10, instante, Avaliacao.Urgencia.BAIXA, false),
+                linha("c", "x".repeat(70_000), 5, instante.plusNanos(1000), Avaliacao.Urgencia.MEDIA, false)));
+
+        assertThat(BlocoArquivo.decodificar(BlocoArquivo.codificar(linhas), BlocoArquivo.VERSAO_FORMATO))
+                .containsExactlyElementsOf(linhas);
+    }
+
+    @Test
+    void blocoVazio() {
+        assertThat(BlocoArquivo.decodificar(BlocoArquivo.codificar(List.of()), BlocoArquivo.VERSAO_FORMATO)).isEmpty();
+    }
+
+    @Test
+    void linhasForaDeOrdemSaoRejeitadas() {
+        List<LinhaExportacao> linhas = List.of(
+                linha("a", "", 5, INICIO_DIA.plusHours(2), Avaliacao.Urgencia.MEDIA, false),
+                linha("b", "", 5, INICIO_DIA.plusHours(1), Avaliacao.Urgencia.MEDIA, false));
+
+        assertThatThrownBy(() -> BlocoArquivo.codificar(linhas)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void versaoDeFormatoDesconhecidaERejeitada() {
+        byte[] dados = BlocoArquivo.codificar(linhas(3, i -> UUID.randomUUID().toString()));
+
+        assertThatThrownBy(() -> BlocoArquivo.decodificar(dados, BlocoArquivo.VERSAO_FORMATO + 1))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    /**
+     * Linhas em {@link BlocoArquivo#ORDEM}, com instantes em microssegundos (precisão do PostgreSQL).
+     */
+    private static List<LinhaExportacao> linhas(int quantidade, IntFunction<String> id) {
+        SplittableRandom random = new SplittableRandom(quantidade);
+        List<LinhaExportacao> linhas = new ArrayList<>(quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            int nota = random.nextInt(11);
+            linhas.add(linha(id.apply(i), "Avaliação " + i, nota,
+                    INICIO_DIA.plusNanos(random.nextLong(86_400_000_000L) * 1000),
+                    Avaliacao.Urgencia.values()[random.nextInt(Avaliacao.Urgencia.values().length)],
+                    random.nextBoolean()));
+        }
+        linhas.sort(BlocoArquivo.ORDEM);
+        return linhas;
+    }
+
+    private static LinhaExportacao linha(String id, String descricao, int nota, LocalDateTime dataEnvio,
+                                         Avaliacao.Urgencia urgencia, boolean notificacaoEnviada) {
+        return new LinhaExportacao(id, descricao, nota, dataEnvio, urgencia, notificacaoEnviada);
+    }
+}
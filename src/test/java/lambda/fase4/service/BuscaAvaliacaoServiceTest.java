@@ -0,0 +1,72 @@
+package lambda.fase4.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BuscaAvaliacaoServiceTest {
+
+    // Validação do termo acontece antes de qualquer consulta
+    private final BuscaAvaliacaoService service = new BuscaAvaliacaoService(null);
+
+    @ParameterizedTest
+    @ValueSource(floats = {0f, 1e-20f, 0.0607927f, 0.1f, Float.MIN_VALUE, Float.MAX_VALUE})
+    void cursorPreservaARelevanciaExata(float relevancia) {
+        BuscaAvaliacaoService.Cursor cursor = new BuscaAvaliacaoService.Cursor(
+                relevancia, LocalDateTime.of(2025, 1, 13, 9, 0, 7, 123_000_000), UUID.randomUUID());
+
+        BuscaAvaliacaoService.Cursor decodificado =
+                BuscaAvaliacaoService.decodificarCursor(BuscaAvaliacaoService.codificarCursor(cursor));
+
+        assertThat(decodificado).isEqualTo(cursor);
+        assertThat(Float.floatToIntBits(decodificado.relevancia())).isEqualTo(Float.floatToIntBits(relevancia));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "não é base64!",
+            "MC4xfDIwMjUtMDEtMTNUMDk6MDA", // 0.1|2025-01-13T09:00, sem id
+            "MC4xfDIwMjUtMDEtMTNUMDk6MDB8", // id vazio
+    })
+    void cursorMalformadoERejeitado(String cursor) {
+        assertThatThrownBy(() -> BuscaAvaliacaoService.decodificarCursor(cursor))
+                .isInstanceOf(ParametroConsultaInvalidoException.class);
+    }
+
+    @Test
+    void cursorAlteradoERejeitado() {
+        String codificado = BuscaAvaliacaoService.codificarCursor(new BuscaAvaliacaoService.Cursor(
+                0.5f, LocalDateTime.of(2025, 1, 13, 9, 0), UUID.randomUUID()));
+        String valor = new String(Base64.getUrlDecoder().decode(codificado), StandardCharsets.UTF_8);
+
+        assertThatThrownBy(() -> BuscaAvaliacaoService.decodificarCursor(codificar(valor.replace("0.5", "meio"))))
+                .isInstanceOf(ParametroConsultaInvalidoException.class);
+        assertThatThrownBy(() -> BuscaAvaliacaoService.decodificarCursor(codificar(valor.replace("2025-01-13", "2025-02-30"))))
+                .isInstanceOf(ParametroConsultaInvalidoException.class);
+        assertThatThrownBy(() -> BuscaAvaliacaoService.decodificarCursor(codificar(valor + "|extra")))
+                .isInstanceOf(ParametroConsultaInvalidoException.class);
+    }
+
+    @Test
+    void termoVazioOuLongoDemaisERejeitado() {
+        assertThatThrownBy(() -> service.buscar(null, null, null, null, null, null))
+                .isInstanceOf(ParametroConsultaInvalidoException.class);
+        assertThatThrownBy(() -> service.buscar("   ", null, null, null, null, null))
+                .isInstanceOf(ParametroConsultaInvalidoException.class);
+        assertThatThrownBy(() -> service.buscar("a".repeat(BuscaAvaliacaoService.TAMANHO_MAXIMO_TERMO + 1),
+                null, null, null, null, null))
+                .isInstanceOf(ParametroConsultaInvalidoException.class);
+    }
+
+    private static String codificar(String valor) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+}
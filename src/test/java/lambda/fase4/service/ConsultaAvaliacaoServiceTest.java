@@ -0,0 +1,57 @@
+package lambda.fase4.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConsultaAvaliacaoServiceTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {"2025-01-13T09:00", "2025-01-13T09:00:07", "2025-01-13T09:00:07.123456789"})
+    void cursorCodificadoEDecodificadoSemPerdas(String dataEnvio) {
+        ConsultaAvaliacaoService.Cursor cursor =
+                new ConsultaAvaliacaoService.Cursor(LocalDateTime.parse(dataEnvio), UUID.randomUUID());
+
+        String codificado = ConsultaAvaliacaoService.codificarCursor(cursor);
+
+        assertThat(codificado).doesNotContain("=", "+", "/");
+        assertThat(ConsultaAvaliacaoService.decodificarCursor(codificado)).isEqualTo(cursor);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "não é base64!",
+            "MjAyNS0wMS0xM1QwOTowMA", // sem separador
+            "fDEyMzQ1Njc4LTEyMzQtMTIzNC0xMjM0LTEyMzQ1Njc4OTAxMg", // sem data
+    })
+    void cursorMalformadoERejeitado(String cursor) {
+        assertThatThrownBy(() -> ConsultaAvaliacaoService.decodificarCursor(cursor))
+                .isInstanceOf(ParametroConsultaInvalidoException.class);
+    }
+
+    @Test
+    void cursorAlteradoERejeitado() {
+        String codificado = ConsultaAvaliacaoService.codificarCursor(
+                new ConsultaAvaliacaoService.Cursor(LocalDateTime.of(2025, 1, 13, 9, 0), UUID.randomUUID()));
+        String valor = new String(Base64.getUrlDecoder().decode(codificado), StandardCharsets.UTF_8);
+
+        assertThatThrownBy(() -> ConsultaAvaliacaoService.decodificarCursor(codificar(valor.replace("2025-01-13", "2025-13-01"))))
+                .isInstanceOf(ParametroConsultaInvalidoException.class);
+        assertThatThrownBy(() -> ConsultaAvaliacaoService.decodificarCursor(codificar(valor.substring(0, valor.length() - 4) + "zzzz")))
+                .isInstanceOf(ParametroConsultaInvalidoException.class);
+        assertThatThrownBy(() -> ConsultaAvaliacaoService.decodificarCursor(codificar(valor + "' OR 1=1 --")))
+                .isInstanceOf(ParametroConsultaInvalidoException.class);
+    }
+
+    private static String codificar(String valor) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,40 @@
+package lambda.fase4.service;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExportacaoAvaliacaoServiceTest {
+
+    static Stream<Arguments> camposCsv() {
+        return Stream.of(
+                Arguments.of("Curso muito bom", "Curso muito bom"),
+                Arguments.of("", ""),
+                Arguments.of("nota 10 = ótima", "nota 10 = ótima"),
+                Arguments.of("bom, mas longo", "\"bom, mas longo\""),
+                Arguments.of("o \"melhor\" curso", "\"o \"\"melhor\"\" curso\""),
+                Arguments.of("linha 1\nlinha 2", "\"linha 1\nlinha 2\""),
+                Arguments.of("linha 1\r\nlinha 2", "\"linha 1\r\nlinha 2\""),
+                // Início de fórmula: apóstrofo dentro das aspas
+                Arguments.of("=HYPERLINK(\"x\")", "\"'=HYPERLINK(\"\"x\"\")\""),
+                Arguments.of("+5511999999999", "\"'+5511999999999\""),
+                Arguments.of("-1", "\"'-1\""),
+                Arguments.of("@SUM(A1)", "\"'@SUM(A1)\""));
+    }
+
+    @ParameterizedTest
+    @MethodSource("camposCsv")
+    void escapaCampoCsv(String valor, String esperado) throws IOException {
+        StringWriter writer = new StringWriter();
+
+        ExportacaoAvaliacaoService.escreverCampoCsv(valor, writer);
+
+        assertThat(writer.toString()).isEqualTo(esperado);
+    }
+}
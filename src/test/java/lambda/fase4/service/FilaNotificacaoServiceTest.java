@@ -0,0 +1,72 @@
+package lambda.fase4.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.IntSummaryStatistics;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FilaNotificacaoServiceTest {
+
+    private static final int BASE_SEGUNDOS = 10;
+    private static final int MAXIMO_SEGUNDOS = 900;
+    private static final int AMOSTRAS = 2000;
+
+    private final FilaNotificacaoService service = new FilaNotificacaoService(null, null);
+
+    @BeforeEach
+    void configurar() {
+        ReflectionTestUtils.setField(service, "reprocessamentoBaseSegundos", BASE_SEGUNDOS);
+        ReflectionTestUtils.setField(service, "reprocessamentoMaximoSegundos", MAXIMO_SEGUNDOS);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 4, 5, 6, 7})
+    void atrasoDobraACadaRecebimentoComJitterNaMetadeSuperior(int recebimentos) {
+        int atraso = BASE_SEGUNDOS << (recebimentos - 1);
+
+        IntSummaryStatistics amostras = amostrar(recebimentos);
+
+        assertThat(amostras.getMin()).isGreaterThanOrEqualTo(atraso - atraso / 2);
+        assertThat(amostras.getMax()).isLessThanOrEqualTo(atraso);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {8, 10, 21, 22, 40, 64, Integer.MAX_VALUE})
+    void atrasoLimitadoAoMaximoSemEstouro(int recebimentos) {
+        IntSummaryStatistics amostras = amostrar(recebimentos);
+
+        assertThat(amostras.getMin()).isGreaterThanOrEqualTo(MAXIMO_SEGUNDOS / 2);
+        assertThat(amostras.getMax()).isLessThanOrEqualTo(MAXIMO_SEGUNDOS);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, -1, Integer.MIN_VALUE})
+    void recebimentoDesconhecidoUsaOAtrasoBase(int recebimentos) {
+        IntSummaryStatistics amostras = amostrar(recebimentos);
+
+        assertThat(amostras.getMin()).isGreaterThanOrEqualTo(BASE_SEGUNDOS / 2);
+        assertThat(amostras.getMax()).isLessThanOrEqualTo(BASE_SEGUNDOS);
+    }
+
+    @Test
+    void jitterEspalhaAsTentativasPelaMetadeSuperior() {
+        IntSummaryStatistics amostras = amostrar(20);
+
+        // Com 2000 amostras uniformes em [450, 900], os extremos ficam próximos dos limites
+        assertThat(amostras.getMin()).isLessThan(MAXIMO_SEGUNDOS / 2 + 20);
+        assertThat(amostras.getMax()).isGreaterThan(MAXIMO_SEGUNDOS - 20);
+        assertThat(amostras.getAverage()).isBetween(MAXIMO_SEGUNDOS * 0.70, MAXIMO_SEGUNDOS * 0.80);
+    }
+
+    private IntSummaryStatistics amostrar(int recebimentos) {
+        return IntStream.range(0, AMOSTRAS)
+                .map(i -> service.atrasoNovaTentativa(recebimentos))
+                .summaryStatistics();
+    }
+}
@@ -0,0 +1,56 @@
+package lambda.fase4.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JanelaDeslizanteTest {
+
+    // 4 baldes de 5 minutos: o buffer cobre 20 minutos
+    private final JanelaDeslizante janela = new JanelaDeslizante(4, 5);
+
+    @Test
+    void somaOsBaldesDaJanelaIncluindoOCorrente() {
+        janela.registrar(100, 1, 8, 0);
+        janela.registrar(104, 2, 5, 1);
+        janela.registrar(107, 1, 2, 1);
+
+        assertThat(janela.somar(107, 10)).isEqualTo(new JanelaDeslizante.Soma(4, 15, 2));
+        assertThat(janela.somar(107, 5)).isEqualTo(new JanelaDeslizante.Soma(1, 2, 1));
+    }
+
+    @Test
+    void baldeDeUmaVoltaAnteriorESubstituidoNaRotacao() {
+        janela.registrar(100, 3, 30, 0);
+
+        // Minuto 120 cai na mesma posição do buffer que o minuto 100
+        janela.registrar(120, 1, 4, 1);
+
+        assertThat(janela.somar(120, 20)).isEqualTo(new JanelaDeslizante.Soma(1, 4, 1));
+    }
+
+    @Test
+    void baldeQueSaiuDaJanelaNaoEntraNaSoma() {
+        janela.registrar(100, 3, 30, 0);
+
+        assertThat(janela.somar(115, 20)).isEqualTo(new JanelaDeslizante.Soma(3, 30, 0));
+        assertThat(janela.somar(120, 20)).isEqualTo(new JanelaDeslizante.Soma(0, 0, 0));
+    }
+
+    @Test
+    void registroAtrasadoDeBaldeJaSubstituidoEDescartado() {
+        janela.registrar(120, 1, 4, 1);
+
+        janela.registrar(100, 5, 50, 5);
+
+        assertThat(janela.somar(120, 20)).isEqualTo(new JanelaDeslizante.Soma(1, 4, 1));
+    }
+
+    @Test
+    void janelaMaiorQueOBufferSomaApenasOsBaldesDisponiveis() {
+        janela.registrar(100, 1, 1, 0);
+        janela.registrar(115, 1, 1, 0);
+
+        assertThat(janela.somar(115, 60)).isEqualTo(new JanelaDeslizante.Soma(2, 2, 0));
+    }
+}
@@ -41,6 +41,31 @@ variable "from_email" {
   type        = string
 }
 
+variable "telemetria_exportador" {
+  description = "Exportador de traces OpenTelemetry: nenhum, otlp ou arquivo"
+  default     = "nenhum"
+}
+
+variable "otlp_endpoint" {
+  description = "Endpoint OTLP/HTTP do OpenTelemetry Collector (usado com telemetria_exportador = otlp)"
+  default     = "http://localhost:4318/v1/traces"
+}
+
+variable "arquivamento_idade_dias" {
+  description = "Idade (em dias) a partir da qual as avaliações são movidas para o arquivo compactado"
+  default     = 90
+}
+
+variable "notificacao_concorrencia_maxima" {
+  description = "Execuções simultâneas máximas da Lambda de notificações críticas (event source mapping SQS)"
+  default     = 20
+}
+
+variable "java_tool_options" {
+  description = "Opções da JVM das Lambdas; o arquivo AppCDS (fase4.jsa) vem no pacote gerado com -Pappcds"
+  default     = "-XX:SharedArchiveFile=/var/task/fase4.jsa -Xshare:auto"
+}
+
 # ========================================
 # VPC E NETWORKING
 # ========================================
@@ -202,9 +227,11 @@ resource "aws_sqs_queue" "notificacao_urgencia" {
   message_retention_seconds = 345600 # 4 dias
   receive_wait_time_seconds = 10
 
+  # Com o atraso exponencial entre tentativas (até 10s, 20s, 40s, 80s), as 5 tentativas cobrem
+  # uma instabilidade de alguns minutos; falhas permanentes vão direto para a DLQ pelo consumidor
   redrive_policy = jsonencode({
     deadLetterTargetArn = aws_sqs_queue.notificacao_dlq.arn
-    maxReceiveCount     = 3
+    maxReceiveCount     = 5
   })
 
   tags = {
@@ -212,6 +239,19 @@ resource "aws_sqs_queue" "notificacao_urgencia" {
   }
 }
 
+# Fila de baixa prioridade das avaliações de urgência MEDIA, esvaziada uma vez por dia
+# pela Lambda de relatórios (sem event source mapping)
+resource "aws_sqs_queue" "resumo_media" {
+  name                       = "resumo-media-queue"
+  max_message_size           = 262144
+  message_retention_seconds  = 345600 # 4 dias: cobre algumas execuções diárias com falha
+  visibility_timeout_seconds = 900
+
+  tags = {
+    Name = "${var.project_name}-resumo-media-queue"
+  }
+}
+
 # Dead Letter Queue (DLQ)
 resource "aws_sqs_queue" "notificacao_dlq" {
   name                      = "notificacao-urgencia-dlq"
@@ -243,6 +283,50 @@ resource "aws_sns_topic_subscription" "admin_email" {
   endpoint  = trimspace(each.value)
 }
 
+# ========================================
+# S3 - EXPORTAÇÕES
+# ========================================
+
+# Arquivos de exportação da Lambda de relatórios; os administradores recebem um link temporário
+resource "aws_s3_bucket" "exportacoes" {
+  bucket_prefix = "${var.project_name}-exportacoes-"
+
+  tags = {
+    Name = "${var.project_name}-exportacoes"
+  }
+}
+
+resource "aws_s3_bucket_public_access_block" "exportacoes" {
+  bucket = aws_s3_bucket.exportacoes.id
+
+  block_public_acls       = true
+  block_public_policy     = true
+  ignore_public_acls      = true
+  restrict_public_buckets = true
+}
+
+# Os links expiram em horas: os arquivos e os uploads interrompidos não precisam ficar no bucket
+resource "aws_s3_bucket_lifecycle_configuration" "exportacoes" {
+  bucket = aws_s3_bucket.exportacoes.id
+
+  rule {
+    id     = "expirar-exportacoes"
+    status = "Enabled"
+
+    filter {
+      prefix = "exportacoes/"
+    }
+
+    expiration {
+      days = 7
+    }
+
+    abort_incomplete_multipart_upload {
+      days_after_initiation = 1
+    }
+  }
+}
+
 # ========================================
 # IAM ROLES E POLÍTICAS
 # ========================================
@@ -293,7 +377,10 @@ resource "aws_iam_role_policy" "lambda_receber_feedback_policy" {
         Action = [
           "sqs:SendMessage"
         ]
-        Resource = aws_sqs_queue.notificacao_urgencia.arn
+        Resource = [
+          aws_sqs_queue.notificacao_urgencia.arn,
+          aws_sqs_queue.resumo_media.arn
+        ]
       },
       {
         Effect = "Allow"
@@ -352,10 +439,18 @@ resource "aws_iam_role_policy" "lambda_enviar_notificacao_policy" {
         Action = [
           "sqs:ReceiveMessage",
           "sqs:DeleteMessage",
-          "sqs:GetQueueAttributes"
+          "sqs:GetQueueAttributes",
+          "sqs:ChangeMessageVisibility"
         ]
         Resource = aws_sqs_queue.notificacao_urgencia.arn
       },
+      {
+        Effect = "Allow"
+        Action = [
+          "sqs:SendMessage"
+        ]
+        Resource = aws_sqs_queue.notificacao_dlq.arn
+      },
       {
         Effect = "Allow"
         Action = [
@@ -367,7 +462,8 @@ resource "aws_iam_role_policy" "lambda_enviar_notificacao_policy" {
         Effect = "Allow"
         Action = [
           "ses:SendEmail",
-          "ses:SendRawEmail"
+          "ses:SendRawEmail",
+          "ses:GetSendQuota"
         ]
         Resource = "*"
       },
@@ -436,10 +532,28 @@ resource "aws_iam_role_policy" "lambda_gerar_relatorio_policy" {
         Effect = "Allow"
         Action = [
           "ses:SendEmail",
-          "ses:SendRawEmail"
+          "ses:SendRawEmail",
+          "ses:GetSendQuota"
         ]
         Resource = "*"
       },
+      {
+        Effect = "Allow"
+        Action = [
+          "sqs:ReceiveMessage",
+          "sqs:DeleteMessage"
+        ]
+        Resource = aws_sqs_queue.resumo_media.arn
+      },
+      {
+        Effect = "Allow"
+        Action = [
+          "s3:PutObject",
+          "s3:GetObject",
+          "s3:AbortMultipartUpload"
+        ]
+        Resource = "${aws_s3_bucket.exportacoes.arn}/exportacoes/*"
+      },
       {
         Effect = "Allow"
         Action = [
@@ -451,13 +565,88 @@ resource "aws_iam_role_policy" "lambda_gerar_relatorio_policy" {
   })
 }
 
+# Role para Lambda - Migração do Banco
+resource "aws_iam_role" "lambda_migrar_banco" {
+  name = "${var.project_name}-lambda-migrar-banco"
+
+  assume_role_policy = jsonencode({
+    Version = "2012-10-17"
+    Statement = [{
+      Action = "sts:AssumeRole"
+      Effect = "Allow"
+      Principal = {
+        Service = "lambda.amazonaws.com"
+      }
+    }]
+  })
+}
+
+resource "aws_iam_role_policy" "lambda_migrar_banco_policy" {
+  name = "${var.project_name}-lambda-migrar-banco-policy"
+  role = aws_iam_role.lambda_migrar_banco.id
+
+  policy = jsonencode({
+    Version = "2012-10-17"
+    Statement = [
+      {
+        Effect = "Allow"
+        Action = [
+          "logs:CreateLogGroup",
+          "logs:CreateLogStream",
+          "logs:PutLogEvents"
+        ]
+        Resource = "arn:aws:logs:*:*:*"
+      }
+    ]
+  })
+}
+
 # ========================================
 # LAMBDA FUNCTIONS
 # ========================================
 
+# Lambda 4: Migração do Banco (uma invocação por pacote, antes de atualizar as demais funções)
+resource "aws_lambda_function" "migrar_banco" {
+  filename         = "target/fase4-lambda.zip"
+  source_code_hash = filebase64sha256("target/fase4-lambda.zip")
+  function_name    = "${var.project_name}-migrar-banco"
+  role             = aws_iam_role.lambda_migrar_banco.arn
+  handler          = "lambda.fase4.lambda.MigrarBancoHandler::handleRequest"
+  runtime          = "java21"
+  timeout          = 900
+  memory_size      = 512
+
+  environment {
+    variables = {
+      AWS_REGION  = var.aws_region
+      DB_HOST     = aws_db_instance.postgres.address
+      DB_NAME     = aws_db_instance.postgres.db_name
+      DB_USERNAME = aws_db_instance.postgres.username
+      DB_PASSWORD = aws_db_instance.postgres.password
+    }
+  }
+
+  tags = {
+    Name = "${var.project_name}-migrar-banco"
+  }
+}
+
+# Aplica as migrações a cada novo pacote; uma falha interrompe o apply
+resource "aws_lambda_invocation" "migrar_banco" {
+  function_name = aws_lambda_function.migrar_banco.function_name
+  input         = jsonencode({})
+
+  triggers = {
+    pacote = aws_lambda_function.migrar_banco.source_code_hash
+  }
+}
+
 # Lambda 1: Receber Feedback
 resource "aws_lambda_function" "receber_feedback" {
-  filename      = "target/fase4-0.0.1-SNAPSHOT.jar"
+  # O novo código só entra após as migrações do banco
+  depends_on = [aws_lambda_invocation.migrar_banco]
+
+  filename      = "target/fase4-lambda.zip"
   function_name = "${var.project_name}-receber-feedback"
   role          = aws_iam_role.lambda_receber_feedback.arn
   handler       = "lambda.fase4.lambda.ReceberFeedbackHandler::handleRequest"
@@ -467,13 +656,17 @@ resource "aws_lambda_function" "receber_feedback" {
 
   environment {
     variables = {
-      AWS_REGION            = var.aws_region
-      SQS_NOTIFICACAO_URL   = aws_sqs_queue.notificacao_urgencia.url
-      DYNAMODB_TABLE        = aws_dynamodb_table.avaliacoes.name
-      DB_HOST               = aws_db_instance.postgres.address
-      DB_NAME               = aws_db_instance.postgres.db_name
-      DB_USERNAME           = aws_db_instance.postgres.username
-      DB_PASSWORD           = aws_db_instance.postgres.password
+      AWS_REGION                         = var.aws_region
+      SQS_NOTIFICACAO_URL                = aws_sqs_queue.notificacao_urgencia.url
+      SQS_RESUMO_MEDIA_URL               = aws_sqs_queue.resumo_media.url
+      DYNAMODB_TABLE                     = aws_dynamodb_table.avaliacoes.name
+      DB_HOST                            = aws_db_instance.postgres.address
+      DB_NAME                            = aws_db_instance.postgres.db_name
+      DB_USERNAME                        = aws_db_instance.postgres.username
+      DB_PASSWORD                        = aws_db_instance.postgres.password
+      TELEMETRIA_EXPORTADOR              = var.telemetria_exportador
+      OTEL_EXPORTER_OTLP_TRACES_ENDPOINT = var.otlp_endpoint
+      JAVA_TOOL_OPTIONS                  = var.java_tool_options
     }
   }
 
@@ -484,7 +677,10 @@ resource "aws_lambda_function" "receber_feedback" {
 
 # Lambda 2: Enviar Notificação
 resource "aws_lambda_function" "enviar_notificacao" {
-  filename      = "target/fase4-0.0.1-SNAPSHOT.jar"
+  # O novo código só entra após as migrações do banco
+  depends_on = [aws_lambda_invocation.migrar_banco]
+
+  filename      = "target/fase4-lambda.zip"
   function_name = "${var.project_name}-enviar-notificacao"
   role          = aws_iam_role.lambda_enviar_notificacao.arn
   handler       = "lambda.fase4.lambda.EnviarNotificacaoHandler::handleRequest"
@@ -494,11 +690,20 @@ resource "aws_lambda_function" "enviar_notificacao" {
 
   environment {
     variables = {
-      AWS_REGION        = var.aws_region
-      SNS_URGENCIA_ARN  = aws_sns_topic.urgencia.arn
-      SES_FROM_EMAIL    = var.from_email
-      SES_ADMIN_EMAILS  = var.admin_emails
-      DYNAMODB_TABLE    = aws_dynamodb_table.avaliacoes.name
+      AWS_REGION                         = var.aws_region
+      SQS_NOTIFICACAO_URL                = aws_sqs_queue.notificacao_urgencia.url
+      SQS_NOTIFICACAO_DLQ_URL            = aws_sqs_queue.notificacao_dlq.url
+      SNS_URGENCIA_ARN                   = aws_sns_topic.urgencia.arn
+      SES_FROM_EMAIL                     = var.from_email
+      SES_ADMIN_EMAILS                   = var.admin_emails
+      DYNAMODB_TABLE                     = aws_dynamodb_table.avaliacoes.name
+      DB_HOST                            = aws_db_instance.postgres.address
+      DB_NAME                            = aws_db_instance.postgres.db_name
+      DB_USERNAME                        = aws_db_instance.postgres.username
+      DB_PASSWORD                        = aws_db_instance.postgres.password
+      TELEMETRIA_EXPORTADOR              = var.telemetria_exportador
+      OTEL_EXPORTER_OTLP_TRACES_ENDPOINT = var.otlp_endpoint
+      JAVA_TOOL_OPTIONS                  = var.java_tool_options
     }
   }
 
@@ -513,11 +718,22 @@ resource "aws_lambda_event_source_mapping" "notificacao_queue" {
   function_name    = aws_lambda_function.enviar_notificacao.arn
   batch_size       = 10
   enabled          = true
+
+  # Apenas as mensagens com falha (ou adiadas por limite do SES) voltam para a fila
+  function_response_types = ["ReportBatchItemFailures"]
+
+  # Limite próprio da faixa crítica; a faixa MEDIA é consumida por uma execução diária
+  scaling_config {
+    maximum_concurrency = var.notificacao_concorrencia_maxima
+  }
 }
 
 # Lambda 3: Gerar Relatório
 resource "aws_lambda_function" "gerar_relatorio" {
-  filename      = "target/fase4-0.0.1-SNAPSHOT.jar"
+  # O novo código só entra após as migrações do banco
+  depends_on = [aws_lambda_invocation.migrar_banco]
+
+  filename      = "target/fase4-lambda.zip"
   function_name = "${var.project_name}-gerar-relatorio"
   role          = aws_iam_role.lambda_gerar_relatorio.arn
   handler       = "lambda.fase4.lambda.GerarRelatorioHandler::handleRequest"
@@ -527,14 +743,20 @@ resource "aws_lambda_function" "gerar_relatorio" {
 
   environment {
     variables = {
-      AWS_REGION       = var.aws_region
-      SES_FROM_EMAIL   = var.from_email
-      SES_ADMIN_EMAILS = var.admin_emails
-      DYNAMODB_TABLE   = aws_dynamodb_table.avaliacoes.name
-      DB_HOST          = aws_db_instance.postgres.address
-      DB_NAME          = aws_db_instance.postgres.db_name
-      DB_USERNAME      = aws_db_instance.postgres.username
-      DB_PASSWORD      = aws_db_instance.postgres.password
+      AWS_REGION                         = var.aws_region
+      SES_FROM_EMAIL                     = var.from_email
+      SES_ADMIN_EMAILS                   = var.admin_emails
+      DYNAMODB_TABLE                     = aws_dynamodb_table.avaliacoes.name
+      DB_HOST                            = aws_db_instance.postgres.address
+      DB_NAME                            = aws_db_instance.postgres.db_name
+      DB_USERNAME                        = aws_db_instance.postgres.username
+      DB_PASSWORD                        = aws_db_instance.postgres.password
+      TELEMETRIA_EXPORTADOR              = var.telemetria_exportador
+      OTEL_EXPORTER_OTLP_TRACES_ENDPOINT = var.otlp_endpoint
+      ARQUIVAMENTO_IDADE_DIAS            = var.arquivamento_idade_dias
+      SQS_RESUMO_MEDIA_URL               = aws_sqs_queue.resumo_media.url
+      EXPORTACAO_BUCKET                  = aws_s3_bucket.exportacoes.id
+      JAVA_TOOL_OPTIONS                  = var.java_tool_options
     }
   }
 
@@ -564,6 +786,50 @@ resource "aws_lambda_permission" "allow_eventbridge" {
   source_arn    = aws_cloudwatch_event_rule.relatorio_semanal.arn
 }
 
+# EventBridge Rule: Arquivamento diário das avaliações antigas (todos os dias às 4h UTC)
+resource "aws_cloudwatch_event_rule" "arquivamento_diario" {
+  name                = "${var.project_name}-arquivamento-diario"
+  description         = "Trigger para arquivamento das avaliações antigas"
+  schedule_expression = "cron(0 4 * * ? *)"
+}
+
+resource "aws_cloudwatch_event_target" "arquivamento_diario" {
+  rule      = aws_cloudwatch_event_rule.arquivamento_diario.name
+  target_id = "Lambda"
+  arn       = aws_lambda_function.gerar_relatorio.arn
+  input     = jsonencode({ detail = { arquivamento = true } })
+}
+
+resource "aws_lambda_permission" "allow_eventbridge_arquivamento" {
+  statement_id  = "AllowExecutionFromEventBridgeArquivamento"
+  action        = "lambda:InvokeFunction"
+  function_name = aws_lambda_function.gerar_relatorio.function_name
+  principal     = "events.amazonaws.com"
+  source_arn    = aws_cloudwatch_event_rule.arquivamento_diario.arn
+}
+
+# EventBridge Rule: Resumo diário das avaliações MEDIA do dia anterior (todos os dias às 8h UTC)
+resource "aws_cloudwatch_event_rule" "resumo_media_diario" {
+  name                = "${var.project_name}-resumo-media-diario"
+  description         = "Trigger para o resumo diário das avaliações de urgência média"
+  schedule_expression = "cron(0 8 * * ? *)"
+}
+
+resource "aws_cloudwatch_event_target" "resumo_media_diario" {
+  rule      = aws_cloudwatch_event_rule.resumo_media_diario.name
+  target_id = "Lambda"
+  arn       = aws_lambda_function.gerar_relatorio.arn
+  input     = jsonencode({ detail = { resumoMedia = true } })
+}
+
+resource "aws_lambda_permission" "allow_eventbridge_resumo_media" {
+  statement_id  = "AllowExecutionFromEventBridgeResumoMedia"
+  action        = "lambda:InvokeFunction"
+  function_name = aws_lambda_function.gerar_relatorio.function_name
+  principal     = "events.amazonaws.com"
+  source_arn    = aws_cloudwatch_event_rule.resumo_media_diario.arn
+}
+
 # ========================================
 # API GATEWAY
 # ========================================
@@ -16,7 +16,8 @@ mvn clean package -DskipTests
 echo "Compilação OK!"
 echo ""
 
-echo "[2/3] Iniciando aplicação Spring Boot..."
+echo "[2/3] Aplicando migrações do banco e iniciando aplicação Spring Boot..."
+mvn -q exec:java -Dexec.mainClass=lambda.fase4.lambda.MigrarBancoHandler
 mvn spring-boot:run &
 SPRING_PID=$!
 echo "Aguardando aplicação iniciar (30 segundos)..."
@@ -80,7 +81,8 @@ if %errorlevel% neq 0 (
 echo Compilação OK!
 echo.
 
-echo [2/3] Iniciando aplicação Spring Boot...
+echo [2/3] Aplicando migrações do banco e iniciando aplicação Spring Boot...
+call mvn -q exec:java -Dexec.mainClass=lambda.fase4.lambda.MigrarBancoHandler
 start "Feedback System" mvn spring-boot:run
 echo Aguardando aplicação iniciar (30 segundos)...
 timeout /t 30 /nobreak > nul